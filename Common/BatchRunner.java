@@ -0,0 +1,227 @@
+package Common;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Headless command interpreter shared by the trackers' {@code --batch} mode.
+ *
+ * Each input line is one command: a name followed by its fields, separated by '|'. A field may
+ * contain '|' or '\' by escaping it with '\'. Blank lines and lines starting with '#' are skipped.
+ * Command names are case-insensitive.
+ *
+ * Each command produces exactly one output line:
+ * <pre>
+ * OK|NAME[|field...]
+ * ERR|lineNumber|NAME|message
+ * </pre>
+ * and a final {@code SUMMARY|commands=N|ok=N|errors=N|millis=N} line ends the run. Output is
+ * buffered and only flushed when the input has nothing more ready, so a piped script runs at full
+ * speed while an interactive driver still sees each result as soon as it waits for it.
+ */
+public final class BatchRunner {
+    /**
+     * Runs one command.
+     */
+    @FunctionalInterface
+    public interface Command {
+        /**
+         * Executes the command.
+         *
+         * @param fields the fields after the command name, unescaped
+         * @return the result fields to report after OK, or null for none
+         * @throws Exception if the command fails; the message is reported after ERR
+         */
+        String[] execute(String[] fields) throws Exception;
+    }
+
+    // A registered command with the number of fields it accepts
+    private static final class Entry {
+        final int minFields;
+        final int maxFields;
+        final Command command;
+
+        Entry(int minFields, int maxFields, Command command) {
+            this.minFields = minFields;
+            this.maxFields = maxFields;
+            this.command = command;
+        }
+    }
+
+    private final Map<String, Entry> commands = new TreeMap<>();
+
+    /**
+     * Checks whether the command line asks for batch mode.
+     *
+     * @param args the command line arguments
+     * @return true if the first argument is {@code --batch}
+     */
+    public static boolean isRequested(String[] args) {
+        return args.length > 0 && args[0].equals("--batch");
+    }
+
+    /**
+     * Opens the command stream named on the command line: the file after {@code --batch},
+     * or standard input if there is none or it is "-".
+     *
+     * @param args the command line arguments
+     * @return a reader over the commands
+     * @throws IOException if the file cannot be opened
+     */
+    public static BufferedReader openInput(String[] args) throws IOException {
+        if (args.length > 1 && !args[1].equals("-")) {
+            return Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8);
+        }
+        return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * Registers a command.
+     *
+     * @param name the command name
+     * @param minFields the fewest fields the command accepts
+     * @param maxFields the most fields the command accepts
+     * @param command runs the command
+     * @return this runner
+     */
+    public BatchRunner register(String name, int minFields, int maxFields, Command command) {
+        commands.put(name.toUpperCase(Locale.ROOT), new Entry(minFields, maxFields, command));
+        return this;
+    }
+
+    /**
+     * Runs every command from a stream and reports the results.
+     *
+     * @param in the commands
+     * @param out where results are written
+     * @return the number of failed commands
+     * @throws IOException if the commands cannot be read
+     */
+    public int run(BufferedReader in, PrintWriter out) throws IOException {
+        long start = System.nanoTime();
+        int lineNumber = 0;
+        int executed = 0;
+        int failed = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            executed++;
+            List<String> parts = split(line);
+            String name = parts.get(0).trim().toUpperCase(Locale.ROOT);
+            String[] fields = parts.subList(1, parts.size()).toArray(new String[0]);
+            String error = execute(name, fields, out);
+            if (error != null) {
+                failed++;
+                out.print("ERR|");
+                out.print(lineNumber);
+                out.print('|');
+                out.print(escape(name));
+                out.print('|');
+                out.println(escape(error));
+            }
+            if (!in.ready()) {
+                out.flush();
+            }
+        }
+        out.println("SUMMARY|commands=" + executed + "|ok=" + (executed - failed) + "|errors=" + failed
+                + "|millis=" + (System.nanoTime() - start) / 1_000_000);
+        out.flush();
+        return failed;
+    }
+
+    /**
+     * Escapes a field so it survives splitting.
+     *
+     * @param field the raw field
+     * @return the field with '\' and '|' escaped
+     */
+    public static String escape(String field) {
+        if (field.indexOf('|') < 0 && field.indexOf('\\') < 0) {
+            return field;
+        }
+        return field.replace("\\", "\\\\").replace("|", "\\|");
+    }
+
+    // Runs one command, printing its OK line; returns the error message if it failed
+    private String execute(String name, String[] fields, PrintWriter out) {
+        Entry entry = commands.get(name);
+        if (entry == null) {
+            return "Unknown command. Known commands: " + String.join(", ", commands.keySet());
+        }
+        if (fields.length < entry.minFields || fields.length > entry.maxFields) {
+            return entry.minFields == entry.maxFields
+                    ? "Expected " + entry.minFields + " fields but got " + fields.length
+                    : "Expected " + entry.minFields + " to " + entry.maxFields + " fields but got " + fields.length;
+        }
+        String[] result;
+        try {
+            result = entry.command.execute(fields);
+        } catch (Exception e) {
+            return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+        out.print("OK|");
+        out.print(escape(name));
+        if (result != null) {
+            for (String field : result) {
+                out.print('|');
+                out.print(escape(String.valueOf(field)));
+            }
+        }
+        out.println();
+        return null;
+    }
+
+    /**
+     * Builds a command or result line from unescaped fields.
+     *
+     * @param fields the fields, the command name first
+     * @return the fields escaped and joined with '|'
+     */
+    public static String join(String... fields) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append('|');
+            }
+            line.append(escape(fields[i]));
+        }
+        return line.toString();
+    }
+
+    /**
+     * Splits a command or result line on unescaped '|' and removes the escapes.
+     *
+     * @param line the line
+     * @return the fields, at least one
+     */
+    public static List<String> split(String line) {
+        List<String> parts = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < line.length()) {
+                current.append(line.charAt(++i));
+            } else if (c == '|') {
+                parts.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        parts.add(current.toString());
+        return parts;
+    }
+}
@@ -0,0 +1,474 @@
+package Common;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable file of key/value records in ascending key order, compressed in blocks.
+ *
+ * Records are packed into blocks of about a fixed uncompressed size, and each block is compressed
+ * on its own with Deflate, so the repeated names, types and dates that make up most of the data
+ * compress away, while one record can still be read by decompressing just its block. An index at
+ * the end of the file holds the first key and position of every block; a lookup binary-searches it
+ * and reads one block. Every block and the index carry a CRC32C, so damage is reported instead of
+ * being read back as wrong records.
+ *
+ * Layout: blocks, then the index, then a footer. A block is its uncompressed length, compressed
+ * length and CRC32C of the compressed bytes (4 bytes each), followed by the compressed bytes, which
+ * inflate to records of UTF key, value length (4 bytes) and value bytes. The index is the block
+ * count, then per block its first key, offset, compressed and uncompressed lengths and record count.
+ * The footer is the index offset, the record count, the index CRC32C and a magic number.
+ *
+ * {@link #write} replaces the file atomically. A {@link Reader} reuses its buffers and inflater
+ * between blocks. Neither is thread-safe.
+ */
+public final class BlockFile {
+    private static final int MAGIC = 0x424C4B46;    // "BLKF"
+    private static final int BLOCK_HEADER = 12;
+    private static final int FOOTER = 24;
+
+    /**
+     * The default uncompressed block size: large enough for Deflate to find the repetition, small
+     * enough that a lookup inflates little it does not need.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 32 * 1024;
+
+    private BlockFile() {
+    }
+
+    /**
+     * Supplies records to {@link #write}, such as {@link RecordStore#forEach}.
+     *
+     * @param <V> the record type
+     */
+    @FunctionalInterface
+    public interface Source<V> {
+        /**
+         * Passes every record to an action, in strictly ascending key order.
+         *
+         * @param action receives each key and record
+         * @throws IOException if a record cannot be read
+         */
+        void forEach(BiConsumer<String, V> action) throws IOException;
+    }
+
+    // Where one block is and what it starts with
+    private static final class BlockInfo {
+        final String firstKey;
+        final long offset;
+        final int compressedLength;
+        final int rawLength;
+        final int recordCount;
+
+        BlockInfo(String firstKey, long offset, int compressedLength, int rawLength, int recordCount) {
+            this.firstKey = firstKey;
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+            this.recordCount = recordCount;
+        }
+    }
+
+    // A byte array output whose contents can be reused without copying
+    private static final class Buffer extends ByteArrayOutputStream {
+        Buffer(int size) {
+            super(size);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    // A byte array input that can be pointed at another array without allocating
+    private static final class Input extends ByteArrayInputStream {
+        Input() {
+            super(new byte[0]);
+        }
+
+        void reset(byte[] bytes, int length) {
+            buf = bytes;
+            pos = 0;
+            count = length;
+            mark = 0;
+        }
+    }
+
+    /**
+     * Writes records to a file, replacing it atomically once every record is written.
+     *
+     * @param file the file
+     * @param codec converts each record to bytes
+     * @param blockSize uncompressed bytes gathered before a block is compressed
+     * @param records supplies the records, in strictly ascending key order
+     * @param <V> the record type
+     * @return the number of records written
+     * @throws IOException if the records or the file cannot be read or written; the file is then unchanged
+     * @throws IllegalArgumentException if keys are out of order or repeated
+     */
+    public static <V> long write(Path file, RecordCodec<V> codec, int blockSize, Source<V> records) throws IOException {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block size must be positive");
+        }
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        long written;
+        try (OutputStream stream = Files.newOutputStream(temporary);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            BlockWriter<V> writer = new BlockWriter<>(out, codec, blockSize, deflater);
+            records.forEach(writer::add);
+            written = writer.finish();
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temporary);
+            throw e.getCause();     // From the codec, inside the callback
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        } finally {
+            deflater.end();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    // Gathers records into blocks and writes each one compressed
+    private static final class BlockWriter<V> {
+        private final DataOutputStream out;
+        private final RecordCodec<V> codec;
+        private final int blockSize;
+        private final Deflater deflater;
+        private final Buffer raw;
+        private final DataOutputStream rawOut;
+        private final Buffer value = new Buffer(256);
+        private final DataOutputStream valueOut = new DataOutputStream(value);
+        private final List<BlockInfo> index = new ArrayList<>();
+        private final CRC32C crc = new CRC32C();
+        private byte[] compressed;
+        private long offset;
+        private long records;
+        private String lastKey;
+        private String firstKey;
+        private int blockRecords;
+
+        BlockWriter(DataOutputStream out, RecordCodec<V> codec, int blockSize, Deflater deflater) {
+            this.out = out;
+            this.codec = codec;
+            this.blockSize = blockSize;
+            this.deflater = deflater;
+            this.raw = new Buffer(blockSize + 1024);
+            this.rawOut = new DataOutputStream(raw);
+            this.compressed = new byte[blockSize + 1024];
+        }
+
+        void add(String key, V record) {
+            if (lastKey != null && key.compareTo(lastKey) <= 0) {
+                throw new IllegalArgumentException("Keys must be added in ascending order: " + key + " after " + lastKey);
+            }
+            try {
+                value.reset();
+                codec.write(record, valueOut);
+                if (blockRecords == 0) {
+                    firstKey = key;
+                }
+                rawOut.writeUTF(key);
+                rawOut.writeInt(value.size());
+                rawOut.write(value.array(), 0, value.size());
+                blockRecords++;
+                records++;
+                lastKey = key;
+                if (raw.size() >= blockSize) {
+                    flushBlock();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        long finish() throws IOException {
+            flushBlock();
+            long indexOffset = offset;
+            Buffer indexBytes = new Buffer(64 + index.size() * 32);
+            DataOutputStream indexOut = new DataOutputStream(indexBytes);
+            indexOut.writeInt(index.size());
+            for (BlockInfo block : index) {
+                indexOut.writeUTF(block.firstKey);
+                indexOut.writeLong(block.offset);
+                indexOut.writeInt(block.compressedLength);
+                indexOut.writeInt(block.rawLength);
+                indexOut.writeInt(block.recordCount);
+            }
+            crc.reset();
+            crc.update(indexBytes.array(), 0, indexBytes.size());
+            out.write(indexBytes.array(), 0, indexBytes.size());
+            out.writeLong(indexOffset);
+            out.writeLong(records);
+            out.writeInt((int) crc.getValue());
+            out.writeInt(MAGIC);
+            return records;
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockRecords == 0) {
+                return;
+            }
+            deflater.reset();
+            deflater.setInput(raw.array(), 0, raw.size());
+            deflater.finish();
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            crc.reset();
+            crc.update(compressed, 0, length);
+            out.writeInt(raw.size());
+            out.writeInt(length);
+            out.writeInt((int) crc.getValue());
+            out.write(compressed, 0, length);
+            index.add(new BlockInfo(firstKey, offset, length, raw.size(), blockRecords));
+            offset += BLOCK_HEADER + length;
+            raw.reset();
+            blockRecords = 0;
+        }
+    }
+
+    /**
+     * Reads a block file, one block at a time.
+     *
+     * @param <V> the record type
+     */
+    public static final class Reader<V> implements AutoCloseable {
+        private final Path file;
+        private final FileChannel channel;
+        private final RecordCodec<V> codec;
+        private final List<BlockInfo> index;
+        private final long recordCount;
+        private final Inflater inflater = new Inflater();
+        private final CRC32C crc = new CRC32C();
+        private final Input input = new Input();
+        private final DataInputStream in = new DataInputStream(input);
+        private ByteBuffer compressed = ByteBuffer.allocate(0);
+        private byte[] raw = new byte[0];
+        private int loadedBlock = -1;   // Whose records raw holds
+
+        private Reader(Path file, FileChannel channel, RecordCodec<V> codec, List<BlockInfo> index, long recordCount) {
+            this.file = file;
+            this.channel = channel;
+            this.codec = codec;
+            this.index = index;
+            this.recordCount = recordCount;
+        }
+
+        /**
+         * Opens a block file and reads its index.
+         *
+         * @param file the file
+         * @param codec converts bytes back to records
+         * @param <V> the record type
+         * @return the reader
+         * @throws IOException if the file cannot be read, or is not an intact block file
+         */
+        public static <V> Reader<V> open(Path file, RecordCodec<V> codec) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                if (size < FOOTER) {
+                    throw new IOException("Not a block file: " + file);
+                }
+                ByteBuffer footer = readFully(channel, size - FOOTER, ByteBuffer.allocate(FOOTER), FOOTER);
+                long indexOffset = footer.getLong();
+                long records = footer.getLong();
+                int indexCrc = footer.getInt();
+                if (footer.getInt() != MAGIC || indexOffset < 0 || indexOffset > size - FOOTER) {
+                    throw new IOException("Not a block file: " + file);
+                }
+                int indexLength = (int) (size - FOOTER - indexOffset);
+                ByteBuffer indexBytes = readFully(channel, indexOffset, ByteBuffer.allocate(indexLength), indexLength);
+                CRC32C check = new CRC32C();
+                check.update(indexBytes.array(), 0, indexLength);
+                if ((int) check.getValue() != indexCrc) {
+                    throw new IOException("Damaged block index: " + file);
+                }
+                DataInputStream indexIn = new DataInputStream(new ByteArrayInputStream(indexBytes.array(), 0, indexLength));
+                int blocks = indexIn.readInt();
+                List<BlockInfo> index = new ArrayList<>(blocks);
+                for (int i = 0; i < blocks; i++) {
+                    index.add(new BlockInfo(indexIn.readUTF(), indexIn.readLong(), indexIn.readInt(),
+                            indexIn.readInt(), indexIn.readInt()));
+                }
+                return new Reader<>(file, channel, codec, index, records);
+            } catch (EOFException e) {
+                channel.close();
+                throw new IOException("Truncated block file: " + file, e);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Gets the number of records.
+         *
+         * @return the record count
+         */
+        public long size() {
+            return recordCount;
+        }
+
+        /**
+         * Gets the number of blocks.
+         *
+         * @return the block count
+         */
+        public int getBlockCount() {
+            return index.size();
+        }
+
+        /**
+         * Reads the record stored under a key, inflating only the block that would hold it.
+         *
+         * @param key the key
+         * @return the record, or null if there is none
+         * @throws IOException if the block cannot be read or is damaged
+         */
+        public V get(String key) throws IOException {
+            // Last block whose first key is at or before the key
+            int low = 0;
+            int high = index.size() - 1;
+            int block = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (index.get(mid).firstKey.compareTo(key) <= 0) {
+                    block = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            if (block < 0) {
+                return null;
+            }
+            load(block);
+            for (int i = 0; i < index.get(block).recordCount; i++) {
+                int order = in.readUTF().compareTo(key);
+                int length = in.readInt();
+                if (order == 0) {
+                    return codec.read(in);
+                }
+                if (order > 0) {
+                    return null;
+                }
+                in.skipBytes(length);
+            }
+            return null;
+        }
+
+        /**
+         * Visits every record in key order, one block in memory at a time.
+         *
+         * @param action receives each key and record
+         * @throws IOException if a block cannot be read or is damaged
+         */
+        public void forEach(BiConsumer<String, ? super V> action) throws IOException {
+            for (int block = 0; block < index.size(); block++) {
+                load(block);
+                for (int i = 0; i < index.get(block).recordCount; i++) {
+                    String key = in.readUTF();
+                    in.readInt();
+                    action.accept(key, codec.read(in));
+                }
+            }
+        }
+
+        // Inflates a block into raw, checking it first, and positions the input at its first record
+        private void load(int block) throws IOException {
+            BlockInfo info = index.get(block);
+            if (block != loadedBlock) {
+                loadedBlock = -1;
+                int length = BLOCK_HEADER + info.compressedLength;
+                if (compressed.capacity() < length) {
+                    compressed = ByteBuffer.allocate(length);
+                }
+                readFully(channel, info.offset, compressed, length);
+                int rawLength = compressed.getInt();
+                int compressedLength = compressed.getInt();
+                int blockCrc = compressed.getInt();
+                if (rawLength != info.rawLength || compressedLength != info.compressedLength) {
+                    throw new IOException("Damaged block " + block + " in " + file);
+                }
+                crc.reset();
+                crc.update(compressed.array(), BLOCK_HEADER, compressedLength);
+                if ((int) crc.getValue() != blockCrc) {
+                    throw new IOException("Checksum mismatch in block " + block + " of " + file);
+                }
+                if (raw.length < rawLength) {
+                    raw = new byte[Math.max(rawLength, raw.length * 2)];
+                }
+                inflater.reset();
+                inflater.setInput(compressed.array(), BLOCK_HEADER, compressedLength);
+                try {
+                    int inflated = 0;
+                    while (inflated < rawLength && !inflater.finished()) {
+                        int n = inflater.inflate(raw, inflated, rawLength - inflated);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            break;
+                        }
+                        inflated += n;
+                    }
+                    if (inflated != rawLength) {
+                        throw new IOException("Damaged block " + block + " in " + file);
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("Damaged block " + block + " in " + file, e);
+                }
+                loadedBlock = block;
+            }
+            input.reset(raw, info.rawLength);
+        }
+
+        private static ByteBuffer readFully(FileChannel channel, long position, ByteBuffer buffer, int length)
+                throws IOException {
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            return buffer.flip();
+        }
+
+        /**
+         * Closes the file and releases the inflater.
+         *
+         * @throws IOException if the file cannot be closed
+         */
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package Common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Publishes each item once to independent subscribers, each running on its own thread.
+ *
+ * Built on {@link SubmissionPublisher}: every subscriber has a bounded buffer, so a slow one never
+ * makes the publisher wait until that buffer is full, and memory stays bounded however far it falls
+ * behind. Every subscriber sees every item, in batches; when a buffer is full {@link #publish}
+ * blocks until there is room again (backpressure).
+ * A batch is handed over when it is full or when the subscriber has caught up with everything
+ * published, so items are never held back waiting for more to arrive. Requests to the publisher
+ * are made a batch at a time as batches are handled.
+ *
+ * Subscribers should be added before the first item is published. A subscriber that throws has the
+ * error reported on standard error and keeps receiving items. Thread-safe.
+ *
+ * @param <T> the item type
+ */
+public final class EventPipeline<T> implements AutoCloseable {
+    private final String name;
+    private final ExecutorService executor;
+    private final SubmissionPublisher<T> publisher;
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+    private final AtomicLong published = new AtomicLong();
+
+    // One subscriber; items it has handled count as done
+    private final class Stage implements Flow.Subscriber<T> {
+        final String name;
+        final int batchSize;
+        final Consumer<? super List<T>> handler;
+        final long base = published.get();     // Items published before it subscribed
+        volatile long handled;
+        List<T> batch;
+        Flow.Subscription subscription;
+
+        Stage(String name, int batchSize, Consumer<? super List<T>> handler) {
+            this.name = name;
+            this.batchSize = batchSize;
+            this.handler = handler;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        long pending(long upTo) {
+            return upTo - base - handled;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(batchSize);
+        }
+
+        @Override
+        public void onNext(T item) {
+            batch.add(item);
+            if (batch.size() >= batchSize || pending(published.get()) <= batch.size()) {
+                flush();
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            System.err.println(EventPipeline.this.name + "/" + name + " stopped: " + error);
+        }
+
+        @Override
+        public void onComplete() {
+            flush();
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<T> items = batch;
+            batch = new ArrayList<>(batchSize);
+            try {
+                handler.accept(items);
+            } catch (RuntimeException e) {
+                System.err.println(EventPipeline.this.name + "/" + name + " failed: " + e);
+            }
+            handled += items.size();
+            subscription.request(items.size());
+            synchronized (EventPipeline.this) {
+                EventPipeline.this.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Creates a pipeline with no subscribers.
+     *
+     * @param name names the subscriber threads and error messages
+     * @param bufferCapacity the most items buffered for each subscriber; rounded up to a power of two
+     */
+    public EventPipeline(String name, int bufferCapacity) {
+        this.name = name;
+        this.executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, name + "-subscriber");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publisher = new SubmissionPublisher<>(executor, bufferCapacity);
+    }
+
+    /**
+     * Adds a subscriber that sees every item, in order, in batches of up to a given size.
+     *
+     * @param name names the subscriber in error messages
+     * @param batchSize the most items handed over at once
+     * @param handler receives each batch on the subscriber's thread; it may keep the list
+     */
+    public void subscribe(String name, int batchSize, Consumer<? super List<T>> handler) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        Stage stage = new Stage(name, batchSize, handler);
+        stages.add(stage);
+        publisher.subscribe(stage);
+    }
+
+    /**
+     * Publishes an item to every subscriber, blocking only while a subscriber's buffer is full.
+     *
+     * @param item the item
+     * @throws IllegalStateException if the pipeline is closed
+     */
+    public void publish(T item) {
+        published.incrementAndGet();
+        publisher.submit(item);
+    }
+
+    /**
+     * Waits until every subscriber has handled everything published so far.
+     * Returns early if the thread is interrupted, leaving its interrupt status set.
+     */
+    public synchronized void drain() {
+        long target = published.get();
+        try {
+            for (Stage stage : stages) {
+                while (stage.pending(target) > 0) {
+                    wait(100);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets how far the slowest subscriber is behind.
+     *
+     * @return the most items published but not yet handled by one subscriber
+     */
+    public long getLag() {
+        long upTo = published.get();
+        long lag = 0;
+        for (Stage stage : stages) {
+            lag = Math.max(lag, stage.pending(upTo));
+        }
+        return lag;
+    }
+
+    /**
+     * Waits for the subscribers to handle everything published, then completes them and stops their
+     * threads. Later calls to {@link #publish} fail.
+     */
+    @Override
+    public void close() {
+        drain();
+        publisher.close();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,120 @@
+package Common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Exponentially weighted mean and variance of a stream of numbers.
+ *
+ * Each value moves the mean a fixed fraction (alpha) of the way towards itself, and the variance
+ * is updated the same way, so both follow gradual drift while forgetting old values. An update is
+ * O(1) and the whole state is three numbers, so a large number of streams can be tracked side by side.
+ *
+ * Not thread-safe.
+ */
+public final class EwmaStats {
+    private final double alpha;
+    private long count;
+    private double mean;
+    private double variance;
+
+    /**
+     * Creates empty statistics.
+     *
+     * @param alpha the weight of each new value, between 0 and 1; 0.05 remembers roughly the last 40 values
+     */
+    public EwmaStats(double alpha) {
+        if (!(alpha > 0 && alpha <= 1)) {
+            throw new IllegalArgumentException("Alpha must be in (0, 1]");
+        }
+        this.alpha = alpha;
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value the value
+     */
+    public void add(double value) {
+        if (count++ == 0) {
+            mean = value;
+            return;
+        }
+        double diff = value - mean;
+        double increment = alpha * diff;
+        mean += increment;
+        variance = (1 - alpha) * (variance + diff * increment);
+    }
+
+    /**
+     * Gets the number of values added.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the weighted mean.
+     *
+     * @return the mean, or 0 if no value was added
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Gets the weighted standard deviation.
+     *
+     * @return the standard deviation, or 0 if fewer than two values were added
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(variance);
+    }
+
+    /**
+     * Writes the statistics so {@link #read} can restore them.
+     *
+     * @param out the destination
+     * @throws IOException if writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeDouble(alpha);
+        out.writeLong(count);
+        out.writeDouble(mean);
+        out.writeDouble(variance);
+    }
+
+    /**
+     * Reads statistics written by {@link #write}.
+     *
+     * @param in the source
+     * @return the statistics
+     * @throws IOException if the data is malformed
+     */
+    public static EwmaStats read(DataInput in) throws IOException {
+        double alpha = in.readDouble();
+        if (!(alpha > 0 && alpha <= 1)) {
+            throw new IOException("Invalid EWMA weight: " + alpha);
+        }
+        EwmaStats stats = new EwmaStats(alpha);
+        stats.count = in.readLong();
+        stats.mean = in.readDouble();
+        stats.variance = in.readDouble();
+        return stats;
+    }
+
+    /**
+     * Measures how unusual a value is: its distance from the mean in standard deviations.
+     *
+     * @param value the value
+     * @param minDeviation the smallest standard deviation to assume, so steady streams do not turn
+     *                     every small change into a large score
+     * @return the signed score; positive above the mean
+     */
+    public double score(double value, double minDeviation) {
+        return (value - mean) / Math.max(getStandardDeviation(), minDeviation);
+    }
+}
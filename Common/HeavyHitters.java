@@ -0,0 +1,266 @@
+package Common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted heavy-hitter sketch: Space-Saving for the top keys, Count-Min for any single key.
+ *
+ * Space-Saving keeps a fixed number of counters. A key that already has one adds to it; a new key
+ * takes over the smallest counter and inherits its count as its possible overestimate. Every key
+ * whose true total is more than 1/capacity of the grand total is guaranteed a counter. Count-Min
+ * answers "how much for this key" for any key, including ones that lost their counter, with an
+ * overestimate of at most about 0.3% of the grand total (at 99.99% confidence) from a fixed 32 KB.
+ * Both merge, so per-period sketches combine into one for a longer period, and both are written
+ * out as they are, so a saved sketch reads back exactly.
+ *
+ * Not thread-safe.
+ */
+public final class HeavyHitters {
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 1024;   // A power of two, so a column is a mask of the hash
+
+    /**
+     * A key with its estimated total.
+     */
+    public static final class Entry {
+        private final String key;
+        private double total;
+        private double error;
+
+        private Entry(String key, double total, double error) {
+            this.key = key;
+            this.total = total;
+            this.error = error;
+        }
+
+        /**
+         * Gets the key.
+         *
+         * @return the key
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Gets the estimated total, which is never below the true total.
+         *
+         * @return the estimate
+         */
+        public double getTotal() {
+            return total;
+        }
+
+        /**
+         * Gets how much of the estimate may have come from other keys.
+         *
+         * @return the largest possible overestimate
+         */
+        public double getError() {
+            return error;
+        }
+    }
+
+    private final int capacity;
+    private final Map<String, Entry> counters = new HashMap<>();
+    private final double[][] counts = new double[DEPTH][WIDTH];
+    private double grandTotal;
+
+    /**
+     * Constructor that creates an empty sketch tracking 256 keys.
+     */
+    public HeavyHitters() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor that creates an empty sketch.
+     *
+     * @param capacity the number of keys tracked exactly enough to rank
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public HeavyHitters(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds an amount to a key.
+     *
+     * @param key the key
+     * @param amount the amount; not negative
+     */
+    public void add(String key, double amount) {
+        grandTotal += amount;
+        long hash = ShardRing.hash(key);
+        for (int row = 0; row < DEPTH; row++) {
+            counts[row][column(hash, row)] += amount;
+        }
+        Entry entry = counters.get(key);
+        if (entry != null) {
+            entry.total += amount;
+        } else if (counters.size() < capacity) {
+            counters.put(key, new Entry(key, amount, 0));
+        } else {
+            // Replacing the smallest counter is a scan over the counters, only for keys not tracked
+            Entry smallest = null;
+            for (Entry candidate : counters.values()) {
+                if (smallest == null || candidate.total < smallest.total) {
+                    smallest = candidate;
+                }
+            }
+            counters.remove(smallest.key);
+            counters.put(key, new Entry(key, smallest.total + amount, smallest.total));
+        }
+    }
+
+    /**
+     * Adds everything another sketch has seen to this one.
+     *
+     * @param other the other sketch
+     */
+    public void merge(HeavyHitters other) {
+        grandTotal += other.grandTotal;
+        for (int row = 0; row < DEPTH; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                counts[row][column] += other.counts[row][column];
+            }
+        }
+        // A key missing from one side may have had up to that side's smallest count there
+        double thisFloor = counters.size() < capacity ? 0 : smallestTotal(counters);
+        double otherFloor = other.counters.size() < other.capacity ? 0 : smallestTotal(other.counters);
+        Map<String, Entry> merged = new HashMap<>();
+        for (Entry entry : counters.values()) {
+            Entry theirs = other.counters.get(entry.key);
+            merged.put(entry.key, theirs != null
+                    ? new Entry(entry.key, entry.total + theirs.total, entry.error + theirs.error)
+                    : new Entry(entry.key, entry.total + otherFloor, entry.error + otherFloor));
+        }
+        for (Entry theirs : other.counters.values()) {
+            if (!merged.containsKey(theirs.key)) {
+                merged.put(theirs.key, new Entry(theirs.key, theirs.total + thisFloor, theirs.error + thisFloor));
+            }
+        }
+        List<Entry> ranked = new ArrayList<>(merged.values());
+        ranked.sort(Comparator.comparingDouble(Entry::getTotal).reversed());
+        counters.clear();
+        for (Entry entry : ranked.subList(0, Math.min(capacity, ranked.size()))) {
+            counters.put(entry.key, entry);
+        }
+    }
+
+    /**
+     * Gets the keys with the largest totals.
+     *
+     * @param limit the most keys to return
+     * @return up to limit entries, largest first; each total is capped by the Count-Min estimate
+     */
+    public List<Entry> getTop(int limit) {
+        List<Entry> ranked = new ArrayList<>(counters.size());
+        for (Entry entry : counters.values()) {
+            double bounded = Math.min(entry.total, estimate(entry.key));
+            ranked.add(new Entry(entry.key, bounded, Math.min(entry.error, bounded)));
+        }
+        ranked.sort(Comparator.comparingDouble(Entry::getTotal).reversed().thenComparing(Entry::getKey));
+        return ranked.subList(0, Math.min(limit, ranked.size()));
+    }
+
+    /**
+     * Estimates the total of any key.
+     *
+     * @param key the key
+     * @return an estimate that is never below the true total
+     */
+    public double estimate(String key) {
+        long hash = ShardRing.hash(key);
+        double estimate = Double.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counts[row][column(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Gets the sum of every amount added.
+     *
+     * @return the grand total
+     */
+    public double getGrandTotal() {
+        return grandTotal;
+    }
+
+    /**
+     * Writes the sketch so {@link #read} can restore it.
+     *
+     * @param out the destination
+     * @throws IOException if writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(capacity);
+        out.writeDouble(grandTotal);
+        for (double[] row : counts) {
+            for (double count : row) {
+                out.writeDouble(count);
+            }
+        }
+        out.writeInt(counters.size());
+        for (Entry entry : counters.values()) {
+            out.writeUTF(entry.key);
+            out.writeDouble(entry.total);
+            out.writeDouble(entry.error);
+        }
+    }
+
+    /**
+     * Reads a sketch written by {@link #write}.
+     *
+     * @param in the source
+     * @return the sketch
+     * @throws IOException if the data is malformed
+     */
+    public static HeavyHitters read(DataInput in) throws IOException {
+        int capacity = in.readInt();
+        if (capacity <= 0) {
+            throw new IOException("Invalid heavy-hitter capacity: " + capacity);
+        }
+        HeavyHitters sketch = new HeavyHitters(capacity);
+        sketch.grandTotal = in.readDouble();
+        for (double[] row : sketch.counts) {
+            for (int column = 0; column < WIDTH; column++) {
+                row[column] = in.readDouble();
+            }
+        }
+        int size = in.readInt();
+        if (size < 0 || size > capacity) {
+            throw new IOException("Invalid heavy-hitter counter count: " + size);
+        }
+        for (int i = 0; i < size; i++) {
+            String key = in.readUTF();
+            sketch.counters.put(key, new Entry(key, in.readDouble(), in.readDouble()));
+        }
+        return sketch;
+    }
+
+    // Column of a key in a row; each row uses its own 16 bits of the hash
+    private static int column(long hash, int row) {
+        return (int) (hash >>> (row * 16)) & (WIDTH - 1);
+    }
+
+    private static double smallestTotal(Map<String, Entry> counters) {
+        double smallest = Double.MAX_VALUE;
+        for (Entry entry : counters.values()) {
+            smallest = Math.min(smallest, entry.total);
+        }
+        return smallest;
+    }
+}
@@ -0,0 +1,97 @@
+package Common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * HyperLogLog sketch that estimates the number of distinct strings added to it.
+ *
+ * Each string is hashed to 64 bits; the top bits pick one of 4,096 registers and the register keeps
+ * the longest run of leading zeros seen in the rest. The estimate is within about 1.6% (one standard
+ * error) at any cardinality, from a fixed 4 KB. Small counts use linear counting over the empty
+ * registers, which is exact in practice. Two sketches merge by taking the larger register, so
+ * per-period sketches combine into the sketch of the whole period. A sketch is written as its raw
+ * registers, so it can be saved and read back without the strings it has seen.
+ *
+ * Not thread-safe.
+ */
+public final class HyperLogLog {
+    private static final int PRECISION = 12;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers = new byte[REGISTERS];
+
+    /**
+     * Adds a string.
+     *
+     * @param value the string
+     */
+    public void add(String value) {
+        long hash = ShardRing.hash(value);  // The ring's hash is already well mixed in every bit
+        int index = (int) (hash >>> (64 - PRECISION));
+        // Leading zeros of the remaining bits, plus one; the sentinel bit caps the run
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    /**
+     * Adds everything another sketch has seen to this one.
+     *
+     * @param other the other sketch
+     */
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * Writes the sketch so {@link #read} can restore it.
+     *
+     * @param out the destination
+     * @throws IOException if writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.write(registers);
+    }
+
+    /**
+     * Reads a sketch written by {@link #write}.
+     *
+     * @param in the source
+     * @return the sketch
+     * @throws IOException if the data is malformed
+     */
+    public static HyperLogLog read(DataInput in) throws IOException {
+        HyperLogLog sketch = new HyperLogLog();
+        in.readFully(sketch.registers);
+        return sketch;
+    }
+
+    /**
+     * Estimates the number of distinct strings added.
+     *
+     * @return the estimate
+     */
+    public long estimate() {
+        double sum = 0;
+        int empty = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                empty++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && empty > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / empty);
+        }
+        return Math.round(estimate);
+    }
+}
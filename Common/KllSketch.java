@@ -0,0 +1,272 @@
+package Common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * KLL quantile sketch over doubles.
+ *
+ * Values are kept in levels of compactors: an item on level h stands for 2^h original values. When
+ * the sketch is over capacity the lowest full level is sorted and every other item, starting at a
+ * random offset, moves up a level, so the sketch stays at a few times k items however many values
+ * are added. With the default k = 200 the rank of a reported quantile is off by about 1.5% of the
+ * count. Sketches merge level by level, so per-period sketches combine into one for a longer period.
+ * Minimum and maximum are exact. A sketch is written as its retained items, level by level.
+ *
+ * Not thread-safe.
+ */
+public final class KllSketch {
+    private static final int DEFAULT_K = 200;
+    private static final int MIN_LEVEL_CAPACITY = 8;
+    private static final double DECAY = 2.0 / 3.0;
+
+    private final int k;
+    private final List<double[]> levels = new ArrayList<>();
+    private final List<Integer> sizes = new ArrayList<>();
+    private final SplittableRandom random = new SplittableRandom(0x5eed);
+    private int retained;       // Items across all levels
+    private int totalCapacity;  // Sum of the level capacities, recomputed when a level is added
+    private long count;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+
+    /**
+     * Constructor that creates an empty sketch with the default accuracy.
+     */
+    public KllSketch() {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * Constructor that creates an empty sketch.
+     *
+     * @param k the accuracy parameter; the rank error is roughly 1.65 / k
+     * @throws IllegalArgumentException if k is below 8
+     */
+    public KllSketch(int k) {
+        if (k < MIN_LEVEL_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_LEVEL_CAPACITY + ": " + k);
+        }
+        this.k = k;
+        addLevel();
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value the value; NaN is ignored
+     */
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        min = count == 1 ? value : Math.min(min, value);
+        max = count == 1 ? value : Math.max(max, value);
+        append(0, value);
+        compress();
+    }
+
+    /**
+     * Adds every value another sketch has seen to this one.
+     *
+     * @param other the other sketch
+     */
+    public void merge(KllSketch other) {
+        if (other.count == 0) {
+            return;
+        }
+        min = count == 0 ? other.min : Math.min(min, other.min);
+        max = count == 0 ? other.max : Math.max(max, other.max);
+        count += other.count;
+        for (int h = 0; h < other.levels.size(); h++) {
+            while (levels.size() <= h) {
+                addLevel();
+            }
+            double[] items = other.levels.get(h);
+            for (int i = 0; i < other.sizes.get(h); i++) {
+                append(h, items[i]);
+            }
+        }
+        compress();
+    }
+
+    /**
+     * Gets the number of values added.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Estimates a quantile.
+     *
+     * @param fraction the quantile, from 0 (the minimum) to 1 (the maximum)
+     * @return the estimated value, or NaN if the sketch is empty
+     */
+    public double getQuantile(double fraction) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (fraction <= 0) {
+            return min;
+        }
+        if (fraction >= 1) {
+            return max;
+        }
+        // Sort every retained item with its weight, then walk the cumulative weight
+        double[] values = new double[retained];
+        long[] weights = new long[retained];
+        Integer[] order = new Integer[retained];
+        long total = 0;
+        int n = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            double[] items = levels.get(h);
+            for (int i = 0; i < sizes.get(h); i++) {
+                values[n] = items[i];
+                weights[n] = 1L << h;
+                order[n] = n;
+                total += weights[n];
+                n++;
+            }
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(values[a], values[b]));
+        double target = fraction * total;
+        long cumulative = 0;
+        for (Integer index : order) {
+            cumulative += weights[index];
+            if (cumulative >= target) {
+                return values[index];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Writes the sketch so {@link #read} can restore it.
+     *
+     * @param out the destination
+     * @throws IOException if writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(k);
+        out.writeLong(count);
+        out.writeDouble(min);
+        out.writeDouble(max);
+        out.writeInt(levels.size());
+        for (int h = 0; h < levels.size(); h++) {
+            double[] items = levels.get(h);
+            int size = sizes.get(h);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(items[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a sketch written by {@link #write}.
+     * The compaction offsets of the restored sketch start from a fresh random sequence.
+     *
+     * @param in the source
+     * @return the sketch
+     * @throws IOException if the data is malformed
+     */
+    public static KllSketch read(DataInput in) throws IOException {
+        int k = in.readInt();
+        if (k < MIN_LEVEL_CAPACITY) {
+            throw new IOException("Invalid KLL accuracy: " + k);
+        }
+        KllSketch sketch = new KllSketch(k);
+        sketch.count = in.readLong();
+        sketch.min = in.readDouble();
+        sketch.max = in.readDouble();
+        int levelCount = in.readInt();
+        if (levelCount < 1 || levelCount > 64) {
+            throw new IOException("Invalid KLL level count: " + levelCount);
+        }
+        sketch.levels.clear();
+        sketch.sizes.clear();
+        for (int h = 0; h < levelCount; h++) {
+            int size = in.readInt();
+            if (size < 0 || size > 1 << 24) {
+                throw new IOException("Invalid KLL level size: " + size);
+            }
+            double[] items = new double[Math.max(size, MIN_LEVEL_CAPACITY)];
+            for (int i = 0; i < size; i++) {
+                items[i] = in.readDouble();
+            }
+            sketch.levels.add(items);
+            sketch.sizes.add(size);
+            sketch.retained += size;
+        }
+        sketch.totalCapacity = 0;
+        for (int h = 0; h < levelCount; h++) {
+            sketch.totalCapacity += sketch.capacity(h);
+        }
+        return sketch;
+    }
+
+    private void addLevel() {
+        levels.add(new double[MIN_LEVEL_CAPACITY]);
+        sizes.add(0);
+        totalCapacity = 0;
+        for (int h = 0; h < levels.size(); h++) {
+            totalCapacity += capacity(h);
+        }
+    }
+
+    private void append(int level, double value) {
+        double[] items = levels.get(level);
+        int size = sizes.get(level);
+        if (size == items.length) {
+            items = Arrays.copyOf(items, size * 2);
+            levels.set(level, items);
+        }
+        items[size] = value;
+        sizes.set(level, size + 1);
+        retained++;
+    }
+
+    // Capacity of a level; the top level gets k and each one below two thirds of the one above
+    private int capacity(int level) {
+        int depth = levels.size() - 1 - level;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(DECAY, depth)));
+    }
+
+    // Compacts the lowest over-full level until the sketch fits its total capacity
+    private void compress() {
+        while (retained > totalCapacity) {
+            for (int h = 0; h < levels.size(); h++) {
+                if (sizes.get(h) >= capacity(h)) {
+                    compact(h);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void compact(int level) {
+        if (level + 1 == levels.size()) {
+            addLevel();
+        }
+        double[] items = levels.get(level);
+        int size = sizes.get(level);
+        // An odd item out stays behind so the promoted weight matches what was removed
+        int keep = size % 2;
+        Arrays.sort(items, keep, size);
+        int offset = random.nextBoolean() ? 1 : 0;
+        for (int i = keep + offset; i < size; i += 2) {
+            append(level + 1, items[i]);
+        }
+        retained -= size - keep;
+        sizes.set(level, keep);
+    }
+}
@@ -0,0 +1,326 @@
+package Common;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide registry of counters, gauges and latency histograms shared by the trackers.
+ *
+ * Metrics are off unless the JVM is started with {@code -Dmetrics.enabled=true} or they are switched
+ * on through JMX. While off, {@link #start()} returns 0 and every record call returns after a single
+ * volatile read, so instrumented code runs at full speed.
+ *
+ * {@link #install(String)} publishes the registry as the {@code Common:type=Metrics} MXBean. With
+ * {@code -Dmetrics.port=N} it also serves the Prometheus text format at
+ * {@code http://127.0.0.1:N/metrics}, and with {@code -Dmetrics.dump=file} it writes the same text
+ * to that file on {@link #shutdown()}.
+ *
+ * Metric names follow Prometheus conventions: lower-case words joined by underscores, latency
+ * histograms ending in {@code _seconds} and counters in {@code _total}. A counter or gauge name may
+ * carry labels, e.g. {@code bookings_total{result="booked"}}; series sharing a base name are
+ * reported as one metric.
+ */
+public final class Metrics {
+    private static final String OBJECT_NAME = "Common:type=Metrics";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static volatile boolean enabled = Boolean.getBoolean("metrics.enabled");
+
+    private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+
+    private static HttpServer server;   // Prometheus endpoint, if one was requested
+    private static String application;  // Name given to install, used in the dump header
+
+    /**
+     * A monotonically increasing count.
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        private Counter() {
+        }
+
+        /**
+         * Adds one, if metrics are enabled.
+         */
+        public void increment() {
+            if (enabled) {
+                value.increment();
+            }
+        }
+
+        /**
+         * Adds an amount, if metrics are enabled.
+         *
+         * @param amount the amount to add
+         */
+        public void add(long amount) {
+            if (enabled) {
+                value.add(amount);
+            }
+        }
+
+        /**
+         * Gets the current count.
+         *
+         * @return the count
+         */
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Gets or creates a counter.
+     *
+     * @param name the metric name, ending in _total
+     * @return the counter registered under that name
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * Gets or creates a latency histogram.
+     *
+     * @param name the metric name, ending in _seconds
+     * @return the histogram registered under that name
+     */
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * Registers a value that is read when metrics are reported, replacing any earlier gauge of that name.
+     *
+     * @param name the metric name
+     * @param value supplies the current value
+     */
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Takes the start time of an operation to be passed to {@link LatencyHistogram#recordSince}.
+     *
+     * @return the current time in nanoseconds, or 0 if metrics are disabled
+     */
+    public static long start() {
+        if (!enabled) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        return now != 0 ? now : 1;
+    }
+
+    /**
+     * Checks whether operations are being measured.
+     *
+     * @return true if metrics are enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns measuring on or off.
+     *
+     * @param on true to start measuring
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Publishes the registry through JMX and, if configured, the Prometheus endpoint.
+     * Problems are reported on standard error and never stop the application.
+     *
+     * @param applicationName the application being measured
+     */
+    public static synchronized void install(String applicationName) {
+        application = applicationName;
+        try {
+            MBeanServer platform = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(OBJECT_NAME);
+            if (!platform.isRegistered(objectName)) {
+                platform.registerMBean(new Bean(), objectName);
+            }
+        } catch (JMException e) {
+            System.err.println("Metrics are not available through JMX: " + e.getMessage());
+        }
+
+        Integer port = Integer.getInteger("metrics.port");
+        if (port != null && server == null) {
+            try {
+                server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+                server.createContext("/metrics", exchange -> {
+                    byte[] body = toPrometheusText().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                });
+                server.start();
+            } catch (IOException e) {
+                System.err.println("Metrics endpoint could not start on port " + port + ": " + e.getMessage());
+                server = null;
+            }
+        }
+    }
+
+    /**
+     * Stops the Prometheus endpoint and writes the dump file, if either was configured.
+     */
+    public static synchronized void shutdown() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        String dump = System.getProperty("metrics.dump");
+        if (dump != null) {
+            try {
+                writeTo(Paths.get(dump));
+            } catch (IOException e) {
+                System.err.println("Metrics could not be written to " + dump + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes every metric in the Prometheus text format to a file, replacing it.
+     *
+     * @param file the destination
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeTo(Path file) throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(toPrometheusText());
+        }
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format.
+     * Latencies are reported as summaries in seconds.
+     *
+     * @return the metrics text
+     */
+    public static String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+        if (application != null) {
+            out.append("# Metrics for ").append(application).append(enabled ? "" : " (disabled)").append('\n');
+        }
+        Set<String> typed = new HashSet<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            appendType(out, typed, entry.getKey(), "counter");
+            out.append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            appendType(out, typed, entry.getKey(), "gauge");
+            out.append(entry.getKey()).append(' ').append(entry.getValue().getAsLong()).append('\n');
+        }
+        for (LatencyHistogram histogram : histograms.values()) {
+            String name = histogram.getName();
+            out.append("# TYPE ").append(name).append(" summary\n");
+            for (double quantile : QUANTILES) {
+                out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(histogram.getQuantileNanos(quantile))).append('\n');
+            }
+            out.append(name).append("_sum ").append(seconds(histogram.getSumNanos())).append('\n');
+            out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+            out.append("# TYPE ").append(name).append("_max gauge\n");
+            out.append(name).append("_max ").append(seconds(histogram.getMaxNanos())).append('\n');
+        }
+        return out.toString();
+    }
+
+    // Writes the TYPE line of a metric once, before its first series
+    private static void appendType(StringBuilder out, Set<String> typed, String name, String type) {
+        int labels = name.indexOf('{');
+        String baseName = labels < 0 ? name : name.substring(0, labels);
+        if (typed.add(baseName)) {
+            out.append("# TYPE ").append(baseName).append(' ').append(type).append('\n');
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    // The MXBean; reads the static registry
+    private static final class Bean implements MetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        public void setEnabled(boolean on) {
+            enabled = on;
+        }
+
+        @Override
+        public Map<String, Long> getValues() {
+            Map<String, Long> values = new TreeMap<>();
+            counters.forEach((name, counter) -> values.put(name, counter.get()));
+            gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+            return values;
+        }
+
+        @Override
+        public Map<String, Long> getLatencyCounts() {
+            Map<String, Long> values = new TreeMap<>();
+            histograms.forEach((name, histogram) -> values.put(name, histogram.getCount()));
+            return values;
+        }
+
+        @Override
+        public Map<String, Double> getLatencyP99Millis() {
+            Map<String, Double> values = new TreeMap<>();
+            histograms.forEach((name, histogram) -> values.put(name, histogram.getQuantileNanos(0.99) / 1e6));
+            return values;
+        }
+
+        @Override
+        public double getLatencyMillis(String name, double percentile) {
+            LatencyHistogram histogram = histograms.get(name);
+            return histogram == null ? 0 : histogram.getQuantileNanos(percentile / 100) / 1e6;
+        }
+
+        @Override
+        public String getPrometheusText() {
+            return toPrometheusText();
+        }
+
+        @Override
+        public void reset() {
+            counters.values().forEach(counter -> counter.value.reset());
+            histograms.values().forEach(LatencyHistogram::reset);
+        }
+    }
+}
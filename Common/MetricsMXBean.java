@@ -0,0 +1,64 @@
+package Common;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link Metrics} registry, registered as {@code Common:type=Metrics}.
+ */
+public interface MetricsMXBean {
+    /**
+     * Checks whether operations are being measured.
+     *
+     * @return true if metrics are enabled
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns measuring on or off while the application runs.
+     *
+     * @param enabled true to start measuring
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Gets every counter and gauge.
+     *
+     * @return current values keyed by metric name
+     */
+    Map<String, Long> getValues();
+
+    /**
+     * Gets the number of measurements of every latency histogram.
+     *
+     * @return counts keyed by metric name
+     */
+    Map<String, Long> getLatencyCounts();
+
+    /**
+     * Gets the 99th percentile of every latency histogram.
+     *
+     * @return latencies in milliseconds keyed by metric name
+     */
+    Map<String, Double> getLatencyP99Millis();
+
+    /**
+     * Gets a latency percentile of one histogram.
+     *
+     * @param name the metric name
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in milliseconds, or 0 if the histogram is unknown or empty
+     */
+    double getLatencyMillis(String name, double percentile);
+
+    /**
+     * Renders every metric in the Prometheus text exposition format.
+     *
+     * @return the metrics text
+     */
+    String getPrometheusText();
+
+    /**
+     * Clears every counter and histogram; gauges are unaffected.
+     */
+    void reset();
+}
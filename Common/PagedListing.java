@@ -0,0 +1,190 @@
+package Common;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Cursor-based, sorted and filtered paging over a record store.
+ *
+ * The store is never copied: every page makes one pass over it through its forEach method and
+ * keeps only the next pageSize matches in a bounded heap, so memory stays O(pageSize) whatever
+ * the store size. The cursor is the last record shown (keyset paging), which keeps paging
+ * correct when records are added between pages. Records the order considers equal are paged in
+ * the store's iteration order.
+ *
+ * Pages are rendered into a caller-supplied writer and flushed once per page, so a page costs a
+ * single write to the terminal instead of one synchronized println per record.
+ *
+ * @param <T> the record type
+ */
+public final class PagedListing<T> {
+    /**
+     * Writes one record as one or more lines.
+     *
+     * @param <T> the record type
+     */
+    public interface Renderer<T> {
+        void render(T record, PrintWriter out);
+    }
+
+    // A match found during a scan, with its position among the scan's matches as the tie-breaker
+    private static final class Candidate<T> {
+        final T record;
+        final long sequence;
+
+        Candidate(T record, long sequence) {
+            this.record = record;
+            this.sequence = sequence;
+        }
+    }
+
+    private final Consumer<Consumer<T>> source;
+    private final Comparator<? super T> order;
+    private final Predicate<? super T> filter;
+    private final int pageSize;
+
+    private T cursor;           // Last record shown, or null before the first page
+    private int tiesAtCursor;   // Records equal to the cursor that were already shown
+    private boolean more = true;
+    private int shown;
+    private int matchCount;
+
+    /**
+     * Constructor that creates a listing positioned before the first page.
+     *
+     * @param source iterates the store, e.g. {@code list::forEach} or {@code map.values()::forEach};
+     *               synchronized collections lock themselves for the duration of forEach
+     * @param order the sort order
+     * @param filter which records to include
+     * @param pageSize the number of records per page
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    public PagedListing(Consumer<Consumer<T>> source, Comparator<? super T> order,
+                        Predicate<? super T> filter, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.source = source;
+        this.order = order;
+        this.filter = filter;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Gets the next page and advances the cursor past it.
+     *
+     * @return the records of the next page in order, empty once the listing is exhausted
+     */
+    public List<T> nextPage() {
+        if (!more) {
+            return Collections.emptyList();
+        }
+        // Max-heap on (order, sequence) holding the pageSize smallest records after the cursor
+        Comparator<Candidate<T>> byPosition = (a, b) -> {
+            int c = order.compare(a.record, b.record);
+            return c != 0 ? c : Long.compare(a.sequence, b.sequence);
+        };
+        PriorityQueue<Candidate<T>> heap = new PriorityQueue<>(pageSize + 1, byPosition.reversed());
+        int[] counts = new int[3]; // matches, ties with the cursor, candidates after the cursor
+        source.accept(record -> {
+            if (!filter.test(record)) {
+                return;
+            }
+            long sequence = counts[0]++;
+            if (cursor != null) {
+                int c = order.compare(record, cursor);
+                if (c < 0 || (c == 0 && ++counts[1] <= tiesAtCursor)) {
+                    return; // Shown on an earlier page
+                }
+            }
+            counts[2]++;
+            heap.add(new Candidate<>(record, sequence));
+            if (heap.size() > pageSize) {
+                heap.poll();
+            }
+        });
+
+        List<T> page = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            page.add(heap.poll().record);
+        }
+        Collections.reverse(page);
+
+        matchCount = counts[0];
+        more = counts[2] > page.size();
+        if (!page.isEmpty()) {
+            T last = page.get(page.size() - 1);
+            int ties = cursor != null && order.compare(last, cursor) == 0 ? tiesAtCursor : 0;
+            for (T record : page) {
+                if (order.compare(record, last) == 0) {
+                    ties++;
+                }
+            }
+            cursor = last;
+            tiesAtCursor = ties;
+            shown += page.size();
+        }
+        return page;
+    }
+
+    /**
+     * Renders the next page followed by a position footer and flushes the writer once.
+     *
+     * @param out the writer to render into
+     * @param renderer writes a single record
+     * @return true if further pages follow
+     */
+    public boolean renderNextPage(PrintWriter out, Renderer<? super T> renderer) {
+        int first = shown + 1;
+        List<T> page = nextPage();
+        for (T record : page) {
+            renderer.render(record, out);
+        }
+        if (!page.isEmpty()) {
+            out.print("-- ");
+            out.print(first);
+            out.print('-');
+            out.print(shown);
+            out.print(" of ");
+            out.print(matchCount);
+            out.println(" --");
+        }
+        out.flush();
+        return more;
+    }
+
+    /**
+     * Checks whether further pages follow.
+     *
+     * @return false once the last page has been returned
+     */
+    public boolean hasNext() {
+        return more;
+    }
+
+    /**
+     * Gets the number of matching records seen by the most recent page.
+     *
+     * @return the match count
+     */
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    /**
+     * Moves the cursor back before the first page.
+     */
+    public void reset() {
+        cursor = null;
+        tiesAtCursor = 0;
+        more = true;
+        shown = 0;
+        matchCount = 0;
+    }
+}
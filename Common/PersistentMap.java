@@ -0,0 +1,285 @@
+package Common;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash map that shares structure between versions (a hash array mapped trie).
+ *
+ * Each level of the trie consumes 5 bits of the key's hash; a node stores a 32-bit bitmap of the
+ * slots in use and a packed array of just those entries and children. {@link #plus} returns a new
+ * map that copies only the O(log32 n) nodes on the path to the key and shares everything else, so
+ * a writer can publish a new version while readers keep iterating an old one without any locking.
+ * Versions nobody references any more are reclaimed by the garbage collector.
+ *
+ * Keys must have stable {@code hashCode} and {@code equals}. Iteration order is unspecified.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class PersistentMap<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(new Node(0, new Object[0]), 0);
+
+    // Slots hold key and value pairs, or null and a child node; keys whose whole hash collides share
+    // a collision node at the bottom
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    private static final class Collision {
+        final Object[] pairs;   // key, value, key, value...
+
+        Collision(Object[] pairs) {
+            this.pairs = pairs;
+        }
+    }
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Gets the empty map.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the map has no entries.
+     *
+     * @return true if the size is 0
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Looks up a key.
+     *
+     * @param key the key
+     * @return the value, or null if the key is absent
+     */
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int hash = spread(key);
+        Object node = root;
+        for (int shift = 0; ; shift += BITS) {
+            if (node instanceof Collision) {
+                Object[] pairs = ((Collision) node).pairs;
+                for (int i = 0; i < pairs.length; i += 2) {
+                    if (pairs[i].equals(key)) {
+                        return (V) pairs[i + 1];
+                    }
+                }
+                return null;
+            }
+            Node n = (Node) node;
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((n.bitmap & bit) == 0) {
+                return null;
+            }
+            int index = 2 * Integer.bitCount(n.bitmap & (bit - 1));
+            Object slotKey = n.slots[index];
+            if (slotKey == null) {
+                node = n.slots[index + 1];
+            } else {
+                return slotKey.equals(key) ? (V) n.slots[index + 1] : null;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a key is present.
+     *
+     * @param key the key
+     * @return true if the map has an entry for it
+     */
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns a map with a key set to a value.
+     *
+     * @param key the key
+     * @param value the value; not null
+     * @return the new map; this one is unchanged
+     */
+    public PersistentMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        boolean[] added = new boolean[1];
+        Node newRoot = (Node) put(root, 0, spread(key), key, value, added);
+        return new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Visits every entry.
+     *
+     * @param action receives each key and value
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        visit(root, action);
+    }
+
+    /**
+     * Gets the values, for use in a for-each loop.
+     *
+     * @return the values of this version of the map
+     */
+    public Iterable<V> values() {
+        return () -> new Iterator<V>() {
+            // Path from the root to the next slot to look at; the trie is at most 8 nodes deep
+            private final Object[][] path = {slotsOf(root), null, null, null, null, null, null, null};
+            private final int[] positions = new int[path.length];
+            private int depth;
+            private Object next = findNext();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public V next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Object value = next;
+                next = findNext();
+                return (V) value;
+            }
+
+            private Object findNext() {
+                while (depth >= 0) {
+                    Object[] slots = path[depth];
+                    int i = positions[depth];
+                    if (i >= slots.length) {
+                        depth--;
+                        continue;
+                    }
+                    positions[depth] = i + 2;
+                    if (slots[i] != null) {
+                        return slots[i + 1];
+                    }
+                    depth++;
+                    path[depth] = slotsOf(slots[i + 1]);
+                    positions[depth] = 0;
+                }
+                return null;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private void visit(Object node, BiConsumer<? super K, ? super V> action) {
+        Object[] slots = slotsOf(node);
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] != null) {
+                action.accept((K) slots[i], (V) slots[i + 1]);
+            } else {
+                visit(slots[i + 1], action);
+            }
+        }
+    }
+
+    private static Object[] slotsOf(Object node) {
+        return node instanceof Collision ? ((Collision) node).pairs : ((Node) node).slots;
+    }
+
+    private static Object put(Object node, int shift, int hash, Object key, Object value, boolean[] added) {
+        if (node instanceof Collision) {
+            Object[] pairs = ((Collision) node).pairs;
+            for (int i = 0; i < pairs.length; i += 2) {
+                if (pairs[i].equals(key)) {
+                    Object[] copy = pairs.clone();
+                    copy[i + 1] = value;
+                    return new Collision(copy);
+                }
+            }
+            Object[] copy = Arrays.copyOf(pairs, pairs.length + 2);
+            copy[pairs.length] = key;
+            copy[pairs.length + 1] = value;
+            added[0] = true;
+            return new Collision(copy);
+        }
+        Node n = (Node) node;
+        int bit = 1 << ((hash >>> shift) & MASK);
+        int index = 2 * Integer.bitCount(n.bitmap & (bit - 1));
+        if ((n.bitmap & bit) == 0) {
+            // Free slot: insert the pair
+            Object[] slots = new Object[n.slots.length + 2];
+            System.arraycopy(n.slots, 0, slots, 0, index);
+            slots[index] = key;
+            slots[index + 1] = value;
+            System.arraycopy(n.slots, index, slots, index + 2, n.slots.length - index);
+            added[0] = true;
+            return new Node(n.bitmap | bit, slots);
+        }
+        Object[] slots = n.slots.clone();
+        Object slotKey = n.slots[index];
+        if (slotKey == null) {
+            slots[index + 1] = put(n.slots[index + 1], shift + BITS, hash, key, value, added);
+        } else if (slotKey.equals(key)) {
+            slots[index + 1] = value;
+        } else {
+            // Two keys share this slot: push both one level down
+            slots[index] = null;
+            slots[index + 1] = split(shift + BITS, slotKey, n.slots[index + 1], spread(slotKey), key, value, hash);
+            added[0] = true;
+        }
+        return new Node(n.bitmap, slots);
+    }
+
+    private static Object split(int shift, Object key1, Object value1, int hash1, Object key2, Object value2, int hash2) {
+        if (shift >= 32) {
+            return new Collision(new Object[] {key1, value1, key2, value2});
+        }
+        int index1 = (hash1 >>> shift) & MASK;
+        int index2 = (hash2 >>> shift) & MASK;
+        if (index1 == index2) {
+            return new Node(1 << index1, new Object[] {null, split(shift + BITS, key1, value1, hash1, key2, value2, hash2)});
+        }
+        Object[] slots = index1 < index2
+                ? new Object[] {key1, value1, key2, value2}
+                : new Object[] {key2, value2, key1, value1};
+        return new Node((1 << index1) | (1 << index2), slots);
+    }
+
+    // Mixes the hash code so keys with similar codes, like "H1" and "H2", spread over the trie
+    private static int spread(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
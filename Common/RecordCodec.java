@@ -0,0 +1,55 @@
+package Common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts records to and from the binary form kept by a {@link RecordStore}.
+ *
+ * @param <V> the record type
+ */
+public interface RecordCodec<V> {
+    /**
+     * Writes a record.
+     *
+     * @param value the record to write
+     * @param out the destination
+     * @throws IOException if writing fails
+     */
+    void write(V value, DataOutput out) throws IOException;
+
+    /**
+     * Reads a record written by {@link #write}.
+     *
+     * @param in the source, positioned at the start of the record
+     * @return the record
+     * @throws IOException if the data is malformed
+     */
+    V read(DataInput in) throws IOException;
+
+    /**
+     * Writes a string that may be null.
+     *
+     * @param value the string, or null
+     * @param out the destination
+     * @throws IOException if writing fails
+     */
+    static void writeNullable(String value, DataOutput out) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeNullable}.
+     *
+     * @param in the source
+     * @return the string, or null
+     * @throws IOException if the data is malformed
+     */
+    static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,745 @@
+package Common;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded key/value store with a log-structured layout, shared by the trackers.
+ *
+ * Every put or delete appends one record to the end of a single log file, so a change costs one
+ * small write instead of rewriting the whole data set. A sorted in-memory index maps each live key
+ * to its latest record, and reads go through an LRU cache of fixed-size file pages.
+ *
+ * Record layout: length (4 bytes, of everything after it), CRC32 (4 bytes, of everything after it),
+ * operation (1 byte), key length (2 bytes), UTF-8 key, value bytes (puts only). On open the log is
+ * replayed to rebuild the index. A torn record at the end, left by a crash mid-write, is cut off;
+ * a bad record with valid data after it means the log itself is damaged, and the open fails
+ * rather than throwing that data away.
+ *
+ * Writes reach the operating system immediately, so they survive the application crashing; a
+ * background thread forces them to disk about once a second, and {@link #sync()} does so on demand.
+ * The same thread compacts the log once more than half of it is garbage (overwritten or deleted
+ * records): live records are copied to a new file without blocking writers, and only the records
+ * appended meanwhile are copied under the lock before the new file atomically replaces the old one.
+ *
+ * Thread-safe; reads share a read lock and writes are serialized.
+ *
+ * @param <V> the record type
+ */
+public final class RecordStore<V> implements AutoCloseable {
+    private static final int PAGE_SIZE = 4096;
+    private static final int CACHE_PAGES = 256;
+    private static final int HEADER_SIZE = 9;   // length + CRC + operation
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final long COMPACTION_MIN_BYTES = 64 * 1024;
+    private static final long MAINTENANCE_INTERVAL_MILLIS = 1000;
+
+    // Shared by every store in the process
+    private static final LatencyHistogram OPEN_LATENCY = Metrics.histogram("record_store_open_seconds");
+    private static final LatencyHistogram PUT_LATENCY = Metrics.histogram("record_store_put_seconds");
+    private static final LatencyHistogram DELETE_LATENCY = Metrics.histogram("record_store_delete_seconds");
+    private static final LatencyHistogram GET_LATENCY = Metrics.histogram("record_store_get_seconds");
+    private static final LatencyHistogram SYNC_LATENCY = Metrics.histogram("record_store_sync_seconds");
+    private static final LatencyHistogram COMPACT_LATENCY = Metrics.histogram("record_store_compact_seconds");
+    private static final Metrics.Counter BYTES_WRITTEN = Metrics.counter("record_store_written_bytes_total");
+    private static final Metrics.Counter PAGE_HITS = Metrics.counter("record_store_page_cache_hits_total");
+    private static final Metrics.Counter PAGE_MISSES = Metrics.counter("record_store_page_cache_misses_total");
+
+    // Position and size of a key's latest record in the log
+    private static final class Location {
+        final long offset;
+        final int length;
+
+        Location(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final Path file;
+    private final Path compactionFile;
+    private final RecordCodec<V> codec;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final TreeMap<String, Location> index = new TreeMap<>();
+    private final ScheduledExecutorService maintenance;
+
+    // Most recently used file pages, keyed by page number
+    private final LinkedHashMap<Long, byte[]> pages = new LinkedHashMap<Long, byte[]>(CACHE_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+            return size() > CACHE_PAGES;
+        }
+    };
+
+    // Reused by writers (under the write lock) to encode records
+    private final ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream(256);
+    private final DataOutputStream encodeOut = new DataOutputStream(encodeBuffer);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private long writePosition;
+    private long liveBytes;
+    private boolean dirty;
+    private volatile IOException maintenanceFailure;
+
+    /**
+     * Opens a store, creating its directory and log file if needed and replaying an existing log.
+     *
+     * @param directory the directory holding the store's files
+     * @param name the store name; the log is written to name.log
+     * @param codec converts records to and from bytes
+     * @throws IOException if the log cannot be opened or read, or holds a damaged record before its end
+     */
+    public RecordStore(Path directory, String name, RecordCodec<V> codec) throws IOException {
+        long start = Metrics.start();
+        Files.createDirectories(directory);
+        this.file = directory.resolve(name + ".log");
+        this.compactionFile = directory.resolve(name + ".log.compact");
+        this.codec = codec;
+        Files.deleteIfExists(compactionFile); // Left over from an interrupted compaction
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            replay();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        OPEN_LATENCY.recordSince(start);
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "record-store-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain,
+                MAINTENANCE_INTERVAL_MILLIS, MAINTENANCE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stores a record under a key, replacing any previous record.
+     *
+     * @param key the key
+     * @param value the record
+     * @throws IOException if the record cannot be written
+     */
+    public void put(String key, V value) throws IOException {
+        long start = Metrics.start();
+        lock.writeLock().lock();
+        try {
+            Location location = append(PUT, key, value);
+            Location previous = index.put(key, location);
+            liveBytes += location.length - (previous != null ? previous.length : 0);
+        } finally {
+            lock.writeLock().unlock();
+            PUT_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Stores several records, taking the write lock once for all of them. Records are appended in
+     * the map's iteration order; if one cannot be written, those before it stay stored.
+     *
+     * @param records the records by key
+     * @throws IOException if a record cannot be written
+     */
+    public void putAll(Map<String, ? extends V> records) throws IOException {
+        long start = Metrics.start();
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<String, ? extends V> entry : records.entrySet()) {
+                Location location = append(PUT, entry.getKey(), entry.getValue());
+                Location previous = index.put(entry.getKey(), location);
+                liveBytes += location.length - (previous != null ? previous.length : 0);
+            }
+        } finally {
+            lock.writeLock().unlock();
+            PUT_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Removes the record stored under a key.
+     *
+     * @param key the key
+     * @return true if a record was removed
+     * @throws IOException if the deletion cannot be written
+     */
+    public boolean delete(String key) throws IOException {
+        long start = Metrics.start();
+        lock.writeLock().lock();
+        try {
+            if (!index.containsKey(key)) {
+                return false;
+            }
+            append(DELETE, key, null);
+            liveBytes -= index.remove(key).length;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+            DELETE_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Reads the record stored under a key.
+     *
+     * @param key the key
+     * @return the record, or null if none is stored
+     * @throws IOException if the record cannot be read
+     */
+    public V get(String key) throws IOException {
+        long start = Metrics.start();
+        lock.readLock().lock();
+        try {
+            Location location = index.get(key);
+            return location == null ? null : decode(location);
+        } finally {
+            lock.readLock().unlock();
+            GET_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Gets the greatest key in the store.
+     *
+     * @return the last key in key order, or null if the store is empty
+     */
+    public String lastKey() {
+        lock.readLock().lock();
+        try {
+            return index.isEmpty() ? null : index.lastKey();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a record is stored under a key.
+     *
+     * @param key the key
+     * @return true if the key is present
+     */
+    public boolean contains(String key) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits every record in key order.
+     * The action runs under the store's read lock and must not modify the store.
+     *
+     * @param action receives each key and record
+     * @throws IOException if a record cannot be read
+     */
+    public void forEach(BiConsumer<String, ? super V> action) throws IOException {
+        forEach(index, action);
+    }
+
+    /**
+     * Visits the records whose keys start with a prefix, in key order.
+     * The action runs under the store's read lock and must not modify the store.
+     *
+     * @param prefix the key prefix
+     * @param action receives each key and record
+     * @throws IOException if a record cannot be read
+     */
+    public void forEachWithPrefix(String prefix, BiConsumer<String, ? super V> action) throws IOException {
+        lock.readLock().lock();
+        try {
+            forEach(index.subMap(prefix, true, prefix + Character.MAX_VALUE, false), action);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits the records whose keys fall in a range, in key order, reading only those records.
+     * The action runs under the store's read lock and must not modify the store.
+     *
+     * @param fromKey the lowest key visited
+     * @param toKey the first key past the range
+     * @param action receives each key and record
+     * @throws IOException if a record cannot be read
+     */
+    public void forEachInRange(String fromKey, String toKey, BiConsumer<String, ? super V> action) throws IOException {
+        if (fromKey.compareTo(toKey) >= 0) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            forEach(index.subMap(fromKey, true, toKey, false), action);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of live records.
+     *
+     * @return the record count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the size of the log file, live and garbage records included.
+     *
+     * @return the log size in bytes
+     */
+    public long getLogSize() {
+        lock.readLock().lock();
+        try {
+            return writePosition;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Forces every write so far to disk.
+     *
+     * @throws IOException if the log cannot be forced, or background maintenance failed earlier
+     */
+    public void sync() throws IOException {
+        IOException failure = maintenanceFailure;
+        if (failure != null) {
+            maintenanceFailure = null;
+            throw failure;
+        }
+        lock.writeLock().lock();
+        try {
+            if (dirty) {
+                long start = Metrics.start();
+                channel.force(false);
+                dirty = false;
+                SYNC_LATENCY.recordSince(start);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log so it only holds live records.
+     * Writers are only blocked while the records appended during the copy are moved over.
+     *
+     * @throws IOException if the new log cannot be written; the old log is then kept
+     */
+    public void compact() throws IOException {
+        compactionLock.lock();
+        long start = Metrics.start();
+        try {
+            // Snapshot the index; everything before snapshotEnd is immutable from here on
+            Map<String, Location> snapshot;
+            long snapshotEnd;
+            FileChannel source;
+            lock.readLock().lock();
+            try {
+                snapshot = new HashMap<>(index);
+                snapshotEnd = writePosition;
+                source = channel;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            // Copy the live records without holding the lock
+            Map<String, Location> moved = new HashMap<>(snapshot.size() * 2);
+            FileChannel target = FileChannel.open(compactionFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                long position = 0;
+                for (Map.Entry<String, Location> entry : snapshot.entrySet()) {
+                    Location location = entry.getValue();
+                    transfer(source, location.offset, location.length, target, position);
+                    moved.put(entry.getKey(), new Location(position, location.length));
+                    position += location.length;
+                }
+
+                lock.writeLock().lock();
+                try {
+                    // Bring over the records appended during the copy, then repoint the index.
+                    // Entries still before snapshotEnd are unchanged since the snapshot.
+                    long tailLength = writePosition - snapshotEnd;
+                    transfer(channel, snapshotEnd, tailLength, target, position);
+                    for (Map.Entry<String, Location> entry : index.entrySet()) {
+                        Location location = entry.getValue();
+                        entry.setValue(location.offset >= snapshotEnd
+                                ? new Location(location.offset - snapshotEnd + position, location.length)
+                                : moved.get(entry.getKey()));
+                    }
+                    target.force(false);
+                    target.close();
+                    Files.move(compactionFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    channel.close();
+                    channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    writePosition = position + tailLength;
+                    dirty = false;
+                    synchronized (pages) {
+                        pages.clear();
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            } finally {
+                if (target.isOpen()) {
+                    target.close();
+                    Files.deleteIfExists(compactionFile);
+                }
+            }
+        } finally {
+            COMPACT_LATENCY.recordSince(start);
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Stops background maintenance, forces pending writes to disk and closes the log.
+     *
+     * @throws IOException if the final sync fails
+     */
+    @Override
+    public void close() throws IOException {
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            sync();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                channel.close();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Background task: forces recent writes to disk and compacts when the log is mostly garbage.
+     */
+    private void maintain() {
+        try {
+            sync();
+            boolean wasteful;
+            lock.readLock().lock();
+            try {
+                wasteful = writePosition >= COMPACTION_MIN_BYTES && writePosition - liveBytes > writePosition / 2;
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (wasteful) {
+                compact();
+            }
+        } catch (IOException e) {
+            maintenanceFailure = e; // Reported by the next sync or close
+        }
+    }
+
+    /**
+     * Encodes and appends one record at the end of the log. Caller holds the write lock.
+     *
+     * @param operation PUT or DELETE
+     * @param key the key
+     * @param value the record for a PUT, null for a DELETE
+     * @return where the record was written
+     * @throws IOException if the record cannot be written
+     */
+    private Location append(byte operation, String key, V value) throws IOException {
+        encodeBuffer.reset();
+        encodeOut.writeLong(0); // Placeholder for length and CRC
+        encodeOut.writeByte(operation);
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Key longer than 65535 bytes");
+        }
+        encodeOut.writeShort(keyBytes.length);
+        encodeOut.write(keyBytes);
+        if (value != null) {
+            codec.write(value, encodeOut);
+        }
+        encodeOut.flush();
+
+        byte[] record = encodeBuffer.toByteArray();
+        crc.reset();
+        crc.update(record, 8, record.length - 8);
+        ByteBuffer header = ByteBuffer.wrap(record, 0, 8);
+        header.putInt(record.length - 4);
+        header.putInt((int) crc.getValue());
+
+        long offset = writePosition;
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset + buffer.position());
+        }
+        writePosition += record.length;
+        dirty = true;
+        BYTES_WRITTEN.add(record.length);
+        invalidate(offset, record.length);
+        return new Location(offset, record.length);
+    }
+
+    /**
+     * Decodes the value of a PUT record. Caller holds a lock.
+     *
+     * @param location the record's location
+     * @return the record
+     * @throws IOException if the record cannot be read
+     */
+    private V decode(Location location) throws IOException {
+        byte[] record = read(location.offset, location.length);
+        int keyLength = ((record[HEADER_SIZE] & 0xFF) << 8) | (record[HEADER_SIZE + 1] & 0xFF);
+        int valueStart = HEADER_SIZE + 2 + keyLength;
+        return codec.read(new DataInputStream(new ByteArrayInputStream(record, valueStart, record.length - valueStart)));
+    }
+
+    /**
+     * Visits entries of the index in key order, decoding each record.
+     *
+     * @param entries the index entries to visit
+     * @param action receives each key and record
+     * @throws IOException if a record cannot be read
+     */
+    private void forEach(Map<String, Location> entries, BiConsumer<String, ? super V> action) throws IOException {
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Location> entry : entries.entrySet()) {
+                action.accept(entry.getKey(), decode(entry.getValue()));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads bytes of the log through the page cache. Caller holds a lock.
+     *
+     * @param offset the first byte
+     * @param length the number of bytes
+     * @return the bytes
+     * @throws IOException if the log cannot be read
+     */
+    private byte[] read(long offset, int length) throws IOException {
+        byte[] result = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long position = offset + copied;
+            byte[] page = page(position / PAGE_SIZE);
+            int start = (int) (position % PAGE_SIZE);
+            int count = Math.min(length - copied, page.length - start);
+            if (count <= 0) {
+                throw new EOFException("Record at " + offset + " extends past the end of " + file);
+            }
+            System.arraycopy(page, start, result, copied, count);
+            copied += count;
+        }
+        return result;
+    }
+
+    /**
+     * Gets a page of the log, loading it on a cache miss. The last page may be shorter than PAGE_SIZE.
+     *
+     * @param number the page number
+     * @return the page contents
+     * @throws IOException if the log cannot be read
+     */
+    private byte[] page(long number) throws IOException {
+        synchronized (pages) {
+            byte[] page = pages.get(number);
+            if (page != null) {
+                PAGE_HITS.increment();
+                return page;
+            }
+        }
+        PAGE_MISSES.increment();
+        long start = number * PAGE_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(PAGE_SIZE, Math.max(0, writePosition - start)));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                break;
+            }
+        }
+        byte[] page = buffer.position() == buffer.capacity() ? buffer.array()
+                : Arrays.copyOf(buffer.array(), buffer.position());
+        synchronized (pages) {
+            pages.put(number, page);
+        }
+        return page;
+    }
+
+    /**
+     * Drops cached pages overlapping a range that was just written.
+     *
+     * @param offset the first byte written
+     * @param length the number of bytes written
+     */
+    private void invalidate(long offset, int length) {
+        synchronized (pages) {
+            for (long number = offset / PAGE_SIZE; number <= (offset + length - 1) / PAGE_SIZE; number++) {
+                pages.remove(number);
+            }
+        }
+    }
+
+    /**
+     * Copies a byte range from one channel to another.
+     *
+     * @param source the channel to copy from
+     * @param from the first byte to copy
+     * @param length the number of bytes
+     * @param target the channel to copy to
+     * @param to where to write the first byte
+     * @throws IOException if copying fails
+     */
+    private static void transfer(FileChannel source, long from, long length, FileChannel target, long to)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, 64 * 1024));
+        long done = 0;
+        while (done < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - done));
+            int read = source.read(buffer, from + done);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of log while compacting");
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                target.write(buffer, to + done + buffer.position());
+            }
+            done += read;
+        }
+    }
+
+    /**
+     * Rebuilds the index from the log, cutting off a torn tail.
+     * Only a bad record that runs to the end of the file (or is followed by nothing but the zeros
+     * some file systems leave after a crash) is a torn write; anything else is damage in the middle
+     * of the log, and truncating there would delete every valid record after it.
+     *
+     * @throws IOException if the log cannot be read, or holds a damaged record before its end
+     */
+    private void replay() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        CRC32 check = new CRC32();
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024))) {
+            while (position + 4 <= size) {
+                int length = in.readInt();
+                if (length >= 0 && position + 4 + length > size) {
+                    break; // The crash came before the whole record reached the disk
+                }
+                if (length < HEADER_SIZE - 4 + 2) {
+                    if (isZeroFrom(position)) {
+                        break;
+                    }
+                    throw corrupt(position, size, "invalid length " + length);
+                }
+                byte[] body = new byte[length];
+                in.readFully(body);
+                check.reset();
+                check.update(body, 4, length - 4);
+                int storedCrc = ((body[0] & 0xFF) << 24) | ((body[1] & 0xFF) << 16) | ((body[2] & 0xFF) << 8) | (body[3] & 0xFF);
+                if (storedCrc != (int) check.getValue()) {
+                    if (position + 4 + length == size || isZeroFrom(position + 4 + length)) {
+                        break;
+                    }
+                    throw corrupt(position, size, "checksum mismatch");
+                }
+                byte operation = body[4];
+                int keyLength = ((body[5] & 0xFF) << 8) | (body[6] & 0xFF);
+                String key = new String(body, 7, keyLength, StandardCharsets.UTF_8);
+                Location location = new Location(position, length + 4);
+                if (operation == PUT) {
+                    Location previous = index.put(key, location);
+                    liveBytes += location.length - (previous != null ? previous.length : 0);
+                } else {
+                    Location previous = index.remove(key);
+                    liveBytes -= previous != null ? previous.length : 0;
+                }
+                position += location.length;
+            }
+        }
+        if (position < size) {
+            channel.truncate(position); // Torn write from a crash
+            channel.force(false);
+        }
+        writePosition = position;
+    }
+
+    /**
+     * Checks whether the log holds only zero bytes from a position to its end.
+     *
+     * @param position the first byte checked
+     * @return true if every byte from there on is zero
+     * @throws IOException if the log cannot be read
+     */
+    private boolean isZeroFrom(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        for (long at = position; ; ) {
+            buffer.clear();
+            int read = channel.read(buffer, at);
+            if (read < 0) {
+                return true;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) != 0) {
+                    return false;
+                }
+            }
+            at += read;
+        }
+    }
+
+    /**
+     * Describes a damaged record in the middle of the log.
+     *
+     * @param position the offset of the record
+     * @param size the size of the log
+     * @param reason what is wrong with the record
+     * @return the exception to throw
+     */
+    private IOException corrupt(long position, long size, String reason) {
+        return new IOException("Damaged record at offset " + position + " of " + file + " (" + reason + "); "
+                + (size - position) + " bytes from there on were left in place");
+    }
+}
@@ -0,0 +1,213 @@
+package Common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Self-checks for {@link RecordStore}: replay after a restart, compaction, and recovery from a
+ * damaged log. Run with: java Common.RecordStoreTest
+ *
+ * Each check works in its own temporary directory and throws on the first wrong result.
+ */
+public class RecordStoreTest {
+    private static final String NAME = "records";
+
+    /**
+     * Stores strings as UTF.
+     */
+    private static final RecordCodec<String> STRINGS = new RecordCodec<String>() {
+        @Override
+        public void write(String value, DataOutput out) throws IOException {
+            out.writeUTF(value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    /**
+     * A check run against a fresh directory.
+     */
+    private interface Check {
+        void run(Path directory) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        run("replay", RecordStoreTest::replay);
+        run("compaction", RecordStoreTest::compaction);
+        run("torn tail", RecordStoreTest::tornTail);
+        run("zero-filled tail", RecordStoreTest::zeroFilledTail);
+        run("damaged middle", RecordStoreTest::damagedMiddle);
+        System.out.println("All record store checks passed");
+    }
+
+    /**
+     * Puts, overwrites and deletes, then checks a reopened store sees the same records.
+     */
+    private static void replay(Path directory) throws IOException {
+        Map<String, String> expected = new HashMap<>();
+        try (RecordStore<String> store = new RecordStore<>(directory, NAME, STRINGS)) {
+            for (int i = 0; i < 500; i++) {
+                store.put("key" + i, "value" + i);
+                expected.put("key" + i, "value" + i);
+            }
+            for (int i = 0; i < 500; i += 3) {
+                store.put("key" + i, "updated" + i);
+                expected.put("key" + i, "updated" + i);
+            }
+            for (int i = 1; i < 500; i += 7) {
+                store.delete("key" + i);
+                expected.remove("key" + i);
+            }
+        }
+        try (RecordStore<String> store = new RecordStore<>(directory, NAME, STRINGS)) {
+            assertContents(store, expected);
+        }
+    }
+
+    /**
+     * Compacts a log full of overwritten records and checks it shrinks and keeps the live ones.
+     */
+    private static void compaction(Path directory) throws IOException {
+        Map<String, String> expected = new HashMap<>();
+        try (RecordStore<String> store = new RecordStore<>(directory, NAME, STRINGS)) {
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 100; i++) {
+                    store.put("key" + i, "round" + round + "-" + i);
+                    expected.put("key" + i, "round" + round + "-" + i);
+                }
+            }
+            store.delete("key0");
+            expected.remove("key0");
+            long before = store.getLogSize();
+            store.compact();
+            check(store.getLogSize() < before / 10, "log shrank from " + before + " to " + store.getLogSize());
+            assertContents(store, expected);
+
+            // Writes after a compaction land in the new log
+            store.put("after", "compaction");
+            expected.put("after", "compaction");
+        }
+        try (RecordStore<String> store = new RecordStore<>(directory, NAME, STRINGS)) {
+            assertContents(store, expected);
+        }
+    }
+
+    /**
+     * Cuts the last record short, as a crash mid-write would, and checks only it is lost.
+     */
+    private static void tornTail(Path directory) throws IOException {
+        Map<String, String> expected = fill(directory, 50);
+        Path log = directory.resolve(NAME + ".log");
+        long size = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 3);
+        }
+        expected.remove("key49");
+        try (RecordStore<String> store = new RecordStore<>(directory, NAME, STRINGS)) {
+            assertContents(store, expected);
+            store.put("key49", "rewritten");
+            expected.put("key49", "rewritten");
+        }
+        try (RecordStore<String> store = new RecordStore<>(directory, NAME, STRINGS)) {
+            assertContents(store, expected);
+        }
+    }
+
+    /**
+     * Appends zeros after the last record, as some file systems leave after a crash, and checks
+     * they are cut off.
+     */
+    private static void zeroFilledTail(Path directory) throws IOException {
+        Map<String, String> expected = fill(directory, 50);
+        Path log = directory.resolve(NAME + ".log");
+        long size = Files.size(log);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4096), size);
+        }
+        try (RecordStore<String> store = new RecordStore<>(directory, NAME, STRINGS)) {
+            assertContents(store, expected);
+            check(store.getLogSize() == size, "zeros were cut off");
+        }
+    }
+
+    /**
+     * Damages a record in the middle of the log and checks the open fails without touching it.
+     */
+    private static void damagedMiddle(Path directory) throws IOException {
+        fill(directory, 50);
+        Path log = directory.resolve(NAME + ".log");
+        long size = Files.size(log);
+        long offset = size / 2;
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, offset);
+            b.put(0, (byte) (b.get(0) ^ 0x5A));
+            b.rewind();
+            channel.write(b, offset);
+        }
+        try (RecordStore<String> store = new RecordStore<>(directory, NAME, STRINGS)) {
+            throw new AssertionError("opened a log damaged at offset " + offset + " with " + store.size() + " records");
+        } catch (IOException expected) {
+            check(expected.getMessage().contains("offset"), "error names the offset: " + expected.getMessage());
+        }
+        check(Files.size(log) == size, "damaged log was left in place");
+    }
+
+    /**
+     * Writes key0..key(count-1) to a new store and closes it.
+     *
+     * @return the records written
+     */
+    private static Map<String, String> fill(Path directory, int count) throws IOException {
+        Map<String, String> written = new HashMap<>();
+        try (RecordStore<String> store = new RecordStore<>(directory, NAME, STRINGS)) {
+            for (int i = 0; i < count; i++) {
+                store.put("key" + i, "value" + i);
+                written.put("key" + i, "value" + i);
+            }
+        }
+        return written;
+    }
+
+    private static void assertContents(RecordStore<String> store, Map<String, String> expected) throws IOException {
+        check(store.size() == expected.size(), "size " + store.size() + ", expected " + expected.size());
+        for (Map.Entry<String, String> entry : expected.entrySet()) {
+            String actual = store.get(entry.getKey());
+            check(entry.getValue().equals(actual), entry.getKey() + " = " + actual + ", expected " + entry.getValue());
+        }
+        Map<String, String> seen = new HashMap<>();
+        store.forEach(seen::put);
+        check(seen.equals(expected), "forEach visits exactly the live records");
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            throw new AssertionError(description);
+        }
+    }
+
+    private static void run(String name, Check check) throws IOException {
+        Path directory = Files.createTempDirectory("record-store-test");
+        try {
+            check.run(directory);
+            System.out.println("ok   " + name);
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
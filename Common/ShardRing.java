@@ -0,0 +1,117 @@
+package Common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring that assigns keys to shards.
+ *
+ * Every shard is placed on a 64-bit ring at a number of pseudo-random points (virtual nodes) derived
+ * from its name, and a key belongs to the first shard point at or after the key's own hash. With
+ * enough virtual nodes the keys spread evenly, and adding or removing a shard only moves the keys
+ * between it and its neighbours, about 1/N of them.
+ *
+ * The hash is FNV-1a over the UTF-8 bytes followed by a 64-bit finalizer, so placement is identical
+ * in every JVM and on every machine. Not thread-safe for changes; lookups may run concurrently once
+ * the ring is built.
+ *
+ * @param <S> the shard type
+ */
+public final class ShardRing<S> {
+    private final int virtualNodes;
+    private final TreeMap<Long, S> ring = new TreeMap<>();
+    private final Map<String, S> shards = new HashMap<>();
+
+    /**
+     * Constructor that creates an empty ring.
+     *
+     * @param virtualNodes the number of ring points per shard
+     * @throws IllegalArgumentException if virtualNodes is not positive
+     */
+    public ShardRing(int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be positive: " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    /**
+     * Adds a shard to the ring.
+     *
+     * @param name a stable name for the shard, such as its address; placement depends only on it
+     * @param shard the shard
+     * @throws IllegalArgumentException if a shard with the same name was already added
+     */
+    public void add(String name, S shard) {
+        if (shards.putIfAbsent(name, shard) != null) {
+            throw new IllegalArgumentException("Duplicate shard: " + name);
+        }
+        for (int i = 0; i < virtualNodes; i++) {
+            // Colliding points are vanishingly rare; the first shard keeps the point
+            ring.putIfAbsent(hash(name + "#" + i), shard);
+        }
+    }
+
+    /**
+     * Removes a shard; its keys move to the shards that follow its points.
+     *
+     * @param name the name the shard was added under
+     * @return true if the shard was on the ring
+     */
+    public boolean remove(String name) {
+        S shard = shards.remove(name);
+        if (shard == null) {
+            return false;
+        }
+        ring.values().removeIf(s -> s == shard);
+        return true;
+    }
+
+    /**
+     * Finds the shard that owns a key.
+     *
+     * @param key the key
+     * @return the owning shard
+     * @throws IllegalStateException if the ring is empty
+     */
+    public S shardFor(String key) {
+        if (ring.isEmpty()) {
+            throw new IllegalStateException("No shards on the ring");
+        }
+        Map.Entry<Long, S> owner = ring.ceilingEntry(hash(key));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Gets every shard on the ring.
+     *
+     * @return a read-only view of the shards keyed by name
+     */
+    public Map<String, S> getShards() {
+        return Collections.unmodifiableMap(shards);
+    }
+
+    /**
+     * Hashes a string to a position on the ring.
+     *
+     * @param value the string
+     * @return the 64-bit position
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        // MurmurHash3 finalizer; FNV alone leaves similar keys clustered in the high bits
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
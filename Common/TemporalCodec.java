@@ -0,0 +1,356 @@
+package Common;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Allocation-free parsing and formatting for the fixed date/time patterns used by the trackers:
+ * MM/dd/yyyy, yyyy-MM-dd, HH:mm and HH:mm:ss.
+ *
+ * Dates are handled as epoch days and times as seconds of the day, so the hot path needs no
+ * formatter, no intermediate objects and no exceptions: invalid input is reported through the
+ * {@link #INVALID_DATE} and {@link #INVALID_TIME} sentinels. The require* helpers wrap those
+ * results into java.time values and throw {@link DateTimeParseException} only for bad input,
+ * matching what callers of {@code LocalDate.parse} already expect.
+ *
+ * Parsing is strict: every field must have exactly its pattern width and impossible dates such
+ * as 02/30/2024 are rejected rather than adjusted.
+ */
+public final class TemporalCodec {
+    /**
+     * Returned by the date parsers when the input is not a valid date.
+     */
+    public static final long INVALID_DATE = Long.MIN_VALUE;
+
+    /**
+     * Returned by the time parsers when the input is not a valid time.
+     */
+    public static final int INVALID_TIME = -1;
+
+    private static final int DAYS_PER_400_YEARS = 146097;
+    private static final int DAYS_0000_TO_1970 = 719468;
+
+    private TemporalCodec() {
+    }
+
+    /**
+     * Parses a date in MM/dd/yyyy format.
+     *
+     * @param text the text to parse
+     * @return the epoch day, or {@link #INVALID_DATE}
+     */
+    public static long parseUsDate(CharSequence text) {
+        if (text.length() != 10 || text.charAt(2) != '/' || text.charAt(5) != '/') {
+            return INVALID_DATE;
+        }
+        return epochDay(digits(text, 6, 4), digits(text, 0, 2), digits(text, 3, 2));
+    }
+
+    /**
+     * Parses a date in yyyy-MM-dd format.
+     *
+     * @param text the text to parse
+     * @return the epoch day, or {@link #INVALID_DATE}
+     */
+    public static long parseIsoDate(CharSequence text) {
+        if (text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            return INVALID_DATE;
+        }
+        return epochDay(digits(text, 0, 4), digits(text, 5, 2), digits(text, 8, 2));
+    }
+
+    /**
+     * Parses a time in HH:mm format.
+     *
+     * @param text the text to parse
+     * @return the second of the day, or {@link #INVALID_TIME}
+     */
+    public static int parseHourMinute(CharSequence text) {
+        if (text.length() != 5 || text.charAt(2) != ':') {
+            return INVALID_TIME;
+        }
+        return secondOfDay(digits(text, 0, 2), digits(text, 3, 2), 0);
+    }
+
+    /**
+     * Parses a time in HH:mm:ss format.
+     *
+     * @param text the text to parse
+     * @return the second of the day, or {@link #INVALID_TIME}
+     */
+    public static int parseHourMinuteSecond(CharSequence text) {
+        if (text.length() != 8 || text.charAt(2) != ':' || text.charAt(5) != ':') {
+            return INVALID_TIME;
+        }
+        return secondOfDay(digits(text, 0, 2), digits(text, 3, 2), digits(text, 6, 2));
+    }
+
+    /**
+     * Parses a MM/dd/yyyy date, throwing on invalid input.
+     *
+     * @param text the text to parse
+     * @return the parsed date
+     * @throws DateTimeParseException if the text is not a valid MM/dd/yyyy date
+     */
+    public static LocalDate requireUsDate(CharSequence text) {
+        return toDate(parseUsDate(text), text, "MM/dd/yyyy");
+    }
+
+    /**
+     * Parses a yyyy-MM-dd date, throwing on invalid input.
+     *
+     * @param text the text to parse
+     * @return the parsed date
+     * @throws DateTimeParseException if the text is not a valid yyyy-MM-dd date
+     */
+    public static LocalDate requireIsoDate(CharSequence text) {
+        return toDate(parseIsoDate(text), text, "yyyy-MM-dd");
+    }
+
+    /**
+     * Parses a HH:mm time, throwing on invalid input.
+     *
+     * @param text the text to parse
+     * @return the parsed time
+     * @throws DateTimeParseException if the text is not a valid HH:mm time
+     */
+    public static LocalTime requireHourMinute(CharSequence text) {
+        return toTime(parseHourMinute(text), text, "HH:mm");
+    }
+
+    /**
+     * Parses a HH:mm:ss time, throwing on invalid input.
+     *
+     * @param text the text to parse
+     * @return the parsed time
+     * @throws DateTimeParseException if the text is not a valid HH:mm:ss time
+     */
+    public static LocalTime requireHourMinuteSecond(CharSequence text) {
+        return toTime(parseHourMinuteSecond(text), text, "HH:mm:ss");
+    }
+
+    /**
+     * Appends an epoch day in yyyy-MM-dd format.
+     *
+     * @param epochDay the epoch day, for a year between 0 and 9999
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public static StringBuilder formatIsoDate(long epochDay, StringBuilder out) {
+        long civil = civilFromDays(epochDay);
+        appendDigits(out, (int) (civil >> 9), 4);
+        out.append('-');
+        appendDigits(out, (int) ((civil >> 5) & 0xF), 2);
+        out.append('-');
+        appendDigits(out, (int) (civil & 0x1F), 2);
+        return out;
+    }
+
+    /**
+     * Appends an epoch day in MM/dd/yyyy format.
+     *
+     * @param epochDay the epoch day, for a year between 0 and 9999
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public static StringBuilder formatUsDate(long epochDay, StringBuilder out) {
+        long civil = civilFromDays(epochDay);
+        appendDigits(out, (int) ((civil >> 5) & 0xF), 2);
+        out.append('/');
+        appendDigits(out, (int) (civil & 0x1F), 2);
+        out.append('/');
+        appendDigits(out, (int) (civil >> 9), 4);
+        return out;
+    }
+
+    /**
+     * Appends a second of the day in HH:mm format (seconds are dropped).
+     *
+     * @param secondOfDay the second of the day
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public static StringBuilder formatHourMinute(int secondOfDay, StringBuilder out) {
+        appendDigits(out, secondOfDay / 3600, 2);
+        out.append(':');
+        appendDigits(out, secondOfDay / 60 % 60, 2);
+        return out;
+    }
+
+    /**
+     * Appends a second of the day in HH:mm:ss format.
+     *
+     * @param secondOfDay the second of the day
+     * @param out the builder to append to
+     * @return the builder
+     */
+    public static StringBuilder formatHourMinuteSecond(int secondOfDay, StringBuilder out) {
+        formatHourMinute(secondOfDay, out).append(':');
+        appendDigits(out, secondOfDay % 60, 2);
+        return out;
+    }
+
+    /**
+     * Formats a date as yyyy-MM-dd.
+     *
+     * @param date the date to format
+     * @return the formatted date
+     */
+    public static String formatIsoDate(LocalDate date) {
+        return formatIsoDate(date.toEpochDay(), new StringBuilder(10)).toString();
+    }
+
+    /**
+     * Formats a time as HH:mm.
+     *
+     * @param time the time to format
+     * @return the formatted time
+     */
+    public static String formatHourMinute(LocalTime time) {
+        return formatHourMinute(time.toSecondOfDay(), new StringBuilder(5)).toString();
+    }
+
+    /**
+     * Converts a year, month and day to an epoch day after validating them.
+     *
+     * @param year the year, or a negative value for invalid digits
+     * @param month the month, or a negative value for invalid digits
+     * @param day the day of month, or a negative value for invalid digits
+     * @return the epoch day, or {@link #INVALID_DATE}
+     */
+    private static long epochDay(int year, int month, int day) {
+        if (year <= 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID_DATE;
+        }
+        // Days-from-civil: shift the year to start in March so the leap day is last
+        int y = month <= 2 ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return (long) era * DAYS_PER_400_YEARS + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Converts an epoch day to a packed civil date: year << 9 | month << 5 | day.
+     *
+     * @param epochDay the epoch day
+     * @return the packed date
+     */
+    private static long civilFromDays(long epochDay) {
+        long z = epochDay + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(z, DAYS_PER_400_YEARS);
+        long dayOfEra = z - era * DAYS_PER_400_YEARS;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        long month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year << 9 | month << 5 | day;
+    }
+
+    /**
+     * Gets the number of days in a month.
+     *
+     * @param year the year
+     * @param month the month (1-12)
+     * @return the month length
+     */
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Validates hour, minute and second and combines them into a second of the day.
+     *
+     * @param hour the hour, or a negative value for invalid digits
+     * @param minute the minute, or a negative value for invalid digits
+     * @param second the second, or a negative value for invalid digits
+     * @return the second of the day, or {@link #INVALID_TIME}
+     */
+    private static int secondOfDay(int hour, int minute, int second) {
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID_TIME;
+        }
+        return hour * 3600 + minute * 60 + second;
+    }
+
+    /**
+     * Reads a fixed-width run of ASCII digits.
+     *
+     * @param text the text to read from
+     * @param start the index of the first digit
+     * @param width the number of digits
+     * @return the value, or -1 if any character is not a digit
+     */
+    private static int digits(CharSequence text, int start, int width) {
+        int value = 0;
+        for (int i = start; i < start + width; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Appends a non-negative value zero-padded to the given width.
+     *
+     * @param out the builder to append to
+     * @param value the value
+     * @param width the minimum number of digits
+     */
+    private static void appendDigits(StringBuilder out, int value, int width) {
+        int divisor = 1;
+        for (int i = 1; i < width; i++) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Wraps a parsed epoch day, throwing for the invalid sentinel.
+     *
+     * @param epochDay the parsed epoch day
+     * @param text the original text, for the error message
+     * @param pattern the expected pattern, for the error message
+     * @return the date
+     */
+    private static LocalDate toDate(long epochDay, CharSequence text, String pattern) {
+        if (epochDay == INVALID_DATE) {
+            throw new DateTimeParseException("Text '" + text + "' does not match " + pattern, text, 0);
+        }
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * Wraps a parsed second of the day, throwing for the invalid sentinel.
+     *
+     * @param secondOfDay the parsed second of the day
+     * @param text the original text, for the error message
+     * @param pattern the expected pattern, for the error message
+     * @return the time
+     */
+    private static LocalTime toTime(int secondOfDay, CharSequence text, String pattern) {
+        if (secondOfDay == INVALID_TIME) {
+            throw new DateTimeParseException("Text '" + text + "' does not match " + pattern, text, 0);
+        }
+        return LocalTime.ofSecondOfDay(secondOfDay);
+    }
+}
@@ -0,0 +1,131 @@
+package Common;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+/**
+ * Micro-benchmark comparing {@link TemporalCodec} with java.time formatters for the patterns the
+ * trackers use. Run with: java Common.TemporalCodecBenchmark [iterations]
+ *
+ * Each case is warmed up before it is measured, and every result is folded into a checksum
+ * so the JIT cannot discard the work.
+ */
+public class TemporalCodecBenchmark {
+    private static final int SAMPLES = 4096;
+    private static final int ROUNDS = 5;
+
+    private static final DateTimeFormatter US_DATE = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    private static final DateTimeFormatter ISO_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter HOUR_MINUTE = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter HOUR_MINUTE_SECOND = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private static long checksum;
+
+    /**
+     * A benchmarked operation over one sample index.
+     */
+    private interface Case {
+        long run(int index);
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+
+        // Random but reproducible inputs covering the whole supported range
+        Random random = new Random(42);
+        String[] usDates = new String[SAMPLES];
+        String[] isoDates = new String[SAMPLES];
+        String[] hourMinutes = new String[SAMPLES];
+        String[] hourMinuteSeconds = new String[SAMPLES];
+        long[] epochDays = new long[SAMPLES];
+        int[] secondsOfDay = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            LocalDate date = LocalDate.ofEpochDay(random.nextInt(60_000) - 20_000);
+            LocalTime time = LocalTime.ofSecondOfDay(random.nextInt(86_400));
+            usDates[i] = date.format(US_DATE);
+            isoDates[i] = date.format(ISO_DATE);
+            hourMinutes[i] = time.format(HOUR_MINUTE);
+            hourMinuteSeconds[i] = time.format(HOUR_MINUTE_SECOND);
+            epochDays[i] = date.toEpochDay();
+            secondsOfDay[i] = time.toSecondOfDay();
+        }
+        verify(usDates, isoDates, hourMinutes, hourMinuteSeconds);
+
+        StringBuilder buffer = new StringBuilder(16);
+        System.out.printf("%-32s %12s %12s%n", "case", "java.time", "codec");
+        compare("parse MM/dd/yyyy", iterations,
+                i -> LocalDate.parse(usDates[i], US_DATE).toEpochDay(),
+                i -> TemporalCodec.parseUsDate(usDates[i]));
+        compare("parse yyyy-MM-dd", iterations,
+                i -> LocalDate.parse(isoDates[i], ISO_DATE).toEpochDay(),
+                i -> TemporalCodec.parseIsoDate(isoDates[i]));
+        compare("parse HH:mm", iterations,
+                i -> LocalTime.parse(hourMinutes[i], HOUR_MINUTE).toSecondOfDay(),
+                i -> TemporalCodec.parseHourMinute(hourMinutes[i]));
+        compare("parse HH:mm:ss", iterations,
+                i -> LocalTime.parse(hourMinuteSeconds[i], HOUR_MINUTE_SECOND).toSecondOfDay(),
+                i -> TemporalCodec.parseHourMinuteSecond(hourMinuteSeconds[i]));
+        compare("format yyyy-MM-dd", iterations,
+                i -> LocalDate.ofEpochDay(epochDays[i]).format(ISO_DATE).length(),
+                i -> {
+                    buffer.setLength(0);
+                    return TemporalCodec.formatIsoDate(epochDays[i], buffer).length();
+                });
+        compare("format HH:mm:ss", iterations,
+                i -> LocalTime.ofSecondOfDay(secondsOfDay[i]).format(HOUR_MINUTE_SECOND).length(),
+                i -> {
+                    buffer.setLength(0);
+                    return TemporalCodec.formatHourMinuteSecond(secondsOfDay[i], buffer).length();
+                });
+        System.out.println("checksum: " + checksum);
+    }
+
+    /**
+     * Checks that the codec agrees with java.time on every sample before timing anything.
+     */
+    private static void verify(String[] usDates, String[] isoDates, String[] hourMinutes, String[] hourMinuteSeconds) {
+        StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < SAMPLES; i++) {
+            long epochDay = LocalDate.parse(isoDates[i], ISO_DATE).toEpochDay();
+            buffer.setLength(0);
+            if (TemporalCodec.parseUsDate(usDates[i]) != epochDay
+                    || TemporalCodec.parseIsoDate(isoDates[i]) != epochDay
+                    || !TemporalCodec.formatIsoDate(epochDay, buffer).toString().equals(isoDates[i])
+                    || TemporalCodec.parseHourMinute(hourMinutes[i]) != LocalTime.parse(hourMinutes[i]).toSecondOfDay()
+                    || TemporalCodec.parseHourMinuteSecond(hourMinuteSeconds[i]) != LocalTime.parse(hourMinuteSeconds[i]).toSecondOfDay()) {
+                throw new IllegalStateException("Codec disagrees with java.time on sample " + i);
+            }
+        }
+    }
+
+    /**
+     * Measures both implementations of one case and prints nanoseconds per operation.
+     */
+    private static void compare(String name, int iterations, Case baseline, Case codec) {
+        measure(baseline, iterations); // Warm-up
+        measure(codec, iterations);
+        double best1 = Double.MAX_VALUE;
+        double best2 = Double.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            best1 = Math.min(best1, measure(baseline, iterations));
+            best2 = Math.min(best2, measure(codec, iterations));
+        }
+        System.out.printf("%-32s %9.1f ns %9.1f ns%n", name, best1, best2);
+    }
+
+    /**
+     * Runs a case and returns the average nanoseconds per operation.
+     */
+    private static double measure(Case benchmarkCase, int iterations) {
+        long sum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sum += benchmarkCase.run(i & (SAMPLES - 1));
+        }
+        long elapsed = System.nanoTime() - start;
+        checksum += sum;
+        return (double) elapsed / iterations;
+    }
+}
@@ -0,0 +1,239 @@
+package Common;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Two-tier record storage: a size-bounded in-memory cache of recently used records in front of a
+ * {@link RecordStore} that holds the full history on disk.
+ *
+ * Writes go through to the store and keep the record hot. A lookup that misses the cache faults the
+ * record back in from the store, and the least recently used record is evicted once the cache is
+ * full, so the records held on the heap are bounded by the capacity however long the history grows.
+ * Only the store's key index scales with the history.
+ *
+ * Scans stream records from the store without caching them, so listing the whole history does not
+ * flush the hot records out of the cache. A record that is already cached is passed to scans as the
+ * cached instance, so callers see a single copy of each hot record; scans find it through a plain
+ * index of the cache, which, unlike a lookup in the cache itself, leaves the recency order alone.
+ *
+ * Thread-safe; all operations are serialized on the tiered store.
+ *
+ * @param <V> the record type
+ */
+public final class TieredStore<V> implements AutoCloseable {
+    private final RecordStore<V> cold;
+    private final int capacity;
+    private final LinkedHashMap<String, V> hot;
+    private final Map<String, V> hotIndex;   // The same entries as hot, read without touching their order
+
+    private long hits;        // Lookups answered by the cache
+    private long misses;      // Lookups that went to the store
+    private long evictions;   // Records dropped from the cache to make room
+
+    /**
+     * Constructor that creates an empty cache in front of a store.
+     *
+     * @param cold the store holding every record
+     * @param capacity the maximum number of records kept in memory
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public TieredStore(RecordStore<V> cold, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.cold = cold;
+        this.capacity = capacity;
+        this.hotIndex = new HashMap<>(capacity * 4 / 3 + 1);
+        this.hot = new LinkedHashMap<String, V>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                if (size() > TieredStore.this.capacity) {
+                    evictions++;
+                    hotIndex.remove(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Stores a record under a key and keeps it in the cache.
+     *
+     * @param key the key
+     * @param value the record
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void put(String key, V value) throws IOException {
+        cold.put(key, value);
+        cache(key, value);
+    }
+
+    /**
+     * Removes the record stored under a key from both tiers.
+     *
+     * @param key the key
+     * @return true if a record was removed
+     * @throws IOException if the deletion cannot be written
+     */
+    public synchronized boolean delete(String key) throws IOException {
+        hot.remove(key);
+        hotIndex.remove(key);
+        return cold.delete(key);
+    }
+
+    /**
+     * Gets the record stored under a key, reading it from the store if it is not cached.
+     *
+     * @param key the key
+     * @return the record, or null if none is stored
+     * @throws IOException if the record cannot be read
+     */
+    public synchronized V get(String key) throws IOException {
+        V value = hot.get(key);
+        if (value != null) {
+            hits++;
+            return value;
+        }
+        misses++;
+        value = cold.get(key);
+        if (value != null) {
+            cache(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Checks whether a record is stored under a key without reading it.
+     *
+     * @param key the key
+     * @return true if the key is present
+     */
+    public synchronized boolean contains(String key) {
+        return hot.containsKey(key) || cold.contains(key);
+    }
+
+    /**
+     * Gets the greatest key in the store.
+     *
+     * @return the last key in key order, or null if the store is empty
+     */
+    public synchronized String lastKey() {
+        return cold.lastKey();
+    }
+
+    /**
+     * Visits every record in key order without filling the cache.
+     * The action must not modify the store.
+     *
+     * @param action receives each key and record
+     * @throws IOException if a record cannot be read
+     */
+    public synchronized void forEach(BiConsumer<String, ? super V> action) throws IOException {
+        cold.forEach((key, value) -> action.accept(key, preferHot(key, value)));
+    }
+
+    /**
+     * Visits the records whose keys start with a prefix, in key order, without filling the cache.
+     * The action must not modify the store.
+     *
+     * @param prefix the key prefix
+     * @param action receives each key and record
+     * @throws IOException if a record cannot be read
+     */
+    public synchronized void forEachWithPrefix(String prefix, BiConsumer<String, ? super V> action) throws IOException {
+        cold.forEachWithPrefix(prefix, (key, value) -> action.accept(key, preferHot(key, value)));
+    }
+
+    /**
+     * Gets the number of stored records.
+     *
+     * @return the record count across both tiers
+     */
+    public synchronized int size() {
+        return cold.size();
+    }
+
+    /**
+     * Gets the number of records currently held in memory.
+     *
+     * @return the cached record count, at most the capacity
+     */
+    public synchronized int getCachedCount() {
+        return hot.size();
+    }
+
+    /**
+     * Gets the number of lookups answered from memory.
+     *
+     * @return the hit count
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Gets the number of lookups that had to read the store.
+     *
+     * @return the miss count
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Gets the number of records evicted from memory.
+     *
+     * @return the eviction count
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Gets the share of lookups answered from memory.
+     *
+     * @return the hit rate between 0 and 1, or 0 before the first lookup
+     */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Forces every write so far to disk.
+     *
+     * @throws IOException if the store cannot be synced
+     */
+    public void sync() throws IOException {
+        cold.sync();
+    }
+
+    /**
+     * Drops the cache and closes the store.
+     *
+     * @throws IOException if the store cannot be closed cleanly
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        hot.clear();
+        hotIndex.clear();
+        cold.close();
+    }
+
+    // Caches a record as the most recently used, evicting the least recently used one if the cache is full
+    private void cache(String key, V value) {
+        hotIndex.put(key, value);
+        hot.put(key, value);
+    }
+
+    // Returns the cached instance of a scanned record if there is one, without making it more recent
+    private V preferHot(String key, V scanned) {
+        V cached = hotIndex.get(key);
+        return cached != null ? cached : scanned;
+    }
+}
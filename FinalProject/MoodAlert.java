@@ -0,0 +1,38 @@
+package FinalProject;
+
+import java.time.LocalDateTime;
+
+public class MoodAlert {
+    // Where alerts are delivered: the console, a log file, a list in batch mode
+    public interface Sink {
+        void alert(MoodAlert alert);
+    }
+
+    private String rule;
+    private String user;
+    private LocalDateTime time;
+    private String message;
+    public MoodAlert(String rule, String user, LocalDateTime time, String message) {
+        this.rule = rule;
+        this.user = user;
+        this.time = time;
+        this.message = message;
+    }
+    public String getRule() {
+        return this.rule;
+    }
+    public String getUser() {
+        return this.user;
+    }
+    // Time of the mood (or clock tick) that raised the alert
+    public LocalDateTime getTime() {
+        return this.time;
+    }
+    public String getMessage() {
+        return this.message;
+    }
+
+    public String toString() {
+        return "[" + rule + "] " + message;
+    }
+}
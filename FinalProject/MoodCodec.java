@@ -0,0 +1,38 @@
+package FinalProject;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import Common.RecordCodec;
+import Common.TemporalCodec;
+
+public class MoodCodec implements RecordCodec<Mood> {
+    // Date first so all moods of a day share a key prefix; the name is lower-cased like Mood.equals
+    public static String keyOf(Mood mood) {
+        StringBuilder key = new StringBuilder(dayPrefix(mood.getDate()));
+        TemporalCodec.formatHourMinuteSecond(mood.getTime().toSecondOfDay(), key).append('|');
+        return key.append(mood.getName().toLowerCase()).toString();
+    }
+
+    public static String dayPrefix(LocalDate date) {
+        return TemporalCodec.formatIsoDate(date) + "|";
+    }
+
+    @Override
+    public void write(Mood mood, DataOutput out) throws IOException {
+        out.writeUTF(mood.getName());
+        out.writeLong(mood.getDate().toEpochDay());
+        out.writeInt(mood.getTime().toSecondOfDay());
+        RecordCodec.writeNullable(mood.getNotes(), out);
+    }
+
+    @Override
+    public Mood read(DataInput in) throws IOException {
+        String name = in.readUTF();
+        LocalDate date = LocalDate.ofEpochDay(in.readLong());
+        LocalTime time = LocalTime.ofSecondOfDay(in.readInt());
+        return new Mood(name, date, time, RecordCodec.readNullable(in));
+    }
+}
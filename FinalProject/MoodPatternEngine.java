@@ -0,0 +1,115 @@
+package FinalProject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Evaluates the declared mood rules as moods are added, edited and deleted. Every user gets their
+// own copy of each rule, and each copy keeps only the moods inside its window.
+public class MoodPatternEngine {
+    // Used when there is no rules file
+    private static final String[] DEFAULT_RULES = {
+        "sad-streak|COUNT|sad|3|5",
+        "quiet-week|ABSENCE|7"
+    };
+
+    private List<MoodRule> declared;
+    private Map<String, List<MoodRule>> users = new HashMap<>();
+    private MoodAlert.Sink sink;
+    private long alertCount;
+    public MoodPatternEngine(List<MoodRule> declared, MoodAlert.Sink sink) {
+        this.declared = declared;
+        this.sink = alert -> {
+            alertCount++;
+            sink.alert(alert);
+        };
+    }
+
+    // One rule per line, blank lines and # comments skipped; see MoodRule.parse
+    public static List<MoodRule> loadRules(Path file) throws IOException {
+        List<MoodRule> rules = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while((line = in.readLine()) != null) {
+                if(!line.isBlank() && !line.startsWith("#")) {
+                    rules.add(MoodRule.parse(line));
+                }
+            }
+        } catch (NoSuchFileException e) {
+            for(String line : DEFAULT_RULES) {
+                rules.add(MoodRule.parse(line));
+            }
+        }
+        return rules;
+    }
+
+    public List<MoodRule> getRules() {
+        return declared;
+    }
+
+    public long getAlertCount() {
+        return alertCount;
+    }
+
+    // The longest window of any rule; history older than this cannot change an alert
+    public Duration getHorizon() {
+        Duration horizon = Duration.ZERO;
+        for(MoodRule rule : declared) {
+            if(rule.getWindow().compareTo(horizon) > 0) {
+                horizon = rule.getWindow();
+            }
+        }
+        return horizon;
+    }
+
+    // Loads a stored mood into the rules' windows without raising alerts
+    public void prime(String user, Mood mood) {
+        for(MoodRule rule : rulesOf(user)) {
+            rule.added(user, mood, null);
+        }
+    }
+
+    public void added(String user, Mood mood) {
+        for(MoodRule rule : rulesOf(user)) {
+            rule.added(user, mood, sink);
+        }
+    }
+
+    public void removed(String user, Mood mood) {
+        for(MoodRule rule : rulesOf(user)) {
+            rule.removed(mood);
+        }
+    }
+
+    public void edited(String user, Mood before, Mood after) {
+        removed(user, before);
+        added(user, after);
+    }
+
+    public void advanceTo(LocalDateTime now) {
+        for(Map.Entry<String, List<MoodRule>> entry : users.entrySet()) {
+            for(MoodRule rule : entry.getValue()) {
+                rule.advanceTo(entry.getKey(), now, sink);
+            }
+        }
+    }
+
+    private List<MoodRule> rulesOf(String user) {
+        return users.computeIfAbsent(user, u -> {
+            List<MoodRule> rules = new ArrayList<>();
+            for(MoodRule rule : declared) {
+                rules.add(rule.newInstance());
+            }
+            return rules;
+        });
+    }
+}
@@ -0,0 +1,202 @@
+package FinalProject;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import Common.BatchRunner;
+
+// A declared pattern over one user's moods. Each rule keeps only the moods inside its own window,
+// so evaluating a change never needs the rest of the store.
+public abstract class MoodRule {
+    private String name;
+    protected MoodRule(String name) {
+        this.name = name;
+    }
+    public String getName() {
+        return this.name;
+    }
+
+    // How far back a rule needs to see moods; the engine primes rules with this much history
+    public abstract Duration getWindow();
+
+    // A fresh rule with the same declaration and no state, one per user
+    public abstract MoodRule newInstance();
+
+    // A mood was added; alerts go to the sink unless the rule is only being primed (sink is null)
+    public abstract void added(String user, Mood mood, MoodAlert.Sink sink);
+
+    public abstract void removed(Mood mood);
+
+    // The clock moved on; rules about missing moods fire here
+    public abstract void advanceTo(String user, LocalDateTime now, MoodAlert.Sink sink);
+
+    // name|COUNT|mood|entries|days  or  name|ABSENCE|days
+    public static MoodRule parse(String line) {
+        List<String> f = BatchRunner.split(line);
+        String kind = f.size() > 1 ? f.get(1).trim().toUpperCase() : "";
+        if(kind.equals("COUNT") && f.size() == 5) {
+            int entries = Integer.parseInt(f.get(3).trim());
+            int days = Integer.parseInt(f.get(4).trim());
+            if(entries < 1 || days < 1) {
+                throw new IllegalArgumentException("Entries and days must be positive: " + line);
+            }
+            return new CountRule(f.get(0).trim(), f.get(2).trim(), entries, days);
+        } else if(kind.equals("ABSENCE") && f.size() == 3) {
+            int days = Integer.parseInt(f.get(2).trim());
+            if(days < 1) {
+                throw new IllegalArgumentException("Days must be positive: " + line);
+            }
+            return new AbsenceRule(f.get(0).trim(), days);
+        }
+        throw new IllegalArgumentException("Expected name|COUNT|mood|entries|days or name|ABSENCE|days but got " + line);
+    }
+
+    protected static LocalDateTime timeOf(Mood mood) {
+        return LocalDateTime.of(mood.getDate(), mood.getTime());
+    }
+
+    // "At least N moods named X within D days". Matches are kept back to D days before the rule's
+    // clock, so backdated moods inside that span still pair up; moods dated before it are ignored,
+    // as they would be after a restart, since priming only reads that far back.
+    static class CountRule extends MoodRule {
+        private String moodName;
+        private int entries;
+        private int days;
+        private Duration window;
+        private TreeSet<LocalDateTime> matches = new TreeSet<>();
+        private LocalDateTime lastAlertEnd;   // Windows overlapping an alerted one stay quiet
+        private LocalDateTime clock;          // Latest time advanced to; null while priming
+        CountRule(String name, String moodName, int entries, int days) {
+            super(name);
+            this.moodName = moodName;
+            this.entries = entries;
+            this.days = days;
+            this.window = Duration.ofDays(days);
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public MoodRule newInstance() {
+            return new CountRule(getName(), moodName, entries, days);
+        }
+
+        public void added(String user, Mood mood, MoodAlert.Sink sink) {
+            if(!mood.getName().equalsIgnoreCase(moodName)) {
+                return;
+            }
+            LocalDateTime t = timeOf(mood);
+            if(clock != null && t.isBefore(clock.minus(window))) {
+                return;
+            }
+            matches.add(t);
+            if(sink != null) {
+                // Any qualifying window holding t is made of N consecutive matches around it
+                List<LocalDateTime> around = new ArrayList<>();
+                LocalDateTime before = t;
+                for(int i = 1; i < entries && (before = matches.lower(before)) != null; i++) {
+                    around.add(0, before);
+                }
+                around.add(t);
+                LocalDateTime after = t;
+                for(int i = 1; i < entries && (after = matches.higher(after)) != null; i++) {
+                    around.add(after);
+                }
+                for(int i = 0; i + entries <= around.size(); i++) {
+                    LocalDateTime first = around.get(i);
+                    LocalDateTime last = around.get(i + entries - 1);
+                    if(Duration.between(first, last).compareTo(window) <= 0
+                            && (lastAlertEnd == null || first.isAfter(lastAlertEnd))) {
+                        lastAlertEnd = last;
+                        sink.alert(new MoodAlert(getName(), user, t, entries + " '" + moodName + "' entries within "
+                                + days + " days, from " + first + " to " + last));
+                        break;
+                    }
+                }
+            }
+            prune();
+        }
+
+        public void removed(Mood mood) {
+            if(mood.getName().equalsIgnoreCase(moodName)) {
+                matches.remove(timeOf(mood));
+            }
+        }
+
+        public void advanceTo(String user, LocalDateTime now, MoodAlert.Sink sink) {
+            if(clock == null || now.isAfter(clock)) {
+                clock = now;
+            }
+            prune();
+        }
+
+        // Nothing is pruned while priming, which only reads one window of history anyway
+        private void prune() {
+            if(clock == null) {
+                return;
+            }
+            LocalDateTime oldest = clock.minus(window);
+            while(!matches.isEmpty() && matches.first().isBefore(oldest)) {
+                matches.pollFirst();
+            }
+        }
+    }
+
+    // "No mood at all for D days"
+    static class AbsenceRule extends MoodRule {
+        private int days;
+        private Duration window;
+        private TreeSet<LocalDateTime> recent = new TreeSet<>();
+        private LocalDateTime alertedFor;   // The last mood before a gap that was already reported
+        AbsenceRule(String name, int days) {
+            super(name);
+            this.days = days;
+            this.window = Duration.ofDays(days);
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public MoodRule newInstance() {
+            return new AbsenceRule(getName(), days);
+        }
+
+        public void added(String user, Mood mood, MoodAlert.Sink sink) {
+            LocalDateTime t = timeOf(mood);
+            LocalDateTime previous = recent.lower(t);
+            recent.add(t);
+            // A gap the clock did not already report, e.g. moods entered after the fact
+            if(sink != null && previous != null && !previous.equals(alertedFor)
+                    && Duration.between(previous, t).compareTo(window) > 0) {
+                alertedFor = previous;
+                sink.alert(new MoodAlert(getName(), user, t, "No mood entries for "
+                        + Duration.between(previous, t).toDays() + " days, from " + previous + " to " + t));
+            }
+            // Keep the latest mood and what could replace it if it is deleted
+            LocalDateTime oldest = recent.last().minus(window);
+            while(recent.size() > 1 && recent.first().isBefore(oldest)) {
+                recent.pollFirst();
+            }
+        }
+
+        public void removed(Mood mood) {
+            recent.remove(timeOf(mood));
+        }
+
+        public void advanceTo(String user, LocalDateTime now, MoodAlert.Sink sink) {
+            if(recent.isEmpty()) {
+                return;
+            }
+            LocalDateTime latest = recent.last();
+            if(!latest.equals(alertedFor) && Duration.between(latest, now).compareTo(window) > 0) {
+                alertedFor = latest;
+                sink.alert(new MoodAlert(getName(), user, now, "No mood entries for "
+                        + Duration.between(latest, now).toDays() + " days, since " + latest));
+            }
+        }
+    }
+}
@@ -2,27 +2,94 @@ package FinalProject;
 
 import java.util.Scanner;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeParseException;
-import java.time.format.DateTimeFormatter;
+import Common.BatchRunner;
+import Common.LatencyHistogram;
+import Common.Metrics;
+import Common.RecordStore;
+import Common.TemporalCodec;
+import Common.TieredStore;
 
 public class MoodTracker {
+    // Moods kept in memory; older ones stay on disk and are read back when looked up
+    private static final int MOOD_CACHE_SIZE = 500;
+    // The tracker keeps one person's moods; the pattern engine can follow many
+    private static final String MOOD_USER = "me";
+    // Alert rules, evaluated on every change; null if they could not be loaded
+    private static MoodPatternEngine patterns;
+    private static List<MoodAlert> pendingAlerts = new ArrayList<>();
+
+    private static final LatencyHistogram LOAD_LATENCY = Metrics.histogram("mood_open_store_seconds");
+    private static final LatencyHistogram VALIDATE_LATENCY = Metrics.histogram("mood_is_valid_seconds");
+    private static final LatencyHistogram SAVE_LATENCY = Metrics.histogram("mood_save_seconds");
+    private static final LatencyHistogram DELETE_LATENCY = Metrics.histogram("mood_delete_seconds");
+    private static final LatencyHistogram EDIT_LATENCY = Metrics.histogram("mood_edit_seconds");
+    private static final LatencyHistogram SEARCH_LATENCY = Metrics.histogram("mood_search_seconds");
+
     public static void main(String[] args) {
+        // In batch mode only command results go to standard output; other messages go to standard error
+        PrintStream results = System.out;
+        boolean batch = BatchRunner.isRequested(args);
+        if(batch) {
+            System.setOut(System.err);
+        }
         System.out.println("This is the Mood Tracker application.");
         Scanner scanner = new Scanner(System.in);
-        ArrayList<Mood> moodsList = new ArrayList<>();
+        Metrics.install("MoodTracker");
+        // Every change is appended to the store as it happens, so moods survive a restart
+        TieredStore<Mood> moodsList;
+        long loadStart = Metrics.start();
+        try {
+            RecordStore<Mood> moodStore = new RecordStore<>(Paths.get("FinalProject", "data"), "moods", new MoodCodec());
+            moodsList = new TieredStore<>(moodStore, MOOD_CACHE_SIZE);
+        } catch (IOException e) {
+            System.err.println("Error opening the mood store: " + e.getMessage());
+            Metrics.shutdown();
+            scanner.close();
+            return;
+        }
+        LOAD_LATENCY.recordSince(loadStart);
+        Metrics.gauge("mood_stored", moodsList::size);
+        Metrics.gauge("mood_cached", moodsList::getCachedCount);
+        Metrics.gauge("mood_cache_hits", moodsList::getHitCount);
+        Metrics.gauge("mood_cache_misses", moodsList::getMissCount);
+        startPatterns(moodsList, batch);
+
+        if(batch) {
+            runBatch(args, results, moodsList);
+            closeStore(moodsList);
+            Metrics.shutdown();
+            return;
+        }
 
         while(true) {
+            if(patterns != null) {
+                patterns.advanceTo(LocalDateTime.now());
+            }
             System.out.println("Press 'a' to add mood\n" +
                                 "'d' to delete mood(s)\n" +
                                 "'e' to edit mood\n" +
                                 "'s' to search for moods\n" +
                                 "'M' to get all moods\n" +
                                 "'w' to write the moods to a file\n" +
+                                "'c' to show cache statistics\n" +
+                                "'r' to show the alert rules\n" +
                                 "Type 'Exit' to exit");
             String menuOption = scanner.nextLine();
             switch(menuOption) {
@@ -37,12 +104,10 @@ public class MoodTracker {
                         try {
                             System.out.println("Input the date in MM/dd/yyyy format:");
                             String moodDateStr = scanner.nextLine();
-                            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-                            LocalDate moodDate = LocalDate.parse(moodDateStr, dateFormatter);
+                            LocalDate moodDate = TemporalCodec.requireUsDate(moodDateStr);
                             System.out.println("Input the time in HH:mm:ss format:");
                             String moodTimeStr = scanner.nextLine();
-                            DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-                            LocalTime moodTime = LocalTime.parse(moodTimeStr, timeFormatter);
+                            LocalTime moodTime = TemporalCodec.requireHourMinuteSecond(moodTimeStr);
                             System.out.println("Add notes about this mood");
                             String moodNotes = scanner.nextLine();
                             if(moodNotes.strip().equalsIgnoreCase("")) {
@@ -69,8 +134,7 @@ public class MoodTracker {
                     }
                     try {
                         boolean isValid = isMoodValid(moodToAdd, moodsList);
-                        if(isValid) {
-                            moodsList.add(moodToAdd);
+                        if(isValid && saveMood(moodToAdd, moodsList)) {
                             System.out.println("The mood has been added to the tracker");
                             continue;
                         }
@@ -87,8 +151,7 @@ public class MoodTracker {
                         try {
                             System.out.println("Input the date in MM/dd/yyyy format:");
                             String moodDateStr = scanner.nextLine();
-                            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-                            LocalDate moodDate = LocalDate.parse(moodDateStr, dateFormatter);
+                            LocalDate moodDate = TemporalCodec.requireUsDate(moodDateStr);
                             boolean areMoodsDeleted = deleteMoods(moodDate, moodsList);
                             if(areMoodsDeleted) {
                                 System.out.println("The moods have been deleted");
@@ -105,12 +168,10 @@ public class MoodTracker {
                             moodName = scanner.nextLine();
                             System.out.println("Input the date in MM/dd/yyyy format:");
                             String moodDateStr = scanner.nextLine();
-                            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-                            LocalDate moodDate = LocalDate.parse(moodDateStr, dateFormatter);
+                            LocalDate moodDate = TemporalCodec.requireUsDate(moodDateStr);
                             System.out.println("Input the time in HH:mm:ss format:");
                             String moodTimeStr = scanner.nextLine();
-                            DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-                            LocalTime moodTime = LocalTime.parse(moodTimeStr, timeFormatter);
+                            LocalTime moodTime = TemporalCodec.requireHourMinuteSecond(moodTimeStr);
                             Mood delMood = new Mood(moodName, moodDate, moodTime);
                             boolean isMoodDeleted = deleteMood(delMood, moodsList);
                             if(isMoodDeleted) {
@@ -132,12 +193,10 @@ public class MoodTracker {
                         moodName = scanner.nextLine();
                         System.out.println("Input the date in MM/dd/yyyy format:");
                         String moodDateStr = scanner.nextLine();
-                        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-                        LocalDate moodDate = LocalDate.parse(moodDateStr, dateFormatter);
+                        LocalDate moodDate = TemporalCodec.requireUsDate(moodDateStr);
                         System.out.println("Input the time in HH:mm:ss format:");
                         String moodTimeStr = scanner.nextLine();
-                        DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-                        LocalTime moodTime = LocalTime.parse(moodTimeStr, timeFormatter);
+                        LocalTime moodTime = TemporalCodec.requireHourMinuteSecond(moodTimeStr);
                         System.out.println("Add new notes about this mood");
                         String moodNotes = scanner.nextLine();
                         if(moodNotes.strip().equalsIgnoreCase("")) {
@@ -166,8 +225,7 @@ public class MoodTracker {
                         try {
                             System.out.println("Input the date in MM/dd/yyyy format:");
                             String moodDateStr = scanner.nextLine();
-                            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-                            LocalDate moodDate = LocalDate.parse(moodDateStr, dateFormatter);
+                            LocalDate moodDate = TemporalCodec.requireUsDate(moodDateStr);
                             searchMoods(moodDate, moodsList);
                         } catch (DateTimeParseException dfe) {
                             System.out.println("Incorrect format of date. Cannot search mood.");
@@ -179,12 +237,10 @@ public class MoodTracker {
                             moodName = scanner.nextLine();
                             System.out.println("Input the date in MM/dd/yyyy format:");
                             String moodDateStr = scanner.nextLine();
-                            DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MM/dd/yyyy");
-                            LocalDate moodDate = LocalDate.parse(moodDateStr, dateFormatter);
+                            LocalDate moodDate = TemporalCodec.requireUsDate(moodDateStr);
                             System.out.println("Input the time in HH:mm:ss format:");
                             String moodTimeStr = scanner.nextLine();
-                            DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
-                            LocalTime moodTime = LocalTime.parse(moodTimeStr, timeFormatter);
+                            LocalTime moodTime = TemporalCodec.requireHourMinuteSecond(moodTimeStr);
                             Mood delMood = new Mood(moodName, moodDate, moodTime);
                             searchMood(delMood, moodsList);
                         } catch (DateTimeParseException dfe) {
@@ -195,23 +251,44 @@ public class MoodTracker {
                     break;
                 case "M":
                     // Code to get all moods
-                    for(Mood moodObj: moodsList) {
-                        System.out.println(moodObj);
+                    try {
+                        moodsList.forEach((key, moodObj) -> System.out.println(moodObj));
+                    } catch (IOException e) {
+                        System.err.println("Error reading moods: " + e.getMessage());
                     }
                     break;
                 case "w":
                     // Code to write moods to a file
                     try (PrintWriter writer = new PrintWriter(new FileWriter("FinalProject/Moods.txt"))) {
-                    for (Mood mood : moodsList) {
-                        writer.println(mood+"\n\n");
-                    }
+                    moodsList.forEach((key, mood) -> writer.println(mood+"\n\n"));
                     System.out.println("The entries are written to a file");
                 } catch (IOException e) {
                     System.err.println("Error writing to file: " + e.getMessage());
                 }
                     break;
+                case "c":
+                    // Code to show how well the in-memory tier is doing
+                    System.out.println(moodsList.size() + " moods stored, " + moodsList.getCachedCount() +
+                            " in memory (limit " + MOOD_CACHE_SIZE + ")");
+                    System.out.println("Lookups: " + moodsList.getHitCount() + " hits, " + moodsList.getMissCount() +
+                            " misses, hit rate " + String.format(Locale.ROOT, "%.1f%%", moodsList.getHitRate() * 100) +
+                            ", " + moodsList.getEvictionCount() + " evictions");
+                    break;
+                case "r":
+                    // Code to show the alert rules
+                    if(patterns == null) {
+                        System.out.println("Alert rules are not loaded");
+                        break;
+                    }
+                    for(MoodRule rule : patterns.getRules()) {
+                        System.out.println(rule.getName() + " (looks back " + rule.getWindow().toDays() + " days)");
+                    }
+                    System.out.println(patterns.getAlertCount() + " alerts raised this session");
+                    break;
                 case "Exit":
                     System.out.println("Exiting Mood Tracker. Goodbye!");
+                    closeStore(moodsList);
+                    Metrics.shutdown();
                     scanner.close();
                     return;
                 default:
@@ -221,73 +298,276 @@ public class MoodTracker {
         
     }
 
-    public static boolean isMoodValid(Mood mood, ArrayList<Mood> moodsList) throws InvalidMoodException {
-        for(Mood tempMood: moodsList) {
-            if (tempMood.equals(mood)) {
-                throw new InvalidMoodException();
+    // Loads the rules and primes them with the moods inside their windows, counted back from the
+    // latest mood, so alerts carry on from the last session without reading the whole store
+    private static void startPatterns(TieredStore<Mood> moodsList, boolean batch) {
+        String alertFile = System.getProperty("mood.alerts.file");
+        MoodAlert.Sink sink = alert -> {
+            System.out.println("*** Mood alert " + alert);
+            if(batch) {
+                pendingAlerts.add(alert);
             }
+            if(alertFile != null) {
+                try {
+                    Files.write(Paths.get(alertFile), (alert.getTime() + " " + alert + "\n").getBytes(StandardCharsets.UTF_8),
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                } catch (IOException e) {
+                    System.err.println("Error writing alert: " + e.getMessage());
+                }
+            }
+        };
+        try {
+            patterns = new MoodPatternEngine(MoodPatternEngine.loadRules(Paths.get("FinalProject", "mood-rules.txt")), sink);
+            String lastKey = moodsList.lastKey();
+            if(lastKey != null) {
+                LocalDate latest = moodsList.get(lastKey).getDate();
+                long days = patterns.getHorizon().toDays();
+                for(LocalDate day = latest.minusDays(days); !day.isAfter(latest); day = day.plusDays(1)) {
+                    moodsList.forEachWithPrefix(MoodCodec.dayPrefix(day), (key, mood) -> patterns.prime(MOOD_USER, mood));
+                }
+            }
+            patterns.advanceTo(LocalDateTime.now());
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error loading mood alert rules: " + e.getMessage());
+            patterns = null;
+        }
+    }
+
+    private static boolean saveMood(Mood mood, TieredStore<Mood> moodsList) {
+        long start = Metrics.start();
+        try {
+            moodsList.put(MoodCodec.keyOf(mood), mood);
+            if(patterns != null) {
+                patterns.added(MOOD_USER, mood);
+            }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving mood: " + e.getMessage());
+            return false;
+        } finally {
+            SAVE_LATENCY.recordSince(start);
+        }
+    }
+
+    // Headless mode: scripted commands, one result line each. Dates are MM/dd/yyyy and times HH:mm:ss as in the menu.
+    // ADD|name|date|time[|notes], DELETE|name|date|time, DELETE_DAY|date, EDIT|name|date|time|notes,
+    // GET|name|date|time, DAY|date (name, time and notes of each mood that day), COUNT,
+    // TICK[|date[|time]], ALERTS
+    private static void runBatch(String[] args, PrintStream results, TieredStore<Mood> moodsList) {
+        BatchRunner runner = new BatchRunner()
+                .register("ADD", 3, 4, f -> {
+                    Mood mood = parseMood(f);
+                    try {
+                        isMoodValid(mood, moodsList);
+                    } catch(InvalidMoodException ime) {
+                        throw new IllegalArgumentException("The mood is not valid");
+                    }
+                    if(!saveMood(mood, moodsList)) {
+                        throw new IOException("The mood could not be saved");
+                    }
+                    return new String[] {mood.getName(), mood.getDate().toString(), mood.getTime().toString()};
+                })
+                .register("DELETE", 3, 3, f -> {
+                    if(!deleteMood(parseMood(f), moodsList)) {
+                        throw new IllegalArgumentException("No matching mood found");
+                    }
+                    return null;
+                })
+                .register("DELETE_DAY", 1, 1, f -> {
+                    if(!deleteMoods(TemporalCodec.requireUsDate(f[0]), moodsList)) {
+                        throw new IllegalArgumentException("No matching moods found");
+                    }
+                    return null;
+                })
+                .register("EDIT", 4, 4, f -> {
+                    if(f[3].isBlank()) {
+                        throw new IllegalArgumentException("No notes entered");
+                    }
+                    if(!editMood(parseMood(f), moodsList)) {
+                        throw new IllegalArgumentException("No matching mood could be found");
+                    }
+                    return null;
+                })
+                .register("GET", 3, 3, f -> {
+                    Mood mood = moodsList.get(MoodCodec.keyOf(parseMood(f)));
+                    if(mood == null) {
+                        throw new IllegalArgumentException("No matching records could be found!");
+                    }
+                    return new String[] {mood.getName(), mood.getDate().toString(), mood.getTime().toString(),
+                            mood.getNotes() == null ? "" : mood.getNotes()};
+                })
+                .register("DAY", 1, 1, f -> {
+                    List<String> fields = new ArrayList<>();
+                    moodsList.forEachWithPrefix(MoodCodec.dayPrefix(TemporalCodec.requireUsDate(f[0])), (key, mood) -> {
+                        fields.add(mood.getName());
+                        fields.add(mood.getTime().toString());
+                        fields.add(mood.getNotes() == null ? "" : mood.getNotes());
+                    });
+                    fields.add(0, String.valueOf(fields.size() / 3));
+                    return fields.toArray(new String[0]);
+                })
+                .register("COUNT", 0, 0, f -> new String[] {String.valueOf(moodsList.size())})
+                .register("TICK", 0, 2, f -> {
+                    // Moves the rules' clock, to now or to the given date and time
+                    LocalDateTime now = LocalDateTime.now();
+                    if(f.length > 0) {
+                        LocalDate day = TemporalCodec.requireUsDate(f[0]);
+                        now = f.length > 1 ? LocalDateTime.of(day, TemporalCodec.requireHourMinuteSecond(f[1])) : day.atStartOfDay();
+                    }
+                    if(patterns != null) {
+                        patterns.advanceTo(now);
+                    }
+                    return null;
+                })
+                .register("ALERTS", 0, 0, f -> {
+                    // Alerts raised since the last ALERTS: how many, then rule, time and message of each
+                    List<String> fields = new ArrayList<>();
+                    fields.add(String.valueOf(pendingAlerts.size()));
+                    for(MoodAlert alert : pendingAlerts) {
+                        fields.add(alert.getRule());
+                        fields.add(alert.getTime().toString());
+                        fields.add(alert.getMessage());
+                    }
+                    pendingAlerts.clear();
+                    return fields.toArray(new String[0]);
+                });
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(results), 1 << 16), false);
+        try (BufferedReader in = BatchRunner.openInput(args)) {
+            runner.run(in, out);
+        } catch (IOException e) {
+            System.err.println("Error reading commands: " + e.getMessage());
+        }
+    }
+
+    // Builds a mood from batch fields: name, date, time and optional notes
+    private static Mood parseMood(String[] fields) {
+        LocalDate moodDate = TemporalCodec.requireUsDate(fields[1]);
+        LocalTime moodTime = TemporalCodec.requireHourMinuteSecond(fields[2]);
+        if(fields.length > 3 && !fields[3].strip().isEmpty()) {
+            return new Mood(fields[0], moodDate, moodTime, fields[3]);
+        }
+        return new Mood(fields[0], moodDate, moodTime);
+    }
+
+    private static void closeStore(TieredStore<Mood> moodsList) {
+        try {
+            moodsList.close();
+        } catch (IOException e) {
+            System.err.println("Error closing the mood store: " + e.getMessage());
+        }
+    }
+
+    // Moods are keyed by date, time and lower-cased name, so a key lookup matches Mood.equals
+    public static boolean isMoodValid(Mood mood, TieredStore<Mood> moodsList) throws InvalidMoodException {
+        long start = Metrics.start();
+        boolean duplicate = moodsList.contains(MoodCodec.keyOf(mood));
+        VALIDATE_LATENCY.recordSince(start);
+        if (duplicate) {
+            throw new InvalidMoodException();
         }
         return true;
     }
 
-    public static boolean deleteMoods(LocalDate moodDate, ArrayList<Mood> moodsList) {
-        boolean removed = false;
-        java.util.Iterator<Mood> iterator = moodsList.iterator();
-        while (iterator.hasNext()) {
-            Mood tempMood = iterator.next();
-            if (tempMood.getDate().equals(moodDate)) {
-                iterator.remove();
-                removed = true;
+    public static boolean deleteMoods(LocalDate moodDate, TieredStore<Mood> moodsList) {
+        long start = Metrics.start();
+        try {
+            ArrayList<String> keys = new ArrayList<>();
+            ArrayList<Mood> moods = new ArrayList<>();
+            moodsList.forEachWithPrefix(MoodCodec.dayPrefix(moodDate), (key, mood) -> {
+                keys.add(key);
+                moods.add(mood);
+            });
+            for (String key : keys) {
+                moodsList.delete(key);
             }
+            if(patterns != null) {
+                for(Mood mood : moods) {
+                    patterns.removed(MOOD_USER, mood);
+                }
+            }
+            return !keys.isEmpty();
+        } catch (IOException e) {
+            System.err.println("Error deleting moods: " + e.getMessage());
+            return false;
+        } finally {
+            DELETE_LATENCY.recordSince(start);
         }
-        return removed;
     }
 
-    public static boolean deleteMood(Mood mood, ArrayList<Mood> moodsList) {
-        java.util.Iterator<Mood> iterator = moodsList.iterator();
-        while (iterator.hasNext()) {
-            Mood tempMood = iterator.next();
-            if (tempMood.equals(mood)) {
-                iterator.remove();
-                return true;
+    public static boolean deleteMood(Mood mood, TieredStore<Mood> moodsList) {
+        long start = Metrics.start();
+        try {
+            boolean deleted = moodsList.delete(MoodCodec.keyOf(mood));
+            if(deleted && patterns != null) {
+                patterns.removed(MOOD_USER, mood);
             }
+            return deleted;
+        } catch (IOException e) {
+            System.err.println("Error deleting mood: " + e.getMessage());
+            return false;
+        } finally {
+            DELETE_LATENCY.recordSince(start);
         }
-        return false;
     }
 
 
-    public static boolean editMood(Mood moodToEdit, ArrayList<Mood> moodsList) {
-        for(Mood tempMood: moodsList) {
-            if (tempMood.equals(moodToEdit)) {
-                tempMood.setNotes(moodToEdit.getNotes());
-                return true;
+    public static boolean editMood(Mood moodToEdit, TieredStore<Mood> moodsList) {
+        long start = Metrics.start();
+        try {
+            String key = MoodCodec.keyOf(moodToEdit);
+            Mood tempMood = moodsList.get(key);
+            if (tempMood == null) {
+                return false;
+            }
+            // Edit a copy, so the cached mood is only replaced once the write has succeeded
+            Mood edited = new Mood(tempMood.getName(), tempMood.getDate(), tempMood.getTime(), moodToEdit.getNotes());
+            moodsList.put(key, edited);
+            if(patterns != null) {
+                patterns.edited(MOOD_USER, tempMood, edited);
             }
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error saving mood: " + e.getMessage());
+            return false;
+        } finally {
+            EDIT_LATENCY.recordSince(start);
         }
-        return false;
     }
     
-    public static void searchMoods(LocalDate moodDate, ArrayList<Mood> moodsList) {
-        boolean found = false;
-        for(Mood tempMood: moodsList) {
-            if (tempMood.getDate().equals(moodDate)) {
-                found = true;
+    public static void searchMoods(LocalDate moodDate, TieredStore<Mood> moodsList) {
+        boolean[] found = new boolean[1];
+        long start = Metrics.start();
+        try {
+            moodsList.forEachWithPrefix(MoodCodec.dayPrefix(moodDate), (key, tempMood) -> {
+                found[0] = true;
                 System.out.println(tempMood);
-            }
+            });
+        } catch (IOException e) {
+            System.err.println("Error reading moods: " + e.getMessage());
+            return;
+        } finally {
+            SEARCH_LATENCY.recordSince(start);
         }
-        if(!found) {
+        if(!found[0]) {
             System.out.println("No matching records could be found!");
         }
     }
 
-    public static void searchMood(Mood mood, ArrayList<Mood> moodsList) {
-        boolean found = false;
-        for(Mood tempMood: moodsList) {
-            if (tempMood.equals(mood)) {
-                found = true;
-                System.out.println(tempMood);
-            }
+    public static void searchMood(Mood mood, TieredStore<Mood> moodsList) {
+        Mood tempMood;
+        long start = Metrics.start();
+        try {
+            tempMood = moodsList.get(MoodCodec.keyOf(mood));
+        } catch (IOException e) {
+            System.err.println("Error reading moods: " + e.getMessage());
+            return;
+        } finally {
+            SEARCH_LATENCY.recordSince(start);
         }
-        if(!found) {
+        if(tempMood != null) {
+            System.out.println(tempMood);
+        } else {
             System.out.println("No matching records could be found!");
         }
     }
@@ -0,0 +1,835 @@
+package PetCareScheduler;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks room and vet capacity per day and allocates appointments to free resources.
+ *
+ * The opening hours are split into fixed slots (e.g. 48 slots of 15 minutes) and every resource
+ * has one bitmap per day with a bit set for each occupied slot, so a whole day fits in a single
+ * long. Whether a room and a vet are both free for n consecutive slots is then a handful of
+ * shifts and ANDs, and "earliest feasible slot for type X" only has to look at the days that
+ * have had bookings; other days are answered without any work.
+ *
+ * Each appointment type has a {@link TypePolicy} with its duration, the resources it needs and a
+ * daily quota. A preemptive type (Emergency) that finds no free resource may displace the
+ * lower-priority appointments in its way; the displaced appointments are handed back to the caller
+ * to be rebooked. Appointments outside opening hours are only accepted for after-hours types
+ * and are not capacity-tracked.
+ *
+ * Thread-safe without an engine-wide lock. The bitmap words and quota counters are atomic and only
+ * change through compare-and-set retry loops: a booking claims its room's and vet's slots only if
+ * they are still clear, so two clients can never get the same slot, and bookings on different days
+ * never touch the same word. Each day's allocations are guarded by that day's plan, which is held
+ * briefly to record a booking and for the rarer operations that have to know who holds which bits
+ * (cancellations, moves within a day, preemption). An appointment's allocation is found through its
+ * current date, which callers only change after a successful {@link #reschedule}.
+ */
+public class AllocationEngine {
+    /**
+     * Outcome of a reservation attempt.
+     */
+    public enum Outcome {
+        ALLOCATED,
+        UNTRACKED,
+        UNKNOWN_TYPE,
+        OUTSIDE_HOURS,
+        QUOTA_EXCEEDED,
+        NO_CAPACITY
+    }
+
+    /**
+     * Result of a reservation: the outcome plus any appointments that were displaced to make room.
+     */
+    public static final class Reservation {
+        private final Outcome outcome;
+        private final List<Apointment> displaced;
+
+        private Reservation(Outcome outcome, List<Apointment> displaced) {
+            this.outcome = outcome;
+            this.displaced = displaced;
+        }
+
+        /**
+         * Gets the outcome of the reservation.
+         *
+         * @return the outcome
+         */
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * Checks whether the appointment may go ahead.
+         *
+         * @return true for ALLOCATED and UNTRACKED
+         */
+        public boolean isAccepted() {
+            return outcome == Outcome.ALLOCATED || outcome == Outcome.UNTRACKED;
+        }
+
+        /**
+         * Gets the appointments that lost their resources to this reservation.
+         *
+         * @return the displaced appointments, empty unless a preemptive type was reserved
+         */
+        public List<Apointment> getDisplaced() {
+            return displaced;
+        }
+    }
+
+    // Resources and time placement of one capacity-tracked appointment
+    private static final class Allocation {
+        final Apointment appointment;
+        final int policy;
+        final long epochDay;
+        final int room;
+        final int vet;      // -1 when the type needs no vet
+        final int start;
+        final int length;
+
+        Allocation(Apointment appointment, int policy, long epochDay, int room, int vet, int start, int length) {
+            this.appointment = appointment;
+            this.policy = policy;
+            this.epochDay = epochDay;
+            this.room = room;
+            this.vet = vet;
+            this.start = start;
+            this.length = length;
+        }
+
+        long mask() {
+            return slotMask(start, length);
+        }
+
+        boolean uses(int resource) {
+            return room == resource || vet == resource;
+        }
+    }
+
+    // One day's bitmaps and quota counters, changed by compare-and-set, and its allocations (guarded by the plan)
+    private static final class DayPlan {
+        final AtomicLongArray busy;
+        final AtomicIntegerArray booked;
+        final Map<Apointment, Allocation> allocations = new IdentityHashMap<>();
+
+        DayPlan(int resources, int policies) {
+            busy = new AtomicLongArray(resources);
+            booked = new AtomicIntegerArray(policies);
+        }
+    }
+
+    // A position found for an appointment: room, vet and start slot
+    private static final class Placement {
+        final int room;
+        final int vet;
+        final int start;
+
+        Placement(int room, int vet, int start) {
+            this.room = room;
+            this.vet = vet;
+            this.start = start;
+        }
+    }
+
+    private static final Reservation UNTRACKED = new Reservation(Outcome.UNTRACKED, Collections.emptyList());
+
+    private final LocalTime opening;
+    private final int slotMinutes;
+    private final int slotsPerDay;
+    private final long dayMask;
+    private final List<ClinicResource> resources;
+    private final List<TypePolicy> policies;
+    private final Map<String, Integer> policyByType = new HashMap<>();
+    private final int[][] roomsByPolicy;   // Candidate room indexes per policy
+    private final int[] vets;              // Indexes of all vets
+
+    // Plans are created on a day's first booking and kept, so a plan is never replaced while in use
+    private final Map<Long, DayPlan> days = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor that creates an engine with no bookings.
+     *
+     * @param opening the time the first slot starts
+     * @param slotMinutes the length of one slot in minutes
+     * @param slotsPerDay the number of slots per day (at most 64)
+     * @param resources the clinic's rooms, tables and vets
+     * @param policies one policy per appointment type
+     * @throws IllegalArgumentException if the day does not fit in 64 slots or extends past midnight
+     */
+    public AllocationEngine(LocalTime opening, int slotMinutes, int slotsPerDay,
+                            List<ClinicResource> resources, List<TypePolicy> policies) {
+        if (slotsPerDay < 1 || slotsPerDay > Long.SIZE) {
+            throw new IllegalArgumentException("Slots per day must be between 1 and 64: " + slotsPerDay);
+        }
+        if (slotMinutes <= 0 || opening.toSecondOfDay() / 60 + slotMinutes * slotsPerDay > 24 * 60) {
+            throw new IllegalArgumentException("Opening hours must end by midnight");
+        }
+        this.opening = opening;
+        this.slotMinutes = slotMinutes;
+        this.slotsPerDay = slotsPerDay;
+        this.dayMask = slotsPerDay == Long.SIZE ? -1L : (1L << slotsPerDay) - 1;
+        this.resources = Collections.unmodifiableList(new ArrayList<>(resources));
+        this.policies = Collections.unmodifiableList(new ArrayList<>(policies));
+
+        List<Integer> vetIndexes = new ArrayList<>();
+        for (int i = 0; i < this.resources.size(); i++) {
+            if (this.resources.get(i).getKind() == ClinicResource.Kind.VET) {
+                vetIndexes.add(i);
+            }
+        }
+        vets = vetIndexes.stream().mapToInt(Integer::intValue).toArray();
+
+        roomsByPolicy = new int[this.policies.size()][];
+        for (int p = 0; p < this.policies.size(); p++) {
+            TypePolicy policy = this.policies.get(p);
+            policyByType.put(policy.getAppointmentType(), p);
+            List<Integer> rooms = new ArrayList<>();
+            for (int i = 0; i < this.resources.size(); i++) {
+                if (policy.getRooms().contains(this.resources.get(i).getKind())) {
+                    rooms.add(i);
+                }
+            }
+            roomsByPolicy[p] = rooms.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Reserves resources for an appointment at its current date and time.
+     * A preemptive type that finds no free resources displaces lower-priority appointments.
+     *
+     * @param appointment the appointment to reserve for
+     * @return the reservation; on rejection nothing was changed
+     */
+    public Reservation reserve(Apointment appointment) {
+        return reserveAt(appointment, appointment.getAppointmentDate(), appointment.getAppointmentTime(), null);
+    }
+
+    /**
+     * Moves an appointment's reservation to another date and time.
+     * The new slots are claimed before the old ones are freed (slots the two share are handed
+     * straight over), so the old reservation is kept untouched if the new time cannot be reserved.
+     *
+     * @param appointment the appointment to move; its own date and time are not changed
+     * @param newDate the new date
+     * @param newTime the new start time
+     * @return the reservation for the new date and time
+     */
+    public Reservation reschedule(Apointment appointment, LocalDate newDate, LocalTime newTime) {
+        DayPlan plan = days.get(appointment.getAppointmentDate().toEpochDay());
+        Allocation previous = null;
+        if (plan != null) {
+            synchronized (plan) {
+                previous = plan.allocations.get(appointment);
+            }
+        }
+        return reserveAt(appointment, newDate, newTime, previous);
+    }
+
+    /**
+     * Records an appointment loaded from storage, even if it overbooks its resources.
+     *
+     * @param appointment the loaded appointment
+     */
+    public void restore(Apointment appointment) {
+        Integer p = policyByType.get(appointment.getAppointmentType());
+        int start = startSlot(appointment.getAppointmentTime());
+        if (p == null || roomsByPolicy[p].length == 0 || (policies.get(p).isNeedsVet() && vets.length == 0)) {
+            return;
+        }
+        int length = lengthInSlots(appointment.getAppointmentTime(), policies.get(p).getDurationMinutes());
+        if (start < 0 || start + length > slotsPerDay) {
+            return;
+        }
+        long epochDay = appointment.getAppointmentDate().toEpochDay();
+        long needed = slotMask(start, length);
+        DayPlan plan = day(epochDay);
+        synchronized (plan) {
+            if (plan.allocations.containsKey(appointment)) {
+                return;
+            }
+            Placement placement = claimFree(plan, p, start, needed, Collections.emptyList());
+            if (placement == null) {
+                // Legacy data may overbook; keep it on the first candidate resources
+                placement = new Placement(roomsByPolicy[p][0], policies.get(p).isNeedsVet() ? vets[0] : -1, start);
+                setBits(plan, placement.room, needed);
+                if (placement.vet >= 0) {
+                    setBits(plan, placement.vet, needed);
+                }
+            }
+            plan.booked.incrementAndGet(p);
+            plan.allocations.put(appointment, new Allocation(appointment, p, epochDay, placement.room, placement.vet, start, length));
+        }
+    }
+
+    /**
+     * Frees the resources held by an appointment.
+     *
+     * @param appointment the cancelled appointment
+     */
+    public void release(Apointment appointment) {
+        DayPlan plan = days.get(appointment.getAppointmentDate().toEpochDay());
+        if (plan == null) {
+            return;
+        }
+        synchronized (plan) {
+            Allocation allocation = plan.allocations.get(appointment);
+            if (allocation != null) {
+                unlink(plan, allocation);
+            }
+        }
+    }
+
+    /**
+     * Finds the earliest slot at or after the given time at which an appointment of the given type
+     * would fit without displacing anyone. Reads the bitmaps without locking, so the answer is a
+     * hint that the booking itself confirms.
+     *
+     * @param appointmentType the appointment type
+     * @param from the earliest acceptable start
+     * @param horizonDays how many days ahead to look
+     * @return the earliest feasible start, or null if none exists within the horizon
+     */
+    public LocalDateTime findEarliest(String appointmentType, LocalDateTime from, int horizonDays) {
+        Integer p = policyByType.get(appointmentType);
+        if (p == null) {
+            return null;
+        }
+        TypePolicy policy = policies.get(p);
+        int length = (policy.getDurationMinutes() + slotMinutes - 1) / slotMinutes;
+        if (length > slotsPerDay) {
+            return null;
+        }
+
+        // First slot starting at or after "from" on its day
+        int minutesFromOpening = from.toLocalTime().toSecondOfDay() / 60 - opening.toSecondOfDay() / 60;
+        int minStart = 0;
+        if (minutesFromOpening >= 0) {
+            minStart = (minutesFromOpening + slotMinutes - 1) / slotMinutes;
+            if (minutesFromOpening % slotMinutes == 0 && from.getSecond() + from.getNano() > 0) {
+                minStart++; // Seconds past a slot boundary push to the next slot
+            }
+        }
+
+        long epochDay = from.toLocalDate().toEpochDay();
+        for (int d = 0; d <= horizonDays; d++, epochDay++, minStart = 0) {
+            if (minStart + length > slotsPerDay) {
+                continue;
+            }
+            DayPlan plan = days.get(epochDay);
+            if (plan == null) {
+                if (roomsByPolicy[p].length == 0 || (policy.isNeedsVet() && vets.length == 0)) {
+                    return null;
+                }
+                return toDateTime(epochDay, minStart);
+            }
+            if (policy.getDailyQuota() > 0 && plan.booked.get(p) >= policy.getDailyQuota()) {
+                continue;
+            }
+            int best = Long.SIZE;
+            long window = -1L << minStart;
+            for (int room : roomsByPolicy[p]) {
+                if (policy.isNeedsVet()) {
+                    for (int vet : vets) {
+                        best = Math.min(best, Long.numberOfTrailingZeros(
+                                fits(free(plan, room, vet), length) & window));
+                    }
+                } else {
+                    best = Math.min(best, Long.numberOfTrailingZeros(fits(free(plan, room, -1), length) & window));
+                }
+            }
+            if (best < slotsPerDay) {
+                return toDateTime(epochDay, best);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the allocation priority of an appointment type.
+     *
+     * @param appointmentType the appointment type
+     * @return the priority, or 0 for types without a policy
+     */
+    public int priorityOf(String appointmentType) {
+        Integer p = policyByType.get(appointmentType);
+        return p == null ? 0 : policies.get(p).getPriority();
+    }
+
+    /**
+     * Gets how long an appointment of a type takes.
+     *
+     * @param appointmentType the appointment type
+     * @return the duration in minutes, or one slot for types without a policy
+     */
+    public int durationOf(String appointmentType) {
+        Integer p = policyByType.get(appointmentType);
+        return p == null ? slotMinutes : policies.get(p).getDurationMinutes();
+    }
+
+    /**
+     * Gets the length of one slot.
+     *
+     * @return the slot length in minutes
+     */
+    public int getSlotMinutes() {
+        return slotMinutes;
+    }
+
+    /**
+     * Gets the time the first slot of a day starts.
+     *
+     * @return the opening time
+     */
+    public LocalTime getOpening() {
+        return opening;
+    }
+
+    /**
+     * Gets the time the last slot of a day ends.
+     *
+     * @return the closing time
+     */
+    public LocalTime getClosing() {
+        return opening.plusMinutes((long) slotMinutes * slotsPerDay);
+    }
+
+    /**
+     * Gets the names of the resources an appointment currently holds.
+     *
+     * @param appointment the appointment
+     * @return the room and, if needed, the vet; empty if the appointment is not capacity-tracked
+     */
+    public List<ClinicResource> getResourcesOf(Apointment appointment) {
+        DayPlan plan = days.get(appointment.getAppointmentDate().toEpochDay());
+        if (plan == null) {
+            return Collections.emptyList();
+        }
+        Allocation allocation;
+        synchronized (plan) {
+            allocation = plan.allocations.get(appointment);
+        }
+        if (allocation == null) {
+            return Collections.emptyList();
+        }
+        List<ClinicResource> held = new ArrayList<>(2);
+        held.add(resources.get(allocation.room));
+        if (allocation.vet >= 0) {
+            held.add(resources.get(allocation.vet));
+        }
+        return held;
+    }
+
+    /**
+     * Places an appointment at the given date and time, preempting if its policy allows.
+     * A booking that needs nobody else's slots only claims free bits and never takes the day's
+     * lock except to record itself; moves within a day and preemption run under the lock.
+     *
+     * @param appointment the appointment
+     * @param date the date to place it on
+     * @param time the start time to place it at
+     * @param previous the allocation the appointment is moving from, or null for a new booking
+     * @return the reservation
+     */
+    private Reservation reserveAt(Apointment appointment, LocalDate date, LocalTime time, Allocation previous) {
+        Integer p = policyByType.get(appointment.getAppointmentType());
+        if (p == null) {
+            return new Reservation(Outcome.UNKNOWN_TYPE, Collections.emptyList());
+        }
+        TypePolicy policy = policies.get(p);
+        int start = startSlot(time);
+        int length = lengthInSlots(time, policy.getDurationMinutes());
+        if (start < 0 || start + length > slotsPerDay) {
+            if (!policy.isAfterHours()) {
+                return new Reservation(Outcome.OUTSIDE_HOURS, Collections.emptyList());
+            }
+            if (previous != null) {
+                discard(previous);
+            }
+            return UNTRACKED;
+        }
+
+        long epochDay = date.toEpochDay();
+        long needed = slotMask(start, length);
+        DayPlan plan = day(epochDay);
+        boolean sameDay = previous != null && previous.epochDay == epochDay;
+        List<Apointment> displaced = Collections.emptyList();
+        if (!sameDay && !policy.isPreemptive()) {
+            if (!takeQuota(plan, p, 0)) {
+                return new Reservation(Outcome.QUOTA_EXCEEDED, Collections.emptyList());
+            }
+            Placement placement = claimFree(plan, p, start, needed, Collections.emptyList());
+            if (placement == null) {
+                plan.booked.decrementAndGet(p);
+                return new Reservation(Outcome.NO_CAPACITY, Collections.emptyList());
+            }
+            Allocation allocation = new Allocation(appointment, p, epochDay, placement.room, placement.vet, start, length);
+            synchronized (plan) {
+                plan.allocations.put(appointment, allocation);
+            }
+        } else {
+            synchronized (plan) {
+                // The old slots may be reused, unless a cancellation got to them first
+                List<Allocation> yielded = sameDay && plan.allocations.get(appointment) == previous
+                        ? Collections.singletonList(previous) : Collections.emptyList();
+                int yieldedQuota = !yielded.isEmpty() && previous.policy == p ? 1 : 0;
+                if (!takeQuota(plan, p, yieldedQuota)) {
+                    return new Reservation(Outcome.QUOTA_EXCEEDED, Collections.emptyList());
+                }
+                List<Allocation> victims = new ArrayList<>();
+                Placement placement = claimFree(plan, p, start, needed, yielded);
+                if (placement == null && policy.isPreemptive()) {
+                    placement = preempt(plan, p, start, needed, yielded, victims);
+                }
+                if (placement == null) {
+                    plan.booked.decrementAndGet(p);
+                    return new Reservation(Outcome.NO_CAPACITY, Collections.emptyList());
+                }
+                plan.allocations.put(appointment, new Allocation(appointment, p, epochDay, placement.room, placement.vet, start, length));
+                for (Allocation old : yielded) {
+                    unlink(plan, old);
+                }
+                if (!victims.isEmpty()) {
+                    displaced = new ArrayList<>();
+                    for (Allocation victim : victims) {
+                        unlink(plan, victim);
+                        displaced.add(victim.appointment);
+                    }
+                }
+            }
+        }
+        if (previous != null && !sameDay) {
+            discard(previous);
+        }
+        return new Reservation(Outcome.ALLOCATED, displaced);
+    }
+
+    /**
+     * Counts a booking against its type's daily quota.
+     *
+     * @param plan the day
+     * @param p the policy index
+     * @param yielded how many of the day's bookings of this type are about to be given up
+     * @return false if the quota is already used up
+     */
+    private boolean takeQuota(DayPlan plan, int p, int yielded) {
+        int quota = policies.get(p).getDailyQuota();
+        while (true) {
+            int booked = plan.booked.get(p);
+            if (quota > 0 && booked - yielded >= quota) {
+                return false;
+            }
+            if (plan.booked.compareAndSet(p, booked, booked + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Claims a room (and vet) that is free for the whole slot range.
+     *
+     * @param plan the day
+     * @param p the policy index
+     * @param start the first slot
+     * @param needed the slot range as a bitmap
+     * @param yielded allocations whose slots may be taken over; only inspected under the day's lock
+     * @return the placement, or null if every candidate is busy
+     */
+    private Placement claimFree(DayPlan plan, int p, int start, long needed, List<Allocation> yielded) {
+        for (int room : roomsByPolicy[p]) {
+            long roomYielded = yieldedBits(plan, yielded, room);
+            if (!claim(plan, room, needed, roomYielded)) {
+                continue;
+            }
+            if (!policies.get(p).isNeedsVet()) {
+                return new Placement(room, -1, start);
+            }
+            for (int vet : vets) {
+                if (claim(plan, vet, needed, yieldedBits(plan, yielded, vet))) {
+                    return new Placement(room, vet, start);
+                }
+            }
+            clearBits(plan, room, needed & ~roomYielded);
+        }
+        return null;
+    }
+
+    /**
+     * Finds the room/vet pair that can be cleared for the slot range by displacing the fewest
+     * lower-priority appointments, and claims it. Must be called under the day's lock; the caller
+     * unlinks the victims once the new allocation is recorded.
+     *
+     * @param plan the day
+     * @param p the policy index of the preempting appointment
+     * @param start the first slot
+     * @param needed the slot range as a bitmap
+     * @param yielded allocations whose slots may be taken over without displacing them
+     * @param victims receives the allocations to displace
+     * @return the placement, or null if every candidate holds an equal or higher priority appointment
+     */
+    private Placement preempt(DayPlan plan, int p, int start, long needed, List<Allocation> yielded,
+                              List<Allocation> victims) {
+        int priority = policies.get(p).getPriority();
+        List<Placement> options = new ArrayList<>();
+        Map<Placement, List<Allocation>> victimsOf = new IdentityHashMap<>();
+        int[] vetChoices = policies.get(p).isNeedsVet() ? vets : new int[]{-1};
+        for (int room : roomsByPolicy[p]) {
+            for (int vet : vetChoices) {
+                List<Allocation> inTheWay = new ArrayList<>();
+                boolean feasible = true;
+                for (Allocation other : plan.allocations.values()) {
+                    if (yielded.contains(other) || (other.mask() & needed) == 0
+                            || !(other.uses(room) || (vet >= 0 && other.uses(vet)))) {
+                        continue;
+                    }
+                    if (policies.get(other.policy).getPriority() >= priority) {
+                        feasible = false;
+                        break;
+                    }
+                    inTheWay.add(other);
+                }
+                if (feasible) {
+                    Placement option = new Placement(room, vet, start);
+                    options.add(option);
+                    victimsOf.put(option, inTheWay);
+                }
+            }
+        }
+        options.sort(Comparator.comparingInt(option -> victimsOf.get(option).size()));
+
+        // Bookings still in flight hold bits that are not in the map yet, so a claim can still fail
+        for (Placement option : options) {
+            List<Allocation> freed = new ArrayList<>(yielded);
+            freed.addAll(victimsOf.get(option));
+            long roomYielded = yieldedBits(plan, freed, option.room);
+            if (!claim(plan, option.room, needed, roomYielded)) {
+                continue;
+            }
+            if (option.vet >= 0 && !claim(plan, option.vet, needed, yieldedBits(plan, freed, option.vet))) {
+                clearBits(plan, option.room, needed & ~roomYielded);
+                continue;
+            }
+            victims.addAll(victimsOf.get(option));
+            return option;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the bits of a resource that only the given allocations hold, and that a new allocation
+     * may therefore take over from them. Must be called under the day's lock unless the list is empty.
+     *
+     * @param plan the day
+     * @param yielded the allocations giving up their slots
+     * @param resource the resource index
+     * @return the bits that may be taken over
+     */
+    private static long yieldedBits(DayPlan plan, List<Allocation> yielded, int resource) {
+        if (yielded.isEmpty()) {
+            return 0L;
+        }
+        long bits = 0L;
+        for (Allocation allocation : yielded) {
+            if (allocation.uses(resource)) {
+                bits |= allocation.mask();
+            }
+        }
+        if (bits == 0L) {
+            return 0L;
+        }
+        for (Allocation other : plan.allocations.values()) {
+            if (other.uses(resource) && !yielded.contains(other)) {
+                bits &= ~other.mask();
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Sets a resource's bits for a slot range if none of them is taken by anyone else.
+     *
+     * @param plan the day
+     * @param resource the resource index
+     * @param needed the slot range as a bitmap
+     * @param yielded bits that are set but may be taken over
+     * @return false if another booking holds one of the slots
+     */
+    private static boolean claim(DayPlan plan, int resource, long needed, long yielded) {
+        while (true) {
+            long busy = plan.busy.get(resource);
+            if ((busy & needed & ~yielded) != 0) {
+                return false;
+            }
+            if (plan.busy.compareAndSet(resource, busy, busy | needed)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Sets bits of a resource regardless of who holds them, for overbooked legacy appointments.
+     *
+     * @param plan the day
+     * @param resource the resource index
+     * @param bits the bits to set
+     */
+    private static void setBits(DayPlan plan, int resource, long bits) {
+        while (true) {
+            long busy = plan.busy.get(resource);
+            if (plan.busy.compareAndSet(resource, busy, busy | bits)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Clears bits of a resource.
+     *
+     * @param plan the day
+     * @param resource the resource index
+     * @param bits the bits to clear
+     */
+    private static void clearBits(DayPlan plan, int resource, long bits) {
+        while (true) {
+            long busy = plan.busy.get(resource);
+            if (plan.busy.compareAndSet(resource, busy, busy & ~bits)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the slots in which both a room and a vet are free.
+     *
+     * @param plan the day
+     * @param room the room index
+     * @param vet the vet index, or -1 if no vet is needed
+     * @return the free-slot bitmap
+     */
+    private long free(DayPlan plan, int room, int vet) {
+        long busy = plan.busy.get(room) | (vet >= 0 ? plan.busy.get(vet) : 0L);
+        return ~busy & dayMask;
+    }
+
+    /**
+     * Gets the start slots from which n consecutive slots are free.
+     * Bit i of the result is set if bits i..i+n-1 of the free map are all set; bits beyond the
+     * day are zero, so runs that would overflow the day drop out automatically.
+     *
+     * @param free the free-slot bitmap
+     * @param length the number of consecutive slots needed
+     * @return the feasible start slots
+     */
+    private static long fits(long free, int length) {
+        long starts = free;
+        int covered = 1;
+        // Doubling: after each step a set bit means "covered" free slots start here
+        while (covered * 2 <= length) {
+            starts &= starts >>> covered;
+            covered *= 2;
+        }
+        if (covered < length) {
+            starts &= fits(free >>> covered, length - covered);
+        }
+        return starts;
+    }
+
+    /**
+     * Gives up an allocation an appointment has moved away from, unless it is already gone.
+     *
+     * @param allocation the allocation
+     */
+    private void discard(Allocation allocation) {
+        DayPlan plan = days.get(allocation.epochDay);
+        synchronized (plan) {
+            if (plan.allocations.get(allocation.appointment) == allocation) {
+                unlink(plan, allocation);
+            }
+        }
+    }
+
+    /**
+     * Removes an allocation and clears the bits it held that no other allocation holds, since
+     * overbooked legacy appointments may share bits. Must be called under the day's lock.
+     *
+     * @param plan the day
+     * @param allocation the allocation
+     */
+    private static void unlink(DayPlan plan, Allocation allocation) {
+        plan.allocations.remove(allocation.appointment, allocation);
+        plan.booked.decrementAndGet(allocation.policy);
+        for (int resource : new int[]{allocation.room, allocation.vet}) {
+            if (resource < 0) {
+                continue;
+            }
+            long kept = 0L;
+            for (Allocation other : plan.allocations.values()) {
+                if (other.uses(resource)) {
+                    kept |= other.mask();
+                }
+            }
+            clearBits(plan, resource, allocation.mask() & ~kept);
+        }
+    }
+
+    /**
+     * Gets a day's plan, creating an empty one on first use.
+     *
+     * @param epochDay the day
+     * @return the plan
+     */
+    private DayPlan day(long epochDay) {
+        return days.computeIfAbsent(epochDay, d -> new DayPlan(resources.size(), policies.size()));
+    }
+
+    /**
+     * Gets the slot a start time falls into.
+     *
+     * @param time the start time
+     * @return the slot index, negative if before opening
+     */
+    private int startSlot(LocalTime time) {
+        return Math.floorDiv(time.toSecondOfDay() / 60 - opening.toSecondOfDay() / 60, slotMinutes);
+    }
+
+    /**
+     * Gets how many slots an appointment touches, including a partial first or last slot.
+     *
+     * @param time the start time
+     * @param durationMinutes the duration
+     * @return the number of slots
+     */
+    private int lengthInSlots(LocalTime time, int durationMinutes) {
+        int offset = Math.floorMod(time.toSecondOfDay() / 60 - opening.toSecondOfDay() / 60, slotMinutes);
+        return (offset + durationMinutes + slotMinutes - 1) / slotMinutes;
+    }
+
+    /**
+     * Converts a day and slot to a date and time.
+     *
+     * @param epochDay the day
+     * @param slot the slot index
+     * @return the slot's start
+     */
+    private LocalDateTime toDateTime(long epochDay, int slot) {
+        return LocalDate.ofEpochDay(epochDay).atTime(opening).plusMinutes((long) slot * slotMinutes);
+    }
+
+    /**
+     * Builds a bitmap with the given slot range set.
+     *
+     * @param start the first slot
+     * @param length the number of slots
+     * @return the bitmap
+     */
+    private static long slotMask(int start, int length) {
+        long bits = length >= Long.SIZE ? -1L : (1L << length) - 1;
+        return bits << start;
+    }
+}
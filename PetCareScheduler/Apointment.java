@@ -13,6 +13,7 @@ public class Apointment {
     private LocalDate appointmentDate;   // Date when the appointment is scheduled
     private LocalTime appointmentTime;   // Time when the appointment is scheduled
     private String notes;                // Additional notes or observations about the appointment
+    private String petID;                // ID of the pet this appointment belongs to (may be null for legacy records)
 
 
     /**
@@ -30,6 +31,20 @@ public class Apointment {
         this.notes = notes;
     }
 
+    /**
+     * Constructor that initializes an appointment and links it to the owning pet.
+     *
+     * @param petID the ID of the pet the appointment is for
+     * @param appointmentType the type of appointment
+     * @param appointmentDate the date of the appointment
+     * @param appointmentTime the time of the appointment
+     * @param notes any additional notes for the appointment
+     */
+    public Apointment(String petID, String appointmentType, LocalDate appointmentDate, LocalTime appointmentTime, String notes) {
+        this(appointmentType, appointmentDate, appointmentTime, notes);
+        this.petID = petID;
+    }
+
     /**
      * Default no-argument constructor for creating an empty appointment.
      */
@@ -124,6 +139,24 @@ public class Apointment {
         this.notes = (notes != null) ? notes.trim() : null;
     }
 
+    /**
+     * Gets the ID of the pet this appointment belongs to.
+     *
+     * @return the pet ID, or null if the appointment was loaded from a legacy record
+     */
+    public String getPetID() {
+        return petID;
+    }
+
+    /**
+     * Sets the ID of the pet this appointment belongs to.
+     *
+     * @param petID the pet ID to set
+     */
+    public void setPetID(String petID) {
+        this.petID = petID;
+    }
+
     /**
      * Returns a string representation of the appointment.
      *
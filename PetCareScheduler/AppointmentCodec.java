@@ -0,0 +1,46 @@
+package PetCareScheduler;
+
+import Common.RecordCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Binary form of an appointment for the record store: dates as epoch days and times as seconds of the day.
+ */
+public class AppointmentCodec implements RecordCodec<Apointment> {
+    /**
+     * Writes an appointment.
+     *
+     * @param appointment the appointment
+     * @param out the destination
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void write(Apointment appointment, DataOutput out) throws IOException {
+        RecordCodec.writeNullable(appointment.getPetID(), out);
+        out.writeUTF(appointment.getAppointmentType());
+        out.writeLong(appointment.getAppointmentDate().toEpochDay());
+        out.writeInt(appointment.getAppointmentTime().toSecondOfDay());
+        RecordCodec.writeNullable(appointment.getNotes(), out);
+    }
+
+    /**
+     * Reads an appointment.
+     *
+     * @param in the source
+     * @return the appointment
+     * @throws IOException if the data is malformed
+     */
+    @Override
+    public Apointment read(DataInput in) throws IOException {
+        String petID = RecordCodec.readNullable(in);
+        String type = in.readUTF();
+        LocalDate date = LocalDate.ofEpochDay(in.readLong());
+        LocalTime time = LocalTime.ofSecondOfDay(in.readInt());
+        return new Apointment(petID, type, date, time, RecordCodec.readNullable(in));
+    }
+}
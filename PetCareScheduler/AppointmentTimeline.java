@@ -0,0 +1,295 @@
+package PetCareScheduler;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * A pet's appointments kept in date/time order.
+ *
+ * Lookups use binary search, so "visits between two dates" costs O(log n) plus the size of the
+ * result. A cursor marks the first appointment that is not yet in the past; because the clock only
+ * moves forward it is advanced incrementally, which makes "last visit" and "next visit" O(1)
+ * amortized. Appointments sharing a date and time keep their insertion order.
+ *
+ * Appointments of past days can be archived: they leave the timeline (the caller keeps them on disk)
+ * and only their count and the latest one of each type are remembered, so the timeline's size does
+ * not grow with the pet's history while "last visit" and "last checkup" still see it.
+ *
+ * The timeline is not thread-safe; callers that share a pet across threads synchronize on the pet.
+ */
+public class AppointmentTimeline {
+    private final List<Apointment> appointments = new ArrayList<>();
+
+    // Index of the first appointment at or after cursorTime
+    private int cursor;
+    private LocalDateTime cursorTime = LocalDateTime.MIN;
+
+    // What is remembered of the archived appointments
+    private final Map<String, Apointment> latestArchivedByType = new HashMap<>();
+    private Apointment latestArchived;
+    private int archivedCount;
+
+    /**
+     * Adds an appointment at its chronological position.
+     *
+     * @param appointment the appointment to add
+     */
+    public void add(Apointment appointment) {
+        LocalDateTime key = startOf(appointment);
+        int index = upperBound(key);
+        appointments.add(index, appointment);
+        if (key.isBefore(cursorTime)) {
+            cursor++; // Landed in the past part of the timeline
+        }
+    }
+
+    /**
+     * Removes an appointment (matched by identity).
+     *
+     * @param appointment the appointment to remove
+     * @return true if the appointment was part of the timeline
+     */
+    public boolean remove(Apointment appointment) {
+        int index = indexOf(appointment);
+        if (index < 0) {
+            return false;
+        }
+        appointments.remove(index);
+        if (index < cursor) {
+            cursor--;
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether an appointment (matched by identity) is part of the timeline.
+     *
+     * @param appointment the appointment to look for
+     * @return true if the appointment is present
+     */
+    public boolean contains(Apointment appointment) {
+        return indexOf(appointment) >= 0;
+    }
+
+    /**
+     * Changes an appointment's date and time and moves it to its new position.
+     * The appointment must be part of the timeline; use this instead of the setters so the
+     * ordering stays intact.
+     *
+     * @param appointment the appointment to move
+     * @param newDate the new date
+     * @param newTime the new time
+     * @throws IllegalArgumentException if the appointment is not part of the timeline
+     */
+    public void reschedule(Apointment appointment, LocalDate newDate, LocalTime newTime) {
+        if (!remove(appointment)) {
+            throw new IllegalArgumentException("Appointment is not part of this timeline");
+        }
+        appointment.setAppointmentDate(newDate);
+        appointment.setAppointmentTime(newTime);
+        add(appointment);
+    }
+
+    /**
+     * Takes every appointment that started before a time out of the timeline and remembers it as archived.
+     *
+     * @param cutoff the first start kept
+     * @return the archived appointments in chronological order
+     */
+    public List<Apointment> archiveBefore(LocalDateTime cutoff) {
+        List<Apointment> past = appointments.subList(0, lowerBound(cutoff));
+        List<Apointment> archived = new ArrayList<>(past);
+        past.clear();
+        cursor = Math.max(0, cursor - archived.size());
+        for (Apointment appointment : archived) {
+            noteArchived(appointment);
+        }
+        return archived;
+    }
+
+    /**
+     * Remembers an appointment that was archived earlier, e.g. when it is read back at startup.
+     * The appointment itself is not kept.
+     *
+     * @param appointment the archived appointment
+     */
+    public void noteArchived(Apointment appointment) {
+        archivedCount++;
+        latestArchivedByType.merge(appointment.getAppointmentType(), appointment,
+                (current, candidate) -> startOf(candidate).isBefore(startOf(current)) ? current : candidate);
+        if (latestArchived == null || !startOf(appointment).isBefore(startOf(latestArchived))) {
+            latestArchived = appointment;
+        }
+    }
+
+    /**
+     * Gets the number of archived appointments.
+     *
+     * @return the archived count
+     */
+    public int getArchivedCount() {
+        return archivedCount;
+    }
+
+    /**
+     * Gets the most recent appointment that started before the given time, archived ones included.
+     *
+     * @param now the current date and time
+     * @return the last visit, or null if there is none
+     */
+    public Apointment getLastBefore(LocalDateTime now) {
+        seek(now);
+        return cursor > 0 ? appointments.get(cursor - 1) : latestArchived;
+    }
+
+    /**
+     * Gets the chronologically latest appointment of a type, past or future, archived ones included.
+     *
+     * @param appointmentType the appointment type
+     * @return the latest appointment of that type, or null if there is none
+     */
+    public Apointment getLatestOfType(String appointmentType) {
+        for (int i = appointments.size() - 1; i >= 0; i--) {
+            if (appointments.get(i).getAppointmentType().equals(appointmentType)) {
+                return appointments.get(i);
+            }
+        }
+        return latestArchivedByType.get(appointmentType);
+    }
+
+    /**
+     * Gets the earliest appointment at or after the given time.
+     *
+     * @param now the current date and time
+     * @return the next visit, or null if there is none
+     */
+    public Apointment getNextFrom(LocalDateTime now) {
+        seek(now);
+        return cursor < appointments.size() ? appointments.get(cursor) : null;
+    }
+
+    /**
+     * Gets the chronologically latest appointment, past or future.
+     *
+     * @return the latest appointment, or null if the timeline is empty
+     */
+    public Apointment getLatest() {
+        return appointments.isEmpty() ? null : appointments.get(appointments.size() - 1);
+    }
+
+    /**
+     * Gets the appointments within a date/time range.
+     *
+     * @param from the inclusive start of the range
+     * @param to the exclusive end of the range
+     * @return a read-only chronological view of the matching appointments
+     */
+    public List<Apointment> between(LocalDateTime from, LocalDateTime to) {
+        int start = lowerBound(from);
+        int end = Math.max(start, lowerBound(to));
+        return Collections.unmodifiableList(appointments.subList(start, end));
+    }
+
+    /**
+     * Gets every appointment in chronological order.
+     *
+     * @return a read-only view of the timeline
+     */
+    public List<Apointment> asList() {
+        return Collections.unmodifiableList(appointments);
+    }
+
+    /**
+     * Gets the number of appointments, not counting archived ones.
+     *
+     * @return the appointment count
+     */
+    public int size() {
+        return appointments.size();
+    }
+
+    /**
+     * Moves the cursor to the first appointment at or after the given time.
+     * Forward moves walk from the current position; backward moves fall back to binary search.
+     *
+     * @param now the time to position the cursor at
+     */
+    private void seek(LocalDateTime now) {
+        if (now.isBefore(cursorTime)) {
+            cursor = lowerBound(now);
+        } else {
+            while (cursor < appointments.size() && startOf(appointments.get(cursor)).isBefore(now)) {
+                cursor++;
+            }
+        }
+        cursorTime = now;
+    }
+
+    /**
+     * Finds an appointment by identity within the run of appointments sharing its date and time.
+     *
+     * @param appointment the appointment to find
+     * @return its index, or -1 if absent
+     */
+    private int indexOf(Apointment appointment) {
+        LocalDateTime key = startOf(appointment);
+        for (int i = lowerBound(key); i < appointments.size() && startOf(appointments.get(i)).equals(key); i++) {
+            if (appointments.get(i) == appointment) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the index of the first appointment at or after the given time.
+     *
+     * @param key the date and time to search for
+     * @return the insertion index
+     */
+    private int lowerBound(LocalDateTime key) {
+        int low = 0;
+        int high = appointments.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startOf(appointments.get(mid)).isBefore(key)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the index of the first appointment strictly after the given time.
+     *
+     * @param key the date and time to search for
+     * @return the insertion index
+     */
+    private int upperBound(LocalDateTime key) {
+        int low = 0;
+        int high = appointments.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startOf(appointments.get(mid)).isAfter(key)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Combines an appointment's date and time.
+     *
+     * @param appointment the appointment
+     * @return the appointment's start date and time
+     */
+    private static LocalDateTime startOf(Apointment appointment) {
+        return LocalDateTime.of(appointment.getAppointmentDate(), appointment.getAppointmentTime());
+    }
+}
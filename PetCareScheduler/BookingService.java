@@ -0,0 +1,1048 @@
+package PetCareScheduler;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import Common.LatencyHistogram;
+import Common.Metrics;
+
+/**
+ * Thread-safe booking service for registering pets and scheduling appointments from several
+ * clients at once (front-desk terminals, the online portal, ...).
+ *
+ * Pets live in a concurrent map keyed by ID. There is no booking-wide lock: a booking takes only its
+ * pet's lock, which orders it against that pet's other bookings and series, so a pet never has two
+ * appointments or series occurrences starting at the same time while different pets book in parallel.
+ * The asynchronous entry points run on virtual threads when the JVM provides them (a pool sized to
+ * the cores otherwise, e.g. on Java 17).
+ *
+ * Room, vet and quota capacity is decided by the {@link AllocationEngine} alone, so several pets
+ * can start at the same time as long as there are rooms and vets for them. The engine claims slots
+ * with compare-and-set on per-day bitmap words, so only bookings on the same day contend there. Emergency bookings may
+ * displace other appointments, which are then moved to the earliest feasible slot (or cancelled if
+ * there is none). Recurring series are not capacity-tracked.
+ *
+ * Requests that find every slot of their window taken wait on a {@link Waitlist}. Capacity freed by
+ * a cancellation or a reschedule is offered to it straight away, slot by slot, and the best waiting
+ * request is booked through the same path as any other booking.
+ *
+ * Appointments of past days are archived once a day by {@link #archiveBefore}: they leave the pets'
+ * timelines and the engine, and the listener hands them to cold storage, so the service only holds
+ * today's and future appointments however long the history grows.
+ */
+public class BookingService implements AutoCloseable {
+    /**
+     * Appointment types accepted by the clinic.
+     */
+    public static final List<String> VALID_TYPES =
+            Collections.unmodifiableList(Arrays.asList("Checkup", "Vaccination", "Surgery", "Emergency", "Grooming"));
+
+    /**
+     * Outcome of a registration or booking request.
+     */
+    public enum Result {
+        REGISTERED,
+        BOOKED,
+        DUPLICATE_PET,
+        PET_NOT_FOUND,
+        INVALID_TYPE,
+        IN_PAST,
+        SLOT_TAKEN,
+        APPOINTMENT_NOT_FOUND,
+        CANCELLED,
+        WAITLISTED,
+        OUTSIDE_HOURS,
+        QUOTA_EXCEEDED,
+        NO_CAPACITY
+    }
+
+    /**
+     * An entry of a waiting list, either placed at once by {@link #autoSchedule(List)} or kept on
+     * the waitlist by {@link #joinWaitlist} until a slot in its window frees up.
+     */
+    public static final class SlotRequest {
+        private final String petID;
+        private final String appointmentType;
+        private final LocalDateTime earliest;
+        private final LocalDateTime latest;
+        private final String notes;
+
+        /**
+         * Constructor that creates a waiting-list entry with no latest start.
+         *
+         * @param petID the ID of the pet
+         * @param appointmentType one of {@link #VALID_TYPES}
+         * @param earliest the earliest acceptable start
+         * @param notes optional notes
+         */
+        public SlotRequest(String petID, String appointmentType, LocalDateTime earliest, String notes) {
+            this(petID, appointmentType, earliest, null, notes);
+        }
+
+        /**
+         * Constructor that creates a waiting-list entry for a preferred time window.
+         *
+         * @param petID the ID of the pet
+         * @param appointmentType one of {@link #VALID_TYPES}
+         * @param earliest the earliest acceptable start
+         * @param latest the latest acceptable start, or null for no limit
+         * @param notes optional notes
+         */
+        public SlotRequest(String petID, String appointmentType, LocalDateTime earliest, LocalDateTime latest, String notes) {
+            this.petID = petID;
+            this.appointmentType = appointmentType;
+            this.earliest = earliest;
+            this.latest = latest;
+            this.notes = notes;
+        }
+
+        /**
+         * Gets the ID of the pet.
+         *
+         * @return the pet ID
+         */
+        public String getPetID() {
+            return petID;
+        }
+
+        /**
+         * Gets the requested appointment type.
+         *
+         * @return the appointment type
+         */
+        public String getAppointmentType() {
+            return appointmentType;
+        }
+
+        /**
+         * Gets the earliest acceptable start.
+         *
+         * @return the earliest start
+         */
+        public LocalDateTime getEarliest() {
+            return earliest;
+        }
+
+        /**
+         * Gets the latest acceptable start.
+         *
+         * @return the latest start, or null if there is no limit
+         */
+        public LocalDateTime getLatest() {
+            return latest;
+        }
+
+        /**
+         * Checks whether a start falls in the request's window.
+         *
+         * @param start the start
+         * @return true if the start is neither before the earliest nor after the latest start
+         */
+        public boolean accepts(LocalDateTime start) {
+            return !start.isBefore(earliest) && (latest == null || !start.isAfter(latest));
+        }
+
+        /**
+         * Gets the notes for the appointment.
+         *
+         * @return the notes
+         */
+        public String getNotes() {
+            return notes;
+        }
+    }
+
+    /**
+     * Callback notified after a pet or appointment has been committed.
+     * May be invoked concurrently from any client thread.
+     */
+    public interface Listener {
+        void onPetRegistered(Pet pet);
+
+        void onAppointmentBooked(Pet pet, Apointment appointment);
+
+        default void onSeriesScheduled(Pet pet, RecurringSeries series) {
+        }
+
+        default void onSeriesOccurrenceMoved(Pet pet, RecurringSeries series, LocalDateTime from, LocalDateTime to) {
+        }
+
+        default void onSeriesOccurrenceCancelled(Pet pet, RecurringSeries series, LocalDateTime at) {
+        }
+
+        default void onAppointmentRescheduled(Pet pet, Apointment appointment, LocalDate oldDate, LocalTime oldTime) {
+        }
+
+        default void onAppointmentCancelled(Pet pet, Apointment appointment) {
+        }
+
+        default void onAppointmentPreempted(Pet pet, Apointment appointment) {
+        }
+
+        default void onWaitlistBooked(Pet pet, SlotRequest request, Apointment appointment) {
+        }
+
+        default void onAppointmentArchived(Pet pet, Apointment appointment) {
+        }
+    }
+
+    // How far ahead a new recurring series is checked against existing bookings
+    private static final int SERIES_CONFLICT_HORIZON_DAYS = 730;
+
+    // How far ahead free slots are searched for waiting-list entries and displaced appointments
+    private static final int SLOT_SEARCH_HORIZON_DAYS = 365;
+
+    private static final LatencyHistogram SCHEDULE_LATENCY = Metrics.histogram("petcare_schedule_appointment_seconds");
+    private static final LatencyHistogram RESCHEDULE_LATENCY = Metrics.histogram("petcare_reschedule_appointment_seconds");
+    private static final LatencyHistogram SLOT_SEARCH_LATENCY = Metrics.histogram("petcare_find_earliest_slot_seconds");
+    private static final LatencyHistogram AUTO_SCHEDULE_LATENCY = Metrics.histogram("petcare_auto_schedule_seconds");
+    private static final LatencyHistogram BACKFILL_LATENCY = Metrics.histogram("petcare_waitlist_backfill_seconds");
+
+    // One counter per outcome, labelled with the result name
+    private static final Map<Result, Metrics.Counter> RESULT_COUNTERS = new EnumMap<>(Result.class);
+
+    static {
+        for (Result result : Result.values()) {
+            RESULT_COUNTERS.put(result, Metrics.counter(
+                    "petcare_booking_results_total{result=\"" + result.name().toLowerCase() + "\"}"));
+        }
+    }
+
+    private final ConcurrentHashMap<String, Pet> petsById = new ConcurrentHashMap<>();
+    private final RecurringSeriesStore seriesStore;
+    private final AllocationEngine allocationEngine;
+    private final Waitlist waitlist;
+    private final Listener listener;
+    private final ExecutorService executor;
+    // Appointments loaded without a known pet, by identity; guarded by itself
+    private final Set<Apointment> legacyAppointments = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // First day whose appointments are still held; guarded by archiveLock, which is held for a whole pass
+    private LocalDate archivedBefore = LocalDate.MIN;
+    private final Object archiveLock = new Object();
+
+    /**
+     * Constructor that creates a booking service.
+     *
+     * @param seriesStore the recurring series that single bookings must not collide with
+     * @param allocationEngine the room, vet and quota capacity bookings must fit in
+     * @param listener notified after every committed registration or booking
+     */
+    public BookingService(RecurringSeriesStore seriesStore, AllocationEngine allocationEngine, Listener listener) {
+        this.seriesStore = seriesStore;
+        this.allocationEngine = allocationEngine;
+        this.waitlist = new Waitlist(allocationEngine::priorityOf);
+        this.listener = listener;
+        this.executor = newExecutor();
+    }
+
+    /**
+     * Creates a virtual-thread-per-task executor when running on a JVM that supports it,
+     * falling back to a pool sized to the available cores otherwise (Java 17 has no virtual threads).
+     *
+     * @return the executor used for asynchronous requests
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    /**
+     * Registers a pet unless another pet already uses the same ID (case-insensitive).
+     *
+     * @param pet the pet to register
+     * @return REGISTERED or DUPLICATE_PET
+     */
+    public Result registerPet(Pet pet) {
+        if (petsById.putIfAbsent(key(pet.getPetID()), pet) != null) {
+            RESULT_COUNTERS.get(Result.DUPLICATE_PET).increment();
+            return Result.DUPLICATE_PET;
+        }
+        listener.onPetRegistered(pet);
+        RESULT_COUNTERS.get(Result.REGISTERED).increment();
+        return Result.REGISTERED;
+    }
+
+    /**
+     * Registers a pet on a worker thread.
+     *
+     * @param pet the pet to register
+     * @return a future completed with the registration result
+     */
+    public CompletableFuture<Result> registerPetAsync(Pet pet) {
+        return CompletableFuture.supplyAsync(() -> registerPet(pet), executor);
+    }
+
+    /**
+     * Books an appointment slot for a registered pet.
+     * Under the pet's lock the slot is checked against the pet's own appointments and series, the
+     * engine reserves rooms and vets, and the appointment is attached to the pet.
+     *
+     * @param petID the ID of the pet
+     * @param appointmentType one of {@link #VALID_TYPES}
+     * @param date the appointment date
+     * @param time the appointment start time
+     * @param notes optional notes
+     * @return BOOKED, or the reason the booking was rejected
+     */
+    public Result scheduleAppointment(String petID, String appointmentType, LocalDate date, LocalTime time, String notes) {
+        long start = Metrics.start();
+        Result result = book(petID, appointmentType, date, time, notes);
+        SCHEDULE_LATENCY.recordSince(start);
+        RESULT_COUNTERS.get(result).increment();
+        return result;
+    }
+
+    /**
+     * Does the work of {@link #scheduleAppointment}.
+     *
+     * @param petID the ID of the pet
+     * @param appointmentType one of {@link #VALID_TYPES}
+     * @param date the appointment date
+     * @param time the appointment start time
+     * @param notes optional notes
+     * @return BOOKED, or the reason the booking was rejected
+     */
+    private Result book(String petID, String appointmentType, LocalDate date, LocalTime time, String notes) {
+        if (!VALID_TYPES.contains(appointmentType)) {
+            return Result.INVALID_TYPE;
+        }
+        if (LocalDateTime.of(date, time).isBefore(LocalDateTime.now())) {
+            return Result.IN_PAST;
+        }
+        Pet pet = petsById.get(key(petID));
+        if (pet == null) {
+            return Result.PET_NOT_FOUND;
+        }
+
+        // The pet's lock orders this booking against the pet's other bookings and series; capacity
+        // is the engine's alone, so bookings for different pets only meet inside the engine
+        Apointment appointment = new Apointment(pet.getPetID(), appointmentType, date, time, notes);
+        AllocationEngine.Reservation reservation;
+        synchronized (pet) {
+            if (hasConflict(pet, LocalDateTime.of(date, time), null)) {
+                return Result.SLOT_TAKEN;
+            }
+            reservation = allocationEngine.reserve(appointment);
+            if (!reservation.isAccepted()) {
+                return toResult(reservation.getOutcome());
+            }
+            try {
+                pet.addAppointment(appointment);
+            } catch (RuntimeException e) {
+                allocationEngine.release(appointment);
+                throw e;
+            }
+        }
+        listener.onAppointmentBooked(pet, appointment);
+        relocate(reservation.getDisplaced());
+        return Result.BOOKED;
+    }
+
+    /**
+     * Books an appointment slot on a worker thread.
+     *
+     * @param petID the ID of the pet
+     * @param appointmentType one of {@link #VALID_TYPES}
+     * @param date the appointment date
+     * @param time the appointment start time
+     * @param notes optional notes
+     * @return a future completed with the booking result
+     */
+    public CompletableFuture<Result> scheduleAppointmentAsync(String petID, String appointmentType,
+                                                              LocalDate date, LocalTime time, String notes) {
+        return CompletableFuture.supplyAsync(() -> scheduleAppointment(petID, appointmentType, date, time, notes), executor);
+    }
+
+    /**
+     * Moves a booked appointment to another slot.
+     * Under the pet's lock the new slot is checked against the pet's other appointments and series,
+     * the engine moves the reservation, and the pet's timeline and the appointment are updated.
+     *
+     * @param appointment the booked appointment
+     * @param newDate the new date
+     * @param newTime the new start time
+     * @return BOOKED, or the reason the appointment could not be moved
+     */
+    public Result rescheduleAppointment(Apointment appointment, LocalDate newDate, LocalTime newTime) {
+        long start = Metrics.start();
+        Result result = move(appointment, newDate, newTime);
+        RESCHEDULE_LATENCY.recordSince(start);
+        RESULT_COUNTERS.get(result).increment();
+        return result;
+    }
+
+    /**
+     * Does the work of {@link #rescheduleAppointment}.
+     *
+     * @param appointment the booked appointment
+     * @param newDate the new date
+     * @param newTime the new start time
+     * @return BOOKED, or the reason the appointment could not be moved
+     */
+    private Result move(Apointment appointment, LocalDate newDate, LocalTime newTime) {
+        if (LocalDateTime.of(newDate, newTime).isBefore(LocalDateTime.now())) {
+            return Result.IN_PAST;
+        }
+        LocalDate oldDate = appointment.getAppointmentDate();
+        LocalTime oldTime = appointment.getAppointmentTime();
+        if (oldDate.equals(newDate) && oldTime.equals(newTime)) {
+            return Result.BOOKED;
+        }
+
+        Pet pet = ownerOf(appointment);
+        Object lock = pet != null ? pet : appointment;
+        AllocationEngine.Reservation reservation;
+        synchronized (lock) {
+            // Another client may have moved or cancelled the appointment meanwhile
+            boolean unchanged = oldDate.equals(appointment.getAppointmentDate())
+                    && oldTime.equals(appointment.getAppointmentTime());
+            if (!unchanged || (pet != null ? !pet.getTimeline().contains(appointment) : !isLegacy(appointment))) {
+                return Result.APPOINTMENT_NOT_FOUND;
+            }
+            if (pet != null && hasConflict(pet, LocalDateTime.of(newDate, newTime), appointment)) {
+                return Result.SLOT_TAKEN;
+            }
+            reservation = allocationEngine.reschedule(appointment, newDate, newTime);
+            if (!reservation.isAccepted()) {
+                return toResult(reservation.getOutcome());
+            }
+            if (pet != null) {
+                pet.rescheduleAppointment(appointment, newDate, newTime);
+            } else {
+                appointment.setAppointmentDate(newDate);
+                appointment.setAppointmentTime(newTime);
+            }
+        }
+        listener.onAppointmentRescheduled(pet, appointment, oldDate, oldTime);
+        relocate(reservation.getDisplaced());
+        backfill(appointment.getAppointmentType(), oldDate, oldTime);
+        return Result.BOOKED;
+    }
+
+    /**
+     * Cancels a booked appointment and frees its slot.
+     *
+     * @param appointment the booked appointment
+     * @return CANCELLED, or APPOINTMENT_NOT_FOUND if it was already cancelled
+     */
+    public Result cancelAppointment(Apointment appointment) {
+        Pet pet = ownerOf(appointment);
+        boolean removed;
+        if (pet != null) {
+            synchronized (pet) {
+                removed = pet.removeAppointment(appointment);
+            }
+        } else {
+            // Locked like a move of the same appointment, so the two cannot interleave
+            synchronized (appointment) {
+                synchronized (legacyAppointments) {
+                    removed = legacyAppointments.remove(appointment);
+                }
+            }
+        }
+        if (!removed) {
+            RESULT_COUNTERS.get(Result.APPOINTMENT_NOT_FOUND).increment();
+            return Result.APPOINTMENT_NOT_FOUND;
+        }
+        allocationEngine.release(appointment);
+        listener.onAppointmentCancelled(pet, appointment);
+        RESULT_COUNTERS.get(Result.CANCELLED).increment();
+        backfill(appointment.getAppointmentType(), appointment.getAppointmentDate(), appointment.getAppointmentTime());
+        return Result.CANCELLED;
+    }
+
+    /**
+     * Finds the earliest start at or after the given time at which an appointment of the given
+     * type fits the clinic's capacity.
+     *
+     * @param appointmentType one of {@link #VALID_TYPES}
+     * @param from the earliest acceptable start
+     * @return the earliest feasible start, or null if none exists within a year
+     */
+    public LocalDateTime findEarliestSlot(String appointmentType, LocalDateTime from) {
+        return findEarliestSlot(appointmentType, from, null);
+    }
+
+    /**
+     * Finds the earliest start at or after the given time at which an appointment of the given
+     * type fits the clinic's capacity and the pet has no other appointment or series occurrence.
+     *
+     * @param appointmentType one of {@link #VALID_TYPES}
+     * @param from the earliest acceptable start
+     * @param petID the pet to book, or null to look at capacity only
+     * @return the earliest feasible start, or null if none exists within a year
+     */
+    public LocalDateTime findEarliestSlot(String appointmentType, LocalDateTime from, String petID) {
+        long start = Metrics.start();
+        Pet pet = petID != null ? petsById.get(key(petID)) : null;
+        LocalDateTime candidate = allocationEngine.findEarliest(appointmentType, from, SLOT_SEARCH_HORIZON_DAYS);
+        while (candidate != null && pet != null && isPetBusy(pet, candidate)) {
+            candidate = allocationEngine.findEarliest(appointmentType,
+                    candidate.plusMinutes(allocationEngine.getSlotMinutes()), SLOT_SEARCH_HORIZON_DAYS);
+        }
+        SLOT_SEARCH_LATENCY.recordSince(start);
+        return candidate;
+    }
+
+    /**
+     * Books a waiting list into the earliest feasible slots.
+     * Entries are placed greedily in priority order (highest type priority first, then the
+     * earliest acceptable start, then list order), so urgent types get the first free capacity.
+     *
+     * @param requests the waiting list
+     * @return the start booked for each request, in request order; null where no slot was found
+     */
+    public List<LocalDateTime> autoSchedule(List<SlotRequest> requests) {
+        long start = Metrics.start();
+        PriorityQueue<Integer> queue = new PriorityQueue<>(Math.max(1, requests.size()), Comparator
+                .comparingInt((Integer i) -> -allocationEngine.priorityOf(requests.get(i).getAppointmentType()))
+                .thenComparing(i -> requests.get(i).getEarliest())
+                .thenComparingInt(i -> i));
+        for (int i = 0; i < requests.size(); i++) {
+            queue.add(i);
+        }
+
+        List<LocalDateTime> placed = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        while (!queue.isEmpty()) {
+            int index = queue.poll();
+            placed.set(index, placeEarliest(requests.get(index)));
+        }
+        AUTO_SCHEDULE_LATENCY.recordSince(start);
+        return placed;
+    }
+
+    /**
+     * Books a request into the earliest feasible slot of its window.
+     *
+     * @param request the request
+     * @return the start booked, or null if no slot in the window was free
+     */
+    private LocalDateTime placeEarliest(SlotRequest request) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = request.getEarliest().isAfter(now) ? request.getEarliest() : now;
+        // Another client may take a candidate between the search and the booking; keep searching after it
+        for (LocalDateTime candidate = findEarliestSlot(request.getAppointmentType(), from, request.getPetID());
+             candidate != null && request.accepts(candidate);
+             candidate = findEarliestSlot(request.getAppointmentType(), candidate.plusMinutes(1), request.getPetID())) {
+            Result result = scheduleAppointment(request.getPetID(), request.getAppointmentType(),
+                    candidate.toLocalDate(), candidate.toLocalTime(), request.getNotes());
+            if (result == Result.BOOKED) {
+                return candidate;
+            }
+            if (result != Result.SLOT_TAKEN && result != Result.NO_CAPACITY && result != Result.QUOTA_EXCEEDED) {
+                break; // Unknown pet or type; retrying will not help
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Books a request into the earliest free slot of its window, or else puts it on the waitlist,
+     * from which it is booked into the first slot in its window that is freed by a cancellation
+     * or a reschedule.
+     *
+     * @param request the request
+     * @return BOOKED or WAITLISTED, or INVALID_TYPE, PET_NOT_FOUND or IN_PAST if the window has closed
+     */
+    public Result joinWaitlist(SlotRequest request) {
+        if (!VALID_TYPES.contains(request.getAppointmentType())) {
+            return Result.INVALID_TYPE;
+        }
+        if (petsById.get(key(request.getPetID())) == null) {
+            return Result.PET_NOT_FOUND;
+        }
+        if (request.getLatest() != null && request.getLatest().isBefore(LocalDateTime.now())) {
+            return Result.IN_PAST;
+        }
+        if (placeEarliest(request) != null) {
+            return Result.BOOKED;
+        }
+        // Every slot of the window is taken now, so only a slot freed later can take the request
+        waitlist.expire(LocalDateTime.now());
+        waitlist.add(request);
+        RESULT_COUNTERS.get(Result.WAITLISTED).increment();
+        return Result.WAITLISTED;
+    }
+
+    /**
+     * Takes a request off the waitlist.
+     *
+     * @param request the request
+     * @return true if it was still waiting
+     */
+    public boolean leaveWaitlist(SlotRequest request) {
+        return waitlist.remove(request);
+    }
+
+    /**
+     * Gets the requests waiting for a slot, in the order they joined; closed windows are dropped.
+     *
+     * @return a snapshot of the waitlist
+     */
+    public List<SlotRequest> getWaitlist() {
+        waitlist.expire(LocalDateTime.now());
+        return waitlist.getAll();
+    }
+
+    /**
+     * Re-adds a waitlist entry loaded from storage without trying to book it.
+     *
+     * @param request the loaded request
+     * @return true if it was added; false if its window has closed
+     */
+    public boolean restoreWaitlistEntry(SlotRequest request) {
+        if (request.getLatest() != null && request.getLatest().isBefore(LocalDateTime.now())) {
+            return false;
+        }
+        waitlist.add(request);
+        return true;
+    }
+
+    /**
+     * Offers the capacity freed by an appointment to the waitlist, slot by slot over the time it
+     * occupied. Each slot goes to the best waiting requests whose window contains it, as many as the
+     * freed rooms and vets take; a type that does not fit a slot is not tried there again, and a
+     * request that cannot be booked keeps its place in the waitlist.
+     *
+     * @param appointmentType the type of the appointment that freed the capacity
+     * @param date the date it was on
+     * @param time the time it started
+     */
+    private void backfill(String appointmentType, LocalDate date, LocalTime time) {
+        if (waitlist.size() == 0) {
+            return;
+        }
+        long start = Metrics.start();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime freed = LocalDateTime.of(date, time);
+        for (int minutes = 0; minutes < allocationEngine.durationOf(appointmentType);
+             minutes += allocationEngine.getSlotMinutes()) {
+            LocalDateTime slot = freed.plusMinutes(minutes);
+            if (slot.isBefore(now)) {
+                continue;
+            }
+            Set<String> skipped = new HashSet<>();
+            List<SlotRequest> busy = new ArrayList<>();   // Pets already booked at this start; kept claimed until the slot is done
+            for (SlotRequest request = waitlist.claim(slot, skipped); request != null;
+                 request = waitlist.claim(slot, skipped)) {
+                Result result = scheduleAppointment(request.getPetID(), request.getAppointmentType(),
+                        slot.toLocalDate(), slot.toLocalTime(), request.getNotes());
+                if (result == Result.BOOKED) {
+                    waitlist.complete(request);
+                    Pet pet = petsById.get(key(request.getPetID()));
+                    listener.onWaitlistBooked(pet, request, appointmentAt(pet, slot, request.getAppointmentType()));
+                } else if (result == Result.PET_NOT_FOUND || result == Result.INVALID_TYPE) {
+                    waitlist.complete(request); // It can never be booked
+                } else if (result == Result.SLOT_TAKEN) {
+                    busy.add(request);
+                } else if (result == Result.IN_PAST) {
+                    waitlist.requeue(request);
+                    break; // The slot has started meanwhile
+                } else {
+                    // Capacity, quota and hours depend on the type alone, so no request of this type fits here
+                    waitlist.requeue(request);
+                    skipped.add(request.getAppointmentType());
+                }
+            }
+            for (SlotRequest request : busy) {
+                waitlist.requeue(request);
+            }
+        }
+        BACKFILL_LATENCY.recordSince(start);
+    }
+
+    /**
+     * Moves appointments displaced by an emergency to their earliest feasible slot,
+     * cancelling those that cannot be placed.
+     *
+     * @param displaced the appointments that lost their resources
+     */
+    private void relocate(List<Apointment> displaced) {
+        for (Apointment appointment : displaced) {
+            listener.onAppointmentPreempted(ownerOf(appointment), appointment);
+            LocalDateTime from = LocalDateTime.of(appointment.getAppointmentDate(), appointment.getAppointmentTime());
+            if (from.isBefore(LocalDateTime.now())) {
+                from = LocalDateTime.now();
+            }
+            Result result = Result.NO_CAPACITY;
+            for (LocalDateTime candidate = findEarliestSlot(appointment.getAppointmentType(), from, appointment.getPetID());
+                 candidate != null && result != Result.BOOKED && result != Result.APPOINTMENT_NOT_FOUND;
+                 candidate = findEarliestSlot(appointment.getAppointmentType(), candidate.plusMinutes(1), appointment.getPetID())) {
+                result = rescheduleAppointment(appointment, candidate.toLocalDate(), candidate.toLocalTime());
+            }
+            if (result != Result.BOOKED) {
+                cancelAppointment(appointment);
+            }
+        }
+    }
+
+    /**
+     * Maps a rejected reservation to a booking result.
+     *
+     * @param outcome the reservation outcome
+     * @return the matching result
+     */
+    private static Result toResult(AllocationEngine.Outcome outcome) {
+        switch (outcome) {
+            case UNKNOWN_TYPE:
+                return Result.INVALID_TYPE;
+            case OUTSIDE_HOURS:
+                return Result.OUTSIDE_HOURS;
+            case QUOTA_EXCEEDED:
+                return Result.QUOTA_EXCEEDED;
+            default:
+                return Result.NO_CAPACITY;
+        }
+    }
+
+    /**
+     * Schedules a recurring series for a registered pet.
+     * Under the pet's lock the series is checked for collisions with the pet's appointments and other
+     * series over the next {@value #SERIES_CONFLICT_HORIZON_DAYS} days, expanding occurrences lazily,
+     * and then published.
+     *
+     * @param petID the ID of the pet
+     * @param appointmentType one of {@link #VALID_TYPES}
+     * @param startDate the date of the first occurrence
+     * @param time the time of every occurrence
+     * @param rule how the series repeats
+     * @param notes optional notes
+     * @return BOOKED, or the reason the series was rejected
+     */
+    public Result scheduleSeries(String petID, String appointmentType, LocalDate startDate, LocalTime time,
+                                 RecurrenceRule rule, String notes) {
+        if (!VALID_TYPES.contains(appointmentType)) {
+            return Result.INVALID_TYPE;
+        }
+        LocalDateTime start = LocalDateTime.of(startDate, time);
+        if (start.isBefore(LocalDateTime.now())) {
+            return Result.IN_PAST;
+        }
+        Pet pet = petsById.get(key(petID));
+        if (pet == null) {
+            return Result.PET_NOT_FOUND;
+        }
+
+        RecurringSeries series = new RecurringSeries(seriesStore.nextSeriesID(), pet.getPetID(),
+                appointmentType, startDate, time, rule, notes);
+        synchronized (pet) {
+            for (Apointment occurrence : series.occurrencesBetween(start, start.plusDays(SERIES_CONFLICT_HORIZON_DAYS))) {
+                if (hasConflict(pet, LocalDateTime.of(occurrence.getAppointmentDate(), occurrence.getAppointmentTime()), null)) {
+                    return Result.SLOT_TAKEN;
+                }
+            }
+            seriesStore.add(series);
+        }
+        listener.onSeriesScheduled(pet, series);
+        return Result.BOOKED;
+    }
+
+    /**
+     * Moves a single occurrence of a series to another date and time, if the pet is free then.
+     * The target is checked under the pet's lock before the series changes, so other clients
+     * never see a move that is then taken back.
+     *
+     * @param series the series
+     * @param originalDate the date the occurrence regularly falls on
+     * @param newDateTime the date and time the occurrence should take place instead
+     * @return BOOKED, or the reason the occurrence could not be moved
+     * @throws IllegalArgumentException if the series has no occurrence on the original date
+     */
+    public Result moveSeriesOccurrence(RecurringSeries series, LocalDate originalDate, LocalDateTime newDateTime) {
+        if (newDateTime.isBefore(LocalDateTime.now())) {
+            return Result.IN_PAST;
+        }
+        Pet pet = petsById.get(key(series.getPetID()));
+        LocalDateTime from;
+        synchronized (pet != null ? pet : series) {
+            from = series.occurrenceOn(originalDate);
+            if (newDateTime.equals(from)) {
+                return Result.BOOKED;
+            }
+            boolean taken = pet != null ? hasConflict(pet, newDateTime, null)
+                    : seriesStore.isOccupied(newDateTime, series.getPetID());
+            if (taken) {
+                return Result.SLOT_TAKEN;
+            }
+            seriesStore.moveOccurrence(series, originalDate, newDateTime);
+        }
+        listener.onSeriesOccurrenceMoved(pet, series, from, newDateTime);
+        return Result.BOOKED;
+    }
+
+    /**
+     * Cancels a single occurrence of a series.
+     *
+     * @param series the series
+     * @param originalDate the date the occurrence regularly falls on
+     * @return CANCELLED, or APPOINTMENT_NOT_FOUND if the occurrence was already cancelled
+     * @throws IllegalArgumentException if the series has no occurrence on that date
+     */
+    public Result cancelSeriesOccurrence(RecurringSeries series, LocalDate originalDate) {
+        Pet pet = petsById.get(key(series.getPetID()));
+        LocalDateTime at;
+        synchronized (pet != null ? pet : series) {
+            at = series.occurrenceOn(originalDate);
+            if (at == null) {
+                return Result.APPOINTMENT_NOT_FOUND;
+            }
+            seriesStore.cancelOccurrence(series, originalDate);
+        }
+        listener.onSeriesOccurrenceCancelled(pet, series, at);
+        return Result.CANCELLED;
+    }
+
+    /**
+     * Looks up a recurring series by ID.
+     *
+     * @param seriesID the series ID
+     * @return the series, or null if none exists
+     */
+    public RecurringSeries findSeries(String seriesID) {
+        return seriesStore.find(seriesID);
+    }
+
+    /**
+     * Gets the recurring series of a pet.
+     *
+     * @param petID the ID of the pet (case-insensitive)
+     * @return the pet's series, oldest first
+     */
+    public List<RecurringSeries> getSeriesOf(String petID) {
+        List<RecurringSeries> result = new ArrayList<>();
+        for (RecurringSeries series : seriesStore.getAll()) {
+            if (series.getPetID().equalsIgnoreCase(petID)) {
+                result.add(series);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Re-adds a series loaded from storage without conflict checks.
+     *
+     * @param series the loaded series
+     */
+    public void restoreSeries(RecurringSeries series) {
+        seriesStore.add(series);
+        Pet pet = petsById.get(key(series.getPetID()));
+        listener.onSeriesScheduled(pet, series);
+    }
+
+    /**
+     * Re-registers a pet loaded from storage, skipping duplicate IDs.
+     *
+     * @param pet the loaded pet
+     * @return true if the pet was added
+     */
+    public boolean restorePet(Pet pet) {
+        return registerPet(pet) == Result.REGISTERED;
+    }
+
+    /**
+     * Re-books an appointment loaded from storage without the future-date and conflict checks.
+     *
+     * @param appointment the loaded appointment
+     */
+    public void restoreAppointment(Apointment appointment) {
+        allocationEngine.restore(appointment);
+        Pet pet = ownerOf(appointment);
+        if (pet != null) {
+            synchronized (pet) {
+                pet.addAppointment(appointment);
+            }
+        } else {
+            synchronized (legacyAppointments) {
+                legacyAppointments.add(appointment);
+            }
+        }
+        listener.onAppointmentBooked(pet, appointment);
+    }
+
+    /**
+     * Archives every appointment dated before a day: it is taken out of its pet's timeline (or the
+     * legacy appointments) and the engine, and handed to the listener to be kept on disk.
+     * Only the first call for a day does any work, so callers may invoke it freely.
+     *
+     * @param day the first day whose appointments are kept, normally today
+     * @return the number of appointments archived
+     */
+    public int archiveBefore(LocalDate day) {
+        synchronized (archiveLock) {
+            if (!day.isAfter(archivedBefore)) {
+                return 0;
+            }
+            archivedBefore = day;
+            LocalDateTime cutoff = day.atStartOfDay();
+            int count = 0;
+            for (Pet pet : petsById.values()) {
+                List<Apointment> archived;
+                synchronized (pet) {
+                    archived = pet.getTimeline().archiveBefore(cutoff);
+                }
+                for (Apointment appointment : archived) {
+                    allocationEngine.release(appointment);
+                    listener.onAppointmentArchived(pet, appointment);
+                }
+                count += archived.size();
+            }
+            List<Apointment> legacy = new ArrayList<>();
+            synchronized (legacyAppointments) {
+                legacyAppointments.removeIf(a -> a.getAppointmentDate().isBefore(day) && legacy.add(a));
+            }
+            for (Apointment appointment : legacy) {
+                allocationEngine.release(appointment);
+                listener.onAppointmentArchived(null, appointment);
+            }
+            return count + legacy.size();
+        }
+    }
+
+    /**
+     * Notes an appointment read back from the archive on its pet's timeline, without holding on to it,
+     * and passes it to the listener like a newly archived one.
+     *
+     * @param appointment the archived appointment
+     */
+    public void restoreArchived(Apointment appointment) {
+        Pet pet = ownerOf(appointment);
+        if (pet != null) {
+            synchronized (pet) {
+                pet.getTimeline().noteArchived(appointment);
+            }
+        }
+        listener.onAppointmentArchived(pet, appointment);
+    }
+
+    /**
+     * Checks whether an appointment without a known pet is still booked.
+     *
+     * @param appointment the appointment
+     * @return true if it was loaded and has not been cancelled since
+     */
+    private boolean isLegacy(Apointment appointment) {
+        synchronized (legacyAppointments) {
+            return legacyAppointments.contains(appointment);
+        }
+    }
+
+    /**
+     * Gets the registered pet an appointment belongs to.
+     *
+     * @param appointment the appointment
+     * @return the pet, or null for legacy appointments without a known pet
+     */
+    private Pet ownerOf(Apointment appointment) {
+        return appointment.getPetID() != null ? petsById.get(key(appointment.getPetID())) : null;
+    }
+
+    /**
+     * Looks up a pet by ID (case-insensitive).
+     *
+     * @param petID the ID to search for
+     * @return the pet, or null if none is registered under that ID
+     */
+    public Pet findPet(String petID) {
+        return petsById.get(key(petID));
+    }
+
+    /**
+     * Checks whether a pet already has an appointment or a series occurrence starting at a time.
+     * The caller holds the pet's lock.
+     *
+     * @param pet the pet
+     * @param start the start to test
+     * @param ignore an appointment of the pet to leave out, e.g. the one being moved; or null
+     * @return true if the pet is busy then
+     */
+    private boolean hasConflict(Pet pet, LocalDateTime start, Apointment ignore) {
+        for (Apointment other : pet.getTimeline().between(start, start.plusMinutes(1))) {
+            if (other != ignore) {
+                return true;
+            }
+        }
+        return seriesStore.isOccupied(start, pet.getPetID());
+    }
+
+    /**
+     * Checks whether a pet already has an appointment or a series occurrence starting at a time.
+     *
+     * @param pet the pet
+     * @param start the start to test
+     * @return true if the pet is busy then
+     */
+    private boolean isPetBusy(Pet pet, LocalDateTime start) {
+        synchronized (pet) {
+            return hasConflict(pet, start, null);
+        }
+    }
+
+    /**
+     * Gets the appointment of a type a pet has at a start.
+     *
+     * @param pet the pet
+     * @param start the start
+     * @param appointmentType the appointment type
+     * @return the appointment, or null if the pet has none then
+     */
+    private static Apointment appointmentAt(Pet pet, LocalDateTime start, String appointmentType) {
+        synchronized (pet) {
+            for (Apointment appointment : pet.getTimeline().between(start, start.plusMinutes(1))) {
+                if (appointment.getAppointmentType().equals(appointmentType)) {
+                    return appointment;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Shuts down the worker threads. Requests already submitted still complete.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Encodes a slot as minutes since the epoch.
+     *
+     * @param date the slot date
+     * @param time the slot start time
+     * @return the slot key
+     */
+    static long slotKey(LocalDate date, LocalTime time) {
+        return date.toEpochDay() * 1440 + time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Normalizes a pet ID for case-insensitive lookup.
+     *
+     * @param petID the pet ID
+     * @return the lookup key
+     */
+    private static String key(String petID) {
+        return petID.toLowerCase();
+    }
+}
@@ -0,0 +1,58 @@
+package PetCareScheduler;
+
+/**
+ * A room, table or vet that appointments occupy while they take place.
+ */
+public class ClinicResource {
+    /**
+     * The kinds of resources an appointment type can require.
+     */
+    public enum Kind {
+        EXAM_ROOM,
+        SURGERY_ROOM,
+        GROOMING_TABLE,
+        VET
+    }
+
+    private final String name;  // Display name, e.g. "Exam Room 1"
+    private final Kind kind;    // What the resource can be used for
+
+    /**
+     * Constructor that creates a resource.
+     *
+     * @param name the display name
+     * @param kind the kind of resource
+     */
+    public ClinicResource(String name, Kind kind) {
+        this.name = name;
+        this.kind = kind;
+    }
+
+    /**
+     * Gets the display name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the kind of resource.
+     *
+     * @return the kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns a string representation of the resource.
+     *
+     * @return the resource name
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,40 @@
+package PetCareScheduler;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reminder sink that appends each dispatched reminder as a line to a local file.
+ * Useful for testing the reminder engine without an external delivery channel.
+ */
+public class FileReminderSink implements ReminderSink {
+    private final String fileName;   // File the reminders are appended to
+
+    /**
+     * Constructor that creates a sink writing to the given file.
+     *
+     * @param fileName the file to append reminders to
+     */
+    public FileReminderSink(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Appends the batch to the file, one reminder per line.
+     *
+     * @param batch the reminders to deliver
+     */
+    @Override
+    public void deliver(List<Reminder> batch) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName, true))) {
+            for (Reminder reminder : batch) {
+                writer.write(reminder.toString());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            System.out.println("Error writing reminders: " + e.getMessage());
+        }
+    }
+}
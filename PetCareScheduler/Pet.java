@@ -1,7 +1,7 @@
 package PetCareScheduler;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.time.LocalTime;
 import java.util.List;
 
 public class Pet {
@@ -12,7 +12,7 @@ public class Pet {
     private String ownerName;
     private String contactInfo;
     private LocalDate dateOfRegistration;
-    private List<Apointment> appointments;
+    private AppointmentTimeline appointments = new AppointmentTimeline();
 
 
     public Pet(String petID, String petName, String specieBreed, int petAge, String ownerName, String contactInfo, LocalDate dateOfRegistration) {
@@ -23,7 +23,6 @@ public class Pet {
         this.ownerName = ownerName;
         this.contactInfo = contactInfo;
         this.dateOfRegistration = dateOfRegistration;
-        this.appointments = new ArrayList<>();
     }
 
     public Pet() {
@@ -85,12 +84,37 @@ public class Pet {
         this.dateOfRegistration = dateOfRegistration;
     }
 
+    // Read-only, in date/time order; use the methods below to change it
     public List<Apointment> getAppointments() {
-        return appointments;
+        return appointments.asList();
     }
 
     public void setAppointments(List<Apointment> appointments) {
-        this.appointments = appointments;
+        this.appointments = new AppointmentTimeline();
+        for (Apointment appointment : appointments) {
+            this.appointments.add(appointment);
+        }
+    }
+
+    // Booked plus archived appointments
+    public int getAppointmentCount() {
+        return appointments.size() + appointments.getArchivedCount();
+    }
+
+    public AppointmentTimeline getTimeline() {
+        return appointments;
+    }
+
+    public void addAppointment(Apointment appointment) {
+        appointments.add(appointment);
+    }
+
+    public boolean removeAppointment(Apointment appointment) {
+        return appointments.remove(appointment);
+    }
+
+    public void rescheduleAppointment(Apointment appointment, LocalDate newDate, LocalTime newTime) {
+        appointments.reschedule(appointment, newDate, newTime);
     }
 
 
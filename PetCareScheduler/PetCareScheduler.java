@@ -1,12 +1,23 @@
 package PetCareScheduler;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import Common.BatchRunner;
+import Common.BlockFile;
+import Common.LatencyHistogram;
+import Common.Metrics;
+import Common.PagedListing;
+import Common.TemporalCodec;
 
 /**
  * Main application class for the Pet Care Scheduler system.
@@ -18,33 +29,253 @@ public class PetCareScheduler {
     // Static Scanner for user input across the application
     private static final Scanner scanner = new Scanner(System.in);
 
-    // In-memory collections to store pets and appointments during runtime
-    private static final List<Pet> pets = new ArrayList<>();
-    private static final List<Apointment> appointments = new ArrayList<>();
+    // In-memory collections to store pets and today's and future appointments during runtime; past days are archived to disk.
+    // Synchronized because the booking service may append to them from several client threads.
+    private static final List<Pet> pets = Collections.synchronizedList(new ArrayList<>());
+    private static final List<Apointment> appointments = Collections.synchronizedList(new ArrayList<>());
+
+    // Recurring appointment series, expanded lazily instead of being stored per occurrence
+    private static final RecurringSeriesStore seriesStore = new RecurringSeriesStore();
+
+    // Incrementally maintained views that back the reports
+    private static final ReportViews reportViews = new ReportViews(seriesStore);
+
+    // Typo-tolerant search by pet name, owner or breed, updated as pets are registered
+    private static final PetSearchIndex petSearch = new PetSearchIndex();
+
+    // Matches listed by a pet search
+    private static final int SEARCH_LIMIT = 10;
+
+    // Checkup and vaccination due dates per pet, by species and age; recomputed nightly
+    private static final PreventiveCareEngine preventiveCare = new PreventiveCareEngine(seriesStore);
+
+    // How far ahead the preventive-care report counts pets coming due
+    private static final int DUE_SOON_DAYS = 30;
 
     // File names for data persistence
     private static final String PETS_FILE = "pets.txt";
     private static final String APPOINTMENTS_FILE = "appointments.txt";
+    private static final String REMINDERS_FILE = "reminders.txt";
+    private static final String SERIES_FILE = "series.txt";
+    private static final String WAITLIST_FILE = "waitlist.txt";
+
+    // Record store that persists pets and appointments as they change; the text files are only imported once
+    private static final Path DATA_DIRECTORY = Paths.get("petcare-data");
+
+    // Compressed snapshots of the record store written by "Store Data", restored if the store is lost
+    private static final Path PETS_SNAPSHOT = Paths.get("pets.blk");
+    private static final Path APPOINTMENTS_SNAPSHOT = Paths.get("appointments.blk");
+    private static final Path ARCHIVE_SNAPSHOT = Paths.get("appointment-archive.blk");
+
+    // Latency of loading at startup, explicit stores, and the write-through of each change
+    private static final LatencyHistogram LOAD_LATENCY = Metrics.histogram("petcare_load_seconds");
+    private static final LatencyHistogram STORE_LATENCY = Metrics.histogram("petcare_store_seconds");
+    private static final LatencyHistogram PERSIST_LATENCY = Metrics.histogram("petcare_persist_seconds");
+    private static PetCareStorage storage;
+
+    // Set while records are being read back from the store, so they are not written again
+    private static volatile boolean restoring;
+
+    // How far ahead recurring occurrences are listed in the upcoming report
+    private static final int RECURRING_REPORT_DAYS = 90;
+
+    // Records per page in the pet and appointment listings
+    private static final int PAGE_SIZE = 20;
+
+    // Buffered writer shared by the listings; each page is flushed to the terminal in one write
+    private static final PrintWriter listingOut =
+            new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16), false);
 
-    // Date and time formatters for consistent serialization/deserialization
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    // Sends reminders 24 hours and 1 hour before each appointment, fed from the upcoming queue
+    private static final ReminderEngine reminderEngine = new ReminderEngine(
+            new FileReminderSink(REMINDERS_FILE), reportViews,
+            Arrays.asList(Duration.ofHours(24), Duration.ofHours(1)), 7, 200_000, 100);
+
+    // Clinic capacity: opening hours 08:00-20:00 in 15-minute slots, the rooms and vets, and per-type rules
+    private static final AllocationEngine allocationEngine = new AllocationEngine(LocalTime.of(8, 0), 15, 48,
+            Arrays.asList(
+                    new ClinicResource("Exam Room 1", ClinicResource.Kind.EXAM_ROOM),
+                    new ClinicResource("Exam Room 2", ClinicResource.Kind.EXAM_ROOM),
+                    new ClinicResource("Surgery Suite", ClinicResource.Kind.SURGERY_ROOM),
+                    new ClinicResource("Grooming Table", ClinicResource.Kind.GROOMING_TABLE),
+                    new ClinicResource("Vet 1", ClinicResource.Kind.VET),
+                    new ClinicResource("Vet 2", ClinicResource.Kind.VET)),
+            Arrays.asList(
+                    new TypePolicy("Checkup", 30, EnumSet.of(ClinicResource.Kind.EXAM_ROOM), true, 20, 20, false, false),
+                    new TypePolicy("Vaccination", 15, EnumSet.of(ClinicResource.Kind.EXAM_ROOM), true, 30, 20, false, false),
+                    new TypePolicy("Surgery", 120, EnumSet.of(ClinicResource.Kind.SURGERY_ROOM), true, 3, 50, false, false),
+                    new TypePolicy("Emergency", 60, EnumSet.of(ClinicResource.Kind.EXAM_ROOM, ClinicResource.Kind.SURGERY_ROOM),
+                            true, 0, 100, true, true),
+                    new TypePolicy("Grooming", 60, EnumSet.of(ClinicResource.Kind.GROOMING_TABLE), false, 8, 10, false, false)));
+
+    // Thread-safe entry point for registrations and bookings; committed changes flow back into the lists and views
+    private static final BookingService bookingService = new BookingService(seriesStore, allocationEngine, new BookingService.Listener() {
+        @Override
+        public void onPetRegistered(Pet pet) {
+            pets.add(pet);
+            reportViews.onPetRegistered(pet);
+            petSearch.add(pet);
+            preventiveCare.onPetRegistered(pet);
+            persist(() -> storage.savePet(pet));
+        }
+
+        @Override
+        public void onAppointmentBooked(Pet pet, Apointment appointment) {
+            appointments.add(appointment);
+            reportViews.onAppointmentScheduled(appointment);
+            preventiveCare.onAppointmentChanged(pet);
+            reminderEngine.schedule(appointment);
+            persist(() -> storage.saveAppointment(appointment));
+        }
+
+        @Override
+        public void onAppointmentRescheduled(Pet pet, Apointment appointment, LocalDate oldDate, LocalTime oldTime) {
+            reportViews.onAppointmentRescheduled(appointment, oldDate, oldTime);
+            preventiveCare.onAppointmentChanged(pet);
+            reminderEngine.rearm(appointment);
+            persist(() -> storage.saveAppointment(appointment));
+        }
+
+        @Override
+        public void onAppointmentCancelled(Pet pet, Apointment appointment) {
+            // Match by identity: distinct appointments may compare equal
+            synchronized (appointments) {
+                appointments.removeIf(a -> a == appointment);
+            }
+            reportViews.onAppointmentCancelled(appointment);
+            preventiveCare.onAppointmentChanged(pet);
+            reminderEngine.cancel(appointment);
+            persist(() -> storage.deleteAppointment(appointment));
+        }
+
+        @Override
+        public void onAppointmentArchived(Pet pet, Apointment appointment) {
+            // Still counted by the reports; only the list of current appointments drops it (see archivePastAppointments)
+            preventiveCare.onAppointmentChanged(pet);
+            persist(() -> storage.archiveAppointment(appointment));
+        }
+
+        @Override
+        public void onAppointmentPreempted(Pet pet, Apointment appointment) {
+            System.out.println("Note: an emergency displaced " + appointment + "; moving it to the next free slot.");
+        }
+
+        @Override
+        public void onWaitlistBooked(Pet pet, BookingService.SlotRequest request, Apointment appointment) {
+            System.out.println("Note: a freed slot was given to the waitlist: " + appointment);
+        }
+
+        @Override
+        public void onSeriesScheduled(Pet pet, RecurringSeries series) {
+            // Arm reminders for occurrences already inside the reminder horizon
+            LocalDateTime now = LocalDateTime.now();
+            for (Apointment occurrence : series.occurrencesBetween(now, now.plusDays(7))) {
+                reminderEngine.schedule(occurrence);
+            }
+            preventiveCare.onAppointmentChanged(pet);
+        }
+
+        @Override
+        public void onSeriesOccurrenceMoved(Pet pet, RecurringSeries series, LocalDateTime from, LocalDateTime to) {
+            if (from != null) {
+                reminderEngine.cancelAt(series.getPetID(), from);
+            }
+            reminderEngine.schedule(series.toAppointment(to));
+            preventiveCare.onAppointmentChanged(pet);
+        }
+
+        @Override
+        public void onSeriesOccurrenceCancelled(Pet pet, RecurringSeries series, LocalDateTime at) {
+            reminderEngine.cancelAt(series.getPetID(), at);
+            preventiveCare.onAppointmentChanged(pet);
+        }
+    });
+
+    /**
+     * A write to the record store.
+     */
+    private interface StorageWrite {
+        void run() throws IOException;
+    }
+
+    /**
+     * Applies a change to the record store, reporting rather than propagating failures so a storage
+     * problem never undoes a booking that has already been committed in memory.
+     *
+     * @param write the change to apply
+     */
+    private static void persist(StorageWrite write) {
+        if (storage == null || restoring) {
+            return;
+        }
+        long start = Metrics.start();
+        try {
+            write.run();
+        } catch (IOException e) {
+            System.out.println("Error storing data: " + e.getMessage());
+        }
+        PERSIST_LATENCY.recordSince(start);
+    }
 
     /**
      * Main entry point of the application.
      * Loads existing data from files, displays a menu loop, processes user choices,
      * and handles exceptions gracefully throughout the session.
      *
-     * @param args command line arguments (not used)
+     * @param args command line arguments: {@code --batch [file]} runs scripted commands instead of the menu
      */
     public static void main(String[] args) {
+        // In batch mode only command results go to standard output; every other message goes to standard error
+        PrintStream results = System.out;
+        if (BatchRunner.isRequested(args)) {
+            System.setOut(System.err);
+        }
+
+        // Publish metrics before loading so the load itself is measured
+        Metrics.install("PetCareScheduler");
+        Metrics.gauge("petcare_pets", pets::size);
+        Metrics.gauge("petcare_appointments", appointments::size);
+
         // Load previously saved pet and appointment data from files
+        long loadStart = Metrics.start();
         loadDataFromFiles();
+        archivePastAppointments();
+        LOAD_LATENCY.recordSince(loadStart);
+
+        // Arm reminders for loaded appointments and start dispatching in the background
+        reminderEngine.start();
+        preventiveCare.start();
+
+        if (BatchRunner.isRequested(args)) {
+            runBatch(args, results);
+        } else {
+            runMenu();
+        }
+
+        // Clean up resources
+        reminderEngine.stop();
+        preventiveCare.stop();
+        bookingService.close();
+        if (storage != null) {
+            try {
+                storage.close();
+            } catch (IOException e) {
+                System.out.println("Error storing data: " + e.getMessage());
+            }
+        }
+        Metrics.shutdown();
+        scanner.close();
+    }
 
+    /**
+     * Runs the interactive menu loop until the user chooses to exit.
+     */
+    private static void runMenu() {
         // Main application loop - continues until user chooses to exit
         boolean running = true;
         while (running) {
             try {
+                archivePastAppointments();
                 displayMenu();
                 int choice = getIntInput("Enter your choice: ");
 
@@ -66,6 +297,12 @@ public class PetCareScheduler {
                         generateReports();
                         break;
                     case 6:
+                        manageAppointments();
+                        break;
+                    case 7:
+                        findAvailableSlots();
+                        break;
+                    case 8:
                         running = false;
                         System.out.println("Exiting application. Goodbye!");
                         break;
@@ -77,9 +314,236 @@ public class PetCareScheduler {
                 scanner.nextLine(); // Clear input buffer to prevent infinite loops
             }
         }
+    }
 
-        // Clean up resources
-        scanner.close();
+    /**
+     * Runs scripted commands without prompts and reports one result line per command.
+     * Commands (dates yyyy-MM-dd, times HH:mm):
+     * <pre>
+     * REGISTER|petID|name|species/breed|age|owner|contact
+     * SCHEDULE|petID|type|date|time[|notes[|repeat rule]]
+     * RESCHEDULE|petID|date|time|newDate|newTime
+     * CANCEL|petID|date|time
+     * SERIES|petID
+     * SERIES_MOVE|seriesID|date|newDate|newTime
+     * SERIES_CANCEL|seriesID|date
+     * SLOT|type[|date|time]
+     * PET|petID
+     * SEARCH|query[|limit]
+     * DUE|type|date[|limit]
+     * WAITLIST|petID|type|fromDate|fromTime|toDate|toTime[|notes]
+     * COUNT
+     * STORE
+     * </pre>
+     *
+     * @param args the command line arguments naming the command file, if any
+     * @param results where the result lines are written
+     */
+    private static void runBatch(String[] args, PrintStream results) {
+        BatchRunner runner = new BatchRunner()
+                .register("REGISTER", 6, 6, f -> {
+                    Pet pet = new Pet(f[0], f[1], f[2], Integer.parseInt(f[3].trim()), f[4], f[5], LocalDate.now());
+                    requireSuccess(bookingService.registerPet(pet), BookingService.Result.REGISTERED);
+                    return new String[] {pet.getPetID()};
+                })
+                .register("SCHEDULE", 4, 6, f -> {
+                    LocalDate date = TemporalCodec.requireIsoDate(f[2]);
+                    LocalTime time = TemporalCodec.requireHourMinute(f[3]);
+                    String notes = f.length > 4 ? f[4] : "";
+                    BookingService.Result result = f.length > 5 && !f[5].isEmpty()
+                            ? bookingService.scheduleSeries(f[0], f[1], date, time, RecurrenceRule.parse(f[5]), notes)
+                            : bookingService.scheduleAppointment(f[0], f[1], date, time, notes);
+                    requireSuccess(result, BookingService.Result.BOOKED);
+                    return new String[] {f[0], TemporalCodec.formatIsoDate(date), TemporalCodec.formatHourMinute(time)};
+                })
+                .register("RESCHEDULE", 5, 5, f -> {
+                    Apointment appointment = findAppointment(f[0], f[1], f[2]);
+                    LocalDate newDate = TemporalCodec.requireIsoDate(f[3]);
+                    LocalTime newTime = TemporalCodec.requireHourMinute(f[4]);
+                    requireSuccess(bookingService.rescheduleAppointment(appointment, newDate, newTime),
+                            BookingService.Result.BOOKED);
+                    return new String[] {f[0], TemporalCodec.formatIsoDate(newDate), TemporalCodec.formatHourMinute(newTime)};
+                })
+                .register("CANCEL", 3, 3, f -> {
+                    requireSuccess(bookingService.cancelAppointment(findAppointment(f[0], f[1], f[2])),
+                            BookingService.Result.CANCELLED);
+                    return new String[] {f[0]};
+                })
+                .register("SERIES", 1, 1, f -> {
+                    Pet pet = requirePet(f[0]);
+                    List<String> fields = new ArrayList<>();
+                    for (RecurringSeries series : bookingService.getSeriesOf(pet.getPetID())) {
+                        fields.add(series.getSeriesID());
+                        fields.add(series.getAppointmentType());
+                        fields.add(TemporalCodec.formatIsoDate(series.getStartDate()));
+                        fields.add(TemporalCodec.formatHourMinute(series.getAppointmentTime()));
+                        fields.add(series.getRule().toString());
+                    }
+                    return fields.toArray(new String[0]);
+                })
+                .register("SERIES_MOVE", 4, 4, f -> {
+                    LocalDate newDate = TemporalCodec.requireIsoDate(f[2]);
+                    LocalTime newTime = TemporalCodec.requireHourMinute(f[3]);
+                    requireSuccess(bookingService.moveSeriesOccurrence(requireSeries(f[0]),
+                            TemporalCodec.requireIsoDate(f[1]), LocalDateTime.of(newDate, newTime)), BookingService.Result.BOOKED);
+                    return new String[] {f[0], TemporalCodec.formatIsoDate(newDate), TemporalCodec.formatHourMinute(newTime)};
+                })
+                .register("SERIES_CANCEL", 2, 2, f -> {
+                    requireSuccess(bookingService.cancelSeriesOccurrence(requireSeries(f[0]), TemporalCodec.requireIsoDate(f[1])),
+                            BookingService.Result.CANCELLED);
+                    return new String[] {f[0]};
+                })
+                .register("SLOT", 1, 3, f -> {
+                    if (!BookingService.VALID_TYPES.contains(f[0])) {
+                        throw new IllegalArgumentException(BookingService.Result.INVALID_TYPE.name());
+                    }
+                    LocalDateTime from = f.length > 2
+                            ? LocalDateTime.of(TemporalCodec.requireIsoDate(f[1]), TemporalCodec.requireHourMinute(f[2]))
+                            : LocalDateTime.now();
+                    LocalDateTime earliest = bookingService.findEarliestSlot(f[0], from);
+                    return earliest == null ? new String[] {"NONE"} : new String[] {
+                            TemporalCodec.formatIsoDate(earliest.toLocalDate()),
+                            TemporalCodec.formatHourMinute(earliest.toLocalTime())};
+                })
+                .register("PET", 1, 1, f -> {
+                    Pet pet = requirePet(f[0]);
+                    synchronized (pet) {
+                        return new String[] {pet.getPetID(), pet.getPetName(), pet.getSpecieBreed(),
+                                String.valueOf(pet.getPetAge()), pet.getOwnerName(), pet.getContactInfo(),
+                                String.valueOf(pet.getAppointmentCount())};
+                    }
+                })
+                .register("SEARCH", 1, 2, f -> {
+                    int limit = f.length > 1 ? Integer.parseInt(f[1].trim()) : SEARCH_LIMIT;
+                    List<String> fields = new ArrayList<>();
+                    for (PetSearchIndex.Match match : petSearch.search(f[0], limit, PetSearchIndex.DEFAULT_MIN_SCORE)) {
+                        fields.add(match.getPet().getPetID());
+                        fields.add(String.format(Locale.ROOT, "%.3f", match.getScore()));
+                    }
+                    return fields.toArray(new String[0]);
+                })
+                .register("WAITLIST", 6, 7, f -> {
+                    LocalDateTime from = LocalDateTime.of(TemporalCodec.requireIsoDate(f[2]), TemporalCodec.requireHourMinute(f[3]));
+                    LocalDateTime to = LocalDateTime.of(TemporalCodec.requireIsoDate(f[4]), TemporalCodec.requireHourMinute(f[5]));
+                    BookingService.Result result = bookingService.joinWaitlist(
+                            new BookingService.SlotRequest(f[0], f[1], from, to, f.length > 6 ? f[6] : ""));
+                    if (result != BookingService.Result.BOOKED) {
+                        requireSuccess(result, BookingService.Result.WAITLISTED);
+                    }
+                    return new String[] {f[0], result.name()};
+                })
+                .register("DUE", 2, 3, f -> {
+                    PreventiveCareEngine.Care care = careOf(f[0]);
+                    List<PreventiveCareEngine.Due> due = preventiveCare.getDueBy(care, TemporalCodec.requireIsoDate(f[1]));
+                    int limit = f.length > 2 ? Integer.parseInt(f[2].trim()) : SEARCH_LIMIT;
+                    List<String> fields = new ArrayList<>();
+                    fields.add(String.valueOf(due.size()));
+                    for (PreventiveCareEngine.Due entry : due.subList(0, Math.min(limit, due.size()))) {
+                        fields.add(entry.getPet().getPetID());
+                        fields.add(TemporalCodec.formatIsoDate(entry.getDueDate()));
+                    }
+                    return fields.toArray(new String[0]);
+                })
+                .register("COUNT", 0, 0, f -> new String[] {String.valueOf(pets.size()), String.valueOf(reportViews.getTotalAppointments())})
+                .register("STORE", 0, 0, f -> {
+                    if (storage != null) {
+                        storage.sync();
+                        storage.writeSnapshot(PETS_SNAPSHOT, APPOINTMENTS_SNAPSHOT, ARCHIVE_SNAPSHOT);
+                    }
+                    saveSeriesToFile();
+                    saveWaitlistToFile();
+                    return null;
+                });
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(results), 1 << 16), false);
+        try (BufferedReader in = BatchRunner.openInput(args)) {
+            runner.run(in, out);
+        } catch (IOException e) {
+            System.out.println("Error reading commands: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fails a batch command unless the booking service reported the expected result.
+     *
+     * @param result the reported result
+     * @param expected the result that means success
+     * @throws IllegalStateException carrying the result name if it is not the expected one
+     */
+    private static void requireSuccess(BookingService.Result result, BookingService.Result expected) {
+        if (result != expected) {
+            throw new IllegalStateException(result.name());
+        }
+    }
+
+    /**
+     * Looks up a kind of preventive care for a batch command.
+     *
+     * @param appointmentType the appointment type providing the care
+     * @return the kind of care
+     * @throws IllegalArgumentException if the type is not a preventive-care type
+     */
+    private static PreventiveCareEngine.Care careOf(String appointmentType) {
+        for (PreventiveCareEngine.Care care : PreventiveCareEngine.Care.values()) {
+            if (care.getAppointmentType().equalsIgnoreCase(appointmentType.trim())) {
+                return care;
+            }
+        }
+        throw new IllegalArgumentException("Not a preventive-care type: " + appointmentType);
+    }
+
+    /**
+     * Looks up a pet for a batch command.
+     *
+     * @param petID the pet ID
+     * @return the pet
+     * @throws IllegalArgumentException if no pet has that ID
+     */
+    private static Pet requirePet(String petID) {
+        Pet pet = findPetByID(petID);
+        if (pet == null) {
+            throw new IllegalArgumentException("Pet with ID " + petID + " not found.");
+        }
+        return pet;
+    }
+
+    /**
+     * Looks up a recurring series for a batch command.
+     *
+     * @param seriesID the series ID
+     * @return the series
+     * @throws IllegalArgumentException if no series has that ID
+     */
+    private static RecurringSeries requireSeries(String seriesID) {
+        RecurringSeries series = bookingService.findSeries(seriesID);
+        if (series == null) {
+            throw new IllegalArgumentException("Series " + seriesID + " not found.");
+        }
+        return series;
+    }
+
+    /**
+     * Looks up a pet's appointment by its date and start time for a batch command.
+     *
+     * @param petID the pet ID
+     * @param date the appointment date (yyyy-MM-dd)
+     * @param time the appointment time (HH:mm)
+     * @return the appointment
+     * @throws IllegalArgumentException if the pet or appointment does not exist
+     */
+    private static Apointment findAppointment(String petID, String date, String time) {
+        Pet pet = requirePet(petID);
+        LocalDate appointmentDate = TemporalCodec.requireIsoDate(date);
+        LocalTime appointmentTime = TemporalCodec.requireHourMinute(time);
+        synchronized (pet) {
+            for (Apointment appointment : pet.getAppointments()) {
+                if (appointment.getAppointmentDate().equals(appointmentDate)
+                        && appointment.getAppointmentTime().equals(appointmentTime)) {
+                    return appointment;
+                }
+            }
+        }
+        throw new IllegalArgumentException("No appointment for " + petID + " at " + date + " " + time + ".");
     }
 
     /**
@@ -92,14 +556,16 @@ public class PetCareScheduler {
         System.out.println("3. Store Data");
         System.out.println("4. Display Records");
         System.out.println("5. Generate Reports");
-        System.out.println("6. Exit");
+        System.out.println("6. Manage Appointments");
+        System.out.println("7. Find Available Slots");
+        System.out.println("8. Exit");
         System.out.println("==========================");
     }
 
     /**
      * Registers a new pet in the system.
      * Collects pet information from the user, validates that the pet ID is unique,
-     * creates a Pet object, and adds it to the pets list.
+     * creates a Pet object, and registers it through the booking service.
      * Registration date is automatically set to the current date.
      */
     private static void registerPet() {
@@ -121,9 +587,12 @@ public class PetCareScheduler {
             String contactInfo = getStringInput("Enter Contact Info: ");
             LocalDate dateOfRegistration = LocalDate.now(); // Current date
 
-            // Create and add new pet to the system
+            // Create and add new pet to the system; another client may have taken the ID meanwhile
             Pet pet = new Pet(petID, petName, specieBreed, petAge, ownerName, contactInfo, dateOfRegistration);
-            pets.add(pet);
+            if (bookingService.registerPet(pet) == BookingService.Result.DUPLICATE_PET) {
+                System.out.println("Error: Pet with ID " + petID + " already exists.");
+                return;
+            }
 
             System.out.println("Pet registered successfully!");
         } catch (Exception e) {
@@ -134,7 +603,8 @@ public class PetCareScheduler {
     /**
      * Schedules a new appointment for a registered pet.
      * Validates that a pet exists, verifies appointment type, ensures appointment
-     * is in the future, and adds the appointment to both the pet's and global appointments list.
+     * is in the future, and books the slot through the booking service, which adds the
+     * appointment to both the pet's and global appointments list.
      */
     private static void scheduleAppointment() {
         try {
@@ -157,7 +627,7 @@ public class PetCareScheduler {
 
             // Get and validate appointment type
             String appointmentType = getStringInput("Enter Appointment Type (e.g., Checkup, Vaccination): ");
-            List<String> validTypes = Arrays.asList("Checkup", "Vaccination", "Surgery", "Emergency", "Grooming");
+            List<String> validTypes = BookingService.VALID_TYPES;
             if (!validTypes.contains(appointmentType)) {
                 System.out.println("Invalid appointment type. Valid types: " + validTypes);
                 return;
@@ -174,13 +644,38 @@ public class PetCareScheduler {
                 return;
             }
 
-            // Get optional notes and create appointment
+            // Get optional notes and an optional repeat rule, then book the slot(s)
             String notes = getStringInput("Enter Notes (optional): ");
-            Apointment appointment = new Apointment(appointmentType, appointmentDate, appointmentTime, notes);
-
-            // Add appointment to both pet's appointment list and global appointments list
-            pet.getAppointments().add(appointment);
-            appointments.add(appointment);
+            String repeat = getStringInput("Repeat rule (blank for none, e.g. FREQ=MONTHLY;INTERVAL=12): ");
+            BookingService.Result result;
+            if (repeat.isEmpty()) {
+                result = bookingService.scheduleAppointment(
+                        pet.getPetID(), appointmentType, appointmentDate, appointmentTime, notes);
+            } else {
+                RecurrenceRule rule;
+                try {
+                    rule = RecurrenceRule.parse(repeat);
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Error: " + e.getMessage());
+                    return;
+                }
+                result = bookingService.scheduleSeries(
+                        pet.getPetID(), appointmentType, appointmentDate, appointmentTime, rule, notes);
+            }
+            if (result == BookingService.Result.SLOT_TAKEN || result == BookingService.Result.NO_CAPACITY
+                    || result == BookingService.Result.QUOTA_EXCEEDED || result == BookingService.Result.OUTSIDE_HOURS) {
+                System.out.println("Error: " + describe(result));
+                LocalDateTime earliest = bookingService.findEarliestSlot(appointmentType, appointmentDateTime, pet.getPetID());
+                if (earliest != null) {
+                    System.out.println("Earliest available " + appointmentType + " slot: " + earliest.toLocalDate()
+                            + " " + TemporalCodec.formatHourMinute(earliest.toLocalTime()));
+                }
+                return;
+            }
+            if (result != BookingService.Result.BOOKED) {
+                System.out.println("Error: Appointment could not be booked (" + result + ").");
+                return;
+            }
 
             System.out.println("Appointment scheduled successfully for " + pet.getPetName() + "!");
         } catch (Exception e) {
@@ -189,28 +684,319 @@ public class PetCareScheduler {
     }
 
     /**
-     * Saves all pet and appointment data to files.
-     * This persists the current state so data is not lost when the application closes.
+     * Displays a submenu for finding free capacity.
+     * Options are the earliest slot for one appointment type, booking a whole waiting list
+     * into the earliest slots in priority order, or waiting for a slot in a preferred window.
+     */
+    private static void findAvailableSlots() {
+        System.out.println("\n--- Find Available Slots ---");
+        System.out.println("1. Earliest Slot for an Appointment Type");
+        System.out.println("2. Auto-Schedule Waiting List");
+        System.out.println("3. Join Waitlist for a Time Window");
+        System.out.println("4. View Waitlist");
+
+        switch (getIntInput("Enter your choice: ")) {
+            case 1:
+                String appointmentType = getStringInput("Enter Appointment Type: ");
+                if (!BookingService.VALID_TYPES.contains(appointmentType)) {
+                    System.out.println("Invalid appointment type. Valid types: " + BookingService.VALID_TYPES);
+                    return;
+                }
+                LocalDateTime earliest = bookingService.findEarliestSlot(appointmentType, LocalDateTime.now());
+                if (earliest == null) {
+                    System.out.println("No free " + appointmentType + " slot within the next year.");
+                } else {
+                    System.out.println("Earliest available " + appointmentType + " slot: " + earliest.toLocalDate()
+                            + " " + TemporalCodec.formatHourMinute(earliest.toLocalTime()));
+                }
+                break;
+            case 2:
+                autoScheduleWaitingList();
+                break;
+            case 3:
+                joinWaitlist();
+                break;
+            case 4:
+                viewWaitlist();
+                break;
+            default:
+                System.out.println("Invalid choice.");
+        }
+    }
+
+    /**
+     * Collects a waiting list from the user and books every entry into the earliest feasible slot.
+     * Higher-priority types (e.g. Surgery) are placed before lower-priority ones (e.g. Grooming).
+     */
+    private static void autoScheduleWaitingList() {
+        System.out.println("Enter one entry per line as PetID,Type (blank line to finish):");
+        List<BookingService.SlotRequest> requests = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        while (true) {
+            String line = getStringInput("> ");
+            if (line.isEmpty()) {
+                break;
+            }
+            String[] parts = line.split(",", 2);
+            if (parts.length < 2) {
+                System.out.println("Expected PetID,Type; entry skipped.");
+                continue;
+            }
+            requests.add(new BookingService.SlotRequest(parts[0].trim(), parts[1].trim(), now, ""));
+        }
+
+        List<LocalDateTime> placed = bookingService.autoSchedule(requests);
+        for (int i = 0; i < requests.size(); i++) {
+            BookingService.SlotRequest request = requests.get(i);
+            LocalDateTime start = placed.get(i);
+            System.out.println(request.getPetID() + " " + request.getAppointmentType() + ": "
+                    + (start == null ? "not scheduled" : start.toLocalDate() + " "
+                    + TemporalCodec.formatHourMinute(start.toLocalTime())));
+        }
+    }
+
+    /**
+     * Books a pet into the earliest free slot of a preferred window, or puts it on the waitlist
+     * to be booked automatically when a slot in the window is cancelled or moved.
+     */
+    private static void joinWaitlist() {
+        String petID = getStringInput("Enter Pet ID: ");
+        String appointmentType = getStringInput("Enter Appointment Type: ");
+        LocalDate fromDate = getDateInput("Earliest Date (yyyy-MM-dd): ");
+        LocalTime fromTime = getTimeInput("Earliest Time (HH:mm): ");
+        LocalDate toDate = getDateInput("Latest Date (yyyy-MM-dd): ");
+        LocalTime toTime = getTimeInput("Latest Time (HH:mm): ");
+        String notes = getStringInput("Enter Notes (optional): ");
+        LocalDateTime from = LocalDateTime.of(fromDate, fromTime);
+        LocalDateTime to = LocalDateTime.of(toDate, toTime);
+        if (to.isBefore(from)) {
+            System.out.println("Error: The latest start must not be before the earliest start.");
+            return;
+        }
+
+        BookingService.Result result = bookingService.joinWaitlist(
+                new BookingService.SlotRequest(petID, appointmentType, from, to, notes));
+        switch (result) {
+            case BOOKED:
+                System.out.println("A slot in that window was free and has been booked.");
+                break;
+            case WAITLISTED:
+                System.out.println("No slot in that window is free; the pet is on the waitlist.");
+                break;
+            case PET_NOT_FOUND:
+                System.out.println("Error: Pet with ID " + petID + " not found.");
+                break;
+            case INVALID_TYPE:
+                System.out.println("Invalid appointment type. Valid types: " + BookingService.VALID_TYPES);
+                break;
+            case IN_PAST:
+                System.out.println("Error: The window must end in the future.");
+                break;
+            default:
+                System.out.println("Error: " + describe(result));
+        }
+    }
+
+    /**
+     * Lists the requests waiting for a slot and lets the user take one off the waitlist.
+     */
+    private static void viewWaitlist() {
+        List<BookingService.SlotRequest> waiting = bookingService.getWaitlist();
+        if (waiting.isEmpty()) {
+            System.out.println("The waitlist is empty.");
+            return;
+        }
+        System.out.println("\n=== Waitlist ===");
+        for (int i = 0; i < waiting.size(); i++) {
+            BookingService.SlotRequest request = waiting.get(i);
+            LocalDateTime latest = request.getLatest();
+            System.out.println((i + 1) + ". " + request.getPetID() + " " + request.getAppointmentType() + " from "
+                    + request.getEarliest().toLocalDate() + " " + TemporalCodec.formatHourMinute(request.getEarliest().toLocalTime())
+                    + (latest == null ? "" : " to " + latest.toLocalDate() + " " + TemporalCodec.formatHourMinute(latest.toLocalTime())));
+        }
+        int index = getIntInput("Remove entry (0 to go back): ");
+        if (index >= 1 && index <= waiting.size()) {
+            System.out.println(bookingService.leaveWaitlist(waiting.get(index - 1))
+                    ? "Entry removed from the waitlist." : "The entry has already been booked.");
+        }
+    }
+
+    /**
+     * Describes why a booking was rejected.
+     *
+     * @param result the booking result
+     * @return a message for the user
+     */
+    private static String describe(BookingService.Result result) {
+        switch (result) {
+            case SLOT_TAKEN:
+                return "The pet already has an appointment at that date and time.";
+            case NO_CAPACITY:
+                return "No room or vet is free for the whole appointment.";
+            case QUOTA_EXCEEDED:
+                return "The daily limit for this appointment type has been reached.";
+            case OUTSIDE_HOURS:
+                return "The appointment must fit within opening hours ("
+                        + TemporalCodec.formatHourMinute(allocationEngine.getOpening()) + "-"
+                        + TemporalCodec.formatHourMinute(allocationEngine.getClosing()) + ").";
+            default:
+                return "Appointment could not be booked (" + result + ").";
+        }
+    }
+
+    /**
+     * Reschedules or cancels one of a pet's appointments, or one occurrence of a recurring series.
+     * The pet's appointments are listed in chronological order, followed by its series, and the change
+     * goes through the booking service, which keeps the pet's timeline, the global list and the reports in step.
+     */
+    private static void manageAppointments() {
+        System.out.println("\n--- Manage Appointments ---");
+        String petID = getStringInput("Enter Pet ID: ");
+        Pet pet = findPetByID(petID);
+        if (pet == null) {
+            System.out.println("Error: Pet with ID " + petID + " not found.");
+            return;
+        }
+
+        List<Apointment> history;
+        synchronized (pet) {
+            history = new ArrayList<>(pet.getAppointments());
+        }
+        List<RecurringSeries> seriesList = bookingService.getSeriesOf(pet.getPetID());
+        if (history.isEmpty() && seriesList.isEmpty()) {
+            System.out.println("No appointments found for " + pet.getPetName() + ".");
+            return;
+        }
+        for (int i = 0; i < history.size(); i++) {
+            System.out.println((i + 1) + ". " + history.get(i));
+        }
+        for (int i = 0; i < seriesList.size(); i++) {
+            System.out.println((history.size() + i + 1) + ". " + seriesList.get(i));
+        }
+        int index = getIntInput("Select appointment (0 to go back): ");
+        if (index > history.size() && index <= history.size() + seriesList.size()) {
+            manageSeriesOccurrence(seriesList.get(index - history.size() - 1));
+            return;
+        }
+        if (index < 1 || index > history.size()) {
+            return;
+        }
+        Apointment appointment = history.get(index - 1);
+
+        System.out.println("1. Reschedule");
+        System.out.println("2. Cancel");
+        BookingService.Result result;
+        switch (getIntInput("Enter your choice: ")) {
+            case 1:
+                LocalDate newDate = getDateInput("Enter New Date (yyyy-MM-dd): ");
+                LocalTime newTime = getTimeInput("Enter New Time (HH:mm): ");
+                result = bookingService.rescheduleAppointment(appointment, newDate, newTime);
+                break;
+            case 2:
+                result = bookingService.cancelAppointment(appointment);
+                break;
+            default:
+                System.out.println("Invalid choice.");
+                return;
+        }
+
+        switch (result) {
+            case BOOKED:
+                System.out.println("Appointment rescheduled successfully.");
+                break;
+            case CANCELLED:
+                System.out.println("Appointment cancelled successfully.");
+                break;
+            case IN_PAST:
+                System.out.println("Error: Appointment must be scheduled for a future date and time.");
+                break;
+            case APPOINTMENT_NOT_FOUND:
+                System.out.println("Error: The appointment was changed by someone else. Please try again.");
+                break;
+            default:
+                System.out.println("Error: " + describe(result));
+        }
+    }
+
+    /**
+     * Moves or cancels a single occurrence of a recurring series; the rest of the series is unchanged.
+     *
+     * @param series the series
+     */
+    private static void manageSeriesOccurrence(RecurringSeries series) {
+        System.out.println("1. Move One Occurrence");
+        System.out.println("2. Cancel One Occurrence");
+        int choice = getIntInput("Enter your choice: ");
+        if (choice != 1 && choice != 2) {
+            System.out.println("Invalid choice.");
+            return;
+        }
+        LocalDate originalDate = getDateInput("Enter Occurrence Date (yyyy-MM-dd): ");
+        BookingService.Result result;
+        try {
+            if (choice == 1) {
+                LocalDate newDate = getDateInput("Enter New Date (yyyy-MM-dd): ");
+                LocalTime newTime = getTimeInput("Enter New Time (HH:mm): ");
+                result = bookingService.moveSeriesOccurrence(series, originalDate, LocalDateTime.of(newDate, newTime));
+            } else {
+                result = bookingService.cancelSeriesOccurrence(series, originalDate);
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: " + e.getMessage());
+            return;
+        }
+
+        switch (result) {
+            case BOOKED:
+                System.out.println("Occurrence moved successfully.");
+                break;
+            case CANCELLED:
+                System.out.println("Occurrence cancelled successfully.");
+                break;
+            case IN_PAST:
+                System.out.println("Error: Appointment must be scheduled for a future date and time.");
+                break;
+            case APPOINTMENT_NOT_FOUND:
+                System.out.println("Error: That occurrence is already cancelled.");
+                break;
+            default:
+                System.out.println("Error: " + describe(result));
+        }
+    }
+
+    /**
+     * Makes sure all data is safely on disk.
+     * Pets and appointments are already written to the record store as they change, so this
+     * forces those writes to disk and refreshes the compressed snapshot of them; recurring series
+     * and the waitlist are saved to their files.
      */
     private static void storeData() {
+        long start = Metrics.start();
         try {
-            savePetsToFile();
-            saveAppointmentsToFile();
+            if (storage != null) {
+                storage.sync();
+                storage.writeSnapshot(PETS_SNAPSHOT, APPOINTMENTS_SNAPSHOT, ARCHIVE_SNAPSHOT);
+            }
+            saveSeriesToFile();
+            saveWaitlistToFile();
             System.out.println("Data stored successfully!");
         } catch (IOException e) {
             System.out.println("Error storing data: " + e.getMessage());
         }
+        STORE_LATENCY.recordSince(start);
     }
 
     /**
      * Displays a submenu for viewing different types of records.
-     * Options include viewing all pets, all appointments, or details for a specific pet.
+     * Options include viewing all pets, all appointments, details for a specific pet, or searching
+     * for pets by name, owner or breed.
      */
     private static void displayRecords() {
         System.out.println("\n--- Display Records ---");
         System.out.println("1. Display All Pets");
         System.out.println("2. Display All Appointments");
         System.out.println("3. Display Pet Details");
+        System.out.println("4. Search Pets by Name, Owner or Breed");
 
         int choice = getIntInput("Enter your choice: ");
 
@@ -225,14 +1011,18 @@ public class PetCareScheduler {
             case 3:
                 displayPetDetails();
                 break;
+            case 4:
+                searchPets();
+                break;
             default:
                 System.out.println("Invalid choice.");
         }
     }
 
     /**
-     * Displays a summary list of all registered pets.
-     * Shows pet ID, name, species/breed, and owner name for each pet.
+     * Displays a summary list of the registered pets, one page at a time.
+     * Shows pet ID, name, species/breed, and owner name for each pet, sorted and
+     * filtered as chosen by the user.
      */
     private static void displayAllPets() {
         if (pets.isEmpty()) {
@@ -240,27 +1030,122 @@ public class PetCareScheduler {
             return;
         }
 
-        System.out.println("\n=== All Pets ===");
-        for (Pet pet : pets) {
-            System.out.println("ID: " + pet.getPetID() + " | Name: " + pet.getPetName() +
-                    " | Species/Breed: " + pet.getSpecieBreed() +
-                    " | Owner: " + pet.getOwnerName());
+        System.out.println("Sort by: 1. ID  2. Name  3. Owner  4. Age");
+        Comparator<Pet> byID = Comparator.comparing(pet -> pet.getPetID().toLowerCase());
+        Comparator<Pet> order;
+        switch (getIntInput("Enter your choice: ")) {
+            case 2:
+                order = Comparator.comparing((Pet pet) -> pet.getPetName().toLowerCase()).thenComparing(byID);
+                break;
+            case 3:
+                order = Comparator.comparing((Pet pet) -> pet.getOwnerName().toLowerCase()).thenComparing(byID);
+                break;
+            case 4:
+                order = Comparator.comparingInt(Pet::getPetAge).thenComparing(byID);
+                break;
+            default:
+                order = byID;
         }
+        String filter = getStringInput("Filter by ID, name, species or owner (blank for all): ").toLowerCase();
+        Predicate<Pet> matches = pet -> filter.isEmpty()
+                || pet.getPetID().toLowerCase().contains(filter)
+                || pet.getPetName().toLowerCase().contains(filter)
+                || pet.getSpecieBreed().toLowerCase().contains(filter)
+                || pet.getOwnerName().toLowerCase().contains(filter);
+
+        System.out.println("\n=== All Pets ===");
+        pageThrough(new PagedListing<>(pets::forEach, order, matches, PAGE_SIZE), (pet, out) -> {
+            out.print("ID: ");
+            out.print(pet.getPetID());
+            out.print(" | Name: ");
+            out.print(pet.getPetName());
+            out.print(" | Species/Breed: ");
+            out.print(pet.getSpecieBreed());
+            out.print(" | Owner: ");
+            out.println(pet.getOwnerName());
+        });
     }
 
     /**
-     * Displays all scheduled appointments in the system.
-     * Shows detailed information for each appointment.
+     * Displays the scheduled appointments, one page at a time.
+     * Shows detailed information for each appointment, sorted and filtered as chosen by the user.
      */
     private static void displayAllAppointments() {
-        if (appointments.isEmpty()) {
+        if (reportViews.getTotalAppointments() == 0) {
             System.out.println("No appointments scheduled.");
             return;
         }
 
+        System.out.println("Sort by: 1. Date/Time  2. Type  3. Pet ID");
+        Comparator<Apointment> byStart = Comparator.comparing(Apointment::getAppointmentDate)
+                .thenComparing(Apointment::getAppointmentTime);
+        Comparator<Apointment> order;
+        switch (getIntInput("Enter your choice: ")) {
+            case 2:
+                order = Comparator.comparing(Apointment::getAppointmentType).thenComparing(byStart);
+                break;
+            case 3:
+                order = Comparator.comparing((Apointment apt) -> apt.getPetID() == null ? "" : apt.getPetID().toLowerCase())
+                        .thenComparing(byStart);
+                break;
+            default:
+                order = byStart;
+        }
+        String filter = getStringInput("Filter by type or pet ID (blank for all): ").toLowerCase();
+        Predicate<Apointment> matches = apt -> filter.isEmpty()
+                || apt.getAppointmentType().toLowerCase().contains(filter)
+                || (apt.getPetID() != null && apt.getPetID().toLowerCase().contains(filter));
+
         System.out.println("\n=== All Appointments ===");
-        for (Apointment apt : appointments) {
-            System.out.println(apt);
+        // Archived appointments are streamed from disk for each page rather than held in memory
+        Consumer<Consumer<Apointment>> source = action -> {
+            if (storage != null) {
+                try {
+                    storage.forEachArchivedAppointment(action);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            appointments.forEach(action);
+        };
+        pageThrough(new PagedListing<>(source, order, matches, PAGE_SIZE),
+                (apt, out) -> out.println(apt));
+    }
+
+    /**
+     * Renders a listing page by page, asking before each further page.
+     *
+     * @param listing the listing to page through
+     * @param renderer writes a single record
+     * @param <T> the record type
+     */
+    private static <T> void pageThrough(PagedListing<T> listing, PagedListing.Renderer<? super T> renderer) {
+        while (listing.renderNextPage(listingOut, renderer)) {
+            if (getStringInput("Press Enter for the next page, or q to stop: ").equalsIgnoreCase("q")) {
+                return;
+            }
+        }
+        if (listing.getMatchCount() == 0) {
+            System.out.println("No matching records.");
+        }
+    }
+
+    /**
+     * Finds pets by name, owner name or breed, tolerating misspellings,
+     * and lists the best matches with their IDs for use in the other options.
+     */
+    private static void searchPets() {
+        String query = getStringInput("Enter a pet name, owner name or breed: ");
+        List<PetSearchIndex.Match> matches = petSearch.search(query, SEARCH_LIMIT, PetSearchIndex.DEFAULT_MIN_SCORE);
+        if (matches.isEmpty()) {
+            System.out.println("No matching pets.");
+            return;
+        }
+        System.out.println("\n=== Matching Pets ===");
+        for (PetSearchIndex.Match match : matches) {
+            Pet pet = match.getPet();
+            System.out.printf("%s: %s (%s), owner %s [%.0f%%]%n", pet.getPetID(), pet.getPetName(),
+                    pet.getSpecieBreed(), pet.getOwnerName(), match.getScore() * 100);
         }
     }
 
@@ -286,12 +1171,30 @@ public class PetCareScheduler {
         System.out.println("Owner: " + pet.getOwnerName());
         System.out.println("Contact: " + pet.getContactInfo());
         System.out.println("Registration Date: " + pet.getDateOfRegistration());
-        System.out.println("Appointments: " + pet.getAppointments().size());
+
+        // Past days are read back from the archive; the booking service changes the rest under the pet's lock
+        List<Apointment> history = new ArrayList<>();
+        if (storage != null) {
+            try {
+                history.addAll(storage.loadArchivedAppointments(pet.getPetID()));
+            } catch (IOException e) {
+                System.out.println("Error reading archived appointments: " + e.getMessage());
+            }
+        }
+        synchronized (pet) {
+            System.out.println("Appointments: " + pet.getAppointmentCount());
+            LocalDateTime now = LocalDateTime.now();
+            Apointment lastVisit = pet.getTimeline().getLastBefore(now);
+            Apointment nextVisit = pet.getTimeline().getNextFrom(now);
+            System.out.println("Last Visit: " + (lastVisit != null ? lastVisit : "none"));
+            System.out.println("Next Visit: " + (nextVisit != null ? nextVisit : "none"));
+            history.addAll(pet.getAppointments());
+        }
 
         // Display appointment history if appointments exist
-        if (!pet.getAppointments().isEmpty()) {
+        if (!history.isEmpty()) {
             System.out.println("\nAppointment History:");
-            for (Apointment apt : pet.getAppointments()) {
+            for (Apointment apt : history) {
                 System.out.println("  - " + apt);
             }
         }
@@ -299,13 +1202,14 @@ public class PetCareScheduler {
 
     /**
      * Displays a submenu for generating various reports.
-     * Options include total pets, upcoming appointments, and appointments by type.
+     * Options include total pets, upcoming appointments, appointments by type, and preventive care due.
      */
     private static void generateReports() {
         System.out.println("\n--- Generate Reports ---");
         System.out.println("1. Total Pets Report");
         System.out.println("2. Upcoming Appointments Report");
         System.out.println("3. Appointments by Type Report");
+        System.out.println("4. Preventive Care Due Report");
 
         int choice = getIntInput("Enter your choice: ");
 
@@ -320,39 +1224,33 @@ public class PetCareScheduler {
             case 3:
                 generateAppointmentsByTypeReport();
                 break;
+            case 4:
+                generatePreventiveCareReport();
+                break;
             default:
                 System.out.println("Invalid choice.");
         }
     }
 
     /**
-     * Generates a report of pets that haven't had a veterinary visit in the last 6 months.
-     * This helps identify pets that may be overdue for checkups.
+     * Generates a report of pets overdue for a checkup or a vaccination.
+     * Due dates depend on each pet's species and age and on its latest appointment of that type,
+     * and are read from the preventive-care index instead of scanning every pet's history.
      */
-    private static void generateOverdueVetVisitReport() {
-        LocalDate sixMonthsAgo = LocalDate.now().minusMonths(6);
-        List<Pet> overduePets = new ArrayList<>();
-
-        // Find pets without recent appointments
-        for (Pet pet : pets) {
-            boolean hasRecentVisit = false;
-            for (Apointment apt : pet.getAppointments()) {
-                if (apt.getAppointmentDate().isAfter(sixMonthsAgo)) {
-                    hasRecentVisit = true;
-                    break;
-                }
-            }
-            // Add pet to overdue list if no recent visit and has appointments
-            if (!hasRecentVisit && !pet.getAppointments().isEmpty()) {
-                overduePets.add(pet);
+    private static void generatePreventiveCareReport() {
+        LocalDate today = LocalDate.now();
+        System.out.println("\n=== Pets Due for Preventive Care ===");
+        for (PreventiveCareEngine.Care care : PreventiveCareEngine.Care.values()) {
+            List<PreventiveCareEngine.Due> overdue = preventiveCare.getDueBy(care, today.minusDays(1));
+            int dueSoon = preventiveCare.countDueBy(care, today.plusDays(DUE_SOON_DAYS)) - overdue.size();
+            System.out.println("\n" + care.getAppointmentType() + ": " + overdue.size() + " overdue, "
+                    + dueSoon + " due within " + DUE_SOON_DAYS + " days");
+            for (PreventiveCareEngine.Due due : overdue) {
+                Pet pet = due.getPet();
+                System.out.println("ID: " + pet.getPetID() + " | Name: " + pet.getPetName()
+                        + " | Due since: " + TemporalCodec.formatIsoDate(due.getDueDate()));
             }
         }
-
-        System.out.println("\n=== Pets Overdue for Vet Visit ===");
-        System.out.println("Pets without a visit in the last 6 months: " + overduePets.size());
-        for (Pet pet : overduePets) {
-            System.out.println("ID: " + pet.getPetID() + " | Name: " + pet.getPetName());
-        }
     }
 
     /**
@@ -361,44 +1259,56 @@ public class PetCareScheduler {
      */
     private static void generateTotalPetsReport() {
         System.out.println("\n=== Total Pets Report ===");
-        System.out.println("Total Pets Registered: " + pets.size());
-        System.out.println("Total Appointments: " + appointments.size());
+        System.out.println("Total Pets Registered: " + reportViews.getTotalPets());
+        System.out.println("Total Appointments: " + reportViews.getTotalAppointments());
     }
 
     /**
      * Generates a report of all upcoming appointments (today and future dates).
-     * Filters appointments and displays them chronologically.
+     * Reads the date-sorted upcoming queue and displays it chronologically.
+     * Recurring series are expanded for the next few months and merged into the listing.
      */
     private static void generateUpcomingAppointmentsReport() {
-        LocalDate today = LocalDate.now();
-        List<Apointment> upcoming = new ArrayList<>();
+        LocalDateTime now = LocalDate.now().atStartOfDay();
+        List<Apointment> recurring = seriesStore.occurrencesBetween(now, now.plusDays(RECURRING_REPORT_DAYS));
 
-        // Filter appointments that are today or in the future
-        for (Apointment apt : appointments) {
-            if (!apt.getAppointmentDate().isBefore(today)) {
-                upcoming.add(apt);
+        System.out.println("\n=== Upcoming Appointments ===");
+        System.out.println("Total Upcoming: " + reportViews.getUpcomingCount());
+        System.out.println("Recurring occurrences in the next " + RECURRING_REPORT_DAYS + " days: " + recurring.size());
+
+        // Merge the two chronological sequences
+        int next = 0;
+        for (List<Apointment> slot : reportViews.getUpcoming()) {
+            LocalDateTime slotTime = LocalDateTime.of(slot.get(0).getAppointmentDate(), slot.get(0).getAppointmentTime());
+            while (next < recurring.size() && startOf(recurring.get(next)).isBefore(slotTime)) {
+                System.out.println(recurring.get(next++) + " (recurring)");
+            }
+            for (Apointment apt : slot) {
+                System.out.println(apt);
             }
         }
-
-        System.out.println("\n=== Upcoming Appointments ===");
-        System.out.println("Total Upcoming: " + upcoming.size());
-        for (Apointment apt : upcoming) {
-            System.out.println(apt);
+        while (next < recurring.size()) {
+            System.out.println(recurring.get(next++) + " (recurring)");
         }
     }
 
+    /**
+     * Combines an appointment's date and time.
+     *
+     * @param apt the appointment
+     * @return the appointment's start date and time
+     */
+    private static LocalDateTime startOf(Apointment apt) {
+        return LocalDateTime.of(apt.getAppointmentDate(), apt.getAppointmentTime());
+    }
+
     /**
      * Generates a report showing the count of appointments by type.
      * Groups appointments (Checkup, Vaccination, Surgery, etc.) and shows frequency.
+     * Counts come from the per-type counters kept up to date on every schedule.
      */
     private static void generateAppointmentsByTypeReport() {
-        Map<String, Integer> typeCount = new HashMap<>();
-
-        // Count appointments by type
-        for (Apointment apt : appointments) {
-            String type = apt.getAppointmentType();
-            typeCount.put(type, typeCount.getOrDefault(type, 0) + 1);
-        }
+        Map<String, Integer> typeCount = reportViews.getTypeCounts();
 
         System.out.println("\n=== Appointments by Type ===");
         for (Map.Entry<String, Integer> entry : typeCount.entrySet()) {
@@ -407,12 +1317,92 @@ public class PetCareScheduler {
     }
 
     /**
-     * Loads all persisted data from files at application startup.
-     * Delegates to specific loader methods for pets and appointments.
+     * Loads all persisted data at application startup.
+     * Pets and appointments come from the record store; if it is empty they are restored from the
+     * last snapshot, or on the first run with a record store the legacy pet and appointment files
+     * are imported into it instead.
      */
     private static void loadDataFromFiles() {
-        loadPetsFromFile();
-        loadAppointmentsFromFile();
+        try {
+            storage = new PetCareStorage(DATA_DIRECTORY);
+        } catch (IOException e) {
+            System.out.println("Error opening the record store: " + e.getMessage());
+        }
+
+        if (storage != null && !storage.isEmpty()) {
+            loadFromRecordStore();
+        } else if (Files.exists(PETS_SNAPSHOT)) {
+            // Registered through the booking service, which writes each record to the new store
+            loadFromSnapshot();
+        } else {
+            // Registered through the booking service, which writes each record to the new store
+            loadPetsFromFile();
+            loadAppointmentsFromFile();
+        }
+        loadSeriesFromFile();
+        loadWaitlistFromFile();
+    }
+
+    /**
+     * Moves the appointments of past days out of memory and into the archive, once a day.
+     */
+    private static void archivePastAppointments() {
+        LocalDate today = LocalDate.now();
+        if (bookingService.archiveBefore(today) > 0) {
+            synchronized (appointments) {
+                appointments.removeIf(apt -> apt.getAppointmentDate().isBefore(today));
+            }
+        }
+    }
+
+    /**
+     * Loads pets and appointments from the record store.
+     */
+    private static void loadFromRecordStore() {
+        restoring = true;
+        try {
+            for (Pet pet : storage.loadPets()) {
+                bookingService.restorePet(pet);
+            }
+            // Archived appointments only update the reports and the pets' latest visits
+            storage.forEachArchivedAppointment(apt -> {
+                reportViews.onAppointmentScheduled(apt);
+                bookingService.restoreArchived(apt);
+            });
+            for (Apointment apt : storage.loadAppointments()) {
+                bookingService.restoreAppointment(apt);
+            }
+            System.out.println("Loaded " + pets.size() + " pets and " + reportViews.getTotalAppointments() + " appointments.");
+        } catch (IOException e) {
+            System.out.println("Error loading data: " + e.getMessage());
+        } finally {
+            restoring = false;
+        }
+    }
+
+    /**
+     * Restores pets and appointments from the snapshot written by the last "Store Data",
+     * reading one compressed block at a time. A damaged block fails its checksum and stops the
+     * restore with an error, keeping the records read before it, rather than restoring wrong records.
+     */
+    private static void loadFromSnapshot() {
+        try (BlockFile.Reader<Pet> petFile = BlockFile.Reader.open(PETS_SNAPSHOT, new PetCodec())) {
+            petFile.forEach((id, pet) -> bookingService.restorePet(pet));
+            if (Files.exists(APPOINTMENTS_SNAPSHOT)) {
+                try (BlockFile.Reader<Apointment> appointmentFile = BlockFile.Reader.open(APPOINTMENTS_SNAPSHOT, new AppointmentCodec())) {
+                    appointmentFile.forEach((key, apt) -> bookingService.restoreAppointment(apt));
+                }
+            }
+            // Restored like current ones; the archiving pass after loading moves them back to the archive
+            if (Files.exists(ARCHIVE_SNAPSHOT)) {
+                try (BlockFile.Reader<Apointment> archiveFile = BlockFile.Reader.open(ARCHIVE_SNAPSHOT, new AppointmentCodec())) {
+                    archiveFile.forEach((key, apt) -> bookingService.restoreAppointment(apt));
+                }
+            }
+            System.out.println("Restored " + pets.size() + " pets and " + appointments.size() + " appointments from the snapshot.");
+        } catch (IOException e) {
+            System.out.println("Error restoring the snapshot: " + e.getMessage());
+        }
     }
 
     /**
@@ -434,8 +1424,8 @@ public class PetCareScheduler {
                 if (parts.length == 7) {
                     Pet pet = new Pet(parts[0], parts[1], parts[2],
                             Integer.parseInt(parts[3]), parts[4],
-                            parts[5], LocalDate.parse(parts[6], DATE_FORMATTER));
-                    pets.add(pet);
+                            parts[5], TemporalCodec.requireIsoDate(parts[6]));
+                    bookingService.restorePet(pet);
                 }
             }
             System.out.println("Loaded " + pets.size() + " pets from file.");
@@ -444,28 +1434,10 @@ public class PetCareScheduler {
         }
     }
 
-    /**
-     * Saves all pets to the pets file in pipe-delimited format.
-     * Creates or overwrites the file with current pet data.
-     *
-     * @throws IOException if file write operation fails
-     */
-    private static void savePetsToFile() throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(PETS_FILE))) {
-            for (Pet pet : pets) {
-                // Format: petID|petName|specieBreed|age|ownerName|contactInfo|registrationDate
-                writer.write(pet.getPetID() + "|" + pet.getPetName() + "|" +
-                        pet.getSpecieBreed() + "|" + pet.getPetAge() + "|" +
-                        pet.getOwnerName() + "|" + pet.getContactInfo() + "|" +
-                        pet.getDateOfRegistration().format(DATE_FORMATTER));
-                writer.newLine();
-            }
-        }
-    }
-
     /**
      * Loads appointment data from the appointments file.
      * Parses pipe-delimited format and creates Appointment objects.
+     * Appointments that carry a pet ID are re-attached to the owning pet.
      * Silently returns if file doesn't exist (first run scenario).
      */
     private static void loadAppointmentsFromFile() {
@@ -478,13 +1450,16 @@ public class PetCareScheduler {
             String line;
             while ((line = reader.readLine()) != null) {
                 // Parse pipe-delimited appointment data
-                String[] parts = line.split("\\|");
+                String[] parts = line.split("\\|", -1);
                 if (parts.length >= 4) {
-                    Apointment apt = new Apointment(parts[0],
-                            LocalDate.parse(parts[1], DATE_FORMATTER),
-                            LocalTime.parse(parts[2], TIME_FORMATTER),
-                            parts.length > 3 ? parts[3] : "");
-                    appointments.add(apt);
+                    String petID = parts.length > 4 && !parts[4].isEmpty() ? parts[4] : null;
+                    Apointment apt = new Apointment(petID, parts[0],
+                            TemporalCodec.requireIsoDate(parts[1]),
+                            TemporalCodec.requireHourMinute(parts[2]),
+                            parts[3]);
+
+                    // Claims the slot and links the appointment back to its pet when the record names one
+                    bookingService.restoreAppointment(apt);
                 }
             }
             System.out.println("Loaded " + appointments.size() + " appointments from file.");
@@ -494,38 +1469,124 @@ public class PetCareScheduler {
     }
 
     /**
-     * Saves all appointments to the appointments file in pipe-delimited format.
-     * Creates or overwrites the file with current appointment data.
+     * Loads recurring series from the series file.
+     * Format: seriesID|petID|type|startDate|time|rule|notes|cancelledDates|movedOccurrences,
+     * where cancelled dates are ';'-separated and moved occurrences are ';'-separated date=dateTime pairs.
+     * Silently returns if file doesn't exist (first run scenario).
+     */
+    private static void loadSeriesFromFile() {
+        File file = new File(SERIES_FILE);
+        if (!file.exists()) {
+            return; // File doesn't exist, skip loading
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\\|", -1);
+                if (parts.length == 9) {
+                    RecurringSeries series = new RecurringSeries(parts[0], parts[1], parts[2],
+                            TemporalCodec.requireIsoDate(parts[3]),
+                            TemporalCodec.requireHourMinute(parts[4]),
+                            RecurrenceRule.parse(parts[5]), parts[6]);
+                    for (String date : parts[7].split(";")) {
+                        if (!date.isEmpty()) {
+                            series.cancelOccurrence(TemporalCodec.requireIsoDate(date));
+                        }
+                    }
+                    for (String move : parts[8].split(";")) {
+                        if (!move.isEmpty()) {
+                            String[] fromTo = move.split("=", 2);
+                            series.moveOccurrence(TemporalCodec.requireIsoDate(fromTo[0]), LocalDateTime.parse(fromTo[1]));
+                        }
+                    }
+                    bookingService.restoreSeries(series);
+                }
+            }
+            System.out.println("Loaded " + seriesStore.size() + " recurring series from file.");
+        } catch (IOException | IllegalArgumentException | DateTimeParseException e) {
+            System.out.println("Error loading recurring series: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves all recurring series to the series file.
+     * Only the rule and its exceptions are written, never the individual occurrences.
+     *
+     * @throws IOException if file write operation fails
+     */
+    private static void saveSeriesToFile() throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(SERIES_FILE))) {
+            for (RecurringSeries series : seriesStore.getAll()) {
+                StringJoiner cancelled = new StringJoiner(";");
+                for (LocalDate date : series.getCancelledDates()) {
+                    cancelled.add(TemporalCodec.formatIsoDate(date));
+                }
+                StringJoiner moved = new StringJoiner(";");
+                for (Map.Entry<LocalDate, LocalDateTime> move : series.getMovedOccurrences().entrySet()) {
+                    moved.add(TemporalCodec.formatIsoDate(move.getKey()) + "=" + move.getValue());
+                }
+                writer.write(series.getSeriesID() + "|" + series.getPetID() + "|" +
+                        series.getAppointmentType() + "|" +
+                        TemporalCodec.formatIsoDate(series.getStartDate()) + "|" +
+                        TemporalCodec.formatHourMinute(series.getAppointmentTime()) + "|" +
+                        series.getRule() + "|" +
+                        (series.getNotes() != null ? series.getNotes() : "") + "|" +
+                        cancelled + "|" + moved);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Loads the waitlist from its file, dropping entries whose window has closed.
+     * Entries keep the order in which they joined.
+     */
+    private static void loadWaitlistFromFile() {
+        File file = new File(WAITLIST_FILE);
+        if (!file.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\\|", -1);
+                if (parts.length == 5) {
+                    bookingService.restoreWaitlistEntry(new BookingService.SlotRequest(parts[0], parts[1],
+                            LocalDateTime.parse(parts[2]), parts[3].isEmpty() ? null : LocalDateTime.parse(parts[3]), parts[4]));
+                }
+            }
+        } catch (IOException | IllegalArgumentException | DateTimeParseException e) {
+            System.out.println("Error loading the waitlist: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the waitlist to its file, in the order the entries joined.
      *
      * @throws IOException if file write operation fails
      */
-    private static void saveAppointmentsToFile() throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(APPOINTMENTS_FILE))) {
-            for (Apointment apt : appointments) {
-                // Format: appointmentType|date|time|notes
-                writer.write(apt.getAppointmentType() + "|" +
-                        apt.getAppointmentDate().format(DATE_FORMATTER) + "|" +
-                        apt.getAppointmentTime().format(TIME_FORMATTER) + "|" +
-                        (apt.getNotes() != null ? apt.getNotes() : ""));
+    private static void saveWaitlistToFile() throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(WAITLIST_FILE))) {
+            for (BookingService.SlotRequest request : bookingService.getWaitlist()) {
+                writer.write(request.getPetID() + "|" + request.getAppointmentType() + "|" +
+                        request.getEarliest() + "|" + (request.getLatest() != null ? request.getLatest() : "") + "|" +
+                        (request.getNotes() != null ? request.getNotes() : ""));
                 writer.newLine();
             }
         }
     }
 
     /**
-     * Searches for a pet by its ID in the pets list.
+     * Searches for a pet by its ID in the booking service's pet index.
      * Case-insensitive search for convenience.
      *
      * @param petID the ID to search for
      * @return the Pet object if found, null otherwise
      */
     private static Pet findPetByID(String petID) {
-        for (Pet pet : pets) {
-            if (pet.getPetID().equalsIgnoreCase(petID)) {
-                return pet;
-            }
-        }
-        return null;
+        return bookingService.findPet(petID);
     }
 
     /**
@@ -569,7 +1630,7 @@ public class PetCareScheduler {
         while (true) {
             try {
                 System.out.print(prompt);
-                return LocalDate.parse(scanner.nextLine().trim(), DATE_FORMATTER);
+                return TemporalCodec.requireIsoDate(scanner.nextLine().trim());
             } catch (DateTimeParseException e) {
                 System.out.println("Invalid date format. Please use yyyy-MM-dd.");
             }
@@ -587,7 +1648,7 @@ public class PetCareScheduler {
         while (true) {
             try {
                 System.out.print(prompt);
-                return LocalTime.parse(scanner.nextLine().trim(), TIME_FORMATTER);
+                return TemporalCodec.requireHourMinute(scanner.nextLine().trim());
             } catch (DateTimeParseException e) {
                 System.out.println("Invalid time format. Please use HH:mm.");
             }
@@ -0,0 +1,232 @@
+package PetCareScheduler;
+
+import Common.BlockFile;
+import Common.RecordStore;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Incremental persistence for pets and appointments on top of the shared {@link RecordStore}.
+ *
+ * Every registration, booking, reschedule and cancellation is written as one record when it
+ * happens, instead of rewriting the pet and appointment files on "Store Data".
+ * Appointments have no natural ID, so each one is given a store key ("A1", "A2", ...) the first
+ * time it is saved; the keys are tracked by identity.
+ *
+ * Appointments of past days are moved to a separate archive store, keyed by pet, date and time, so
+ * they are not read at startup and a pet's history can be read back on its own when it is shown.
+ */
+public class PetCareStorage implements AutoCloseable {
+    private final RecordStore<Pet> petStore;
+    private final RecordStore<Apointment> appointmentStore;
+    private final RecordStore<Apointment> archiveStore;
+    private final Map<Apointment, String> appointmentKeys = new IdentityHashMap<>();
+    private long nextAppointmentKey = 1;
+
+    /**
+     * Constructor that opens (or creates) the stores in the given directory.
+     *
+     * @param directory the directory holding the store files
+     * @throws IOException if a store cannot be opened
+     */
+    public PetCareStorage(Path directory) throws IOException {
+        petStore = new RecordStore<>(directory, "pets", new PetCodec());
+        try {
+            appointmentStore = new RecordStore<>(directory, "appointments", new AppointmentCodec());
+        } catch (IOException e) {
+            petStore.close();
+            throw e;
+        }
+        try {
+            archiveStore = new RecordStore<>(directory, "appointment-archive", new AppointmentCodec());
+        } catch (IOException e) {
+            petStore.close();
+            appointmentStore.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether nothing has been stored yet.
+     *
+     * @return true if every store is empty
+     */
+    public boolean isEmpty() {
+        return petStore.size() == 0 && appointmentStore.size() == 0 && archiveStore.size() == 0;
+    }
+
+    /**
+     * Reads every stored pet, without appointments.
+     *
+     * @return the pets in ID order
+     * @throws IOException if a record cannot be read
+     */
+    public List<Pet> loadPets() throws IOException {
+        List<Pet> loaded = new ArrayList<>(petStore.size());
+        petStore.forEach((key, pet) -> loaded.add(pet));
+        return loaded;
+    }
+
+    /**
+     * Reads every stored appointment and remembers its key for later updates.
+     *
+     * @return the appointments in key order
+     * @throws IOException if a record cannot be read
+     */
+    public synchronized List<Apointment> loadAppointments() throws IOException {
+        List<Apointment> loaded = new ArrayList<>(appointmentStore.size());
+        appointmentStore.forEach((key, appointment) -> {
+            loaded.add(appointment);
+            appointmentKeys.put(appointment, key);
+            nextAppointmentKey = Math.max(nextAppointmentKey, Long.parseLong(key.substring(1)) + 1);
+        });
+        return loaded;
+    }
+
+    /**
+     * Reads every archived appointment, one at a time, without keeping them.
+     *
+     * @param action receives each archived appointment, in pet and date order
+     * @throws IOException if a record cannot be read
+     */
+    public void forEachArchivedAppointment(Consumer<? super Apointment> action) throws IOException {
+        archiveStore.forEach((key, appointment) -> {
+            // Appointment keys stay unique across both stores
+            long number = Long.parseLong(key.substring(key.lastIndexOf('/') + 2));
+            synchronized (this) {
+                nextAppointmentKey = Math.max(nextAppointmentKey, number + 1);
+            }
+            action.accept(appointment);
+        });
+    }
+
+    /**
+     * Reads a pet's archived appointments.
+     *
+     * @param petID the pet ID (case-insensitive)
+     * @return the archived appointments in chronological order
+     * @throws IOException if a record cannot be read
+     */
+    public List<Apointment> loadArchivedAppointments(String petID) throws IOException {
+        List<Apointment> loaded = new ArrayList<>();
+        archiveStore.forEachWithPrefix(petID.toLowerCase() + "/", (key, appointment) -> {
+            // The prefix also matches IDs that merely start with "<petID>/"
+            if (petID.equalsIgnoreCase(appointment.getPetID())) {
+                loaded.add(appointment);
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Saves a pet's own details.
+     *
+     * @param pet the pet
+     * @throws IOException if the record cannot be written
+     */
+    public void savePet(Pet pet) throws IOException {
+        petStore.put(pet.getPetID(), pet);
+    }
+
+    /**
+     * Saves a new or changed appointment.
+     *
+     * @param appointment the appointment
+     * @throws IOException if the record cannot be written
+     */
+    public void saveAppointment(Apointment appointment) throws IOException {
+        String key;
+        synchronized (this) {
+            key = appointmentKeys.computeIfAbsent(appointment, a -> "A" + nextAppointmentKey++);
+        }
+        appointmentStore.put(key, appointment);
+    }
+
+    /**
+     * Deletes a cancelled appointment.
+     *
+     * @param appointment the appointment
+     * @throws IOException if the deletion cannot be written
+     */
+    public void deleteAppointment(Apointment appointment) throws IOException {
+        String key;
+        synchronized (this) {
+            key = appointmentKeys.remove(appointment);
+        }
+        if (key != null) {
+            appointmentStore.delete(key);
+        }
+    }
+
+    /**
+     * Moves an appointment of a past day to the archive.
+     * It is written to the archive before it is deleted, so a crash in between at worst archives it again.
+     *
+     * @param appointment the appointment
+     * @throws IOException if the records cannot be written
+     */
+    public void archiveAppointment(Apointment appointment) throws IOException {
+        String key;
+        synchronized (this) {
+            key = appointmentKeys.remove(appointment);
+            if (key == null) {
+                key = "A" + nextAppointmentKey++;
+            }
+        }
+        String owner = appointment.getPetID() != null ? appointment.getPetID().toLowerCase() : "";
+        archiveStore.put(owner + "/" + appointment.getAppointmentDate() + "T" + appointment.getAppointmentTime()
+                + "/" + key, appointment);
+        appointmentStore.delete(key);
+    }
+
+    /**
+     * Forces every change so far to disk.
+     *
+     * @throws IOException if a store cannot be synced
+     */
+    public void sync() throws IOException {
+        petStore.sync();
+        appointmentStore.sync();
+        archiveStore.sync();
+    }
+
+    /**
+     * Writes every pet and appointment to compressed, checksummed snapshot files, replacing the
+     * previous snapshot. Each file is a {@link BlockFile}, so it is a fraction of the store's size
+     * and single records can still be looked up in it.
+     *
+     * @param petsFile where the pets are written
+     * @param appointmentsFile where the current appointments are written
+     * @param archiveFile where the archived appointments are written
+     * @throws IOException if a record cannot be read or a file cannot be written
+     */
+    public void writeSnapshot(Path petsFile, Path appointmentsFile, Path archiveFile) throws IOException {
+        BlockFile.write(petsFile, new PetCodec(), BlockFile.DEFAULT_BLOCK_SIZE, petStore::forEach);
+        BlockFile.write(appointmentsFile, new AppointmentCodec(), BlockFile.DEFAULT_BLOCK_SIZE, appointmentStore::forEach);
+        BlockFile.write(archiveFile, new AppointmentCodec(), BlockFile.DEFAULT_BLOCK_SIZE, archiveStore::forEach);
+    }
+
+    /**
+     * Syncs and closes every store.
+     *
+     * @throws IOException if a store cannot be closed cleanly
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            petStore.close();
+        } finally {
+            try {
+                appointmentStore.close();
+            } finally {
+                archiveStore.close();
+            }
+        }
+    }
+}
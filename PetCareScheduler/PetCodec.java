@@ -0,0 +1,44 @@
+package PetCareScheduler;
+
+import Common.RecordCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Binary form of a pet for the record store. Appointments are stored as separate records.
+ */
+public class PetCodec implements RecordCodec<Pet> {
+    /**
+     * Writes a pet's own fields.
+     *
+     * @param pet the pet
+     * @param out the destination
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void write(Pet pet, DataOutput out) throws IOException {
+        out.writeUTF(pet.getPetID());
+        out.writeUTF(pet.getPetName());
+        out.writeUTF(pet.getSpecieBreed());
+        out.writeInt(pet.getPetAge());
+        out.writeUTF(pet.getOwnerName());
+        out.writeUTF(pet.getContactInfo());
+        out.writeLong(pet.getDateOfRegistration().toEpochDay());
+    }
+
+    /**
+     * Reads a pet without appointments.
+     *
+     * @param in the source
+     * @return the pet
+     * @throws IOException if the data is malformed
+     */
+    @Override
+    public Pet read(DataInput in) throws IOException {
+        return new Pet(in.readUTF(), in.readUTF(), in.readUTF(), in.readInt(), in.readUTF(), in.readUTF(),
+                LocalDate.ofEpochDay(in.readLong()));
+    }
+}
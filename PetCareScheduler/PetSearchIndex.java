@@ -0,0 +1,252 @@
+package PetCareScheduler;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Typo-tolerant search over pet names, species/breeds and owner names.
+ *
+ * Every word of those fields is cut into overlapping three-letter pieces (trigrams), padded so
+ * that the start and end of a word count too: "bella" gives "  b", " be", "bel", "ell", "lla" and
+ * "la ". A query is cut the same way, and a pet matches by the share of the query's trigrams it
+ * contains, so a misspelling such as "bela" or "smiht" still shares most of them. Matches in the
+ * pet's name weigh more than in the owner's name, which weigh more than in the breed.
+ *
+ * The index maps each trigram to the pets containing it (a posting list), and is updated as each
+ * pet is registered. A query only visits the postings of its own trigrams, counting shared
+ * trigrams in a reused array, so its cost follows how common its trigrams are, not how many pets
+ * there are.
+ */
+public class PetSearchIndex {
+    // Field bits stored with each posting, and how much a trigram found in that field counts
+    private static final int NAME = 1;
+    private static final int OWNER = 2;
+    private static final int BREED = 4;
+    private static final double NAME_WEIGHT = 1.0;
+    private static final double OWNER_WEIGHT = 0.9;
+    private static final double BREED_WEIGHT = 0.6;
+    private static final double[] WEIGHTS = new double[8];    // By field bits: the best field's weight
+
+    static {
+        for (int fields = 1; fields < WEIGHTS.length; fields++) {
+            WEIGHTS[fields] = (fields & NAME) != 0 ? NAME_WEIGHT : (fields & OWNER) != 0 ? OWNER_WEIGHT : BREED_WEIGHT;
+        }
+    }
+
+    /**
+     * The lowest score returned by default: just under half of the query's trigrams in the pet's name.
+     */
+    public static final double DEFAULT_MIN_SCORE = 0.45;
+
+    /**
+     * One search result.
+     */
+    public static final class Match {
+        private final Pet pet;
+        private final double score;
+        private final int extra;   // Difference between the pet's and the query's trigram counts
+
+        Match(Pet pet, double score, int extra) {
+            this.pet = pet;
+            this.score = score;
+            this.extra = extra;
+        }
+
+        /**
+         * Gets the matching pet.
+         *
+         * @return the pet
+         */
+        public Pet getPet() {
+            return pet;
+        }
+
+        /**
+         * Gets how well the pet matches, from 0 to 1; 1 means every trigram of the query is in the pet's name.
+         *
+         * @return the score
+         */
+        public double getScore() {
+            return score;
+        }
+    }
+
+    // A growable list of postings: pet number << 3 | field bits
+    private static final class Postings {
+        int[] entries = new int[4];
+        int size;
+
+        void add(int entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+    }
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final List<Pet> pets = new ArrayList<>();
+    private int[] trigramCounts = new int[16];   // Distinct trigrams per pet, to prefer closer matches
+
+    // Scratch space for one query at a time, reused so a query allocates little
+    private double[] scores = new double[16];
+    private int[] touched = new int[16];
+
+    /**
+     * Adds a newly registered (or loaded) pet.
+     *
+     * @param pet the pet
+     */
+    public synchronized void add(Pet pet) {
+        int number = pets.size();
+        pets.add(pet);
+        Map<String, Integer> fields = new HashMap<>();
+        addTrigrams(pet.getPetName(), NAME, fields);
+        addTrigrams(pet.getOwnerName(), OWNER, fields);
+        addTrigrams(pet.getSpecieBreed(), BREED, fields);
+        for (Map.Entry<String, Integer> trigram : fields.entrySet()) {
+            postings.computeIfAbsent(trigram.getKey(), t -> new Postings()).add(number << 3 | trigram.getValue());
+        }
+        if (number == trigramCounts.length) {
+            trigramCounts = Arrays.copyOf(trigramCounts, number * 2);
+            scores = new double[number * 2];
+        }
+        trigramCounts[number] = fields.size();
+    }
+
+    /**
+     * Finds the pets that best match a query, best first.
+     *
+     * @param query words from the pet's name, owner's name or breed, possibly misspelled
+     * @param limit the most results returned
+     * @param minScore the lowest score returned, from 0 to 1
+     * @return the matches, by score, then by closeness of length, then by pet ID
+     */
+    public synchronized List<Match> search(String query, int limit, double minScore) {
+        Set<String> wanted = new HashSet<>();
+        for (String word : words(query)) {
+            wanted.addAll(trigrams(word));
+        }
+        if (wanted.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Add up, per pet, the weight of every query trigram it contains
+        int touchedCount = 0;
+        for (String trigram : wanted) {
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list.size; i++) {
+                int number = list.entries[i] >>> 3;
+                if (scores[number] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = number;
+                }
+                scores[number] += WEIGHTS[list.entries[i] & 7];
+            }
+        }
+
+        // Keep the best few, the worst kept match at the head of the queue. Of two pets containing
+        // the query equally, the one whose fields hold about as many trigrams as the query ranks first
+        Comparator<Match> order = Comparator.comparingDouble(Match::getScore)
+                .thenComparing(Comparator.comparingInt((Match m) -> m.extra).reversed())
+                .thenComparing(m -> m.getPet().getPetID(), Comparator.reverseOrder());
+        PriorityQueue<Match> best = new PriorityQueue<>(order);
+        for (int i = 0; i < touchedCount; i++) {
+            int number = touched[i];
+            double score = scores[number] / wanted.size();
+            scores[number] = 0;
+            if (score < minScore || (best.size() == limit && score < best.peek().getScore())) {
+                continue;
+            }
+            best.add(new Match(pets.get(number), score, Math.abs(trigramCounts[number] - wanted.size())));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Match> results = new ArrayList<>(best);
+        results.sort(order.reversed());
+        return results;
+    }
+
+    /**
+     * Gets the number of pets indexed.
+     *
+     * @return the pet count
+     */
+    public synchronized int size() {
+        return pets.size();
+    }
+
+    private static void addTrigrams(String text, int field, Map<String, Integer> fields) {
+        if (text == null) {
+            return;
+        }
+        for (String word : words(text)) {
+            for (String trigram : trigrams(word)) {
+                fields.merge(trigram, field, (a, b) -> a | b);
+            }
+        }
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits, with accents removed, so "Zoë" and
+     * "zoe" index the same.
+     *
+     * @param text the text
+     * @return the words
+     */
+    static List<String> words(String text) {
+        // Decomposed, an accented letter is the plain letter followed by a mark that is then skipped
+        String plain = isAscii(text) ? text : Normalizer.normalize(text, Normalizer.Form.NFD);
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < plain.length(); i++) {
+            char c = plain.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (!isMark(c) && word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    private static boolean isAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isMark(char c) {
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+
+    /**
+     * Cuts a word into trigrams, padded with two spaces in front and one behind.
+     *
+     * @param word the word
+     * @return the trigrams, in order; a word repeating letters may repeat one
+     */
+    static List<String> trigrams(String word) {
+        String padded = "  " + word + " ";
+        List<String> trigrams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,415 @@
+package PetCareScheduler;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes when every pet is next due for preventive care (a checkup or a vaccination) and keeps
+ * the pets ordered by that date.
+ *
+ * How often care is due depends on the species, read from the first word of the pet's species/breed,
+ * and on the pet's life stage at the time: young animals are seen monthly, adults yearly and seniors
+ * twice a year (see {@link #intervalMonths}). A pet is next due one interval after its latest
+ * appointment of that type, booked or past, or from registration if it never had one. Recurring
+ * series count too: the next occurrence after today, or the last one if the series has ended.
+ *
+ * Each care type has a due-date index: the due date per pet plus the pets ordered by due date, so
+ * "who is due by this date" only reads the head of the index. The index is updated incrementally
+ * as pets are registered and their appointments are booked, moved, cancelled or archived; only that
+ * pet's own timeline and series are read. Because pets grow older, every due date is also recomputed once a
+ * night: the pets are split across all cores, each computes its own dates, and the new indexes
+ * replace the old ones in one step.
+ *
+ * All public methods are thread-safe.
+ */
+public class PreventiveCareEngine {
+    /**
+     * Kinds of preventive care tracked, each matching one appointment type.
+     */
+    public enum Care {
+        CHECKUP("Checkup"),
+        VACCINATION("Vaccination");
+
+        private final String appointmentType;
+
+        Care(String appointmentType) {
+            this.appointmentType = appointmentType;
+        }
+
+        /**
+         * Gets the appointment type that provides this care.
+         *
+         * @return the appointment type
+         */
+        public String getAppointmentType() {
+            return appointmentType;
+        }
+    }
+
+    /**
+     * A pet due for care, as listed by {@link #getDueBy}.
+     */
+    public static final class Due {
+        private final Pet pet;
+        private final LocalDate dueDate;
+
+        Due(Pet pet, LocalDate dueDate) {
+            this.pet = pet;
+            this.dueDate = dueDate;
+        }
+
+        /**
+         * Gets the pet.
+         *
+         * @return the pet
+         */
+        public Pet getPet() {
+            return pet;
+        }
+
+        /**
+         * Gets the date the care is due.
+         *
+         * @return the due date
+         */
+        public LocalDate getDueDate() {
+            return dueDate;
+        }
+    }
+
+    // Due date per pet for one kind of care, and the reverse index ordered by that date
+    private static final class DueIndex {
+        final Map<String, LocalDate> dueByPet = new HashMap<>();
+        final TreeMap<LocalDate, Set<String>> petsByDue = new TreeMap<>();
+
+        void put(String petKey, LocalDate due) {
+            remove(petKey);
+            if (due != null) {
+                dueByPet.put(petKey, due);
+                petsByDue.computeIfAbsent(due, d -> new HashSet<>()).add(petKey);
+            }
+        }
+
+        void remove(String petKey) {
+            LocalDate previous = dueByPet.remove(petKey);
+            if (previous != null) {
+                Set<String> bucket = petsByDue.get(previous);
+                bucket.remove(petKey);
+                if (bucket.isEmpty()) {
+                    petsByDue.remove(previous);
+                }
+            }
+        }
+    }
+
+    private static final Care[] CARES = Care.values();
+
+    private final RecurringSeriesStore seriesStore;
+
+    // Registered pets by lower-cased ID
+    private final Map<String, Pet> petsById = new HashMap<>();
+    private final Map<Care, DueIndex> indexes = new EnumMap<>(Care.class);
+
+    // Day the due dates were computed for, and pets changed while a recompute was running
+    private LocalDate computedFor = LocalDate.now();
+    private Set<String> changedDuringRecompute;
+
+    private ScheduledExecutorService nightly;
+
+    // Held for a whole recompute, so two recomputes never overlap
+    private final Object recomputeLock = new Object();
+
+    /**
+     * Constructor that creates an engine with no pets.
+     *
+     * @param seriesStore the recurring series whose occurrences count as appointments
+     */
+    public PreventiveCareEngine(RecurringSeriesStore seriesStore) {
+        this.seriesStore = seriesStore;
+        for (Care care : CARES) {
+            indexes.put(care, new DueIndex());
+        }
+    }
+
+    /**
+     * Adds a newly registered (or loaded) pet and computes its due dates.
+     *
+     * @param pet the pet
+     */
+    public synchronized void onPetRegistered(Pet pet) {
+        String petKey = pet.getPetID().toLowerCase();
+        petsById.put(petKey, pet);
+        refresh(petKey, pet);
+    }
+
+    /**
+     * Recomputes a pet's due dates after one of its appointments or series occurrences was booked,
+     * moved, cancelled or archived.
+     *
+     * @param pet the pet, or null for legacy appointments without a known pet
+     */
+    public synchronized void onAppointmentChanged(Pet pet) {
+        if (pet == null) {
+            return;
+        }
+        String petKey = pet.getPetID().toLowerCase();
+        if (petsById.containsKey(petKey)) {
+            refresh(petKey, pet);
+        }
+    }
+
+    /**
+     * Recomputes every pet's due dates for the given day, in parallel.
+     * The engine stays usable meanwhile: the old indexes answer queries until the new ones
+     * replace them, and pets changed during the recompute are refreshed again afterwards.
+     *
+     * @param today the day life stages are evaluated on
+     */
+    public void recomputeAll(LocalDate today) {
+        synchronized (recomputeLock) {
+            List<Pet> pets;
+            synchronized (this) {
+                pets = new ArrayList<>(petsById.values());
+                changedDuringRecompute = new HashSet<>();
+            }
+
+            LocalDate[][] due = new LocalDate[pets.size()][];
+            Arrays.parallelSetAll(due, i -> dueDates(pets.get(i), today));
+
+            Map<Care, DueIndex> rebuilt = new EnumMap<>(Care.class);
+            for (Care care : CARES) {
+                rebuilt.put(care, new DueIndex());
+            }
+            for (int i = 0; i < due.length; i++) {
+                String petKey = pets.get(i).getPetID().toLowerCase();
+                for (Care care : CARES) {
+                    rebuilt.get(care).put(petKey, due[i][care.ordinal()]);
+                }
+            }
+
+            synchronized (this) {
+                indexes.clear();
+                indexes.putAll(rebuilt);
+                computedFor = today;
+                Set<String> changed = changedDuringRecompute;
+                changedDuringRecompute = null;
+                for (String petKey : changed) {
+                    refresh(petKey, petsById.get(petKey));
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts recomputing all due dates shortly after every midnight on a background thread.
+     */
+    public synchronized void start() {
+        if (nightly != null) {
+            return;
+        }
+        nightly = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "preventive-care");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LocalDateTime now = LocalDateTime.now();
+        long untilMidnight = Duration.between(now, now.toLocalDate().plusDays(1).atStartOfDay()).toMillis();
+        nightly.scheduleAtFixedRate(() -> recomputeAll(LocalDate.now()),
+                untilMidnight, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the nightly recompute.
+     */
+    public synchronized void stop() {
+        if (nightly != null) {
+            nightly.shutdownNow();
+            nightly = null;
+        }
+    }
+
+    /**
+     * Gets the pets due for a kind of care on or before a date.
+     *
+     * @param care the kind of care
+     * @param date the latest due date included
+     * @return the pets due, the longest overdue first
+     */
+    public synchronized List<Due> getDueBy(Care care, LocalDate date) {
+        List<Due> due = new ArrayList<>();
+        for (Map.Entry<LocalDate, Set<String>> bucket : indexes.get(care).petsByDue.headMap(date, true).entrySet()) {
+            for (String petKey : bucket.getValue()) {
+                due.add(new Due(petsById.get(petKey), bucket.getKey()));
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Counts the pets due for a kind of care on or before a date.
+     *
+     * @param care the kind of care
+     * @param date the latest due date included
+     * @return the number of pets due
+     */
+    public synchronized int countDueBy(Care care, LocalDate date) {
+        int count = 0;
+        for (Set<String> bucket : indexes.get(care).petsByDue.headMap(date, true).values()) {
+            count += bucket.size();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the date a pet is next due for a kind of care.
+     *
+     * @param pet the pet
+     * @param care the kind of care
+     * @return the due date, or null if the pet is not registered or does not need that care
+     */
+    public synchronized LocalDate getDueDate(Pet pet, Care care) {
+        return indexes.get(care).dueByPet.get(pet.getPetID().toLowerCase());
+    }
+
+    /**
+     * Recomputes one pet's entries in every index.
+     *
+     * @param petKey the lower-cased pet ID
+     * @param pet the pet
+     */
+    private void refresh(String petKey, Pet pet) {
+        if (changedDuringRecompute != null) {
+            changedDuringRecompute.add(petKey);
+        }
+        LocalDate[] due = dueDates(pet, computedFor);
+        for (Care care : CARES) {
+            indexes.get(care).put(petKey, due[care.ordinal()]);
+        }
+    }
+
+    /**
+     * Computes when a pet is next due for each kind of care. Reads only the pet itself and its
+     * series, so pets can be computed in parallel.
+     *
+     * @param pet the pet
+     * @param today the day the pet's life stage is evaluated on
+     * @return the due date per {@link Care} ordinal; null where the care is not needed
+     */
+    private LocalDate[] dueDates(Pet pet, LocalDate today) {
+        LocalDate[] latest = new LocalDate[CARES.length];
+        synchronized (pet) {
+            for (Care care : CARES) {
+                Apointment appointment = pet.getTimeline().getLatestOfType(care.getAppointmentType());
+                if (appointment != null) {
+                    latest[care.ordinal()] = appointment.getAppointmentDate();
+                }
+            }
+        }
+        for (Care care : CARES) {
+            LocalDate scheduled = seriesStore.latestScheduled(pet.getPetID(), care.getAppointmentType(), today);
+            LocalDate last = latest[care.ordinal()];
+            if (scheduled != null && (last == null || scheduled.isAfter(last))) {
+                latest[care.ordinal()] = scheduled;
+            }
+        }
+
+        String species = speciesOf(pet.getSpecieBreed());
+        int age = ageOn(pet, today);
+        LocalDate registered = pet.getDateOfRegistration() != null ? pet.getDateOfRegistration() : today;
+        LocalDate[] due = new LocalDate[CARES.length];
+        for (Care care : CARES) {
+            int months = intervalMonths(care, species, age);
+            if (months > 0) {
+                LocalDate last = latest[care.ordinal()];
+                due[care.ordinal()] = last == null ? registered : last.plusMonths(months);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Gets how many months apart a kind of care is due.
+     * Young animals (under a year) are seen monthly during their first vaccination course;
+     * seniors have checkups twice a year. Cats keep a three-year vaccination cycle as adults,
+     * and species other than dogs, cats and rabbits are not vaccinated.
+     *
+     * @param care the kind of care
+     * @param species the lower-cased species
+     * @param age the pet's age in years
+     * @return the interval in months, or 0 if the care is not needed
+     */
+    static int intervalMonths(Care care, String species, int age) {
+        int seniorAge;
+        switch (species) {
+            case "dog":
+                seniorAge = 8;
+                break;
+            case "cat":
+                seniorAge = 11;
+                break;
+            case "rabbit":
+                seniorAge = 5;
+                break;
+            default:
+                seniorAge = 8;
+        }
+        boolean young = age < 1;
+        boolean senior = age >= seniorAge;
+
+        if (care == Care.CHECKUP) {
+            if (young) {
+                return species.equals("dog") || species.equals("cat") ? 1 : 6;
+            }
+            return senior ? 6 : 12;
+        }
+        switch (species) {
+            case "dog":
+                return young ? 1 : 12;
+            case "cat":
+                return young ? 1 : 36;
+            case "rabbit":
+                return 12;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Reads the species from a species/breed text such as "Dog/Labrador" or "Cat Siamese".
+     *
+     * @param specieBreed the species and breed
+     * @return the lower-cased species, or "" if there is none
+     */
+    static String speciesOf(String specieBreed) {
+        if (specieBreed == null) {
+            return "";
+        }
+        String text = specieBreed.trim();
+        int end = 0;
+        while (end < text.length() && Character.isLetter(text.charAt(end))) {
+            end++;
+        }
+        return text.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Works out a pet's age on a day from the age given at registration.
+     *
+     * @param pet the pet
+     * @param today the day
+     * @return the age in whole years
+     */
+    private static int ageOn(Pet pet, LocalDate today) {
+        LocalDate registered = pet.getDateOfRegistration();
+        if (registered == null || !today.isAfter(registered)) {
+            return pet.getPetAge();
+        }
+        return pet.getPetAge() + Period.between(registered, today).getYears();
+    }
+}
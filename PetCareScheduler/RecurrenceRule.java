@@ -0,0 +1,208 @@
+package PetCareScheduler;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * RRULE-like recurrence rule for repeating appointments, e.g. "FREQ=MONTHLY;INTERVAL=12" for a
+ * yearly vaccination or "FREQ=WEEKLY;INTERVAL=6;COUNT=10" for grooming every six weeks.
+ *
+ * Supported parts are FREQ (DAILY, WEEKLY, MONTHLY, YEARLY), INTERVAL, COUNT and UNTIL (yyyy-MM-dd).
+ * The n-th occurrence is computed directly from the series start, so any occurrence can be located
+ * without walking the ones before it. Monthly and yearly steps that land on a missing day
+ * (e.g. the 31st) fall back to the last day of the month.
+ */
+public class RecurrenceRule {
+    /**
+     * Unit the rule repeats in.
+     */
+    public enum Frequency {
+        DAILY, WEEKLY, MONTHLY, YEARLY
+    }
+
+    private final Frequency frequency;   // Unit of repetition
+    private final int interval;          // Number of units between occurrences
+    private final int count;             // Maximum number of occurrences, or 0 for unlimited
+    private final LocalDate until;       // Last date an occurrence may fall on, or null for open-ended
+
+    /**
+     * Constructor that initializes a recurrence rule.
+     *
+     * @param frequency the unit of repetition
+     * @param interval the number of units between occurrences
+     * @param count the maximum number of occurrences, or 0 for unlimited
+     * @param until the last allowed occurrence date, or null for open-ended
+     * @throws IllegalArgumentException if interval is not positive or count is negative
+     */
+    public RecurrenceRule(Frequency frequency, int interval, int count, LocalDate until) {
+        if (frequency == null || interval <= 0 || count < 0) {
+            throw new IllegalArgumentException("Recurrence needs a frequency, a positive interval and a non-negative count");
+        }
+        this.frequency = frequency;
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+    }
+
+    /**
+     * Parses a rule such as "FREQ=WEEKLY;INTERVAL=6;COUNT=10".
+     *
+     * @param text the rule text
+     * @return the parsed rule
+     * @throws IllegalArgumentException if the text is not a valid rule
+     */
+    public static RecurrenceRule parse(String text) {
+        Frequency frequency = null;
+        int interval = 1;
+        int count = 0;
+        LocalDate until = null;
+        try {
+            for (String part : text.trim().toUpperCase().split(";")) {
+                String[] keyValue = part.split("=", 2);
+                if (keyValue.length != 2) {
+                    throw new IllegalArgumentException("Invalid recurrence part: " + part);
+                }
+                switch (keyValue[0].trim()) {
+                    case "FREQ":
+                        frequency = Frequency.valueOf(keyValue[1].trim());
+                        break;
+                    case "INTERVAL":
+                        interval = Integer.parseInt(keyValue[1].trim());
+                        break;
+                    case "COUNT":
+                        count = Integer.parseInt(keyValue[1].trim());
+                        break;
+                    case "UNTIL":
+                        until = LocalDate.parse(keyValue[1].trim());
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown recurrence part: " + keyValue[0]);
+                }
+            }
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid recurrence rule: " + text, e);
+        }
+        return new RecurrenceRule(frequency, interval, count, until);
+    }
+
+    /**
+     * Gets the date of the n-th occurrence (0-based), ignoring COUNT and UNTIL.
+     *
+     * @param start the date of the first occurrence
+     * @param index the occurrence index
+     * @return the occurrence date
+     */
+    public LocalDate occurrence(LocalDate start, long index) {
+        long steps = index * interval;
+        switch (frequency) {
+            case DAILY:
+                return start.plusDays(steps);
+            case WEEKLY:
+                return start.plusWeeks(steps);
+            case MONTHLY:
+                return start.plusMonths(steps);
+            default:
+                return start.plusYears(steps);
+        }
+    }
+
+    /**
+     * Gets the index of the first occurrence on or after the given date, ignoring COUNT and UNTIL.
+     *
+     * @param start the date of the first occurrence
+     * @param date the date to search from
+     * @return the occurrence index
+     */
+    public long firstIndexOnOrAfter(LocalDate start, LocalDate date) {
+        if (!date.isAfter(start)) {
+            return 0;
+        }
+        long index;
+        switch (frequency) {
+            case DAILY:
+                index = ChronoUnit.DAYS.between(start, date) / interval;
+                break;
+            case WEEKLY:
+                index = ChronoUnit.WEEKS.between(start, date) / interval;
+                break;
+            case MONTHLY:
+                index = ChronoUnit.MONTHS.between(start, date) / interval;
+                break;
+            default:
+                index = ChronoUnit.YEARS.between(start, date) / interval;
+                break;
+        }
+        // The estimate can be short by one step (partial units, month-end clamping)
+        while (occurrence(start, index).isBefore(date)) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Gets the index of the last occurrence on or before the given date that is within COUNT and UNTIL.
+     *
+     * @param start the date of the first occurrence
+     * @param date the latest date included
+     * @return the occurrence index, or -1 if no occurrence falls on or before that date
+     */
+    public long lastIndexOnOrBefore(LocalDate start, LocalDate date) {
+        LocalDate bound = until != null && until.isBefore(date) ? until : date;
+        long index = firstIndexOnOrAfter(start, bound.plusDays(1)) - 1;
+        return count > 0 ? Math.min(index, count - 1) : index;
+    }
+
+    /**
+     * Gets the occurrence index falling exactly on the given date, if any, ignoring COUNT and UNTIL.
+     *
+     * @param start the date of the first occurrence
+     * @param date the date to test
+     * @return the occurrence index, or -1 if no occurrence falls on that date
+     */
+    public long indexOf(LocalDate start, LocalDate date) {
+        long index = firstIndexOnOrAfter(start, date);
+        return occurrence(start, index).equals(date) ? index : -1;
+    }
+
+    /**
+     * Checks whether the n-th occurrence is still within COUNT and UNTIL.
+     *
+     * @param index the occurrence index
+     * @param date the occurrence date
+     * @return true if the occurrence belongs to the series
+     */
+    public boolean isWithinBounds(long index, LocalDate date) {
+        return (count == 0 || index < count) && (until == null || !date.isAfter(until));
+    }
+
+    /**
+     * Gets the unit of repetition.
+     *
+     * @return the frequency
+     */
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Gets the number of units between occurrences.
+     *
+     * @return the interval
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the rule in its textual RRULE-like form.
+     *
+     * @return the rule text, parseable by {@link #parse(String)}
+     */
+    @Override
+    public String toString() {
+        return "FREQ=" + frequency + ";INTERVAL=" + interval +
+                (count > 0 ? ";COUNT=" + count : "") +
+                (until != null ? ";UNTIL=" + until : "");
+    }
+}
@@ -0,0 +1,354 @@
+package PetCareScheduler;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * A repeating appointment for one pet, e.g. a vaccination every 12 months.
+ *
+ * Occurrences are never stored; they are expanded on demand from the start date and the
+ * {@link RecurrenceRule} for whatever window is being queried. Individual occurrences can be
+ * cancelled or moved to another date and time; those exceptions are the only per-occurrence
+ * state the series keeps.
+ */
+public class RecurringSeries {
+    private final String seriesID;                 // Unique ID of the series
+    private final String petID;                    // Pet the appointments are for
+    private final String appointmentType;          // Type shared by every occurrence
+    private final LocalDate startDate;             // Date of the first occurrence
+    private final LocalTime appointmentTime;       // Time shared by every regular occurrence
+    private final RecurrenceRule rule;             // How the series repeats
+    private final String notes;                    // Notes copied onto every occurrence
+
+    // Exceptions keyed by the original occurrence date: cancelled dates, and moved occurrences
+    private final Set<LocalDate> cancelled = new HashSet<>();
+    private final Map<LocalDate, LocalDateTime> moved = new HashMap<>();
+
+    /**
+     * Constructor that initializes a recurring series.
+     *
+     * @param seriesID the unique ID of the series
+     * @param petID the pet the appointments are for
+     * @param appointmentType the type shared by every occurrence
+     * @param startDate the date of the first occurrence
+     * @param appointmentTime the time of every regular occurrence
+     * @param rule how the series repeats
+     * @param notes notes copied onto every occurrence
+     */
+    public RecurringSeries(String seriesID, String petID, String appointmentType, LocalDate startDate,
+                           LocalTime appointmentTime, RecurrenceRule rule, String notes) {
+        this.seriesID = seriesID;
+        this.petID = petID;
+        this.appointmentType = appointmentType;
+        this.startDate = startDate;
+        this.appointmentTime = appointmentTime;
+        this.rule = rule;
+        this.notes = notes;
+    }
+
+    /**
+     * Gets the unique ID of the series.
+     *
+     * @return the series ID
+     */
+    public String getSeriesID() {
+        return seriesID;
+    }
+
+    /**
+     * Gets the pet the appointments are for.
+     *
+     * @return the pet ID
+     */
+    public String getPetID() {
+        return petID;
+    }
+
+    /**
+     * Gets the type shared by every occurrence.
+     *
+     * @return the appointment type
+     */
+    public String getAppointmentType() {
+        return appointmentType;
+    }
+
+    /**
+     * Gets the date of the first occurrence.
+     *
+     * @return the start date
+     */
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * Gets the time of every regular occurrence.
+     *
+     * @return the appointment time
+     */
+    public LocalTime getAppointmentTime() {
+        return appointmentTime;
+    }
+
+    /**
+     * Gets the recurrence rule.
+     *
+     * @return the rule
+     */
+    public RecurrenceRule getRule() {
+        return rule;
+    }
+
+    /**
+     * Gets the notes copied onto every occurrence.
+     *
+     * @return the notes
+     */
+    public String getNotes() {
+        return notes;
+    }
+
+    /**
+     * Gets the cancelled occurrence dates.
+     *
+     * @return a read-only set of original occurrence dates that were cancelled
+     */
+    public Set<LocalDate> getCancelledDates() {
+        return Collections.unmodifiableSet(cancelled);
+    }
+
+    /**
+     * Gets the moved occurrences.
+     *
+     * @return a read-only map of original occurrence date to new date and time
+     */
+    public Map<LocalDate, LocalDateTime> getMovedOccurrences() {
+        return Collections.unmodifiableMap(moved);
+    }
+
+    /**
+     * Checks whether the series has a regular occurrence on the given date,
+     * including occurrences that were later cancelled or moved.
+     *
+     * @param date the date to test
+     * @return true if the rule produces an occurrence on that date
+     */
+    public boolean hasOccurrenceOn(LocalDate date) {
+        if (date.isBefore(startDate)) {
+            return false;
+        }
+        long index = rule.indexOf(startDate, date);
+        return index >= 0 && rule.isWithinBounds(index, date);
+    }
+
+    /**
+     * Cancels a single occurrence.
+     *
+     * @param originalDate the date the occurrence would regularly fall on
+     * @throws IllegalArgumentException if the series has no occurrence on that date
+     */
+    public void cancelOccurrence(LocalDate originalDate) {
+        requireOccurrence(originalDate);
+        moved.remove(originalDate);
+        cancelled.add(originalDate);
+    }
+
+    /**
+     * Moves a single occurrence to another date and time.
+     *
+     * @param originalDate the date the occurrence would regularly fall on
+     * @param newDateTime the date and time the occurrence takes place instead
+     * @throws IllegalArgumentException if the series has no occurrence on that date
+     */
+    public void moveOccurrence(LocalDate originalDate, LocalDateTime newDateTime) {
+        requireOccurrence(originalDate);
+        cancelled.remove(originalDate);
+        moved.put(originalDate, newDateTime);
+    }
+
+    /**
+     * Drops any exception for a single occurrence so it takes place as regularly scheduled.
+     *
+     * @param originalDate the date the occurrence regularly falls on
+     */
+    public void restoreOccurrence(LocalDate originalDate) {
+        cancelled.remove(originalDate);
+        moved.remove(originalDate);
+    }
+
+    /**
+     * Gets when a single occurrence takes place, taking cancelled and moved occurrences into account.
+     *
+     * @param originalDate the date the occurrence regularly falls on
+     * @return the date and time it takes place, or null if it was cancelled
+     * @throws IllegalArgumentException if the series has no occurrence on that date
+     */
+    public LocalDateTime occurrenceOn(LocalDate originalDate) {
+        requireOccurrence(originalDate);
+        if (cancelled.contains(originalDate)) {
+            return null;
+        }
+        LocalDateTime target = moved.get(originalDate);
+        return target != null ? target : LocalDateTime.of(originalDate, appointmentTime);
+    }
+
+    /**
+     * Gets the date of the latest occurrence on or before a date, taking cancelled and moved
+     * occurrences into account.
+     *
+     * @param date the latest date included
+     * @return the occurrence date, or null if none takes place by then
+     */
+    public LocalDate lastOccurrenceOnOrBefore(LocalDate date) {
+        LocalDate last = null;
+        for (long index = rule.lastIndexOnOrBefore(startDate, date); index >= 0; index--) {
+            LocalDate occurrence = rule.occurrence(startDate, index);
+            if (!cancelled.contains(occurrence) && !moved.containsKey(occurrence)) {
+                last = occurrence;
+                break;
+            }
+        }
+        for (LocalDateTime target : moved.values()) {
+            LocalDate targetDate = target.toLocalDate();
+            if (!targetDate.isAfter(date) && (last == null || targetDate.isAfter(last))) {
+                last = targetDate;
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Gets the date of the first occurrence after a date, taking cancelled and moved occurrences
+     * into account.
+     *
+     * @param date the day before the first date included
+     * @return the occurrence date, or null if the series has ended by then
+     */
+    public LocalDate nextOccurrenceAfter(LocalDate date) {
+        LocalDate next = null;
+        for (long index = rule.firstIndexOnOrAfter(startDate, date.plusDays(1)); ; index++) {
+            LocalDate occurrence = rule.occurrence(startDate, index);
+            if (!rule.isWithinBounds(index, occurrence)) {
+                break;
+            }
+            if (!cancelled.contains(occurrence) && !moved.containsKey(occurrence)) {
+                next = occurrence;
+                break;
+            }
+        }
+        for (LocalDateTime target : moved.values()) {
+            LocalDate targetDate = target.toLocalDate();
+            if (targetDate.isAfter(date) && (next == null || targetDate.isBefore(next))) {
+                next = targetDate;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Validates that an exception refers to a real occurrence.
+     *
+     * @param originalDate the occurrence date
+     */
+    private void requireOccurrence(LocalDate originalDate) {
+        if (!hasOccurrenceOn(originalDate)) {
+            throw new IllegalArgumentException("Series " + seriesID + " has no occurrence on " + originalDate);
+        }
+    }
+
+    /**
+     * Checks whether an occurrence of this series takes place at the given date and time,
+     * taking cancelled and moved occurrences into account.
+     *
+     * @param dateTime the date and time to test
+     * @return true if the slot is occupied by this series
+     */
+    public boolean occupies(LocalDateTime dateTime) {
+        return moved.containsValue(dateTime) || isRegularOccurrence(dateTime);
+    }
+
+    /**
+     * Checks whether a regular (not cancelled, not moved) occurrence takes place at the given date and time.
+     *
+     * @param dateTime the date and time to test
+     * @return true if a regular occurrence falls on that slot
+     */
+    public boolean isRegularOccurrence(LocalDateTime dateTime) {
+        LocalDate date = dateTime.toLocalDate();
+        return dateTime.toLocalTime().equals(appointmentTime) && hasOccurrenceOn(date)
+                && !cancelled.contains(date) && !moved.containsKey(date);
+    }
+
+    /**
+     * Expands the occurrences that take place within the given window.
+     * Only the occurrences inside the window are created.
+     *
+     * @param from the inclusive start of the window
+     * @param to the exclusive end of the window
+     * @return the occurrences as appointments, in chronological order
+     */
+    public List<Apointment> occurrencesBetween(LocalDateTime from, LocalDateTime to) {
+        List<Apointment> result = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return result;
+        }
+
+        // Regular occurrences: jump straight to the first index inside the window
+        LocalDate firstDate = from.toLocalDate().isBefore(startDate) ? startDate : from.toLocalDate();
+        for (long index = rule.firstIndexOnOrAfter(startDate, firstDate); ; index++) {
+            LocalDate date = rule.occurrence(startDate, index);
+            LocalDateTime dateTime = LocalDateTime.of(date, appointmentTime);
+            if (!dateTime.isBefore(to) || !rule.isWithinBounds(index, date)) {
+                break;
+            }
+            if (!dateTime.isBefore(from) && !cancelled.contains(date) && !moved.containsKey(date)) {
+                result.add(toAppointment(dateTime));
+            }
+        }
+
+        // Moved occurrences may land anywhere, so they are checked separately
+        boolean addedMoved = false;
+        for (LocalDateTime target : moved.values()) {
+            if (!target.isBefore(from) && target.isBefore(to)) {
+                result.add(toAppointment(target));
+                addedMoved = true;
+            }
+        }
+        if (addedMoved) {
+            result.sort(Comparator.comparing((Apointment a) -> a.getAppointmentDate())
+                    .thenComparing(Apointment::getAppointmentTime));
+        }
+        return result;
+    }
+
+    /**
+     * Creates the appointment representing one occurrence.
+     *
+     * @param dateTime the occurrence date and time
+     * @return the occurrence as an appointment
+     */
+    public Apointment toAppointment(LocalDateTime dateTime) {
+        return new Apointment(petID, appointmentType, dateTime.toLocalDate(), dateTime.toLocalTime(), notes);
+    }
+
+    /**
+     * Returns a string representation of the series.
+     *
+     * @return a formatted string containing the series details
+     */
+    @Override
+    public String toString() {
+        return "RecurringSeries{" +
+                "seriesID='" + seriesID + '\'' +
+                ", petID='" + petID + '\'' +
+                ", appointmentType='" + appointmentType + '\'' +
+                ", startDate=" + startDate +
+                ", appointmentTime=" + appointmentTime +
+                ", rule=" + rule +
+                ", notes='" + notes + '\'' +
+                '}';
+    }
+}
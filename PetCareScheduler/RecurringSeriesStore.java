@@ -0,0 +1,322 @@
+package PetCareScheduler;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Registry of recurring appointment series.
+ *
+ * Series are indexed by their regular time of day, and moved occurrences by their new date and time,
+ * so "does this pet have a series occurrence then?" only evaluates the few series that can possibly hit the slot.
+ * Series are also indexed by pet, so a pet's due dates only look at that pet's own series.
+ * Window queries expand each series lazily and never materialize a full series.
+ *
+ * The store only guards its own consistency with a read/write lock. Callers that must not double-book
+ * a pet hold the pet's lock while they check and publish (see {@link BookingService}).
+ */
+public class RecurringSeriesStore {
+    private final Map<String, RecurringSeries> seriesById = new LinkedHashMap<>();
+    private final Map<LocalTime, List<RecurringSeries>> seriesByTime = new HashMap<>();
+    private final Map<LocalDateTime, List<RecurringSeries>> movedOccurrences = new HashMap<>();
+    private final Map<String, List<RecurringSeries>> seriesByPet = new HashMap<>();   // Keyed by lower-cased pet ID
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int nextID = 1;
+
+    /**
+     * Generates an unused series ID.
+     *
+     * @return a new series ID such as "S12"
+     */
+    public String nextSeriesID() {
+        lock.writeLock().lock();
+        try {
+            String id;
+            do {
+                id = "S" + nextID++;
+            } while (seriesById.containsKey(id));
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a series, including any exceptions it already carries.
+     *
+     * @param series the series to add
+     * @throws IllegalArgumentException if a series with the same ID exists
+     */
+    public void add(RecurringSeries series) {
+        lock.writeLock().lock();
+        try {
+            if (seriesById.putIfAbsent(series.getSeriesID(), series) != null) {
+                throw new IllegalArgumentException("Series " + series.getSeriesID() + " already exists");
+            }
+            seriesByTime.computeIfAbsent(series.getAppointmentTime(), t -> new ArrayList<>()).add(series);
+            seriesByPet.computeIfAbsent(series.getPetID().toLowerCase(), p -> new ArrayList<>(1)).add(series);
+            for (LocalDateTime target : series.getMovedOccurrences().values()) {
+                indexMove(target, series);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a series and its moved occurrences.
+     *
+     * @param series the series to remove
+     */
+    public void remove(RecurringSeries series) {
+        lock.writeLock().lock();
+        try {
+            if (seriesById.remove(series.getSeriesID()) == null) {
+                return;
+            }
+            List<RecurringSeries> sameTime = seriesByTime.get(series.getAppointmentTime());
+            sameTime.remove(series);
+            if (sameTime.isEmpty()) {
+                seriesByTime.remove(series.getAppointmentTime());
+            }
+            List<RecurringSeries> samePet = seriesByPet.get(series.getPetID().toLowerCase());
+            samePet.remove(series);
+            if (samePet.isEmpty()) {
+                seriesByPet.remove(series.getPetID().toLowerCase());
+            }
+            for (LocalDateTime target : series.getMovedOccurrences().values()) {
+                unindexMove(target, series);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Looks up a series by ID.
+     *
+     * @param seriesID the series ID
+     * @return the series, or null if none exists
+     */
+    public RecurringSeries find(String seriesID) {
+        lock.readLock().lock();
+        try {
+            return seriesById.get(seriesID);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Cancels a single occurrence of a series.
+     *
+     * @param series the series
+     * @param originalDate the date the occurrence would regularly fall on
+     */
+    public void cancelOccurrence(RecurringSeries series, LocalDate originalDate) {
+        lock.writeLock().lock();
+        try {
+            LocalDateTime previous = series.getMovedOccurrences().get(originalDate);
+            series.cancelOccurrence(originalDate);
+            if (previous != null) {
+                unindexMove(previous, series);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves a single occurrence of a series.
+     *
+     * @param series the series
+     * @param originalDate the date the occurrence would regularly fall on
+     * @param newDateTime the date and time the occurrence takes place instead
+     */
+    public void moveOccurrence(RecurringSeries series, LocalDate originalDate, LocalDateTime newDateTime) {
+        lock.writeLock().lock();
+        try {
+            LocalDateTime previous = series.getMovedOccurrences().get(originalDate);
+            series.moveOccurrence(originalDate, newDateTime);
+            if (previous != null) {
+                unindexMove(previous, series);
+            }
+            indexMove(newDateTime, series);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Restores a single occurrence to its regular date and time, dropping any exception.
+     *
+     * @param series the series
+     * @param originalDate the date the occurrence regularly falls on
+     */
+    public void restoreOccurrence(RecurringSeries series, LocalDate originalDate) {
+        lock.writeLock().lock();
+        try {
+            LocalDateTime previous = series.getMovedOccurrences().get(originalDate);
+            series.restoreOccurrence(originalDate);
+            if (previous != null) {
+                unindexMove(previous, series);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether one of a pet's series has an occurrence at the given date and time.
+     * Series are not capacity-tracked, so only the pet's own series can collide with a booking.
+     *
+     * @param dateTime the slot to test
+     * @param petID the pet whose series are checked
+     * @return true if a series of the pet occupies the slot
+     */
+    public boolean isOccupied(LocalDateTime dateTime, String petID) {
+        return isOccupied(dateTime, petID, null);
+    }
+
+    /**
+     * Checks whether one of a pet's series other than the given one has an occurrence at the given date and time.
+     *
+     * @param dateTime the slot to test
+     * @param petID the pet whose series are checked
+     * @param ignore a series to leave out of the check, or null
+     * @return true if another series of the pet occupies the slot
+     */
+    public boolean isOccupied(LocalDateTime dateTime, String petID, RecurringSeries ignore) {
+        lock.readLock().lock();
+        try {
+            List<RecurringSeries> movedHere = movedOccurrences.get(dateTime);
+            if (movedHere != null) {
+                for (RecurringSeries series : movedHere) {
+                    if (series != ignore && series.getPetID().equalsIgnoreCase(petID)) {
+                        return true;
+                    }
+                }
+            }
+            List<RecurringSeries> candidates = seriesByTime.get(dateTime.toLocalTime());
+            if (candidates != null) {
+                for (RecurringSeries series : candidates) {
+                    if (series != ignore && series.getPetID().equalsIgnoreCase(petID) && series.isRegularOccurrence(dateTime)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the latest date a pet has an occurrence of a type scheduled for, as seen on a given day:
+     * the next occurrence after that day, or the last one on or before it once a series has ended.
+     *
+     * @param petID the pet whose series are checked
+     * @param appointmentType the appointment type
+     * @param today the day the series are looked at from
+     * @return the latest such occurrence date over the pet's series of that type, or null if none
+     */
+    public LocalDate latestScheduled(String petID, String appointmentType, LocalDate today) {
+        lock.readLock().lock();
+        try {
+            LocalDate latest = null;
+            for (RecurringSeries series : seriesByPet.getOrDefault(petID.toLowerCase(), Collections.emptyList())) {
+                if (!series.getAppointmentType().equals(appointmentType)) {
+                    continue;
+                }
+                LocalDate date = series.nextOccurrenceAfter(today);
+                if (date == null) {
+                    date = series.lastOccurrenceOnOrBefore(today);
+                }
+                if (date != null && (latest == null || date.isAfter(latest))) {
+                    latest = date;
+                }
+            }
+            return latest;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records an occurrence moved to a date and time; several pets' series may share one.
+     *
+     * @param target the date and time the occurrence was moved to
+     * @param series its series
+     */
+    private void indexMove(LocalDateTime target, RecurringSeries series) {
+        movedOccurrences.computeIfAbsent(target, t -> new ArrayList<>(1)).add(series);
+    }
+
+    /**
+     * Forgets an occurrence moved to a date and time.
+     *
+     * @param target the date and time the occurrence was moved to
+     * @param series its series
+     */
+    private void unindexMove(LocalDateTime target, RecurringSeries series) {
+        List<RecurringSeries> movedHere = movedOccurrences.get(target);
+        if (movedHere != null) {
+            movedHere.remove(series);
+            if (movedHere.isEmpty()) {
+                movedOccurrences.remove(target);
+            }
+        }
+    }
+
+    /**
+     * Expands every series within the given window.
+     *
+     * @param from the inclusive start of the window
+     * @param to the exclusive end of the window
+     * @return the occurrences as appointments, in chronological order
+     */
+    public List<Apointment> occurrencesBetween(LocalDateTime from, LocalDateTime to) {
+        List<Apointment> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (RecurringSeries series : seriesById.values()) {
+                result.addAll(series.occurrencesBetween(from, to));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        result.sort(Comparator.comparing((Apointment a) -> a.getAppointmentDate())
+                .thenComparing(Apointment::getAppointmentTime));
+        return result;
+    }
+
+    /**
+     * Gets a snapshot of all series.
+     *
+     * @return the series in insertion order
+     */
+    public List<RecurringSeries> getAll() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(seriesById.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the number of series.
+     *
+     * @return the series count
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return seriesById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package PetCareScheduler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * A reminder that is due for a scheduled appointment.
+ * Each appointment produces one reminder per configured lead time (e.g. 24 hours and 1 hour before).
+ */
+public class Reminder {
+    private final Apointment appointment;   // Appointment the reminder is about
+    private final Duration leadTime;        // How long before the appointment the reminder fires
+    private final LocalDateTime dueAt;      // Date and time the reminder becomes due
+
+    /**
+     * Constructor that creates a reminder for an appointment.
+     *
+     * @param appointment the appointment to remind about
+     * @param leadTime how long before the appointment the reminder fires
+     * @param dueAt the date and time the reminder becomes due
+     */
+    public Reminder(Apointment appointment, Duration leadTime, LocalDateTime dueAt) {
+        this.appointment = appointment;
+        this.leadTime = leadTime;
+        this.dueAt = dueAt;
+    }
+
+    /**
+     * Gets the appointment the reminder is about.
+     *
+     * @return the appointment
+     */
+    public Apointment getAppointment() {
+        return appointment;
+    }
+
+    /**
+     * Gets how long before the appointment the reminder fires.
+     *
+     * @return the lead time
+     */
+    public Duration getLeadTime() {
+        return leadTime;
+    }
+
+    /**
+     * Gets the date and time the reminder becomes due.
+     *
+     * @return the due date and time
+     */
+    public LocalDateTime getDueAt() {
+        return dueAt;
+    }
+
+    /**
+     * Returns a string representation of the reminder.
+     *
+     * @return a formatted string containing the reminder details
+     */
+    @Override
+    public String toString() {
+        return "Reminder{" +
+                "dueAt=" + dueAt +
+                ", leadTime=" + leadTime +
+                ", petID=" + appointment.getPetID() +
+                ", appointment=" + appointment +
+                '}';
+    }
+}
@@ -0,0 +1,429 @@
+package PetCareScheduler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatches appointment reminders (e.g. 24 hours and 1 hour before) using a hierarchical timing wheel.
+ *
+ * The wheel has three levels: 60 one-minute slots, 24 one-hour slots and one slot per day of the
+ * arming horizon. A reminder is placed in the coarsest level that covers its distance from the
+ * current minute and cascades down as time advances, so arming, cancelling and ticking are all O(1)
+ * per reminder regardless of how many appointments exist.
+ *
+ * Only reminders due within the horizon are ever held in memory. Further reminders are pulled from
+ * the date-sorted upcoming queue in {@link ReportViews} one day at a time as the horizon moves, and
+ * the number of armed reminders is capped, so memory stays bounded for any size of appointment store.
+ */
+public class ReminderEngine {
+    private static final int MINUTES_PER_HOUR = 60;
+    private static final int HOURS_PER_DAY = 24;
+    private static final int MINUTES_PER_DAY = MINUTES_PER_HOUR * HOURS_PER_DAY;
+
+    private final ReminderSink sink;          // Where due reminders are delivered
+    private final ReportViews source;         // Date-sorted appointment store the horizon is fed from
+    private final List<Duration> leadTimes;   // Lead times that each produce one reminder
+    private final int horizonDays;            // Number of days of reminders kept armed
+    private final int maxArmed;               // Upper bound on reminders held in the wheel
+    private final int batchSize;              // Maximum reminders handed to the sink per call
+
+    // Wheel levels; each slot holds the entries that cascade or fire when the slot is reached
+    private final List<List<Entry>> minuteWheel = newWheel(MINUTES_PER_HOUR);
+    private final List<List<Entry>> hourWheel = newWheel(HOURS_PER_DAY);
+    private final List<List<Entry>> dayWheel;
+
+    // Entries armed per appointment, keyed by identity because editing changes equals/hashCode
+    private final Map<Apointment, List<Entry>> armed = new IdentityHashMap<>();
+
+    // Entries that became due while being armed or cascaded and fire on the next dispatch
+    private final List<Entry> ready = new ArrayList<>();
+
+    private long currentMinute = Long.MIN_VALUE;   // Last epoch minute processed
+    private long horizonEndMinute;                 // Reminders due before this minute are armed
+    private int occupied;                          // Entries physically held by the wheel, including cancelled ones
+    private long dispatched;
+    private long dropped;
+
+    private ScheduledExecutorService ticker;
+
+    /**
+     * A single reminder held by the wheel.
+     */
+    private static final class Entry {
+        final Apointment appointment;
+        final Duration leadTime;
+        final long dueMinute;
+        boolean cancelled;
+
+        Entry(Apointment appointment, Duration leadTime, long dueMinute) {
+            this.appointment = appointment;
+            this.leadTime = leadTime;
+            this.dueMinute = dueMinute;
+        }
+    }
+
+    /**
+     * Constructor that creates a reminder engine.
+     *
+     * @param sink where due reminders are delivered
+     * @param source the appointment store the arming horizon is fed from
+     * @param leadTimes how long before each appointment a reminder fires
+     * @param horizonDays number of days of reminders kept armed in memory
+     * @param maxArmed maximum number of reminders held at once
+     * @param batchSize maximum number of reminders delivered to the sink per call
+     * @throws IllegalArgumentException if any size is not positive or no lead time is given
+     */
+    public ReminderEngine(ReminderSink sink, ReportViews source, List<Duration> leadTimes,
+                          int horizonDays, int maxArmed, int batchSize) {
+        if (leadTimes.isEmpty() || horizonDays <= 0 || maxArmed <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Lead times and sizes must be positive");
+        }
+        this.sink = sink;
+        this.source = source;
+        this.leadTimes = new ArrayList<>(leadTimes);
+        this.horizonDays = horizonDays;
+        this.maxArmed = maxArmed;
+        this.batchSize = batchSize;
+        this.dayWheel = newWheel(horizonDays);
+    }
+
+    /**
+     * Creates a wheel level with the given number of empty slots.
+     *
+     * @param slots the number of slots
+     * @return the wheel level
+     */
+    private static List<List<Entry>> newWheel(int slots) {
+        List<List<Entry>> wheel = new ArrayList<>(slots);
+        for (int i = 0; i < slots; i++) {
+            wheel.add(new ArrayList<>());
+        }
+        return wheel;
+    }
+
+    /**
+     * Starts the engine at the current time and ticks it once a minute on a background thread.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        reset(toMinute(LocalDateTime.now()));
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "reminder-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(() -> advanceTo(LocalDateTime.now()), 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops the background ticker. Armed reminders are kept.
+     */
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    /**
+     * Arms the reminders for a newly scheduled appointment.
+     * Reminders beyond the horizon are not armed now; they are picked up from the store later.
+     *
+     * @param appointment the appointment to remind about
+     */
+    public synchronized void schedule(Apointment appointment) {
+        if (currentMinute == Long.MIN_VALUE) {
+            return; // Not started; the horizon is filled from the store on start
+        }
+        long appointmentMinute = toMinute(LocalDateTime.of(appointment.getAppointmentDate(), appointment.getAppointmentTime()));
+        for (Duration lead : leadTimes) {
+            long due = appointmentMinute - lead.toMinutes();
+            if (due >= currentMinute && due < horizonEndMinute) {
+                arm(new Entry(appointment, lead, due));
+            }
+        }
+    }
+
+    /**
+     * Cancels every armed reminder for the appointment.
+     * Reminders beyond the horizon are not armed yet, so a cancelled appointment must also be
+     * removed from the appointment store to keep the horizon feed from arming it later.
+     *
+     * @param appointment the appointment whose reminders should no longer fire
+     */
+    public synchronized void cancel(Apointment appointment) {
+        List<Entry> entries = armed.remove(appointment);
+        if (entries != null) {
+            for (Entry entry : entries) {
+                entry.cancelled = true; // Purged lazily when its slot is reached
+            }
+        }
+    }
+
+    /**
+     * Cancels the armed reminders of whatever appointment a pet has at the given start.
+     * Series occurrences are expanded afresh for every window, so they cannot be matched by
+     * identity; a pet never has two appointments starting at once, so the start identifies them.
+     * Scans the armed reminders, so it is meant for occasional edits only.
+     *
+     * @param petID the ID of the pet
+     * @param start the start of the appointment
+     */
+    public synchronized void cancelAt(String petID, LocalDateTime start) {
+        for (Iterator<Map.Entry<Apointment, List<Entry>>> it = armed.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Apointment, List<Entry>> armedEntry = it.next();
+            Apointment appointment = armedEntry.getKey();
+            if (petID.equalsIgnoreCase(appointment.getPetID())
+                    && start.equals(LocalDateTime.of(appointment.getAppointmentDate(), appointment.getAppointmentTime()))) {
+                for (Entry entry : armedEntry.getValue()) {
+                    entry.cancelled = true;
+                }
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Re-arms the reminders of an appointment after its date or time was edited.
+     *
+     * @param appointment the edited appointment
+     */
+    public synchronized void rearm(Apointment appointment) {
+        cancel(appointment);
+        schedule(appointment);
+    }
+
+    /**
+     * Advances the wheel to the given time and dispatches every reminder that became due.
+     * Normally called by the background ticker, but may be driven manually (e.g. in tests).
+     *
+     * @param now the time to advance to
+     */
+    public void advanceTo(LocalDateTime now) {
+        List<Reminder> due = new ArrayList<>();
+        synchronized (this) {
+            long target = toMinute(now);
+            if (currentMinute == Long.MIN_VALUE || target - currentMinute > (long) horizonDays * MINUTES_PER_DAY) {
+                // First run or a long pause: reminders in the gap are stale, start over from the store
+                reset(target);
+            }
+            while (currentMinute < target) {
+                tick();
+            }
+            drainReady(due);
+        }
+
+        // Deliver outside the lock so a slow sink never blocks scheduling
+        for (int from = 0; from < due.size(); from += batchSize) {
+            sink.deliver(due.subList(from, Math.min(due.size(), from + batchSize)));
+        }
+    }
+
+    /**
+     * Gets the number of reminders currently armed.
+     *
+     * @return the armed reminder count
+     */
+    public synchronized int getArmedCount() {
+        int count = 0;
+        for (List<Entry> entries : armed.values()) {
+            count += entries.size();
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of reminders delivered so far.
+     *
+     * @return the dispatched reminder count
+     */
+    public synchronized long getDispatchedCount() {
+        return dispatched;
+    }
+
+    /**
+     * Gets the number of reminders that could not be armed because the wheel was full.
+     *
+     * @return the dropped reminder count
+     */
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    /**
+     * Clears the wheel and refills the whole horizon from the appointment store.
+     *
+     * @param minute the epoch minute to restart from
+     */
+    private void reset(long minute) {
+        for (List<List<Entry>> wheel : Arrays.asList(minuteWheel, hourWheel, dayWheel)) {
+            for (List<Entry> slot : wheel) {
+                slot.clear();
+            }
+        }
+        armed.clear();
+        ready.clear();
+        occupied = 0;
+        currentMinute = minute;
+        horizonEndMinute = Math.floorDiv(minute, MINUTES_PER_DAY) * MINUTES_PER_DAY + (long) horizonDays * MINUTES_PER_DAY;
+        feed(minute, horizonEndMinute);
+    }
+
+    /**
+     * Advances the wheel by one minute, cascading coarser slots and extending the horizon
+     * at hour and day boundaries.
+     */
+    private void tick() {
+        currentMinute++;
+        if (Math.floorMod(currentMinute, MINUTES_PER_DAY) == 0) {
+            cascade(dayWheel, Math.floorMod(currentMinute / MINUTES_PER_DAY, horizonDays));
+        }
+        if (Math.floorMod(currentMinute, MINUTES_PER_HOUR) == 0) {
+            cascade(hourWheel, Math.floorMod(currentMinute / MINUTES_PER_HOUR, HOURS_PER_DAY));
+        }
+        if (Math.floorMod(currentMinute, MINUTES_PER_DAY) == 0) {
+            // A new day entered the horizon: pull its reminders from the store
+            long newEnd = horizonEndMinute + MINUTES_PER_DAY;
+            feed(horizonEndMinute, newEnd);
+            horizonEndMinute = newEnd;
+        }
+
+        List<Entry> slot = minuteWheel.get(Math.floorMod(currentMinute, MINUTES_PER_HOUR));
+        occupied -= slot.size();
+        ready.addAll(slot);
+        slot.clear();
+    }
+
+    /**
+     * Re-inserts the entries of a coarse slot into finer levels.
+     *
+     * @param wheel the wheel level to cascade from
+     * @param index the slot to cascade
+     */
+    private void cascade(List<List<Entry>> wheel, int index) {
+        List<Entry> slot = wheel.get(index);
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(slot);
+        slot.clear();
+        occupied -= entries.size();
+        for (Entry entry : entries) {
+            if (!entry.cancelled) {
+                place(entry);
+            }
+        }
+    }
+
+    /**
+     * Arms reminders for every stored appointment whose reminder falls in the given window.
+     *
+     * @param fromMinute the inclusive start of the window, as an epoch minute
+     * @param toMinute the exclusive end of the window, as an epoch minute
+     */
+    private void feed(long fromMinute, long toMinute) {
+        List<Apointment> window = new ArrayList<>();
+        for (Duration lead : leadTimes) {
+            window.clear();
+            source.collectUpcomingBetween(toDateTime(fromMinute).plus(lead), toDateTime(toMinute).plus(lead), window);
+            for (Apointment appointment : window) {
+                long appointmentMinute = toMinute(LocalDateTime.of(appointment.getAppointmentDate(), appointment.getAppointmentTime()));
+                arm(new Entry(appointment, lead, appointmentMinute - lead.toMinutes()));
+            }
+        }
+    }
+
+    /**
+     * Registers a new entry and places it in the wheel, unless the wheel is full.
+     *
+     * @param entry the entry to arm
+     */
+    private void arm(Entry entry) {
+        List<Entry> entries = armed.computeIfAbsent(entry.appointment, a -> new ArrayList<>(leadTimes.size()));
+        for (Entry existing : entries) {
+            if (existing.leadTime.equals(entry.leadTime)) {
+                return; // Already armed, e.g. by the horizon feed racing a new booking
+            }
+        }
+        if (occupied >= maxArmed) {
+            dropped++;
+            if (entries.isEmpty()) {
+                armed.remove(entry.appointment);
+            }
+            return;
+        }
+        entries.add(entry);
+        place(entry);
+    }
+
+    /**
+     * Puts an entry into the coarsest wheel level that covers its distance from the current minute.
+     *
+     * @param entry the entry to place
+     */
+    private void place(Entry entry) {
+        long delta = entry.dueMinute - currentMinute;
+        if (delta <= 0) {
+            ready.add(entry);
+            return;
+        }
+        if (delta < MINUTES_PER_HOUR) {
+            minuteWheel.get(Math.floorMod(entry.dueMinute, MINUTES_PER_HOUR)).add(entry);
+        } else if (delta < MINUTES_PER_DAY) {
+            hourWheel.get(Math.floorMod(entry.dueMinute / MINUTES_PER_HOUR, HOURS_PER_DAY)).add(entry);
+        } else {
+            dayWheel.get(Math.floorMod(entry.dueMinute / MINUTES_PER_DAY, horizonDays)).add(entry);
+        }
+        occupied++;
+    }
+
+    /**
+     * Moves every live ready entry into the dispatch list and forgets it.
+     *
+     * @param out the list the due reminders are appended to
+     */
+    private void drainReady(List<Reminder> out) {
+        for (Entry entry : ready) {
+            if (entry.cancelled) {
+                continue;
+            }
+            List<Entry> entries = armed.get(entry.appointment);
+            if (entries != null) {
+                entries.remove(entry);
+                if (entries.isEmpty()) {
+                    armed.remove(entry.appointment);
+                }
+            }
+            out.add(new Reminder(entry.appointment, entry.leadTime, toDateTime(entry.dueMinute)));
+            dispatched++;
+        }
+        ready.clear();
+    }
+
+    /**
+     * Converts a date and time to minutes since the epoch.
+     *
+     * @param dateTime the date and time to convert
+     * @return the epoch minute
+     */
+    private static long toMinute(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    /**
+     * Converts minutes since the epoch back to a date and time.
+     *
+     * @param minute the epoch minute
+     * @return the corresponding date and time
+     */
+    private static LocalDateTime toDateTime(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+}
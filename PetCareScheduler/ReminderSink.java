@@ -0,0 +1,17 @@
+package PetCareScheduler;
+
+import java.util.List;
+
+/**
+ * Destination for reminders dispatched by the {@link ReminderEngine}.
+ * Implementations decide how reminders reach the pet owner (file, e-mail, SMS gateway, ...).
+ */
+public interface ReminderSink {
+    /**
+     * Delivers a batch of due reminders.
+     * Called from the engine's dispatch thread; implementations should not block for long.
+     *
+     * @param batch the reminders to deliver, never empty
+     */
+    void deliver(List<Reminder> batch);
+}
@@ -0,0 +1,214 @@
+package PetCareScheduler;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Materialized views backing the Pet Care Scheduler reports.
+ * Every view is updated incrementally when a pet is registered or an appointment is scheduled,
+ * rescheduled or cancelled, so generating a report never has to scan the full pet or appointment history.
+ *
+ * The views kept here are:
+ * - per-type appointment counters
+ * - a date/time-sorted queue of upcoming appointments, trimmed lazily when the day rolls over
+ *
+ * Preventive-care due dates per pet are kept by the {@link PreventiveCareEngine}.
+ * Recurring series are not materialized here; window queries expand them from the series store.
+ */
+public class ReportViews {
+    // Number of appointments per type, kept in insertion order for a stable report layout
+    private final Map<String, Integer> typeCounts = new LinkedHashMap<>();
+
+    // Upcoming appointments ordered by date and time; several appointments may share a slot
+    private final TreeMap<LocalDateTime, List<Apointment>> upcoming = new TreeMap<>();
+    private int upcomingSize;
+
+    // Day the upcoming queue was last trimmed against
+    private LocalDate currentDay = LocalDate.now();
+
+    private int totalPets;
+    private int totalAppointments;
+
+    // Recurring series, expanded lazily for window queries
+    private final RecurringSeriesStore seriesStore;
+
+    /**
+     * Constructor that creates empty report views.
+     *
+     * @param seriesStore the recurring series included in window queries
+     */
+    public ReportViews(RecurringSeriesStore seriesStore) {
+        this.seriesStore = seriesStore;
+    }
+
+    /**
+     * Records a newly registered (or loaded) pet.
+     *
+     * @param pet the pet that was added to the registry
+     */
+    public synchronized void onPetRegistered(Pet pet) {
+        totalPets++;
+    }
+
+    /**
+     * Records a newly scheduled (or loaded) appointment in every view.
+     *
+     * @param appointment the appointment that was added to the global appointment list
+     */
+    public synchronized void onAppointmentScheduled(Apointment appointment) {
+        totalAppointments++;
+        typeCounts.merge(appointment.getAppointmentType(), 1, Integer::sum);
+
+        // Only appointments from today onwards belong in the upcoming queue
+        rollOver(LocalDate.now());
+        if (!appointment.getAppointmentDate().isBefore(currentDay)) {
+            LocalDateTime key = LocalDateTime.of(appointment.getAppointmentDate(), appointment.getAppointmentTime());
+            upcoming.computeIfAbsent(key, k -> new ArrayList<>(1)).add(appointment);
+            upcomingSize++;
+        }
+    }
+
+    /**
+     * Removes a cancelled appointment from every view.
+     *
+     * @param appointment the appointment that was removed from the global appointment list
+     */
+    public synchronized void onAppointmentCancelled(Apointment appointment) {
+        totalAppointments--;
+        typeCounts.computeIfPresent(appointment.getAppointmentType(), (type, count) -> count > 1 ? count - 1 : null);
+        removeUpcoming(appointment, LocalDateTime.of(appointment.getAppointmentDate(), appointment.getAppointmentTime()));
+    }
+
+    /**
+     * Moves a rescheduled appointment within the date-based views.
+     *
+     * @param appointment the appointment, already carrying its new date and time
+     * @param oldDate the date it was scheduled on before
+     * @param oldTime the time it was scheduled at before
+     */
+    public synchronized void onAppointmentRescheduled(Apointment appointment, LocalDate oldDate, LocalTime oldTime) {
+        rollOver(LocalDate.now());
+        removeUpcoming(appointment, LocalDateTime.of(oldDate, oldTime));
+        if (!appointment.getAppointmentDate().isBefore(currentDay)) {
+            LocalDateTime key = LocalDateTime.of(appointment.getAppointmentDate(), appointment.getAppointmentTime());
+            upcoming.computeIfAbsent(key, k -> new ArrayList<>(1)).add(appointment);
+            upcomingSize++;
+        }
+    }
+
+    /**
+     * Removes an appointment (matched by identity) from the upcoming queue.
+     *
+     * @param appointment the appointment to remove
+     * @param key the date and time it is queued under
+     */
+    private void removeUpcoming(Apointment appointment, LocalDateTime key) {
+        List<Apointment> slot = upcoming.get(key);
+        if (slot == null) {
+            return; // Already in the past
+        }
+        for (Iterator<Apointment> it = slot.iterator(); it.hasNext(); ) {
+            if (it.next() == appointment) {
+                it.remove();
+                upcomingSize--;
+                break;
+            }
+        }
+        if (slot.isEmpty()) {
+            upcoming.remove(key);
+        }
+    }
+
+    /**
+     * Drops appointments that fell behind the given day from the upcoming queue.
+     * Only the expired head of the queue is touched, so the cost is proportional
+     * to the number of appointments that expired since the last roll-over.
+     *
+     * @param today the current date
+     */
+    private void rollOver(LocalDate today) {
+        if (!today.isAfter(currentDay)) {
+            return;
+        }
+        currentDay = today;
+        LocalDateTime cutoff = today.atStartOfDay();
+        while (!upcoming.isEmpty() && upcoming.firstKey().isBefore(cutoff)) {
+            upcomingSize -= upcoming.pollFirstEntry().getValue().size();
+        }
+    }
+
+    /**
+     * Gets the number of registered pets.
+     *
+     * @return the total pet count
+     */
+    public synchronized int getTotalPets() {
+        return totalPets;
+    }
+
+    /**
+     * Gets the number of scheduled appointments.
+     *
+     * @return the total appointment count
+     */
+    public synchronized int getTotalAppointments() {
+        return totalAppointments;
+    }
+
+    /**
+     * Gets the number of appointments dated today or later.
+     *
+     * @return the upcoming appointment count
+     */
+    public synchronized int getUpcomingCount() {
+        rollOver(LocalDate.now());
+        return upcomingSize;
+    }
+
+    /**
+     * Copies the upcoming appointments (today and later) in chronological order.
+     * A copy rather than a view, since bookings and the reminder engine keep changing the queue.
+     *
+     * @return the upcoming appointments grouped by slot, in chronological order
+     */
+    public synchronized List<List<Apointment>> getUpcoming() {
+        rollOver(LocalDate.now());
+        List<List<Apointment>> copy = new ArrayList<>(upcoming.size());
+        for (List<Apointment> slot : upcoming.values()) {
+            copy.add(new ArrayList<>(slot));
+        }
+        return copy;
+    }
+
+    /**
+     * Copies the upcoming appointments whose date and time fall in the given range,
+     * including occurrences of recurring series.
+     * Synchronized so background consumers such as the reminder engine can read
+     * the queue while the console keeps scheduling.
+     *
+     * @param from the inclusive start of the range
+     * @param to the exclusive end of the range
+     * @param out the list the matching appointments are appended to
+     */
+    public synchronized void collectUpcomingBetween(LocalDateTime from, LocalDateTime to, List<Apointment> out) {
+        rollOver(LocalDate.now());
+        if (!from.isBefore(to)) {
+            return;
+        }
+        for (List<Apointment> slot : upcoming.subMap(from, true, to, false).values()) {
+            out.addAll(slot);
+        }
+        out.addAll(seriesStore.occurrencesBetween(from, to));
+    }
+
+    /**
+     * Copies the appointment count per type.
+     *
+     * @return a map of appointment type to count, in report order
+     */
+    public synchronized Map<String, Integer> getTypeCounts() {
+        return new LinkedHashMap<>(typeCounts);
+    }
+}
@@ -0,0 +1,123 @@
+package PetCareScheduler;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Capacity rules for one appointment type: how long it takes, which resources it occupies,
+ * how many may be booked per day and whether it may push other appointments aside.
+ */
+public class TypePolicy {
+    private final String appointmentType;            // One of BookingService.VALID_TYPES
+    private final int durationMinutes;               // How long the appointment occupies its resources
+    private final Set<ClinicResource.Kind> rooms;    // Any one of these room kinds will do
+    private final boolean needsVet;                  // Whether a vet must be free as well
+    private final int dailyQuota;                    // Maximum bookings per day, 0 for no limit
+    private final int priority;                      // Higher values are allocated first
+    private final boolean preemptive;                // May displace lower-priority appointments
+    private final boolean afterHours;                // Accepted outside opening hours (not capacity-tracked)
+
+    /**
+     * Constructor that creates a policy.
+     *
+     * @param appointmentType the appointment type the policy applies to
+     * @param durationMinutes how long the appointment takes
+     * @param rooms the room kinds the appointment can take place in
+     * @param needsVet whether a vet must attend
+     * @param dailyQuota the maximum number of bookings per day, 0 for no limit
+     * @param priority the allocation priority; higher values go first
+     * @param preemptive whether the type may displace lower-priority appointments
+     * @param afterHours whether the type is accepted outside opening hours
+     * @throws IllegalArgumentException if the duration is not positive or no room kind is given
+     */
+    public TypePolicy(String appointmentType, int durationMinutes, Set<ClinicResource.Kind> rooms, boolean needsVet,
+                      int dailyQuota, int priority, boolean preemptive, boolean afterHours) {
+        if (durationMinutes <= 0) {
+            throw new IllegalArgumentException("Duration must be positive: " + durationMinutes);
+        }
+        if (rooms.isEmpty()) {
+            throw new IllegalArgumentException("No room kind given for " + appointmentType);
+        }
+        this.appointmentType = appointmentType;
+        this.durationMinutes = durationMinutes;
+        this.rooms = Collections.unmodifiableSet(EnumSet.copyOf(rooms));
+        this.needsVet = needsVet;
+        this.dailyQuota = dailyQuota;
+        this.priority = priority;
+        this.preemptive = preemptive;
+        this.afterHours = afterHours;
+    }
+
+    /**
+     * Gets the appointment type the policy applies to.
+     *
+     * @return the appointment type
+     */
+    public String getAppointmentType() {
+        return appointmentType;
+    }
+
+    /**
+     * Gets how long the appointment takes.
+     *
+     * @return the duration in minutes
+     */
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    /**
+     * Gets the room kinds the appointment can take place in.
+     *
+     * @return a read-only set of room kinds
+     */
+    public Set<ClinicResource.Kind> getRooms() {
+        return rooms;
+    }
+
+    /**
+     * Checks whether a vet must attend.
+     *
+     * @return true if a vet is required
+     */
+    public boolean isNeedsVet() {
+        return needsVet;
+    }
+
+    /**
+     * Gets the maximum number of bookings per day.
+     *
+     * @return the quota, or 0 for no limit
+     */
+    public int getDailyQuota() {
+        return dailyQuota;
+    }
+
+    /**
+     * Gets the allocation priority.
+     *
+     * @return the priority; higher values go first
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Checks whether the type may displace lower-priority appointments.
+     *
+     * @return true if the type is preemptive
+     */
+    public boolean isPreemptive() {
+        return preemptive;
+    }
+
+    /**
+     * Checks whether the type is accepted outside opening hours.
+     *
+     * @return true if after-hours bookings are allowed
+     */
+    public boolean isAfterHours() {
+        return afterHours;
+    }
+}
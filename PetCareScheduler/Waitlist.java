@@ -0,0 +1,366 @@
+package PetCareScheduler;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Requests waiting for a slot to free up, matched against each slot as it is freed.
+ *
+ * Every appointment type has its own treap (a randomly balanced binary search tree) of waiting
+ * requests, ordered by the end of their preferred window and then by arrival. Each node also
+ * records the earliest window start in its subtree. For a freed slot the best request of a type
+ * is the one whose window closes first among those whose window contains the slot, so the request
+ * about to run out of time is served first. One descent finds it: nodes whose window ends before
+ * the slot are passed on the right, and subtrees whose earliest start is after the slot are skipped
+ * whole. Matching a slot therefore costs O(log n) per type and never rescans the list.
+ *
+ * Between types, the higher-priority type wins, then the window closing first, then arrival.
+ *
+ * A matched request is claimed, i.e. taken out of its treap, before it is booked, so two freed
+ * slots can never book the same request; if the booking fails it is put back in its old place.
+ * All methods are synchronized.
+ */
+public class Waitlist {
+    // One waiting request; ordered by (end, seq) within its type's treap
+    private static final class Node {
+        final BookingService.SlotRequest request;
+        final long start;
+        final long end;
+        final long seq;
+        final int priority;
+        long minStart;
+        Node left;
+        Node right;
+
+        Node(BookingService.SlotRequest request, long start, long end, long seq, int priority) {
+            this.request = request;
+            this.start = start;
+            this.end = end;
+            this.seq = seq;
+            this.priority = priority;
+            this.minStart = start;
+        }
+    }
+
+    private final Comparator<Node> order;   // Between the best requests of different types
+    private final Map<String, Node> roots = new HashMap<>();
+    private final Map<BookingService.SlotRequest, Node> nodes = new IdentityHashMap<>();
+    private final Map<BookingService.SlotRequest, Node> claimed = new IdentityHashMap<>();
+    private final Random random = new Random();
+    private long nextSeq;
+
+    /**
+     * Constructor that creates an empty waitlist.
+     *
+     * @param priorityOf the priority of an appointment type; higher types are matched first
+     */
+    public Waitlist(ToIntFunction<String> priorityOf) {
+        this.order = Comparator
+                .comparingInt((Node n) -> -priorityOf.applyAsInt(n.request.getAppointmentType()))
+                .thenComparingLong(n -> n.end)
+                .thenComparingLong(n -> n.seq);
+    }
+
+    /**
+     * Adds a request at the back of the waitlist.
+     *
+     * @param request the request; its window runs from its earliest to its latest start
+     * @throws IllegalArgumentException if the request is already waiting or its window is empty
+     */
+    public synchronized void add(BookingService.SlotRequest request) {
+        if (nodes.containsKey(request) || claimed.containsKey(request)) {
+            throw new IllegalArgumentException("The request is already on the waitlist");
+        }
+        long start = BookingService.slotKey(request.getEarliest().toLocalDate(), request.getEarliest().toLocalTime());
+        long end = request.getLatest() == null ? Long.MAX_VALUE
+                : BookingService.slotKey(request.getLatest().toLocalDate(), request.getLatest().toLocalTime());
+        if (end < start) {
+            throw new IllegalArgumentException("The latest start is before the earliest start");
+        }
+        Node node = new Node(request, start, end, nextSeq++, random.nextInt());
+        nodes.put(request, node);
+        insert(node);
+    }
+
+    /**
+     * Takes a request off the waitlist.
+     *
+     * @param request the request
+     * @return true if it was waiting; false if it was never added, already booked or is being booked
+     */
+    public synchronized boolean remove(BookingService.SlotRequest request) {
+        Node node = nodes.remove(request);
+        if (node == null) {
+            return false;
+        }
+        delete(node);
+        return true;
+    }
+
+    /**
+     * Claims the best request for a freed slot: of the highest-priority type with a request whose
+     * window contains the slot, the one whose window closes first. The caller books it and then
+     * calls {@link #complete} or {@link #requeue}.
+     *
+     * @param slot the start of the freed slot
+     * @param skippedTypes types not to match, e.g. because they do not fit the slot
+     * @return the claimed request, or null if no waiting request accepts the slot
+     */
+    public synchronized BookingService.SlotRequest claim(LocalDateTime slot, Set<String> skippedTypes) {
+        long t = BookingService.slotKey(slot.toLocalDate(), slot.toLocalTime());
+        Node best = null;
+        for (Map.Entry<String, Node> type : roots.entrySet()) {
+            if (skippedTypes.contains(type.getKey())) {
+                continue;
+            }
+            Node candidate = find(type.getValue(), t);
+            if (candidate != null && (best == null || order.compare(candidate, best) < 0)) {
+                best = candidate;
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+        nodes.remove(best.request);
+        delete(best);
+        claimed.put(best.request, best);
+        return best.request;
+    }
+
+    /**
+     * Puts a claimed request that could not be booked back in its old place.
+     *
+     * @param request the claimed request
+     */
+    public synchronized void requeue(BookingService.SlotRequest request) {
+        Node node = claimed.remove(request);
+        if (node != null) {
+            node.left = null;
+            node.right = null;
+            node.minStart = node.start;
+            nodes.put(request, node);
+            insert(node);
+        }
+    }
+
+    /**
+     * Forgets a claimed request once it has been booked or can never be booked.
+     *
+     * @param request the claimed request
+     */
+    public synchronized void complete(BookingService.SlotRequest request) {
+        claimed.remove(request);
+    }
+
+    /**
+     * Drops the requests whose window has closed.
+     *
+     * @param now the current time
+     * @return the dropped requests
+     */
+    public synchronized List<BookingService.SlotRequest> expire(LocalDateTime now) {
+        long t = BookingService.slotKey(now.toLocalDate(), now.toLocalTime());
+        List<BookingService.SlotRequest> expired = new ArrayList<>();
+        for (String type : new ArrayList<>(roots.keySet())) {
+            // The leftmost node closes first
+            Node first = leftmost(roots.get(type));
+            while (first != null && first.end < t) {
+                nodes.remove(first.request);
+                delete(first);
+                expired.add(first.request);
+                first = leftmost(roots.get(type));
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Gets the waiting requests in the order they were added.
+     *
+     * @return a snapshot of the waitlist
+     */
+    public synchronized List<BookingService.SlotRequest> getAll() {
+        List<Node> waiting = new ArrayList<>(nodes.values());
+        waiting.sort(Comparator.comparingLong(n -> n.seq));
+        List<BookingService.SlotRequest> requests = new ArrayList<>(waiting.size());
+        for (Node node : waiting) {
+            requests.add(node.request);
+        }
+        return requests;
+    }
+
+    /**
+     * Gets the number of waiting requests.
+     *
+     * @return the number of requests, not counting those being booked
+     */
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Finds, in one subtree, the first node by (end, seq) whose window contains the slot.
+     * Where the whole right subtree ends at or after the slot, the earliest start of a subtree
+     * tells at once whether it holds a match, so only one path is followed to the bottom.
+     *
+     * @param node the subtree
+     * @param t the slot key
+     * @return the matching node, or null
+     */
+    private static Node find(Node node, long t) {
+        if (node == null || node.minStart > t) {
+            return null;
+        }
+        if (node.end < t) {
+            return find(node.right, t);
+        }
+        Node left = find(node.left, t);
+        if (left != null) {
+            return left;
+        }
+        return node.start <= t ? node : find(node.right, t);
+    }
+
+    /**
+     * Inserts a node into its type's treap.
+     *
+     * @param node the node
+     */
+    private void insert(Node node) {
+        String type = node.request.getAppointmentType();
+        Node[] parts = split(roots.get(type), node);
+        roots.put(type, merge(merge(parts[0], node), parts[1]));
+    }
+
+    /**
+     * Removes a node from its type's treap.
+     *
+     * @param node the node, which must be in the treap
+     */
+    private void delete(Node node) {
+        String type = node.request.getAppointmentType();
+        Node root = remove(roots.get(type), node);
+        if (root == null) {
+            roots.remove(type);
+        } else {
+            roots.put(type, root);
+        }
+    }
+
+    /**
+     * Removes a node from a subtree by joining its children in its place.
+     *
+     * @param root the subtree
+     * @param node the node to remove
+     * @return the new subtree
+     */
+    private static Node remove(Node root, Node node) {
+        if (root == node) {
+            return merge(root.left, root.right);
+        }
+        if (before(node, root)) {
+            root.left = remove(root.left, node);
+        } else {
+            root.right = remove(root.right, node);
+        }
+        update(root);
+        return root;
+    }
+
+    /**
+     * Splits a subtree into the nodes ordered before a key node and the rest.
+     *
+     * @param root the subtree
+     * @param key the key node
+     * @return the two subtrees
+     */
+    private static Node[] split(Node root, Node key) {
+        if (root == null) {
+            return new Node[2];
+        }
+        if (before(root, key)) {
+            Node[] parts = split(root.right, key);
+            root.right = parts[0];
+            update(root);
+            parts[0] = root;
+            return parts;
+        }
+        Node[] parts = split(root.left, key);
+        root.left = parts[1];
+        update(root);
+        parts[1] = root;
+        return parts;
+    }
+
+    /**
+     * Joins two subtrees, every node of the first ordered before every node of the second.
+     *
+     * @param a the first subtree
+     * @param b the second subtree
+     * @return the joined subtree
+     */
+    private static Node merge(Node a, Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    /**
+     * Recomputes the earliest start of a subtree from its children.
+     *
+     * @param node the subtree root
+     */
+    private static void update(Node node) {
+        long min = node.start;
+        if (node.left != null) {
+            min = Math.min(min, node.left.minStart);
+        }
+        if (node.right != null) {
+            min = Math.min(min, node.right.minStart);
+        }
+        node.minStart = min;
+    }
+
+    /**
+     * Orders nodes by the end of their window, then by arrival.
+     *
+     * @param a one node
+     * @param b another node
+     * @return true if a comes before b
+     */
+    private static boolean before(Node a, Node b) {
+        return a.end != b.end ? a.end < b.end : a.seq < b.seq;
+    }
+
+    /**
+     * Gets the first node of a subtree.
+     *
+     * @param node the subtree
+     * @return its leftmost node, or null if it is empty
+     */
+    private static Node leftmost(Node node) {
+        while (node != null && node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+}
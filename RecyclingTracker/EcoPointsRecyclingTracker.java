@@ -1,8 +1,22 @@
 package RecyclingTracker;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import Common.HeavyHitters;
+import Common.BatchRunner;
+import Common.EventPipeline;
+import Common.LatencyHistogram;
+import Common.Metrics;
+import Common.PagedListing;
+import Common.PersistentMap;
+import Common.RecordStore;
 
 
 
@@ -11,9 +25,100 @@ import java.time.LocalDate;
  */
 public class EcoPointsRecyclingTracker {
     private static Scanner scanner = new Scanner(System.in);
-    private static Map<String, Household> households = new HashMap<>(); // Task 2
+    // Every household as an immutable version, replaced as each change is applied; reports read it
+    // too. Taking a snapshot is a single read, and old versions are reclaimed once no report holds them
+    private static final AtomicReference<PersistentMap<String, HouseholdVersion>> versions =
+            new AtomicReference<>(PersistentMap.empty());
+    // Event lists of recently viewed households; the rest stay on disk until asked for.
+    // Bounded in events with -Decopoints.cache.events
+    private static final EventHistoryCache eventHistory = new EventHistoryCache(
+            Integer.getInteger("ecopoints.cache.events", 100_000), EcoPointsRecyclingTracker::readEvents);
+    // Events from earlier runs not yet in the analytics and outlier statistics: those logged after the
+    // statistics were last saved. Fed in the background after startup, each household under its own lock
+    private static final Map<String, UnwarmedEvents> unwarmed = new ConcurrentHashMap<>();
+    private static volatile Thread historyWarmUp;
+    private static final int PAGE_SIZE = 20; // Households shown per page
+    // One buffered writer reused by every listing; each page reaches the terminal in a single write
+    private static final PrintWriter listingOut = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16), false);
+    private static final Path DATA_DIRECTORY = Paths.get(System.getProperty("ecopoints.data", "ecopoints-data"));
+    // Households and their events are appended to these stores as they are entered;
+    // each household record carries its running totals, so startup reads no events
+    private static RecordStore<HouseholdVersion> householdStore;
+    private static RecordStore<RecyclingEvent> eventStore;
+    // Events held back as outliers until they are released or discarded, keyed by quarantineKey
+    private static RecordStore<RecyclingEvent> quarantineStore;
+    // The analytics and outlier statistics as of the last save, under STATISTICS_KEY
+    private static RecordStore<StatisticsCheckpoint> statisticsStore;
+    private static final String STATISTICS_KEY = "checkpoint";
+    // Set when -Decopoints.shards lists shard nodes; households then live on the nodes, not in the map
+    private static ShardCluster cluster;
+    // Set when -Decopoints.replication.port lets a standby follow this process
+    private static ReplicationPrimary replication;
+    // Approximate per-month figures, updated with every event; not kept in sharded mode
+    private static final RecyclingAnalytics analytics = new RecyclingAnalytics();
+    // Every logged event is published here once; storing it and analytics follow on their own threads
+    private static final EventPipeline<LoggedEvent> loggedEvents = new EventPipeline<>("ecopoints-events", 8192);
+    private static final int SAVE_BATCH = 256; // Most events stored under one lock of the event store
+    // A batch that fails to store is retried until it goes through, so nothing later is stored ahead of it;
+    // once the stores are closing it is given up on, and so is everything after it
+    private static final long SAVE_RETRY_MAX_MILLIS = 5000;
+    private static volatile boolean closingStores;
+    private static boolean savingStopped;  // Only touched on the pipeline's thread
+    // Usual weights per household and material, updated with every event; not kept in sharded mode
+    private static final WeightOutlierDetector outliers = new WeightOutlierDetector();
+    // Latency of the non-interactive part of each operation (prompts are not timed)
+    private static final LatencyHistogram LOAD_LATENCY = Metrics.histogram("ecopoints_load_seconds");
+    private static final LatencyHistogram REGISTER_LATENCY = Metrics.histogram("ecopoints_register_household_seconds");
+    private static final LatencyHistogram LOG_EVENT_LATENCY = Metrics.histogram("ecopoints_log_event_seconds");
+    private static final LatencyHistogram REPORT_LATENCY = Metrics.histogram("ecopoints_generate_reports_seconds");
+    private static final LatencyHistogram CLOSE_LATENCY = Metrics.histogram("ecopoints_save_seconds");
+    private static final Metrics.Counter EVENTS_LOGGED = Metrics.counter("ecopoints_events_logged_total");
+    // A household's events numbered from (inclusive) to (exclusive) still to be fed to the statistics
+    private static final class UnwarmedEvents {
+        final int from;
+        final int to;
+
+        UnwarmedEvents(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
     public static void main(String[] args) {
-        loadHouseholdsFromFile();
+        // In batch mode only command results go to standard output; other messages go to standard error
+        PrintStream results = System.out;
+        boolean batch = BatchRunner.isRequested(args);
+        if (batch) System.setOut(System.err);
+
+        Metrics.install("EcoPointsRecyclingTracker");
+        String shards = System.getProperty("ecopoints.shards");
+        if (shards != null) {
+            cluster = new ShardCluster(shards);
+            System.out.println("Households are kept on " + cluster.getNodeCount() + " shard nodes.");
+        } else {
+            Metrics.gauge("ecopoints_households", () -> snapshot().size());
+            Metrics.gauge("ecopoints_event_cache_events", eventHistory::getCachedEvents);
+            Metrics.gauge("ecopoints_event_cache_misses_total", eventHistory::getMisses);
+            startPipeline();
+            String primary = System.getProperty("ecopoints.standby");
+            if (primary != null) {
+                // Standby: mirror the primary until it is lost, then carry on with the same households
+                followPrimary(primary);
+            } else {
+                long loadStart = Metrics.start();
+                loadHouseholdsFromFile();
+                LOAD_LATENCY.recordSince(loadStart);
+            }
+            startReplication();
+        }
+
+        if (batch) {
+            runBatch(args, results);
+            closeStores();
+            Metrics.shutdown();
+            return;
+        }
+
         boolean running = true;
         while (running) {
             System.out.println("\n=== Eco-Points Recycling Tracker ===");
@@ -23,33 +128,47 @@ public class EcoPointsRecyclingTracker {
             System.out.println("4. Display Household Recycling Events");
             System.out.println("5. Generate Reports");
             System.out.println("6. Save and Exit");
+            System.out.println("7. Review Quarantined Events");
             System.out.print("Choose an option: ");
 
             String choice = scanner.nextLine();
 
-            switch (choice) {
-                case "1":
-                    registerHousehold();
-                    break;
-                case "2":
-                    logRecyclingEvent();
-                    break;
-                case "3":
-                    displayHouseholds();
-                    break;
-                case "4":
-                    displayHouseholdEvents();
-                    break;
-                case "5":
-                    generateReports();
-                    break;
-                case "6":
-                    saveHouseholdsToFile();
-                    running = false;
-                    System.out.println("Data saved. Goodbye!");
-                    break;
-                default:
-                    System.out.println("Invalid choice. Please select 1-6.");
+            try {
+                switch (choice) {
+                    case "1":
+                        registerHousehold();
+                        break;
+                    case "2":
+                        logRecyclingEvent();
+                        break;
+                    case "3":
+                        displayHouseholds();
+                        break;
+                    case "4":
+                        displayHouseholdEvents();
+                        break;
+                    case "5":
+                        long reportStart = Metrics.start();
+                        generateReports();
+                        REPORT_LATENCY.recordSince(reportStart);
+                        break;
+                    case "6":
+                        long closeStart = Metrics.start();
+                        closeStores();
+                        CLOSE_LATENCY.recordSince(closeStart);
+                        Metrics.shutdown();
+                        running = false;
+                        System.out.println("Data saved. Goodbye!");
+                        break;
+                    case "7":
+                        reviewQuarantine();
+                        break;
+                    default:
+                        System.out.println("Invalid choice. Please select 1-7.");
+                }
+            } catch (UncheckedIOException | IllegalArgumentException e) {
+                // A shard node is down or refused the request; the menu keeps running
+                System.out.println("Error: " + e.getMessage());
             }
         }
     }
@@ -62,7 +181,7 @@ public class EcoPointsRecyclingTracker {
         String id = scanner.nextLine().trim();  // Read and trim input
 
         // Check if a household with this ID already exists in the map
-        if (households.containsKey(id)) {
+        if (householdExists(id)) {
             System.out.println("Error: Household ID already exists.");
             return;  // Stop and return early if duplicate found
         }
@@ -79,7 +198,7 @@ public class EcoPointsRecyclingTracker {
         Household household = new Household(id, name, address);
 
         // Add the new household to the households map (using ID as the key)
-        households.put(id, household);
+        addHousehold(household);
 
         // Confirm to the user that the household was registered successfully
         System.out.println("Household registered successfully on " + household.getJoinDate());
@@ -92,7 +211,7 @@ public class EcoPointsRecyclingTracker {
         String id = scanner.nextLine().trim();
 
         // Look up the household in the map by ID
-        Household household = households.get(id);
+        HouseholdView household = findHousehold(id);
 
         // If household not found, show error and exit
         if (household == null) {
@@ -127,8 +246,19 @@ public class EcoPointsRecyclingTracker {
         // Create a new RecyclingEvent using the material and weight
         RecyclingEvent event = new RecyclingEvent(material, weight);
 
+        // Hold unusually heavy entries for review instead of letting them dominate the reports
+        String reason = outlierReason(household, event);
+        if (reason != null) {
+            System.out.println("Warning: " + reason + ".");
+            System.out.print("Log it anyway? (y/n): ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                quarantineEvent(household.getId(), event);
+                return;
+            }
+        }
+
         // Add the new event to the household and update points
-        household.addEvent(event);
+        recordEvent(household, event);
 
         // Show success message with points earned
         System.out.println("Recycling event logged! Points earned: " + event.getEcoPoints());
@@ -137,20 +267,62 @@ public class EcoPointsRecyclingTracker {
     // Task 6
     private static void displayHouseholds() {
         // Check if the households map is empty
-        if (households.isEmpty()) {
+        if (householdCount() == 0) {
             System.out.println("No households registered.");
             return; // Exit early if there's nothing to show
         }
 
+        // Let the user pick the sort order; the ID breaks ties so paging stays stable
+        System.out.print("Sort by 1) ID 2) Name 3) Points (highest first): ");
+        Comparator<HouseholdView> byId = Comparator.comparing(HouseholdView::getId);
+        Comparator<HouseholdView> order;
+        switch (scanner.nextLine().trim()) {
+            case "2":
+                order = Comparator.comparing((HouseholdView h) -> h.getName().toLowerCase()).thenComparing(byId);
+                break;
+            case "3":
+                order = Comparator.comparingDouble(HouseholdView::getTotalPoints).reversed().thenComparing(byId);
+                break;
+            default:
+                order = byId;
+        }
+
+        // Optional filter on name or address
+        System.out.print("Filter by name or address (blank for all): ");
+        String filter = scanner.nextLine().trim().toLowerCase();
+
         // If there are households, print a header first
         System.out.println("\nRegistered Households:");
 
-        // Loop through each household in the map and print its details
-        for (Household h : households.values()) {
-            System.out.println("ID: " + h.getId() +
-                    ", Name: " + h.getName() +
-                    ", Address: " + h.getAddress() +
-                    ", Joined: " + h.getJoinDate());
+        // Render one page at a time straight from a snapshot, without copying it;
+        // shard nodes are asked once and their households kept for the listing
+        Consumer<Consumer<HouseholdView>> source = snapshot().values()::forEach;
+        if (cluster != null) {
+            List<HouseholdView> fetched = new ArrayList<>();
+            cluster.forEach(fetched::add);
+            source = fetched::forEach;
+        }
+        PagedListing<HouseholdView> listing = new PagedListing<>(source, order,
+                h -> filter.isEmpty() || h.getName().toLowerCase().contains(filter)
+                        || h.getAddress().toLowerCase().contains(filter),
+                PAGE_SIZE);
+        while (listing.renderNextPage(listingOut, (h, out) -> {
+            out.print("ID: ");
+            out.print(h.getId());
+            out.print(", Name: ");
+            out.print(h.getName());
+            out.print(", Address: ");
+            out.print(h.getAddress());
+            out.print(", Joined: ");
+            out.println(h.getJoinDate());
+        })) {
+            System.out.print("Press Enter for the next page, or q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                return;
+            }
+        }
+        if (listing.getMatchCount() == 0) {
+            System.out.println("No matching households.");
         }
     }
 
@@ -161,7 +333,7 @@ public class EcoPointsRecyclingTracker {
         String id = scanner.nextLine().trim();
 
         // Look up the household in the households map using the ID
-        Household household = households.get(id);
+        HouseholdView household = cluster != null ? cluster.findWithEvents(id) : snapshot().get(id);
 
         // If household is not found, show an error and exit
         if (household == null) {
@@ -172,12 +344,13 @@ public class EcoPointsRecyclingTracker {
         // Print a header with the household's name
         System.out.println("\nRecycling Events for " + household.getName() + ":");
 
-        // Check if the household has any recycling events
-        if (household.getEvents().isEmpty()) {
+        // Check if the household has any recycling events; they are read from disk if not cached
+        List<RecyclingEvent> events = household.getEvents();
+        if (events.isEmpty()) {
             System.out.println("No events logged.");
         } else {
             // Loop through all recycling events and print each one
-            for (RecyclingEvent e : household.getEvents()) {
+            for (RecyclingEvent e : events) {
                 //Print the stringified version of the event
                 System.out.println(e);
             }
@@ -190,10 +363,42 @@ public class EcoPointsRecyclingTracker {
         }
     }
 
+    // Lets the user release or discard each event held as an outlier
+    private static void reviewQuarantine() {
+        List<String> keys = quarantinedKeys();
+        if (keys.isEmpty()) {
+            System.out.println("No events are quarantined.");
+            return;
+        }
+        for (String key : keys) {
+            try {
+                RecyclingEvent event = quarantineStore.get(key);
+                System.out.println("\n#" + quarantineNumber(key) + " for household " + quarantinedHousehold(key) + ":");
+                System.out.println(event);
+                System.out.print("Release (r), discard (d) or keep (Enter)? ");
+                String answer = scanner.nextLine().trim().toLowerCase();
+                if (answer.equals("r")) {
+                    HouseholdView household = releaseQuarantined(key);
+                    System.out.println("Released; " + household.getName() + " now has " + household.getTotalPoints() + " points.");
+                } else if (answer.equals("d")) {
+                    quarantineStore.delete(key);
+                    System.out.println("Discarded.");
+                }
+            } catch (IOException e) {
+                // Task 8
+                System.out.println("Error saving data: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
     // Task 7
     private static void generateReports() {
+        // Every figure below comes from the same snapshot, even if events are logged meanwhile
+        PersistentMap<String, HouseholdVersion> view = snapshot();
+
         // Check if there are any households registered
-        if (households.isEmpty()) {
+        if (cluster != null ? cluster.count() == 0 : view.isEmpty()) {
             System.out.println("No households registered.");
             return; // Exit if there's nothing to report on
         }
@@ -201,13 +406,7 @@ public class EcoPointsRecyclingTracker {
         // ------------------------------
         // Find the household with the highest points
         // ------------------------------
-        Household top = null; // Start with no top household
-        for (Household h : households.values()) {
-            // If 'top' is still null, or this household has more points, update 'top'
-            if (top == null || h.getTotalPoints() > top.getTotalPoints()) {
-                top = h;
-            }
-        }
+        HouseholdView top = findTopHousehold(view);
 
         // Print details of the top household
         System.out.println("\nHousehold with Highest Points:");
@@ -218,44 +417,613 @@ public class EcoPointsRecyclingTracker {
         // ------------------------------
         // Calculate total community recycling weight
         // ------------------------------
-        double totalWeight = 0.0;
+        double totalWeight = totalCommunityWeight(view);
 
+        // Print total community weight
+        System.out.println("Total Community Recycling Weight: " + totalWeight + " kg");
+
+        // ------------------------------
+        // Approximate figures from the analytics sketches
+        // ------------------------------
+        YearMonth first = analytics.getFirstMonth();
+        if (cluster != null || first == null) return;
+        YearMonth last = analytics.getLastMonth();
+        YearMonth thisMonth = YearMonth.now();
+        Thread warmUp = historyWarmUp;
+        System.out.println("\nCommunity Analytics (approximate, since " + first
+                + (warmUp != null && warmUp.isAlive() ? ", still reading earlier events" : "") + "):");
+        System.out.println("Active households this month: " + analytics.activeHouseholds(thisMonth, thisMonth));
+        System.out.println("Active households overall: " + analytics.activeHouseholds(first, last));
+        for (String material : analytics.materials(first, last)) {
+            System.out.println("Weight per event, " + material + ": median "
+                    + analytics.weightQuantile(material, 0.5, first, last) + " kg, 90th percentile "
+                    + analytics.weightQuantile(material, 0.9, first, last) + " kg");
+        }
+        System.out.println("Top recyclers by weight:");
+        for (HeavyHitters.Entry entry : analytics.topRecyclers(5, first, last)) {
+            System.out.println("  " + entry.getKey() + ": " + entry.getTotal() + " kg");
+        }
+    }
+
+    // The helpers below read and update households either in the local map or on the shard nodes
+
+    private static boolean householdExists(String id) {
+        return cluster != null ? cluster.find(id) != null : snapshot().containsKey(id);
+    }
+
+    private static HouseholdView findHousehold(String id) {
+        return cluster != null ? cluster.find(id) : snapshot().get(id);
+    }
+
+    private static int householdCount() {
+        return cluster != null ? cluster.count() : snapshot().size();
+    }
+
+    // The households as of now; changes applied later are not seen through it
+    private static PersistentMap<String, HouseholdVersion> snapshot() {
+        return versions.get();
+    }
+
+    // Adds a new household and stores it; shared by the menu and batch mode
+    private static void addHousehold(Household household) {
+        long start = Metrics.start();
+        Runnable change = () -> {
+            HouseholdVersion version = HouseholdVersion.of(household, eventHistory);
+            versions.updateAndGet(v -> v.plus(household.getId(), version));
+            saveHousehold(version);
+        };
+        if (cluster != null) {
+            cluster.register(household);
+        } else if (replication != null) {
+            replication.publish(change, ReplicationPrimary.registration(household));
+        } else {
+            change.run();
+        }
+        REGISTER_LATENCY.recordSince(start);
+    }
+
+    // Adds an event to a household, updating its points, and stores it; returns the new point total
+    private static double recordEvent(HouseholdView household, RecyclingEvent event) {
+        long start = Metrics.start();
+        double totalPoints;
+        String id = household.getId();
+        Runnable change = () -> {
+            warmHistory(id);  // Earlier events reach the outlier statistics before this one
+            outliers.accept(id, event);
+            HouseholdVersion next = versions.updateAndGet(v -> v.plus(id, v.get(id).withEvent(event))).get(id);
+            // The event's position in the household's list is its sequence number
+            eventHistory.appended(id, next.getEventCount() - 1, event);
+            loggedEvents.publish(new LoggedEvent(next, event));
+        };
+        if (cluster != null) {
+            totalPoints = cluster.log(id, event);
+        } else {
+            if (replication != null) {
+                replication.publish(change, ReplicationPrimary.event(id, event));
+            } else {
+                change.run();
+            }
+            totalPoints = snapshot().get(id).getTotalPoints();
+        }
+        LOG_EVENT_LATENCY.recordSince(start);
+        EVENTS_LOGGED.increment();
+        return totalPoints;
+    }
+
+    // Household with the most points, or null if there are none
+    private static HouseholdView findTopHousehold(PersistentMap<String, HouseholdVersion> view) {
+        if (cluster != null) return cluster.top();
+        HouseholdView top = null; // Start with no top household
+        for (HouseholdView h : view.values()) {
+            // If 'top' is still null, or this household has more points, update 'top'
+            if (top == null || h.getTotalPoints() > top.getTotalPoints()) {
+                top = h;
+            }
+        }
+        return top;
+    }
+
+    // Sum of every household's recycled weight in kilograms
+    private static double totalCommunityWeight(PersistentMap<String, HouseholdVersion> view) {
+        if (cluster != null) return cluster.totalWeight();
+        double totalWeight = 0.0;
         // Loop through all households to sum up their total weights
-        for (Household h : households.values()) {
+        for (HouseholdView h : view.values()) {
             totalWeight += h.getTotalWeight();
         }
+        return totalWeight;
+    }
 
-        // Print total community weight
-        System.out.println("Total Community Recycling Weight: " + totalWeight + " kg");
+    // Headless mode: runs scripted commands without prompts, one result line per command.
+    // REGISTER|id|name|address, LOG|id|material|weight[|FORCE], HOUSEHOLD|id, TOP, TOTAL, COUNT, SAVE,
+    // ACTIVE[|from|to], WEIGHT_QUANTILE|material|fraction[|from|to], TOP_RECYCLERS|limit[|from|to]
+    // (months are yyyy-MM and default to every month with events),
+    // QUARANTINE, RELEASE|number, DISCARD|number (outliers are quarantined unless logged with FORCE)
+    private static void runBatch(String[] args, PrintStream results) {
+        BatchRunner runner = new BatchRunner()
+                .register("REGISTER", 3, 3, f -> {
+                    String id = f[0].trim();
+                    if (householdExists(id)) throw new IllegalArgumentException("Household ID already exists.");
+                    Household household = new Household(id, f[1].trim(), f[2].trim());
+                    addHousehold(household);
+                    return new String[] {id, household.getJoinDate().toString()};
+                })
+                .register("LOG", 3, 4, f -> {
+                    HouseholdView household = requireHousehold(f[0]);
+                    double weight = Double.parseDouble(f[2].trim());
+                    if (!(weight > 0)) throw new IllegalArgumentException("Invalid weight. Must be a positive number.");
+                    boolean force = f.length > 3 && f[3].trim().equalsIgnoreCase("FORCE");
+                    if (f.length > 3 && !force) throw new IllegalArgumentException("Expected FORCE but got " + f[3]);
+                    RecyclingEvent event = new RecyclingEvent(f[1].trim(), weight);
+                    String reason = force ? null : outlierReason(household, event);
+                    if (reason != null) {
+                        long number = quarantineNumber(quarantine(household.getId(), event));
+                        throw new IllegalArgumentException("Quarantined as #" + number + ": " + reason);
+                    }
+                    double totalPoints = recordEvent(household, event);
+                    return new String[] {household.getId(), String.valueOf(event.getEcoPoints()),
+                            String.valueOf(totalPoints)};
+                })
+                .register("HOUSEHOLD", 1, 1, f -> {
+                    HouseholdView h = cluster != null ? requireHousehold(f[0]) : snapshot().get(f[0].trim());
+                    if (h == null) throw new IllegalArgumentException("Household ID not found.");
+                    return new String[] {h.getId(), h.getName(), h.getAddress(), h.getJoinDate().toString(),
+                            String.valueOf(h.getTotalPoints()), String.valueOf(h.getEventCount())};
+                })
+                .register("TOP", 0, 0, f -> {
+                    HouseholdView top = findTopHousehold(snapshot());
+                    return top == null ? new String[] {"NONE"}
+                            : new String[] {top.getId(), top.getName(), String.valueOf(top.getTotalPoints())};
+                })
+                .register("TOTAL", 0, 0, f -> new String[] {String.valueOf(totalCommunityWeight(snapshot()))})
+                .register("COUNT", 0, 0, f -> new String[] {String.valueOf(householdCount())})
+                .register("ACTIVE", 0, 2, f -> {
+                    YearMonth[] months = monthRange(f, 0);
+                    return new String[] {String.valueOf(analytics.activeHouseholds(months[0], months[1]))};
+                })
+                .register("WEIGHT_QUANTILE", 2, 4, f -> {
+                    YearMonth[] months = monthRange(f, 2);
+                    double fraction = Double.parseDouble(f[1].trim());
+                    if (!(fraction >= 0 && fraction <= 1)) throw new IllegalArgumentException("Fraction must be between 0 and 1.");
+                    double weight = analytics.weightQuantile(f[0], fraction, months[0], months[1]);
+                    return new String[] {Double.isNaN(weight) ? "NONE" : String.valueOf(weight)};
+                })
+                .register("TOP_RECYCLERS", 1, 3, f -> {
+                    YearMonth[] months = monthRange(f, 1);
+                    List<String> fields = new ArrayList<>();
+                    for (HeavyHitters.Entry entry : analytics.topRecyclers(Integer.parseInt(f[0].trim()), months[0], months[1])) {
+                        fields.add(entry.getKey());
+                        fields.add(String.valueOf(entry.getTotal()));
+                    }
+                    return fields.toArray(new String[0]);
+                })
+                .register("QUARANTINE", 0, 0, f -> {
+                    List<String> fields = new ArrayList<>();
+                    for (String key : quarantinedKeys()) {
+                        RecyclingEvent e = quarantineStore.get(key);
+                        Collections.addAll(fields, String.valueOf(quarantineNumber(key)), quarantinedHousehold(key),
+                                e.getMaterialType(), String.valueOf(e.getWeight()), e.getDate().toString());
+                    }
+                    return fields.toArray(new String[0]);
+                })
+                .register("RELEASE", 1, 1, f -> {
+                    HouseholdView household = releaseQuarantined(requireQuarantined(f[0]));
+                    return new String[] {household.getId(), String.valueOf(household.getTotalPoints())};
+                })
+                .register("DISCARD", 1, 1, f -> {
+                    quarantineStore.delete(requireQuarantined(f[0]));
+                    return null;
+                })
+                .register("SAVE", 0, 0, f -> {
+                    if (cluster != null) cluster.save();
+                    loggedEvents.drain();
+                    saveStatistics();
+                    if (householdStore != null) householdStore.sync();
+                    if (eventStore != null) eventStore.sync();
+                    if (quarantineStore != null) quarantineStore.sync();
+                    if (statisticsStore != null) statisticsStore.sync();
+                    return null;
+                });
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(results), 1 << 16), false);
+        try (BufferedReader in = BatchRunner.openInput(args)) {
+            runner.run(in, out);
+        } catch (IOException e) {
+            // Task 8
+            System.out.println("Error reading commands: " + e.getMessage());
+        }
+    }
+
+    // Months named at fields[offset] and fields[offset + 1], defaulting to the months with events
+    private static YearMonth[] monthRange(String[] fields, int offset) throws InterruptedException {
+        if (cluster != null) throw new IllegalStateException("Analytics are not kept in sharded mode.");
+        // Scripts see every event, from earlier runs and the ones they logged
+        Thread warmUp = historyWarmUp;
+        if (warmUp != null) warmUp.join();
+        loggedEvents.drain();
+        YearMonth from = fields.length > offset ? YearMonth.parse(fields[offset].trim()) : analytics.getFirstMonth();
+        YearMonth to = fields.length > offset + 1 ? YearMonth.parse(fields[offset + 1].trim()) : analytics.getLastMonth();
+        if (from == null) from = YearMonth.now();
+        if (to == null) to = from;
+        return new YearMonth[] {from, to};
+    }
+
+    // The quarantine key holding an event number, as typed in a batch command
+    private static String requireQuarantined(String number) throws IOException {
+        String prefix = String.format("%010d\n", Long.parseLong(number.trim().replaceFirst("^#", "")));
+        for (String key : quarantinedKeys()) {
+            if (key.startsWith(prefix)) return key;
+        }
+        throw new IllegalArgumentException("No quarantined event #" + number.trim());
+    }
+
+    private static HouseholdView requireHousehold(String id) {
+        HouseholdView household = findHousehold(id.trim());
+        if (household == null) throw new IllegalArgumentException("Household ID not found.");
+        return household;
     }
 
     // Task 5
-    private static void saveHouseholdsToFile() {
+    private static void saveHousehold(HouseholdVersion household) {
+        if (householdStore == null) return;  // The store failed to open; keep running in memory
         try {
-            // Create a FileOutputStream to write to the file named "households.ser"
-            ObjectOutputStream out = new ObjectOutputStream(
-                    new FileOutputStream("households.ser")
-            );
-            // Write the entire households map to the file
-            out.writeObject(households);
-            out.close();
-            // If successful, no message is printed here — could add confirmation if you like
+            householdStore.put(household.getId(), household);
         } catch (IOException e) {
             // Task 8
-            // If something goes wrong while saving, print an error message
             System.out.println("Error saving data: " + e.getMessage());
         }
     }
 
-    @SuppressWarnings("unchecked") // Suppresses unchecked cast warning when reading the object
+    // Runs on the pipeline's thread with up to SAVE_BATCH events, and the totals they bring each household to
+    // Never returns with the batch unsaved while the stores are open: a skipped batch would leave later
+    // household totals counting events that are not on disk
+    private static void saveEvents(List<LoggedEvent> batch) {
+        if (eventStore == null || savingStopped) return;
+        Map<String, RecyclingEvent> records = new LinkedHashMap<>();
+        Map<String, HouseholdVersion> totals = new HashMap<>();
+        for (LoggedEvent e : batch) {
+            records.put(RecyclingEventCodec.keyOf(e.getHouseholdId(), e.getSequence()), e.getEvent());
+            totals.put(e.getHouseholdId(), e.getHousehold());  // Each household's latest version wins
+        }
+        for (long delay = 100; ; delay = Math.min(delay * 2, SAVE_RETRY_MAX_MILLIS)) {
+            try {
+                eventStore.putAll(records);  // Rewriting the same keys is harmless when retrying
+                // Written second, so stopping in between leaves totals behind the events, never ahead; catchUp fixes that
+                householdStore.putAll(totals);
+                if (delay > 100) System.out.println("Saving data again.");
+                return;
+            } catch (IOException e) {
+                if (closingStores) {
+                    // Stored data stays a consistent prefix of what was logged
+                    savingStopped = true;
+                    System.out.println("Error saving data: " + e.getMessage()
+                            + "; events logged from here on were not saved.");
+                    return;
+                }
+                if (delay == 100) System.out.println("Error saving data: " + e.getMessage() + "; retrying.");
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                savingStopped = true;
+                System.out.println("Saving data was interrupted; events logged from here on were not saved.");
+                return;
+            }
+        }
+    }
+
+    // Why an event should be held for review rather than logged, or null; not checked in sharded mode
+    private static String outlierReason(HouseholdView household, RecyclingEvent event) {
+        if (cluster != null) return null;
+        warmHistory(household.getId());
+        return outliers.check(household.getId(), event);
+    }
+
+    // Holds an event from the menu and tells the user where it went
+    private static void quarantineEvent(String householdId, RecyclingEvent event) {
+        try {
+            String key = quarantine(householdId, event);
+            System.out.println("Event held for review as #" + quarantineNumber(key) + " (option 7).");
+        } catch (IOException e) {
+            // Task 8
+            System.out.println("Error saving data: " + e.getMessage());
+        }
+    }
+
+    // Stores an event in the quarantine under the next number; returns its key
+    private static String quarantine(String householdId, RecyclingEvent event) throws IOException {
+        if (quarantineStore == null) throw new IOException("The quarantine store is not open");
+        String last = quarantineStore.lastKey();
+        String key = quarantineKey(last == null ? 1 : quarantineNumber(last) + 1, householdId);
+        quarantineStore.put(key, event);
+        return key;
+    }
+
+    // Logs a quarantined event after all, as if it had been accepted when it was entered
+    private static HouseholdView releaseQuarantined(String key) throws IOException {
+        HouseholdView household = findHousehold(quarantinedHousehold(key));
+        if (household == null) throw new IllegalArgumentException("Household ID not found.");
+        recordEvent(household, quarantineStore.get(key));
+        quarantineStore.delete(key);
+        return findHousehold(household.getId());  // With the new totals
+    }
+
+    private static List<String> quarantinedKeys() {
+        List<String> keys = new ArrayList<>();
+        if (quarantineStore == null) return keys;
+        try {
+            quarantineStore.forEach((key, event) -> keys.add(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return keys;
+    }
+
+    // Numbered keys keep the quarantine in the order events were held
+    private static String quarantineKey(long number, String householdId) {
+        return String.format("%010d\n%s", number, householdId);
+    }
+
+    private static long quarantineNumber(String key) {
+        return Long.parseLong(key.substring(0, key.indexOf('\n')));
+    }
+
+    private static String quarantinedHousehold(String key) {
+        return key.substring(key.indexOf('\n') + 1);
+    }
+
+    private static void closeStores() {
+        if (cluster != null) cluster.close();  // Each node keeps its own data safe
+        try {
+            // Let the standby catch up before this process goes away
+            if (replication != null) replication.close();
+            // Then let the pipeline store the events still queued and bring the statistics up to date
+            closingStores = true;
+            loggedEvents.close();
+            saveStatistics();
+            // Flush everything written this session to disk before exiting
+            if (householdStore != null) householdStore.close();
+            if (eventStore != null) eventStore.close();
+            if (quarantineStore != null) quarantineStore.close();
+            if (statisticsStore != null) statisticsStore.close();
+        } catch (IOException e) {
+            System.out.println("Error saving data: " + e.getMessage());
+        }
+    }
+
+    // Applies the primary's changes through the same helpers as the menu, so they are stored too
+    private static void followPrimary(String primary) {
+        openStores();
+        ReplicationStandby standby = new ReplicationStandby(primary, new ReplicationStandby.Replica() {
+            @Override
+            public void reset() {
+                loggedEvents.drain();
+                versions.set(PersistentMap.empty());
+                eventHistory.clear();
+                analytics.clear();
+                outliers.clear();
+                clearStores();
+            }
+
+            @Override
+            public void register(Household household) {
+                addHousehold(household);
+            }
+
+            @Override
+            public void log(String id, RecyclingEvent event) {
+                HouseholdView household = snapshot().get(id);
+                if (household == null) throw new IllegalStateException("Household " + id + " not found");
+                recordEvent(household, event);
+            }
+        }, Long.getLong("ecopoints.failover.millis", 3000));
+        System.out.println("Standing by for the primary at " + primary + ".");
+        standby.follow();
+        System.out.println("Primary lost; taking over with " + snapshot().size() + " households ("
+                + standby.getApplied() + " changes replicated).");
+    }
+
+    // A slow disk holds up logging only once 8192 events are waiting to be stored; analytics see
+    // every event too, since a skipped one would be missing from the sketches for good
+    private static void startPipeline() {
+        loggedEvents.subscribe("store", SAVE_BATCH, EcoPointsRecyclingTracker::saveEvents);
+        loggedEvents.subscribe("analytics", SAVE_BATCH, batch -> {
+            for (LoggedEvent e : batch) analytics.add(e.getHouseholdId(), e.getEvent());
+        });
+        Metrics.gauge("ecopoints_pipeline_lag", loggedEvents::getLag);
+    }
+
+    private static void startReplication() {
+        Integer port = Integer.getInteger("ecopoints.replication.port");
+        if (port == null) return;
+        try {
+            replication = new ReplicationPrimary(port, () -> snapshot().values());
+            Metrics.gauge("ecopoints_replication_lag", replication::getLag);
+            System.out.println("Standby can follow on port " + replication.getPort() + ".");
+        } catch (IOException e) {
+            // Task 8
+            System.out.println("Error starting replication: " + e.getMessage());
+        }
+    }
+
+    // Empties the stores before a standby loads a fresh snapshot
+    private static void clearStores() {
+        if (householdStore == null) return;
+        try {
+            List<String> keys = new ArrayList<>();
+            householdStore.forEach((key, household) -> keys.add(key));
+            for (String key : keys) householdStore.delete(key);
+            keys.clear();
+            eventStore.forEach((key, event) -> keys.add(key));
+            for (String key : keys) eventStore.delete(key);
+            statisticsStore.delete(STATISTICS_KEY);
+        } catch (IOException e) {
+            System.out.println("Error saving data: " + e.getMessage());
+        }
+    }
+
+    private static boolean openStores() {
+        try {
+            householdStore = new RecordStore<>(DATA_DIRECTORY, "households", new HouseholdVersionCodec(eventHistory));
+            eventStore = new RecordStore<>(DATA_DIRECTORY, "events", new RecyclingEventCodec());
+            quarantineStore = new RecordStore<>(DATA_DIRECTORY, "quarantine", new RecyclingEventCodec());
+            statisticsStore = new RecordStore<>(DATA_DIRECTORY, "statistics", new StatisticsCheckpointCodec());
+            return true;
+        } catch (IOException e) {
+            // Task 8
+            System.out.println("Error opening data store: " + e.getMessage());
+            householdStore = null;
+            eventStore = null;
+            quarantineStore = null;
+            statisticsStore = null;
+            eventHistory.setMaxEvents(Integer.MAX_VALUE);  // Nothing to read evicted lists back from
+            return false;
+        }
+    }
+
     private static void loadHouseholdsFromFile() {
+        if (!openStores()) return;
+
+        if (householdStore.size() == 0) {
+            // First run with the store: bring over the data saved by earlier versions, if any
+            importLegacyFile();
+            return;
+        }
+
+        // Read every household with its totals; events stay on disk until a household's list is asked for
+        try {
+            List<HouseholdVersion> stored = new ArrayList<>(householdStore.size());
+            householdStore.forEach((id, household) -> stored.add(household));
+            StatisticsCheckpoint saved = readStatistics();
+            PersistentMap<String, HouseholdVersion> all = PersistentMap.empty();
+            Map<String, HouseholdVersion> caughtUp = new HashMap<>();
+            for (HouseholdVersion household : stored) {
+                HouseholdVersion current = catchUp(household);
+                if (current != household) caughtUp.put(current.getId(), current);
+                all = all.plus(current.getId(), current);
+                // Only the events logged after the statistics were saved still have to be fed to them
+                int seen = saved == null ? 0 : Math.min(saved.getEventCount(current.getId()), current.getEventCount());
+                if (current.getEventCount() > seen) unwarmed.put(current.getId(), new UnwarmedEvents(seen, current.getEventCount()));
+            }
+            householdStore.putAll(caughtUp);
+            if (saved != null) {
+                analytics.restore(saved.getAnalytics());
+                outliers.restore(saved.getOutliers());
+            }
+            versions.set(all);
+            startHistoryWarmUp();
+            System.out.println("Household data loaded.");
+        } catch (IOException e) {
+            System.out.println("Error loading data: " + e.getMessage());
+        }
+    }
+
+    // Adds the stored events a household's totals are missing: those stored just before the last run
+    // stopped, or all of them for a record from before totals were kept. Usually one index lookup
+    private static HouseholdVersion catchUp(HouseholdVersion household) throws IOException {
+        String id = household.getId();
+        HouseholdVersion current = household;
+        if (household.getEventCount() == HouseholdVersionCodec.UNCOUNTED) {
+            current = new HouseholdVersion(id, household.getName(), household.getAddress(), household.getJoinDate(),
+                    0, 0.0, 0.0, eventHistory);
+        } else if (!eventStore.contains(RecyclingEventCodec.keyOf(id, household.getEventCount()))) {
+            return household;
+        }
+        List<RecyclingEvent> missing = new ArrayList<>();
+        readEvents(id, current.getEventCount(), Integer.MAX_VALUE, missing::add);
+        for (RecyclingEvent event : missing) current = current.withEvent(event);
+        return current;
+    }
+
+    // Reads stored events numbered from (inclusive) to (exclusive); events still queued are stored first
+    private static void readEvents(String id, int from, int to, Consumer<RecyclingEvent> action) throws IOException {
+        if (eventStore == null) throw new IOException("The event store is not open");
+        loggedEvents.drain();
+        eventStore.forEachInRange(RecyclingEventCodec.keyOf(id, from), RecyclingEventCodec.keyOf(id, to),
+                (key, event) -> action.accept(event));
+    }
+
+    // The statistics saved by the last run, or null if there are none (or they cannot be read) and
+    // every event has to be fed to them again
+    private static StatisticsCheckpoint readStatistics() {
+        try {
+            return statisticsStore.get(STATISTICS_KEY);
+        } catch (IOException e) {
+            System.out.println("Error loading statistics: " + e.getMessage() + "; rebuilding them from the events.");
+            return null;
+        }
+    }
+
+    // Saves the statistics with the number of events of each household they have seen. Only called
+    // while nothing is being logged, once the pipeline has caught up, so those counts are exact
+    private static void saveStatistics() throws IOException {
+        if (statisticsStore == null) return;
+        for (String id : new ArrayList<>(unwarmed.keySet())) warmHistory(id);
+        Map<String, Integer> eventCounts = new HashMap<>();
+        for (HouseholdVersion household : snapshot().values()) eventCounts.put(household.getId(), household.getEventCount());
+        statisticsStore.put(STATISTICS_KEY, new StatisticsCheckpoint(analytics, outliers, eventCounts));
+    }
+
+    // Feeds the events logged after the statistics were last saved to them without holding up startup
+    private static void startHistoryWarmUp() {
+        if (unwarmed.isEmpty()) return;
+        List<String> ids = new ArrayList<>(unwarmed.keySet());
+        Thread warmUp = new Thread(() -> {
+            for (String id : ids) warmHistory(id);
+        }, "ecopoints-history");
+        warmUp.setDaemon(true);
+        historyWarmUp = warmUp;
+        warmUp.start();
+    }
+
+    // Feeds one household's unwarmed events to the statistics, once. Called before each of its new
+    // events too, so the outlier statistics see its events in the order they were logged; only callers
+    // for the same household wait for each other
+    private static void warmHistory(String id) {
+        UnwarmedEvents pending = unwarmed.get(id);
+        if (pending == null) return;
+        synchronized (pending) {
+            if (unwarmed.get(id) != pending) return;  // Fed by another thread while this one waited
+            try {
+                // Stored before startup, so read directly instead of waiting for the pipeline
+                eventStore.forEachInRange(RecyclingEventCodec.keyOf(id, pending.from), RecyclingEventCodec.keyOf(id, pending.to),
+                        (key, event) -> {
+                            analytics.add(id, event);
+                            outliers.accept(id, event);
+                        });
+            } catch (IOException e) {
+                System.out.println("Error loading data: " + e.getMessage());
+            } finally {
+                unwarmed.remove(id, pending);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked") // Suppresses unchecked cast warning when reading the object
+    private static void importLegacyFile() {
         // Use a try-with-resources block to automatically close the input stream
         try (
                 // Open an ObjectInputStream to read from the file "households.ser"
                 ObjectInputStream in = new ObjectInputStream(new FileInputStream("households.ser"))
         ) {
             // Read the object from the file and cast it back to the correct type
-            households = (Map<String, Household>) in.readObject();
+            Map<String, Household> legacy = (Map<String, Household>) in.readObject();
+
+            // Copy everything into the store so later runs read from there; totals after the events
+            PersistentMap<String, HouseholdVersion> all = PersistentMap.empty();
+            for (Household household : legacy.values()) {
+                List<RecyclingEvent> events = household.getEvents();
+                for (int i = 0; i < events.size(); i++) {
+                    eventStore.put(RecyclingEventCodec.keyOf(household.getId(), i), events.get(i));
+                    analytics.add(household.getId(), events.get(i));
+                    outliers.accept(household.getId(), events.get(i));
+                }
+                HouseholdVersion version = HouseholdVersion.of(household, eventHistory);
+                householdStore.put(household.getId(), version);
+                all = all.plus(household.getId(), version);
+            }
+            versions.set(all);
 
             // Confirmation message to let the user know data was loaded
             System.out.println("Household data loaded.");
@@ -0,0 +1,100 @@
+package RecyclingTracker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import Common.PersistentVector;
+
+/**
+ * The event lists of recently used households, faulted in from storage on first use.
+ *
+ * The cache is bounded by the number of events it holds, not of households, so one household with
+ * a long history cannot push the total past the bound; the least recently used lists are evicted
+ * first. A cached list only ever grows: when a household has logged more events than are cached,
+ * just the missing ones are read, and events appended as they are logged need no read at all.
+ *
+ * Thread-safe.
+ */
+public class EventHistoryCache implements HouseholdVersion.EventSource {
+    // Reads the events numbered from (inclusive) to (exclusive) of a household, in order
+    public interface Loader {
+        void load(String householdId, int from, int to, Consumer<RecyclingEvent> action) throws IOException;
+    }
+
+    private int maxEvents;
+    private final Loader loader;
+    private final LinkedHashMap<String, PersistentVector<RecyclingEvent>> lists = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedEvents;
+    private long hits;
+    private long misses;
+
+    public EventHistoryCache(int maxEvents, Loader loader) {
+        if (maxEvents < 1) throw new IllegalArgumentException("The cache must hold at least one event");
+        this.maxEvents = maxEvents;
+        this.loader = loader;
+    }
+
+    @Override
+    public synchronized List<RecyclingEvent> load(String householdId, int count) {
+        PersistentVector<RecyclingEvent> cached = lists.get(householdId);
+        if (cached == null) cached = PersistentVector.empty();
+        if (cached.size() >= count) {
+            hits++;
+        } else {
+            misses++;
+            List<RecyclingEvent> read = new ArrayList<>(count - cached.size());
+            try {
+                loader.load(householdId, cached.size(), count, read::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (cached.size() + read.size() < count) {
+                throw new UncheckedIOException(new IOException("Household " + householdId + " is missing events "
+                        + (cached.size() + read.size()) + " to " + (count - 1)));
+            }
+            for (RecyclingEvent event : read) cached = cached.plus(event);
+            put(householdId, cached);
+        }
+        // A version made before later events were logged sees only its own events
+        return cached.size() == count ? cached : cached.subList(0, count);
+    }
+
+    // Keeps a cached list current as an event is logged; lists not cached are read when next used
+    public synchronized void appended(String householdId, int sequence, RecyclingEvent event) {
+        PersistentVector<RecyclingEvent> cached = lists.get(householdId);
+        if (cached == null && sequence == 0) cached = PersistentVector.empty();
+        if (cached != null && cached.size() == sequence) put(householdId, cached.plus(event));
+    }
+
+    // Raised to Integer.MAX_VALUE when there is nothing to read evicted lists back from
+    public synchronized void setMaxEvents(int maxEvents) {
+        if (maxEvents < 1) throw new IllegalArgumentException("The cache must hold at least one event");
+        this.maxEvents = maxEvents;
+    }
+
+    public synchronized void clear() {
+        lists.clear();
+        cachedEvents = 0;
+    }
+
+    public synchronized long getCachedEvents() { return cachedEvents; }
+    public synchronized long getHits() { return hits; }
+    public synchronized long getMisses() { return misses; }
+
+    private void put(String householdId, PersistentVector<RecyclingEvent> events) {
+        PersistentVector<RecyclingEvent> old = lists.put(householdId, events);
+        cachedEvents += events.size() - (old == null ? 0 : old.size());
+        // Evict from the least recently used end, but never the list just used
+        Iterator<Map.Entry<String, PersistentVector<RecyclingEvent>>> eldest = lists.entrySet().iterator();
+        while (cachedEvents > maxEvents && lists.size() > 1) {
+            Map.Entry<String, PersistentVector<RecyclingEvent>> entry = eldest.next();
+            cachedEvents -= entry.getValue().size();
+            eldest.remove();
+        }
+    }
+}
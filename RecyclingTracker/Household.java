@@ -9,7 +9,9 @@ import java.util.List;
 /**
  * Represents a household participating in the Eco-Points program.
  */
-public class Household implements Serializable {
+public class Household implements HouseholdView, Serializable {
+    // Value computed for the original class, so households.ser files written before the record store still import
+    private static final long serialVersionUID = -5883553232599148308L;
     private String id;
     private String name;
     private String address;
@@ -26,11 +28,18 @@ public class Household implements Serializable {
         this.totalPoints = 0.0;
     }
 
+    // Used when loading a household whose join date is already known
+    public Household(String id, String name, String address, LocalDate joinDate) {
+        this(id, name, address);
+        this.joinDate = joinDate;
+    }
+
     public String getId() { return id; }
     public String getName() { return name; }
     public String getAddress() { return address; }
     public LocalDate getJoinDate() { return joinDate; }
     public List<RecyclingEvent> getEvents() { return events; }
+    public int getEventCount() { return events.size(); }
     public double getTotalPoints() { return totalPoints; }
 
     public void addEvent(RecyclingEvent event) {
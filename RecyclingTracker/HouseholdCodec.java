@@ -0,0 +1,30 @@
+package RecyclingTracker;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import Common.RecordCodec;
+
+/**
+ * Binary form of a household's own details; its events are stored as separate records.
+ */
+public class HouseholdCodec implements RecordCodec<Household> {
+    @Override
+    public void write(Household household, DataOutput out) throws IOException {
+        writeDetails(household, out);
+    }
+
+    // Shared with HouseholdVersionCodec, which writes the same details in front of the totals
+    static void writeDetails(HouseholdView household, DataOutput out) throws IOException {
+        out.writeUTF(household.getId());
+        out.writeUTF(household.getName());
+        out.writeUTF(household.getAddress());
+        out.writeLong(household.getJoinDate().toEpochDay());
+    }
+
+    @Override
+    public Household read(DataInput in) throws IOException {
+        return new Household(in.readUTF(), in.readUTF(), in.readUTF(), LocalDate.ofEpochDay(in.readLong()));
+    }
+}
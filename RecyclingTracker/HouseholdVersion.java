@@ -0,0 +1,82 @@
+package RecyclingTracker;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One immutable version of a household, as seen by reports.
+ *
+ * A version holds the household's details and running totals but not its events: those are
+ * faulted in from an {@link EventSource} when asked for, so memory grows with the number of
+ * households rather than with their history. Logging an event makes a new version with one more
+ * event counted, so a report holding the old version keeps seeing exactly the events and totals it
+ * started with.
+ */
+public final class HouseholdVersion implements HouseholdView {
+    // Supplies the first count events of a household; events are never changed once logged
+    public interface EventSource {
+        List<RecyclingEvent> load(String householdId, int count);
+    }
+
+    private final String id;
+    private final String name;
+    private final String address;
+    private final LocalDate joinDate;
+    private final EventSource source;
+    private final int eventCount;
+    private final double totalPoints;
+    private final double totalWeight;
+
+    public HouseholdVersion(String id, String name, String address, LocalDate joinDate,
+                            int eventCount, double totalPoints, double totalWeight, EventSource source) {
+        this.id = id;
+        this.name = name;
+        this.address = address;
+        this.joinDate = joinDate;
+        this.source = source;
+        this.eventCount = eventCount;
+        this.totalPoints = totalPoints;
+        this.totalWeight = totalWeight;
+    }
+
+    // First version of a household, counting the events it already has
+    public static HouseholdVersion of(Household household, EventSource source) {
+        HouseholdVersion version = new HouseholdVersion(household.getId(), household.getName(),
+                household.getAddress(), household.getJoinDate(), 0, 0.0, 0.0, source);
+        for (RecyclingEvent event : household.getEvents()) version = version.withEvent(event);
+        return version;
+    }
+
+    // The next version, with one more event; this one is unchanged
+    public HouseholdVersion withEvent(RecyclingEvent event) {
+        return new HouseholdVersion(id, name, address, joinDate, eventCount + 1,
+                totalPoints + event.getEcoPoints(), totalWeight + event.getWeight(), source);
+    }
+
+    @Override
+    public String getId() { return id; }
+
+    @Override
+    public String getName() { return name; }
+
+    @Override
+    public String getAddress() { return address; }
+
+    @Override
+    public LocalDate getJoinDate() { return joinDate; }
+
+    // Loaded on each call
+    @Override
+    public List<RecyclingEvent> getEvents() {
+        return eventCount == 0 ? List.of() : source.load(id, eventCount);
+    }
+
+    @Override
+    public int getEventCount() { return eventCount; }
+
+    @Override
+    public double getTotalPoints() { return totalPoints; }
+
+    @Override
+    public double getTotalWeight() { return totalWeight; }
+}
@@ -0,0 +1,49 @@
+package RecyclingTracker;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import Common.RecordCodec;
+
+/**
+ * Binary form of a household header: its details as written by {@link HouseholdCodec}, followed by
+ * its event count and running totals, so startup can read totals without reading any event.
+ */
+public class HouseholdVersionCodec implements RecordCodec<HouseholdVersion> {
+    // Event count of a header written before totals were stored; its totals must be recounted
+    public static final int UNCOUNTED = -1;
+
+    private final HouseholdCodec details = new HouseholdCodec();
+    private final HouseholdVersion.EventSource source;
+
+    public HouseholdVersionCodec(HouseholdVersion.EventSource source) {
+        this.source = source;
+    }
+
+    @Override
+    public void write(HouseholdVersion household, DataOutput out) throws IOException {
+        HouseholdCodec.writeDetails(household, out);
+        out.writeInt(household.getEventCount());
+        out.writeDouble(household.getTotalPoints());
+        out.writeDouble(household.getTotalWeight());
+    }
+
+    @Override
+    public HouseholdVersion read(DataInput in) throws IOException {
+        Household h = details.read(in);
+        int eventCount;
+        double totalPoints;
+        double totalWeight;
+        try {
+            eventCount = in.readInt();
+            totalPoints = in.readDouble();
+            totalWeight = in.readDouble();
+        } catch (EOFException e) {
+            // Older record: details only
+            return new HouseholdVersion(h.getId(), h.getName(), h.getAddress(), h.getJoinDate(), UNCOUNTED, 0.0, 0.0, source);
+        }
+        return new HouseholdVersion(h.getId(), h.getName(), h.getAddress(), h.getJoinDate(),
+                eventCount, totalPoints, totalWeight, source);
+    }
+}
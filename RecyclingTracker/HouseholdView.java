@@ -0,0 +1,22 @@
+package RecyclingTracker;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Read-only view of a household: its details, events and running totals.
+ * Implemented by the mutable {@link Household} and by read-only forms such as a {@link HouseholdVersion}.
+ */
+public interface HouseholdView {
+    String getId();
+    String getName();
+    String getAddress();
+    LocalDate getJoinDate();
+
+    // Read-only; some forms load the events on each call, so callers needing the list twice should keep it
+    List<RecyclingEvent> getEvents();
+
+    int getEventCount();
+    double getTotalPoints();
+    double getTotalWeight();
+}
@@ -0,0 +1,20 @@
+package RecyclingTracker;
+
+/**
+ * A recycling event as published to the tracker's event pipeline, with the version of the household
+ * it brought about; the event's position among that household's events follows from its count.
+ */
+public final class LoggedEvent {
+    private final HouseholdVersion household;
+    private final RecyclingEvent event;
+
+    public LoggedEvent(HouseholdVersion household, RecyclingEvent event) {
+        this.household = household;
+        this.event = event;
+    }
+
+    public String getHouseholdId() { return household.getId(); }
+    public int getSequence() { return household.getEventCount() - 1; }
+    public HouseholdVersion getHousehold() { return household; }
+    public RecyclingEvent getEvent() { return event; }
+}
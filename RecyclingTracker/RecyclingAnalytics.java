@@ -0,0 +1,139 @@
+package RecyclingTracker;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.YearMonth;
+import java.util.*;
+import Common.HeavyHitters;
+import Common.HyperLogLog;
+import Common.KllSketch;
+
+/**
+ * Approximate community analytics kept up to date as events are logged.
+ *
+ * Every event updates the sketches of its month: distinct households (HyperLogLog), weight per
+ * event for each material (KLL) and weight per household (Space-Saving plus Count-Min). A question
+ * about a range of months merges that many month sketches, so answers cost the same however many
+ * events there are, and each month stays under about 100 KB whatever its traffic. The sketches are
+ * saved as they are (see {@link StatisticsCheckpoint}), so a restart does not re-read the events.
+ *
+ * Thread-safe; the event pipeline updates it while reports read it.
+ */
+public class RecyclingAnalytics {
+    // The sketches for one month
+    private static final class Month {
+        final HyperLogLog households;
+        final Map<String, KllSketch> weights = new TreeMap<>();   // By material
+        final HeavyHitters recyclers;
+
+        Month() {
+            this(new HyperLogLog(), new HeavyHitters());
+        }
+
+        Month(HyperLogLog households, HeavyHitters recyclers) {
+            this.households = households;
+            this.recyclers = recyclers;
+        }
+
+        void merge(Month other) {
+            households.merge(other.households);
+            for (Map.Entry<String, KllSketch> entry : other.weights.entrySet()) {
+                weights.computeIfAbsent(entry.getKey(), m -> new KllSketch()).merge(entry.getValue());
+            }
+            recyclers.merge(other.recyclers);
+        }
+    }
+
+    private final TreeMap<YearMonth, Month> months = new TreeMap<>();
+
+    public synchronized void add(String householdId, RecyclingEvent event) {
+        Month month = months.computeIfAbsent(YearMonth.from(event.getDate()), m -> new Month());
+        month.households.add(householdId);
+        month.weights.computeIfAbsent(material(event.getMaterialType()), m -> new KllSketch()).add(event.getWeight());
+        month.recyclers.add(householdId, event.getWeight());
+    }
+
+    public synchronized void clear() {
+        months.clear();
+    }
+
+    // Replaces every month with the ones of a saved copy, which is not used afterwards
+    public synchronized void restore(RecyclingAnalytics saved) {
+        months.clear();
+        months.putAll(saved.months);
+    }
+
+    public synchronized void write(DataOutput out) throws IOException {
+        out.writeInt(months.size());
+        for (Map.Entry<YearMonth, Month> entry : months.entrySet()) {
+            Month month = entry.getValue();
+            out.writeInt(entry.getKey().getYear());
+            out.writeByte(entry.getKey().getMonthValue());
+            month.households.write(out);
+            out.writeInt(month.weights.size());
+            for (Map.Entry<String, KllSketch> weights : month.weights.entrySet()) {
+                out.writeUTF(weights.getKey());
+                weights.getValue().write(out);
+            }
+            month.recyclers.write(out);
+        }
+    }
+
+    public static RecyclingAnalytics read(DataInput in) throws IOException {
+        RecyclingAnalytics analytics = new RecyclingAnalytics();
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            YearMonth key = YearMonth.of(in.readInt(), in.readByte());
+            HyperLogLog households = HyperLogLog.read(in);
+            Map<String, KllSketch> weights = new TreeMap<>();
+            int materials = in.readInt();
+            for (int m = 0; m < materials; m++) weights.put(in.readUTF(), KllSketch.read(in));
+            Month month = new Month(households, HeavyHitters.read(in));
+            month.weights.putAll(weights);
+            analytics.months.put(key, month);
+        }
+        return analytics;
+    }
+
+    // Earliest and latest month with events, or null if there are none
+    public synchronized YearMonth getFirstMonth() {
+        return months.isEmpty() ? null : months.firstKey();
+    }
+
+    public synchronized YearMonth getLastMonth() {
+        return months.isEmpty() ? null : months.lastKey();
+    }
+
+    // Households that logged at least one event between the two months, inclusive
+    public synchronized long activeHouseholds(YearMonth from, YearMonth to) {
+        return range(from, to).households.estimate();
+    }
+
+    // Weight of a single event of a material at a quantile (0.5 is the median), or NaN if none
+    public synchronized double weightQuantile(String material, double fraction, YearMonth from, YearMonth to) {
+        KllSketch weights = range(from, to).weights.get(material(material));
+        return weights == null ? Double.NaN : weights.getQuantile(fraction);
+    }
+
+    // Materials logged between the two months
+    public synchronized Set<String> materials(YearMonth from, YearMonth to) {
+        return range(from, to).weights.keySet();
+    }
+
+    // Households that recycled the most weight between the two months, heaviest first
+    public synchronized List<HeavyHitters.Entry> topRecyclers(int limit, YearMonth from, YearMonth to) {
+        return range(from, to).recyclers.getTop(limit);
+    }
+
+    private Month range(YearMonth from, YearMonth to) {
+        Month merged = new Month();
+        if (from.isAfter(to)) return merged;
+        for (Month month : months.subMap(from, true, to, true).values()) merged.merge(month);
+        return merged;
+    }
+
+    private static String material(String material) {
+        return material.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -8,6 +8,8 @@ import java.time.LocalDate;
  * Represents a single recycling event for a household.
  */
 public class RecyclingEvent implements Serializable {
+    // Value computed for the original class, so households.ser files written before the record store still import
+    private static final long serialVersionUID = -7811216869840397706L;
     private String materialType;
     private double weight; // in kilograms
     private LocalDate date;
@@ -20,6 +22,12 @@ public class RecyclingEvent implements Serializable {
         this.ecoPoints = weight * 10; // 10 points per kg
     }
 
+    // Used when loading an event logged on an earlier day
+    public RecyclingEvent(String materialType, double weight, LocalDate date) {
+        this(materialType, weight);
+        this.date = date;
+    }
+
     public String getMaterialType() {
         return materialType;
     }
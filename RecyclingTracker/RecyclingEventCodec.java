@@ -0,0 +1,34 @@
+package RecyclingTracker;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import Common.RecordCodec;
+
+/**
+ * Binary form of a recycling event. Events are keyed by household ID and sequence number,
+ * so logging an event appends one small record instead of rewriting the household.
+ */
+public class RecyclingEventCodec implements RecordCodec<RecyclingEvent> {
+    // Line breaks cannot be typed into an ID, so the separator never clashes with a longer ID
+    public static String keyOf(String householdId, int sequence) {
+        return prefixOf(householdId) + String.format("%010d", sequence);
+    }
+
+    public static String prefixOf(String householdId) {
+        return householdId + "\n";
+    }
+
+    @Override
+    public void write(RecyclingEvent event, DataOutput out) throws IOException {
+        out.writeUTF(event.getMaterialType());
+        out.writeDouble(event.getWeight());
+        out.writeLong(event.getDate().toEpochDay());
+    }
+
+    @Override
+    public RecyclingEvent read(DataInput in) throws IOException {
+        return new RecyclingEvent(in.readUTF(), in.readDouble(), LocalDate.ofEpochDay(in.readLong()));
+    }
+}
@@ -0,0 +1,257 @@
+package RecyclingTracker;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Supplier;
+import Common.BatchRunner;
+
+/**
+ * Primary side of the tracker's replication: streams every change to a standby process.
+ *
+ * Each change (a household registered or an event logged) gets the next sequence number and is kept
+ * in a bounded backlog. A standby connects to the loopback port and sends {@code SYNC|epoch|lastSeq};
+ * if it was following this process and its position is still in the backlog it gets just the changes
+ * it missed, otherwise a full snapshot of the households first. Changes are then sent as they happen,
+ * in batches, by a background thread, so the menu never waits on the standby. The standby
+ * acknowledges in batches with {@code ACK|seq}; on exit the primary waits briefly for everything to
+ * be acknowledged before saying {@code BYE}.
+ *
+ * Lines use the batch-mode format (see {@link BatchRunner}):
+ * <pre>
+ * SNAPSHOT|epoch|seq  REGISTER|seq|id|name|address|joined  LOG|seq|id|material|weight|date
+ * END|seq             PING                                 BYE
+ * </pre>
+ */
+public class ReplicationPrimary implements Closeable {
+    private static final int MAX_BACKLOG = 65536;     // Changes kept for a standby that falls behind
+    private static final int SEND_BATCH = 1024;       // Most changes written before one flush
+    static final int HEARTBEAT_MILLIS = 500;          // Idle interval between PINGs
+    private static final int CLOSE_WAIT_MILLIS = 2000; // How long exit waits for the last acknowledgement
+
+    // Identifies this run; sequence numbers restart with every primary process
+    private final String epoch = UUID.randomUUID().toString();
+    private final Supplier<? extends Iterable<? extends HouseholdView>> households;
+    private final ServerSocket server;
+
+    // Guarded by this object, which also guards the households while a change is applied
+    private final String[] backlog = new String[MAX_BACKLOG];  // Change seq is at seq % MAX_BACKLOG
+    private long seq;
+    private long ackedSeq;
+    private Socket standby;
+    private boolean closed;
+
+    // Serves a standby on the loopback port; households supplies an immutable view of the current
+    // state, which must be cheap to take because it is taken while changes wait
+    public ReplicationPrimary(int port, Supplier<? extends Iterable<? extends HouseholdView>> households) throws IOException {
+        this.households = households;
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        Thread acceptor = new Thread(this::accept, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    // Changes not yet acknowledged by the standby
+    public synchronized long getLag() {
+        return seq - ackedSeq;
+    }
+
+    // Applies a change to the local state and queues it for the standby, as one step
+    public synchronized void publish(Runnable change, String... op) {
+        change.run();
+        seq++;
+        backlog[(int) (seq % MAX_BACKLOG)] = BatchRunner.join(withSeq(op, seq));
+        notifyAll();
+    }
+
+    static String[] registration(HouseholdView h) {
+        return new String[] {"REGISTER", h.getId(), h.getName(), h.getAddress(), h.getJoinDate().toString()};
+    }
+
+    static String[] event(String id, RecyclingEvent e) {
+        return new String[] {"LOG", id, e.getMaterialType(), String.valueOf(e.getWeight()), e.getDate().toString()};
+    }
+
+    // Waits a moment for the standby to acknowledge everything, then tells it the primary is going away
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() + CLOSE_WAIT_MILLIS;
+            long remaining;
+            while (standby != null && ackedSeq < seq && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (ackedSeq < seq) System.out.println("Standby is " + (seq - ackedSeq) + " changes behind.");
+            closed = true;
+            notifyAll();
+            // Give the sender a moment to say BYE before the process exits
+            deadline = System.currentTimeMillis() + HEARTBEAT_MILLIS;
+            while (standby != null && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        server.close();
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Thread sender = new Thread(() -> serve(socket), "replication-sender");
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) System.err.println("Error accepting standby: " + e.getMessage());
+            }
+        }
+    }
+
+    // Handles one standby connection: catch-up, then the live stream
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), 1 << 16)) {
+            String hello = in.readLine();
+            if (hello == null) return;
+            List<String> sync = BatchRunner.split(hello);
+            if (!sync.get(0).equals("SYNC") || sync.size() != 3) throw new IOException("Unexpected handshake: " + hello);
+
+            long next;
+            Iterable<? extends HouseholdView> snapshot = null;
+            synchronized (this) {
+                if (standby != null) standby.close();  // A new standby replaces the old one
+                standby = s;
+                long position = Long.parseLong(sync.get(2));
+                if (sync.get(1).equals(epoch) && position >= firstBacklogSeq() - 1 && position <= seq) {
+                    next = position + 1;
+                } else {
+                    snapshot = households.get();
+                    next = seq + 1;
+                }
+                ackedSeq = next - 1;
+            }
+            if (snapshot != null) {
+                // Written without the lock, so changes keep flowing while a large snapshot is sent
+                out.write(BatchRunner.join("SNAPSHOT", epoch, String.valueOf(next - 1)));
+                out.newLine();
+                for (HouseholdView h : snapshot) {
+                    out.write(BatchRunner.join(withSeq(registration(h), 0)));
+                    out.newLine();
+                    for (RecyclingEvent e : h.getEvents()) {
+                        out.write(BatchRunner.join(withSeq(event(h.getId(), e), 0)));
+                        out.newLine();
+                    }
+                }
+                out.write(BatchRunner.join("END", String.valueOf(next - 1)));
+                out.newLine();
+                out.flush();
+            }
+
+            Thread acks = new Thread(() -> readAcks(in), "replication-acks");
+            acks.setDaemon(true);
+            acks.start();
+            stream(s, out, next);
+        } catch (IOException | NumberFormatException e) {
+            // The standby went away or spoke out of turn; it catches up when it reconnects
+        } finally {
+            synchronized (this) {
+                if (standby == socket) standby = null;
+                notifyAll();
+            }
+        }
+    }
+
+    // Oldest change still in the backlog; called with the lock held
+    private long firstBacklogSeq() {
+        return Math.max(1, seq - MAX_BACKLOG + 1);
+    }
+
+    private static String[] withSeq(String[] op, long seq) {
+        String[] fields = new String[op.length + 1];
+        fields[0] = op[0];
+        fields[1] = String.valueOf(seq);
+        System.arraycopy(op, 1, fields, 2, op.length - 1);
+        return fields;
+    }
+
+    // Sends changes from next onwards until the primary closes or the standby goes away
+    private void stream(Socket socket, BufferedWriter out, long next) throws IOException {
+        List<String> batch = new ArrayList<>(SEND_BATCH);
+        while (true) {
+            boolean bye;
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + HEARTBEAT_MILLIS;
+                long remaining;
+                while (!closed && standby == socket && seq < next && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (standby != socket) return;
+                // Fell out of the backlog: drop the connection so the standby reconnects for a snapshot
+                if (next < firstBacklogSeq()) return;
+                for (long s = next; s <= seq && batch.size() < SEND_BATCH; s++) batch.add(backlog[(int) (s % MAX_BACKLOG)]);
+                bye = closed && next + batch.size() > seq;
+            }
+            if (batch.isEmpty() && !bye) {
+                out.write("PING");
+                out.newLine();
+            }
+            for (String line : batch) {
+                out.write(line);
+                out.newLine();
+            }
+            next += batch.size();
+            batch.clear();
+            if (bye) {
+                out.write("BYE");
+                out.newLine();
+                out.flush();
+                return;
+            }
+            out.flush();
+        }
+    }
+
+    private void readAcks(BufferedReader in) {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                List<String> ack = BatchRunner.split(line);
+                if (!ack.get(0).equals("ACK")) continue;
+                long position = Long.parseLong(ack.get(1));
+                synchronized (this) {
+                    if (position > ackedSeq) ackedSeq = position;
+                    notifyAll();
+                }
+            }
+        } catch (SocketException e) {
+            // Connection closed by the sender
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error reading standby acknowledgements: " + e.getMessage());
+        }
+    }
+}
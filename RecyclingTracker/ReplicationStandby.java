@@ -0,0 +1,152 @@
+package RecyclingTracker;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import Common.BatchRunner;
+
+/**
+ * Standby side of the tracker's replication: follows a {@link ReplicationPrimary} and applies its
+ * changes as they arrive, so the standby holds the same households in memory and can take over
+ * without loading anything.
+ *
+ * {@link #follow()} runs on the caller's thread and returns when the standby should take over: the
+ * primary has been unreachable, or silent, for the failover time after at least one successful sync.
+ * A primary that says BYE exited on purpose, so the standby keeps waiting for it to come back instead.
+ * After a reconnect it asks for the changes it missed and only needs a full snapshot if the primary
+ * restarted or it fell too far behind.
+ */
+public class ReplicationStandby {
+    private static final int ACK_BATCH = 512;          // Most changes applied before acknowledging
+    private static final int RETRY_MILLIS = 250;
+
+    // Where the replicated changes are applied
+    public interface Replica {
+        // Forgets every household, before a snapshot
+        void reset();
+
+        void register(Household household);
+
+        void log(String id, RecyclingEvent event);
+    }
+
+    private final InetSocketAddress primary;
+    private final Replica replica;
+    private final long failoverMillis;
+    private String epoch = "";   // The primary run being followed, empty before the first snapshot
+    private long lastSeq;
+    private long applied;        // Changes applied since startup, for the takeover message
+    private long lastContact;    // When the primary last sent anything
+    private boolean exited;      // The primary said BYE and has not been heard from since
+
+    public ReplicationStandby(String primaryAddress, Replica replica, long failoverMillis) {
+        int colon = primaryAddress.lastIndexOf(':');
+        if (colon < 0) throw new IllegalArgumentException("Expected host:port but got " + primaryAddress);
+        this.primary = new InetSocketAddress(primaryAddress.substring(0, colon),
+                Integer.parseInt(primaryAddress.substring(colon + 1)));
+        this.replica = replica;
+        this.failoverMillis = failoverMillis;
+    }
+
+    public long getApplied() {
+        return applied;
+    }
+
+    // Follows the primary until it is lost; returns when this process should take over
+    public void follow() {
+        while (true) {
+            try (Socket socket = new Socket()) {
+                socket.connect(primary, RETRY_MILLIS * 4);
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout((int) failoverMillis);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+                Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                out.write(BatchRunner.join("SYNC", epoch, String.valueOf(lastSeq)) + "\n");
+                out.flush();
+                if (receive(in, out)) {
+                    exited = true;
+                    System.out.println("Primary exited; waiting for it to return.");
+                }
+            } catch (SocketTimeoutException e) {
+                System.out.println("Primary stopped responding.");
+            } catch (IOException e) {
+                // Not reachable yet, or the connection broke; retry below
+            } catch (RuntimeException e) {
+                // A change that does not apply means the copy drifted; start over from a snapshot
+                System.out.println("Replication out of step (" + e.getMessage() + "); resynchronizing.");
+                epoch = "";
+            }
+            if (!exited && !epoch.isEmpty() && System.currentTimeMillis() - lastContact >= failoverMillis) return;
+            try {
+                Thread.sleep(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Applies lines until the connection ends; returns true if the primary said BYE
+    private boolean receive(BufferedReader in, Writer out) throws IOException {
+        long unacked = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            lastContact = System.currentTimeMillis();
+            exited = false;
+            List<String> f = BatchRunner.split(line);
+            switch (f.get(0)) {
+                case "SNAPSHOT":
+                    replica.reset();
+                    epoch = "";  // Not usable for catch-up until the whole snapshot is in
+                    String snapshotEpoch = f.get(1);
+                    long snapshotSeq = Long.parseLong(f.get(2));
+                    while ((line = in.readLine()) != null && !line.startsWith("END|")) apply(BatchRunner.split(line));
+                    if (line == null) return false;
+                    lastContact = System.currentTimeMillis();
+                    epoch = snapshotEpoch;
+                    lastSeq = snapshotSeq;
+                    unacked++;
+                    break;
+                case "REGISTER":
+                case "LOG":
+                    long seq = Long.parseLong(f.get(1));
+                    if (seq != lastSeq + 1) throw new IllegalStateException("expected change " + (lastSeq + 1) + " but got " + seq);
+                    apply(f);
+                    lastSeq = seq;
+                    unacked++;
+                    break;
+                case "PING":
+                    break;
+                case "BYE":
+                    if (unacked > 0) acknowledge(out);
+                    return true;
+                default:
+                    throw new IllegalStateException("unknown change " + f.get(0));
+            }
+            // Acknowledge once the burst has been applied, or every ACK_BATCH changes during a long one
+            if (unacked > 0 && (unacked >= ACK_BATCH || !in.ready())) {
+                acknowledge(out);
+                unacked = 0;
+            }
+        }
+        return false;
+    }
+
+    private void apply(List<String> f) {
+        if (f.get(0).equals("REGISTER")) {
+            replica.register(new Household(f.get(2), f.get(3), f.get(4), LocalDate.parse(f.get(5))));
+        } else {
+            replica.log(f.get(2), new RecyclingEvent(f.get(3), Double.parseDouble(f.get(4)), LocalDate.parse(f.get(5))));
+        }
+        applied++;
+    }
+
+    private void acknowledge(Writer out) throws IOException {
+        out.write(BatchRunner.join("ACK", String.valueOf(lastSeq)) + "\n");
+        out.flush();
+    }
+}
@@ -0,0 +1,258 @@
+package RecyclingTracker;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import Common.BatchRunner;
+import Common.ShardRing;
+
+/**
+ * Client side of a sharded Eco-Points deployment.
+ *
+ * Households are partitioned across {@link ShardNode} processes by consistent hashing of the
+ * household ID, so registering a household or logging an event talks to exactly one node. Reports
+ * (top household, total weight, counts, listings) are scattered to every node in parallel and the
+ * partial results gathered here.
+ *
+ * Requests and replies use the batch-mode line format, e.g. {@code LOG|H1|glass|2.5|2026-01-31}
+ * answered by {@code OK|LOG|25.0|140.0} or {@code ERR|1|LOG|Household ID not found.}. A node that
+ * cannot be reached surfaces as an UncheckedIOException; requests are never retried, so an event is
+ * never logged twice.
+ */
+public class ShardCluster implements Closeable {
+    static final int SUMMARY_FIELDS = 7;      // id, name, address, joined, points, weight, event count
+    private static final int VIRTUAL_NODES = 128;
+
+    private final ShardRing<Connection> ring = new ShardRing<>(VIRTUAL_NODES);
+    private final List<Connection> connections = new ArrayList<>();
+    private final ExecutorService scatter;
+
+    // A household as reported by a node: details and running totals, without its events
+    private static final class RemoteHousehold implements HouseholdView {
+        private final String id;
+        private final String name;
+        private final String address;
+        private final LocalDate joinDate;
+        private final double totalPoints;
+        private final double totalWeight;
+        private final int eventCount;
+
+        RemoteHousehold(String id, String name, String address, LocalDate joinDate,
+                        double totalPoints, double totalWeight, int eventCount) {
+            this.id = id;
+            this.name = name;
+            this.address = address;
+            this.joinDate = joinDate;
+            this.totalPoints = totalPoints;
+            this.totalWeight = totalWeight;
+            this.eventCount = eventCount;
+        }
+
+        @Override
+        public String getId() { return id; }
+
+        @Override
+        public String getName() { return name; }
+
+        @Override
+        public String getAddress() { return address; }
+
+        @Override
+        public LocalDate getJoinDate() { return joinDate; }
+
+        // Summaries carry no events; findWithEvents fetches them
+        @Override
+        public List<RecyclingEvent> getEvents() { return List.of(); }
+
+        @Override
+        public int getEventCount() { return eventCount; }
+
+        @Override
+        public double getTotalPoints() { return totalPoints; }
+
+        @Override
+        public double getTotalWeight() { return totalWeight; }
+    }
+
+    // One persistent connection to a node; calls on it are serialized
+    private static final class Connection {
+        final String name;
+        final InetSocketAddress address;
+        private Socket socket;
+        private BufferedReader in;
+        private PrintWriter out;
+
+        Connection(String name, InetSocketAddress address) {
+            this.name = name;
+            this.address = address;
+        }
+
+        synchronized List<String> call(String... request) {
+            try {
+                if (socket == null) {
+                    socket = new Socket();
+                    socket.connect(address, 2000);
+                    socket.setTcpNoDelay(true);
+                    in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                    out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)));
+                }
+                out.println(BatchRunner.join(request));
+                out.flush();
+                String line = in.readLine();
+                if (line == null) throw new EOFException("connection closed");
+                List<String> reply = BatchRunner.split(line);
+                if (reply.get(0).equals("OK")) return reply.subList(2, reply.size());
+                // ERR|line|NAME|message
+                throw new IllegalArgumentException(reply.size() > 3 ? reply.get(3) : line);
+            } catch (IOException e) {
+                disconnect();
+                throw new UncheckedIOException("Shard " + name + " is unavailable: " + e.getMessage(), e);
+            }
+        }
+
+        synchronized void disconnect() {
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // Already broken
+                }
+                socket = null;
+            }
+        }
+    }
+
+    // Connects lazily to every node in a comma-separated list of host:port addresses
+    public ShardCluster(String addresses) {
+        for (String address : addresses.split(",")) {
+            String trimmed = address.trim();
+            int colon = trimmed.lastIndexOf(':');
+            if (colon < 0) throw new IllegalArgumentException("Expected host:port but got " + trimmed);
+            Connection connection = new Connection(trimmed,
+                    new InetSocketAddress(trimmed.substring(0, colon), Integer.parseInt(trimmed.substring(colon + 1))));
+            ring.add(trimmed, connection);
+            connections.add(connection);
+        }
+        scatter = Executors.newFixedThreadPool(connections.size(), r -> {
+            Thread thread = new Thread(r, "shard-scatter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getNodeCount() {
+        return connections.size();
+    }
+
+    public void register(HouseholdView household) {
+        ring.shardFor(household.getId()).call("REGISTER", household.getId(), household.getName(),
+                household.getAddress(), household.getJoinDate().toString());
+    }
+
+    // Logs an event on the owning node and returns the household's new point total
+    public double log(String id, RecyclingEvent event) {
+        List<String> reply = ring.shardFor(id).call("LOG", id, event.getMaterialType(),
+                String.valueOf(event.getWeight()), event.getDate().toString());
+        return Double.parseDouble(reply.get(1));
+    }
+
+    // The household's details and totals, or null if it is not registered
+    public HouseholdView find(String id) {
+        List<String> reply = ring.shardFor(id).call("HOUSEHOLD", id);
+        return reply.isEmpty() ? null : fromSummary(reply, 0);
+    }
+
+    // The household with its full event history, or null if it is not registered
+    public HouseholdView findWithEvents(String id) {
+        HouseholdView summary = find(id);
+        if (summary == null) return null;
+        List<String> reply = ring.shardFor(id).call("EVENTS", id);
+        Household household = new Household(summary.getId(), summary.getName(), summary.getAddress(), summary.getJoinDate());
+        int count = Integer.parseInt(reply.get(0));
+        for (int i = 0; i < count; i++) {
+            household.addEvent(new RecyclingEvent(reply.get(1 + i * 3), Double.parseDouble(reply.get(2 + i * 3)),
+                    LocalDate.parse(reply.get(3 + i * 3))));
+        }
+        return household;
+    }
+
+    // Highest points across all nodes; ties go to the smallest ID, as on each node
+    public HouseholdView top() {
+        HouseholdView top = null;
+        for (List<String> reply : gather(c -> c.call("TOP"))) {
+            if (reply.isEmpty()) continue;
+            HouseholdView candidate = fromSummary(reply, 0);
+            if (top == null || candidate.getTotalPoints() > top.getTotalPoints()
+                    || (candidate.getTotalPoints() == top.getTotalPoints() && candidate.getId().compareTo(top.getId()) < 0)) {
+                top = candidate;
+            }
+        }
+        return top;
+    }
+
+    public double totalWeight() {
+        double total = 0.0;
+        for (List<String> reply : gather(c -> c.call("TOTAL"))) total += Double.parseDouble(reply.get(0));
+        return total;
+    }
+
+    public int count() {
+        int count = 0;
+        for (List<String> reply : gather(c -> c.call("COUNT"))) count += Integer.parseInt(reply.get(0));
+        return count;
+    }
+
+    // Every household on every node, details and totals only
+    public void forEach(Consumer<? super HouseholdView> action) {
+        for (List<String> reply : gather(c -> c.call("LIST"))) {
+            for (int i = 0; i < reply.size(); i += SUMMARY_FIELDS) action.accept(fromSummary(reply, i));
+        }
+    }
+
+    public void save() {
+        gather(c -> c.call("SAVE"));
+    }
+
+    @Override
+    public void close() {
+        scatter.shutdownNow();
+        for (Connection connection : connections) connection.disconnect();
+    }
+
+    static String[] summaryFields(HouseholdView h) {
+        return new String[] {h.getId(), h.getName(), h.getAddress(), h.getJoinDate().toString(),
+                String.valueOf(h.getTotalPoints()), String.valueOf(h.getTotalWeight()), String.valueOf(h.getEventCount())};
+    }
+
+    private static HouseholdView fromSummary(List<String> f, int offset) {
+        return new RemoteHousehold(f.get(offset), f.get(offset + 1), f.get(offset + 2), LocalDate.parse(f.get(offset + 3)),
+                Double.parseDouble(f.get(offset + 4)), Double.parseDouble(f.get(offset + 5)), Integer.parseInt(f.get(offset + 6)));
+    }
+
+    // Sends a request to every node in parallel and waits for all replies, in node order
+    private <T> List<T> gather(Function<Connection, T> request) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(connections.size());
+        for (Connection connection : connections) {
+            futures.add(CompletableFuture.supplyAsync(() -> request.apply(connection), scatter));
+        }
+        List<T> replies = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                replies.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw e;
+            }
+        }
+        return replies;
+    }
+}
@@ -0,0 +1,200 @@
+package RecyclingTracker;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.*;
+import Common.BatchRunner;
+import Common.RecordStore;
+
+/**
+ * One shard of a sharded Eco-Points deployment: owns the households the ring assigns to it.
+ *
+ * Run one process per shard, e.g. {@code java RecyclingTracker.ShardNode 7001 shard-1}, and point
+ * the tracker at them with {@code -Decopoints.shards=127.0.0.1:7001,127.0.0.1:7002}. Each node keeps
+ * its households in its own record stores and answers the line protocol of the tracker's batch mode
+ * (see {@link ShardCluster}) on a loopback socket, one thread per connection.
+ */
+public class ShardNode implements Closeable {
+    private final Map<String, Household> households = new HashMap<>(); // Guarded by this node
+    private final RecordStore<Household> householdStore;
+    private final RecordStore<RecyclingEvent> eventStore;
+    private final ServerSocket server;
+
+    public ShardNode(int port, Path dataDirectory) throws IOException {
+        householdStore = new RecordStore<>(dataDirectory, "households", new HouseholdCodec());
+        eventStore = new RecordStore<>(dataDirectory, "events", new RecyclingEventCodec());
+        // Same replay as the tracker: households first, then their events in sequence order
+        householdStore.forEach((id, household) -> households.put(id, household));
+        eventStore.forEach((key, event) -> {
+            Household household = households.get(key.substring(0, key.indexOf('\n')));
+            if (household != null) household.addEvent(event);
+        });
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: java RecyclingTracker.ShardNode <port> [data directory]");
+            System.exit(2);
+        }
+        int port = Integer.parseInt(args[0]);
+        Path dataDirectory = Paths.get(args.length > 1 ? args[1] : "ecopoints-shard-" + port);
+        ShardNode node = new ShardNode(port, dataDirectory);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                node.close();
+            } catch (IOException e) {
+                System.err.println("Error saving data: " + e.getMessage());
+            }
+        }));
+        System.err.println("Shard node listening on " + node.getPort() + " with " + node.size() + " households");
+        node.serve();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public synchronized int size() {
+        return households.size();
+    }
+
+    // Accepts connections until the node is closed
+    public void serve() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Thread handler = new Thread(() -> handle(socket), "shard-connection");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                if (!server.isClosed()) System.err.println("Error accepting connection: " + e.getMessage());
+            }
+        }
+    }
+
+    // Starts serving on a background thread, for running several nodes in one JVM
+    public void start() {
+        Thread acceptor = new Thread(this::serve, "shard-node-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        synchronized (this) {
+            householdStore.close();
+            eventStore.close();
+        }
+    }
+
+    private void handle(Socket socket) {
+        BatchRunner runner = commands();
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8)))) {
+            runner.run(in, out);
+        } catch (IOException e) {
+            // The client went away; nothing to clean up
+        }
+    }
+
+    // The protocol; every command runs under the node's lock so reports never see half an update
+    private BatchRunner commands() {
+        return new BatchRunner()
+                .register("PING", 0, 0, f -> new String[] {String.valueOf(getPort())})
+                .register("REGISTER", 4, 4, f -> {
+                    synchronized (this) {
+                        if (households.containsKey(f[0])) throw new IllegalArgumentException("Household ID already exists.");
+                        Household household = new Household(f[0], f[1], f[2], LocalDate.parse(f[3]));
+                        householdStore.put(household.getId(), household);
+                        households.put(household.getId(), household);
+                        return new String[] {household.getId()};
+                    }
+                })
+                .register("LOG", 4, 4, f -> {
+                    double weight = Double.parseDouble(f[2]);
+                    if (!(weight > 0)) throw new IllegalArgumentException("Invalid weight. Must be a positive number.");
+                    RecyclingEvent event = new RecyclingEvent(f[1], weight, LocalDate.parse(f[3]));
+                    synchronized (this) {
+                        Household household = require(f[0]);
+                        eventStore.put(RecyclingEventCodec.keyOf(household.getId(), household.getEvents().size()), event);
+                        household.addEvent(event);
+                        return new String[] {String.valueOf(event.getEcoPoints()), String.valueOf(household.getTotalPoints())};
+                    }
+                })
+                .register("HOUSEHOLD", 1, 1, f -> {
+                    synchronized (this) {
+                        // No fields means the household is not registered here
+                        Household household = households.get(f[0]);
+                        return household == null ? new String[0] : ShardCluster.summaryFields(household);
+                    }
+                })
+                .register("EVENTS", 1, 1, f -> {
+                    synchronized (this) {
+                        List<RecyclingEvent> events = require(f[0]).getEvents();
+                        String[] fields = new String[1 + events.size() * 3];
+                        fields[0] = String.valueOf(events.size());
+                        for (int i = 0; i < events.size(); i++) {
+                            RecyclingEvent e = events.get(i);
+                            fields[1 + i * 3] = e.getMaterialType();
+                            fields[2 + i * 3] = String.valueOf(e.getWeight());
+                            fields[3 + i * 3] = e.getDate().toString();
+                        }
+                        return fields;
+                    }
+                })
+                .register("LIST", 0, 0, f -> {
+                    synchronized (this) {
+                        List<String> fields = new ArrayList<>(households.size() * ShardCluster.SUMMARY_FIELDS);
+                        for (Household h : households.values()) {
+                            fields.addAll(Arrays.asList(ShardCluster.summaryFields(h)));
+                        }
+                        return fields.toArray(new String[0]);
+                    }
+                })
+                .register("TOP", 0, 0, f -> {
+                    synchronized (this) {
+                        Household top = null;
+                        for (Household h : households.values()) {
+                            if (top == null || h.getTotalPoints() > top.getTotalPoints()
+                                    || (h.getTotalPoints() == top.getTotalPoints() && h.getId().compareTo(top.getId()) < 0)) {
+                                top = h;
+                            }
+                        }
+                        return top == null ? new String[0] : ShardCluster.summaryFields(top);
+                    }
+                })
+                .register("TOTAL", 0, 0, f -> {
+                    synchronized (this) {
+                        double total = 0.0;
+                        for (Household h : households.values()) total += h.getTotalWeight();
+                        return new String[] {String.valueOf(total)};
+                    }
+                })
+                .register("COUNT", 0, 0, f -> new String[] {String.valueOf(size())})
+                .register("SAVE", 0, 0, f -> {
+                    synchronized (this) {
+                        householdStore.sync();
+                        eventStore.sync();
+                        return null;
+                    }
+                });
+    }
+
+    private Household require(String id) {
+        Household household = households.get(id);
+        if (household == null) throw new IllegalArgumentException("Household ID not found.");
+        return household;
+    }
+}
@@ -0,0 +1,28 @@
+package RecyclingTracker;
+
+import java.util.Map;
+
+/**
+ * The analytics sketches and outlier statistics as saved at one point, with how many events of each
+ * household they had seen then. Startup restores them and only feeds in the events logged after that,
+ * instead of reading every event ever logged.
+ */
+public final class StatisticsCheckpoint {
+    private final RecyclingAnalytics analytics;
+    private final WeightOutlierDetector outliers;
+    private final Map<String, Integer> eventCounts;
+
+    public StatisticsCheckpoint(RecyclingAnalytics analytics, WeightOutlierDetector outliers, Map<String, Integer> eventCounts) {
+        this.analytics = analytics;
+        this.outliers = outliers;
+        this.eventCounts = eventCounts;
+    }
+
+    public RecyclingAnalytics getAnalytics() { return analytics; }
+    public WeightOutlierDetector getOutliers() { return outliers; }
+
+    // Events of a household the statistics had seen, numbered from 0
+    public int getEventCount(String householdId) { return eventCounts.getOrDefault(householdId, 0); }
+
+    public Map<String, Integer> getEventCounts() { return eventCounts; }
+}
@@ -0,0 +1,39 @@
+package RecyclingTracker;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import Common.RecordCodec;
+
+/**
+ * Binary form of a statistics checkpoint: a format number, the per-household event counts, then the
+ * analytics sketches and outlier statistics as they are. A checkpoint in an unknown format fails to
+ * read, and the statistics are then rebuilt from the events.
+ */
+public class StatisticsCheckpointCodec implements RecordCodec<StatisticsCheckpoint> {
+    private static final int FORMAT = 1;
+
+    @Override
+    public void write(StatisticsCheckpoint checkpoint, DataOutput out) throws IOException {
+        out.writeInt(FORMAT);
+        out.writeInt(checkpoint.getEventCounts().size());
+        for (Map.Entry<String, Integer> entry : checkpoint.getEventCounts().entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+        checkpoint.getAnalytics().write(out);
+        checkpoint.getOutliers().write(out);
+    }
+
+    @Override
+    public StatisticsCheckpoint read(DataInput in) throws IOException {
+        int format = in.readInt();
+        if (format != FORMAT) throw new IOException("Unknown statistics format " + format);
+        int households = in.readInt();
+        Map<String, Integer> eventCounts = new HashMap<>(households * 2);
+        for (int i = 0; i < households; i++) eventCounts.put(in.readUTF(), in.readInt());
+        return new StatisticsCheckpoint(RecyclingAnalytics.read(in), WeightOutlierDetector.read(in), eventCounts);
+    }
+}
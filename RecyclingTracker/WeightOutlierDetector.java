@@ -0,0 +1,100 @@
+package RecyclingTracker;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import Common.EwmaStats;
+
+/**
+ * Flags recycling weights far above what a household usually logs for a material.
+ *
+ * Weights are compared on a log scale, where "ten times the usual" is the same distance whatever
+ * the usual weight is. Each household and material pair keeps its own exponentially weighted mean
+ * and variance; until a pair has seen enough events, the statistics of the material across every
+ * household are used instead. Checking and updating are O(1) per event, so detection happens as
+ * events are logged, never by rescanning; the statistics are saved with the analytics sketches
+ * (see {@link StatisticsCheckpoint}) rather than rebuilt from the events at startup.
+ *
+ * Thread-safe: events logged after the last save are fed in by a background thread while new ones are checked.
+ */
+public class WeightOutlierDetector {
+    private static final double ALPHA = 0.05;          // Roughly the last 40 events count
+    private static final int WARM_UP = 8;              // Events seen before statistics are trusted
+    private static final double THRESHOLD = 4.0;       // Standard deviations above the mean
+    private static final double MIN_DEVIATION = 0.5;   // On the log scale, so steady households flag only above ~7x usual
+
+    private final Map<String, EwmaStats> byHousehold = new HashMap<>();  // Keyed by household and material
+    private final Map<String, EwmaStats> byMaterial = new HashMap<>();
+
+    // Why the event looks wrong, or null if it looks normal
+    public synchronized String check(String householdId, RecyclingEvent event) {
+        String material = material(event.getMaterialType());
+        EwmaStats stats = byHousehold.get(key(householdId, material));
+        String whose = "household " + householdId;
+        if (stats == null || stats.getCount() < WARM_UP) {
+            stats = byMaterial.get(material);
+            whose = "all households";
+            if (stats == null || stats.getCount() < WARM_UP) return null;
+        }
+        double logWeight = Math.log(event.getWeight());
+        if (stats.score(logWeight, MIN_DEVIATION) <= THRESHOLD) return null;
+        return String.format(Locale.ROOT, "%s kg of %s is far above the usual %.2f kg for %s",
+                event.getWeight(), material, Math.exp(stats.getMean()), whose);
+    }
+
+    // Records an accepted event; quarantined events are left out so they do not skew the statistics
+    public synchronized void accept(String householdId, RecyclingEvent event) {
+        String material = material(event.getMaterialType());
+        double logWeight = Math.log(event.getWeight());
+        byHousehold.computeIfAbsent(key(householdId, material), k -> new EwmaStats(ALPHA)).add(logWeight);
+        byMaterial.computeIfAbsent(material, k -> new EwmaStats(ALPHA)).add(logWeight);
+    }
+
+    public synchronized void clear() {
+        byHousehold.clear();
+        byMaterial.clear();
+    }
+
+    // Replaces the statistics with those of a saved copy, which is not used afterwards
+    public synchronized void restore(WeightOutlierDetector saved) {
+        clear();
+        byHousehold.putAll(saved.byHousehold);
+        byMaterial.putAll(saved.byMaterial);
+    }
+
+    public synchronized void write(DataOutput out) throws IOException {
+        writeStats(byHousehold, out);
+        writeStats(byMaterial, out);
+    }
+
+    public static WeightOutlierDetector read(DataInput in) throws IOException {
+        WeightOutlierDetector detector = new WeightOutlierDetector();
+        readStats(detector.byHousehold, in);
+        readStats(detector.byMaterial, in);
+        return detector;
+    }
+
+    private static void writeStats(Map<String, EwmaStats> stats, DataOutput out) throws IOException {
+        out.writeInt(stats.size());
+        for (Map.Entry<String, EwmaStats> entry : stats.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().write(out);
+        }
+    }
+
+    private static void readStats(Map<String, EwmaStats> stats, DataInput in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) stats.put(in.readUTF(), EwmaStats.read(in));
+    }
+
+    private static String key(String householdId, String material) {
+        return householdId + "\n" + material;
+    }
+
+    private static String material(String material) {
+        return material.trim().toLowerCase(Locale.ROOT);
+    }
+}